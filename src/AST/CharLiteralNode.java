@@ -1,7 +1,19 @@
 package AST;
 
+import Interpreter.DataTypes.InterpreterDataType;
+
 public class CharLiteralNode implements ExpressionNode {
     public char value;
+    // What the interpreter evaluates this to, made the first time; it is shared, so never assigned to
+    public InterpreterDataType sharedValue;
+    // Returns sharedValue, once the specializing engine has evaluated this
+    public Specialized specialized;
+
+    @Override
+    public Specialized specialized() {
+        return specialized;
+    }
+
     @Override
     public String toString() {
         return "'" + value + "'";
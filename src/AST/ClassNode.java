@@ -5,6 +5,8 @@ import java.util.List;
 
 public class ClassNode implements Node {
     public String name;
+    // Set by Interpreter.TypeTable when the program is loaded
+    public int typeId = -1;
     public List<String> interfaces = new ArrayList<>();
 
     public List<ConstructorNode> constructors = new ArrayList<>();
@@ -5,6 +5,11 @@ public class CompareNode implements ExpressionNode {
     public ExpressionNode right;
     public enum CompareOperations { lt, le, gt, ge, eq, ne}
     public CompareOperations op;
+    // Type ID of both operands when they are known to be the same type, set by the TypeChecker; otherwise -1
+    public int operandType = -1;
+    // What the specializing engine has rewritten this node into
+    public Specialization specialization = Specialization.UNINITIALIZED;
+    public Specialized specialized;
     private String opToString() {
         switch (op) {
             case lt -> {return " < ";}
@@ -17,6 +22,11 @@ public class CompareNode implements ExpressionNode {
         throw new AssertionError("Unreachable");
     }
 
+    @Override
+    public Specialized specialized() {
+        return specialized;
+    }
+
     @Override
     public String toString() {
         return left + opToString() + right;
@@ -7,6 +7,8 @@ public class ConstructorNode implements Node {
     public List<VariableDeclarationNode> parameters = new ArrayList<>();
     public List<VariableDeclarationNode> locals = new ArrayList<>();
     public List<StatementNode> statements = new ArrayList<>();
+    // Number of frame slots needed for parameters and locals (set by the Resolver)
+    public int frameSize;
 
     @Override
     public String toString() {
@@ -1,4 +1,8 @@
 package AST;
 
 public interface ExpressionNode  extends Node {
+    // What the specializing engine runs for this node instead of evaluating it; null until the node has been rewritten
+    default Specialized specialized() {
+        return null;
+    }
 }
@@ -8,6 +8,8 @@ public class IfNode implements StatementNode {
     public ExpressionNode condition;
     public List<StatementNode> statements = new ArrayList<>();
     public Optional<ElseNode> elseStatement;
+    // Type ID of the condition, set by the TypeChecker; -1 if it can't be known before running
+    public int conditionType = -1;
 
     @Override
     public String toString() {
@@ -0,0 +1,21 @@
+package AST;
+
+/**
+ * The method a call went to the first time it ran, and what it was called with. While the same kind of receiver is
+ * called with the same kinds of arguments, the same method would be found again, so it doesn't have to be looked for.
+ */
+public final class InlineCache {
+    // The class of the receiver, or the class a shared method was called through
+    public final ClassNode receiverClass;
+    public final MethodDeclarationNode method;
+    public final boolean isShared;
+    // For each argument, its class if it is an object, otherwise the Java class of its value
+    public final Object[] argumentShapes;
+
+    public InlineCache(ClassNode receiverClass, MethodDeclarationNode method, boolean isShared, Object[] argumentShapes) {
+        this.receiverClass = receiverClass;
+        this.method = method;
+        this.isShared = isShared;
+        this.argumentShapes = argumentShapes;
+    }
+}
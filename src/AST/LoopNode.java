@@ -8,6 +8,8 @@ public class LoopNode implements StatementNode {
     public Optional<VariableReferenceNode> assignment;
     public ExpressionNode expression;
     public List<StatementNode> statements = new ArrayList<>();
+    // Type ID of the expression (boolean, or an iterator object), set by the TypeChecker; -1 if it can't be known before running
+    public int expressionType = -1;
 
     @Override
     public String toString() {
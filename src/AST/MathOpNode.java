@@ -5,6 +5,11 @@ public class MathOpNode implements ExpressionNode {
     public ExpressionNode right;
     public enum MathOperations { add, subtract, multiply, divide, modulo }
     public MathOperations op;
+    // Type ID of the result (number or string), set by the TypeChecker; -1 if it can't be known before running
+    public int type = -1;
+    // What the specializing engine has rewritten this node into
+    public Specialization specialization = Specialization.UNINITIALIZED;
+    public Specialized specialized;
 
     private String opToString() {
         switch (op) {
@@ -17,6 +22,11 @@ public class MathOpNode implements ExpressionNode {
         throw new AssertionError("Unreachable");
     }
 
+    @Override
+    public Specialized specialized() {
+        return specialized;
+    }
+
     @Override
     public String toString() {
         return left + opToString() + right;
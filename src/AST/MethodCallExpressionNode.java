@@ -9,7 +9,17 @@ import java.util.Optional;
 public class MethodCallExpressionNode implements ExpressionNode {
     public Optional<String> objectName;
     public String methodName;
+    // The variable the method is called on; null if there is no objectName or it names a class (set by the Resolver)
+    public VariableReferenceNode objectReference;
     public List<ExpressionNode> parameters = new ArrayList<>();
+    // Once the specializing engine has made this call, makes it again as the same statement, so its inline cache lasts between calls
+    public Specialized specialized;
+
+    @Override
+    public Specialized specialized() {
+        return specialized;
+    }
+
     @Override
     public String toString() {
         return (objectName.map(s -> s + ".").orElse("")) +
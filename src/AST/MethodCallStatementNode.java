@@ -17,12 +17,21 @@ public class MethodCallStatementNode implements StatementNode {
         objectName = mce.objectName;
         methodName = mce.methodName;
         parameters = mce.parameters;
+        objectReference = mce.objectReference;
     }
 
     public Optional<String> objectName;
     public String methodName;
+    // The variable the method is called on; null if there is no objectName or it names a class (set by the Resolver)
+    public VariableReferenceNode objectReference;
     public List<VariableReferenceNode> returnValues = new ArrayList<>();
     public List<ExpressionNode> parameters = new ArrayList<>();
+    // What the specializing engine has rewritten this call into, and the method it goes to while MONOMORPHIC
+    public Specialization specialization = Specialization.UNINITIALIZED;
+    public InlineCache inlineCache;
+    // A call of the method it is in, as its last statement, returning into its return variables: it runs in the
+    // caller's frame (set by Interpreter.Optimizer.TailCallFinder)
+    public boolean isTailCall;
     public String toString() {
         return
                 Node.variableReferenceListToString(returnValues) + (returnValues.isEmpty() ? "" : " = ") +
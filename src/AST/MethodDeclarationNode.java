@@ -12,6 +12,10 @@ public class MethodDeclarationNode implements Node {
     public List<VariableDeclarationNode> returns = new ArrayList<>();
     public List<VariableDeclarationNode> locals = new ArrayList<>();
     public List<StatementNode> statements = new ArrayList<>();
+    // Number of frame slots needed for parameters, locals, returns and implicit variables (set by the Resolver)
+    public int frameSize;
+    // True if the method's results depend only on its arguments and it has no side effects (set by Interpreter.Optimizer.PurityAnalyzer)
+    public boolean isPure;
 
     @Override
     public String toString() {
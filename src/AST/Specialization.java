@@ -0,0 +1,23 @@
+package AST;
+
+/**
+ * What a node has rewritten itself into in the specializing engine, after seeing the values it works on.
+ * <br></br>
+ * Every node starts UNINITIALIZED. The first time it runs it picks the fast form for what it saw, and keeps that form
+ * for as long as its guard holds. When the guard fails it goes to GENERIC, which does everything the tree walker does,
+ * and never specializes again.
+ */
+public enum Specialization {
+    UNINITIALIZED,
+    // Math or a comparison on two numbers
+    NUMBER,
+    // Joining strings and characters
+    STRING,
+    // A variable read straight from the frame
+    LOCAL,
+    // A variable read straight from the object's members
+    MEMBER,
+    // A method call that has only ever gone to one method (see InlineCache)
+    MONOMORPHIC,
+    GENERIC
+}
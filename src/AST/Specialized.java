@@ -0,0 +1,15 @@
+package AST;
+
+import Interpreter.DataTypes.InterpreterDataType;
+import Interpreter.DataTypes.ObjectIDT;
+
+import java.util.Optional;
+
+/**
+ * What a node the specializing engine has rewritten runs instead of being evaluated: the fast form its Specialization
+ * names, with the guard that sends it back to generic built in.
+ */
+@FunctionalInterface
+public interface Specialized {
+    InterpreterDataType evaluate(InterpreterDataType[] locals, Optional<ObjectIDT> object);
+}
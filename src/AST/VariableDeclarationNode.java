@@ -3,6 +3,8 @@ package AST;
 public class VariableDeclarationNode implements Node {
     public String type;
     public String name;
+    // ID of `type`, set by Interpreter.TypeTable when the program is loaded
+    public int typeId = -1;
 
     @Override
     public String toString() {
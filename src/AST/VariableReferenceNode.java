@@ -2,6 +2,19 @@ package AST;
 
 public class VariableReferenceNode implements Node,ExpressionNode {
     public String name;
+    // Filled in by the Resolver: a frame slot, or an index into the object's members if isMember
+    public int slot = -1;
+    public boolean isMember = false;
+    // Type ID of the variable, set by the TypeChecker; -1 if it can't be known before running
+    public int type = -1;
+    // How the specializing engine reads this variable
+    public Specialization specialization = Specialization.UNINITIALIZED;
+    public Specialized specialized;
+
+    @Override
+    public Specialized specialized() {
+        return specialized;
+    }
 
     @Override
     public String toString() {
@@ -4,7 +4,6 @@ import AST.BuiltInMethodDeclarationNode;
 import Interpreter.DataTypes.InterpreterDataType;
 import Interpreter.DataTypes.ObjectIDT;
 
-import java.util.HashMap;
 import java.util.List;
 
 public class CloneObjectMethod extends BuiltInMethodDeclarationNode {
@@ -24,7 +23,7 @@ public class CloneObjectMethod extends BuiltInMethodDeclarationNode {
         if (!params.isEmpty())
             throw new RuntimeException("Exactly 0 arguments expected");
         var clone = new ObjectIDT(toBeCloned.astNode); // Copy over class
-        clone.members.putAll(toBeCloned.members); // Copy over members
+        System.arraycopy(toBeCloned.members, 0, clone.members, 0, clone.members.length); // Copy over members
         return List.of(clone);
     }
 }
@@ -0,0 +1,125 @@
+package Interpreter.Compiled;
+
+import AST.ClassNode;
+import AST.MethodCallStatementNode;
+import Interpreter.CloneObjectMethod;
+import Interpreter.CreateInteratorMethodDeclaration;
+import Interpreter.Interpreter;
+import Interpreter.DataTypes.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * One method call in the program. Which methods the call could mean (by name and number of returns) is worked out
+ * once per class, and kept for as long as the calls keep going to objects of the same class, so each call only has
+ * to check its arguments' types against a few candidates.
+ * <br></br>
+ * Finds and runs methods the same way as Interpreter.findMethodForMethodCallAndRunIt().
+ */
+class CallSite {
+    private enum Kind { SHARED, SELF, OBJECT }
+
+    private final Compiler compiler;
+    private final MethodCallStatementNode call;
+    private final Kind kind;
+    private final Expression[] arguments;
+    // The variable holding the object, for OBJECT calls
+    private final Expression caller;
+    // For SHARED calls, the class; otherwise the class of the last object called on
+    private ClassNode cachedClass;
+    private CompiledMethod[] candidates;
+
+    CallSite(Compiler compiler, MethodCallStatementNode call) {
+        this.compiler = compiler;
+        this.call = call;
+        arguments = compiler.compileAll(call.parameters);
+        var classNode = call.objectName.map(compiler::classNamed).orElse(null);
+        if (call.objectName.isEmpty()) {
+            kind = Kind.SELF;
+            caller = null;
+        } else if (classNode != null) {
+            kind = Kind.SHARED;
+            caller = null;
+            cachedClass = classNode;
+            candidates = findCandidates(classNode, true);
+        } else {
+            kind = Kind.OBJECT;
+            caller = call.objectReference == null ? null : compiler.compileReference(call.objectReference);
+        }
+    }
+
+    /**
+     * @return the method's return variables
+     */
+    InterpreterDataType[] invoke(Frame frame) {
+        var values = new InterpreterDataType[arguments.length];
+        for (int i = 0; i < arguments.length; i++)
+            values[i] = Interpreter.copy(arguments[i].execute(frame));
+
+        switch (kind) {
+            case SHARED -> {
+                var method = match(values);
+                if (method == null)
+                    throw new RuntimeException("shared method '%s' not found in '%s'".formatted(call.methodName, cachedClass.name));
+                return method.invoke(null, values);
+            }
+            case SELF -> {
+                if (frame.object == null)
+                    throw new RuntimeException("Calling object or class not found for method " + call);
+                return methodIn(frame.object, values).invoke(frame.object, values);
+            }
+            default -> {
+                if (caller == null)
+                    throw new RuntimeException("Unable to find variable " + call.objectName.get());
+                var target = caller.execute(frame);
+                while (target instanceof ReferenceIDT reference)
+                    target = reference.refersTo.orElseThrow(() -> new RuntimeException("<Null> reference exception"));
+                if (target instanceof ObjectIDT object) {
+                    // `clone` is a built-in method of all objects
+                    if (call.methodName.equals("clone"))
+                        return new CloneObjectMethod(object).Execute(Arrays.asList(values)).toArray(CompiledMethod.NO_VALUES);
+                    return methodIn(object, values).invoke(object, values);
+                } else if (target instanceof NumberIDT number) {
+                    // `times` is the only built-in method of all numbers
+                    if (!call.methodName.equals("times"))
+                        throw new RuntimeException("Method %s not found for type <Number> ".formatted(call.methodName));
+                    var times = new CreateInteratorMethodDeclaration(number, compiler.interatorClass);
+                    return times.Execute(Arrays.asList(values)).toArray(CompiledMethod.NO_VALUES);
+                }
+                throw new RuntimeException("Method %s not found in %s".formatted(call.methodName, call.objectName.get()));
+            }
+        }
+    }
+
+    private CompiledMethod methodIn(ObjectIDT object, InterpreterDataType[] values) {
+        if (object.astNode != cachedClass) {
+            cachedClass = object.astNode;
+            candidates = findCandidates(object.astNode, false);
+        }
+        var method = match(values);
+        if (method == null)
+            throw new RuntimeException("Unable to resolve method call " + call);
+        return method;
+    }
+
+    // The methods that could match the call, before looking at the arguments, in the order the interpreter tries them
+    private CompiledMethod[] findCandidates(ClassNode classNode, boolean sharedOnly) {
+        var found = new ArrayList<CompiledMethod>();
+        for (var method : classNode.methods) {
+            if (!method.name.equals(call.methodName) || call.returnValues.size() > method.returns.size())
+                continue;
+            if (sharedOnly && (!method.isShared || method.isPrivate))
+                continue;
+            found.add(compiler.methodFor(method));
+        }
+        return found.toArray(new CompiledMethod[0]);
+    }
+
+    private CompiledMethod match(InterpreterDataType[] values) {
+        for (var candidate : candidates)
+            if (compiler.argumentsMatch(candidate.declaration, values))
+                return candidate;
+        return null;
+    }
+}
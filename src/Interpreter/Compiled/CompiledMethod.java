@@ -0,0 +1,92 @@
+package Interpreter.Compiled;
+
+import AST.BuiltInMethodDeclarationNode;
+import AST.MethodDeclarationNode;
+import AST.VariableDeclarationNode;
+import Interpreter.Interpreter;
+import Interpreter.MemoCache;
+import Interpreter.DataTypes.InterpreterDataType;
+import Interpreter.DataTypes.ObjectIDT;
+
+import java.util.Arrays;
+
+/**
+ * A method, ready to be called. The body isn't compiled until the first call, so methods that never run cost nothing.
+ * Built-in methods are called through the same interface, but just run Execute().
+ */
+public class CompiledMethod {
+    static final InterpreterDataType[] NO_VALUES = new InterpreterDataType[0];
+
+    public final MethodDeclarationNode declaration;
+    private final Compiler compiler;
+    private final VariableDeclarationNode[] locals;
+    private final VariableDeclarationNode[] returns;
+    // Volatile, so a body compiled on another thread (see TieredExecution) is seen whole
+    private volatile Statement body;
+
+    CompiledMethod(MethodDeclarationNode declaration, Compiler compiler) {
+        this.declaration = declaration;
+        this.compiler = compiler;
+        locals = declaration.locals.toArray(new VariableDeclarationNode[0]);
+        returns = declaration.returns.toArray(new VariableDeclarationNode[0]);
+    }
+
+    /**
+     * Compile the body now, instead of on the first call. Two threads compiling it at once just build it twice.
+     * @return the body
+     */
+    public Statement compile() {
+        var compiled = body;
+        if (compiled == null && !(declaration instanceof BuiltInMethodDeclarationNode)) {
+            compiled = compiler.compileBlock(declaration.statements);
+            body = compiled;
+        }
+        return compiled;
+    }
+
+    /**
+     * Same as Interpreter.interpretMethodCall()
+     * @param object - the object the method is called on; null for shared methods
+     * @param arguments - the (already copied) argument values, which become the parameters
+     * @return the return variables
+     */
+    public InterpreterDataType[] invoke(ObjectIDT object, InterpreterDataType[] arguments) {
+        if (declaration instanceof BuiltInMethodDeclarationNode builtIn)
+            return builtIn.Execute(Arrays.asList(arguments)).toArray(NO_VALUES);
+        if (declaration.parameters.size() != arguments.length)
+            throw new RuntimeException("Unexpected number of parameters passed into " + declaration.name);
+        // Pure methods may have already been called with these arguments
+        MemoCache memoCache = compiler.memoCache;
+        MemoCache.Key memoKey = null;
+        if (memoCache != null && declaration.isPure) {
+            memoKey = MemoCache.keyOf(declaration, Arrays.asList(arguments));
+            var remembered = memoCache.get(memoKey);
+            if (remembered != null)
+                return remembered.toArray(NO_VALUES);
+        }
+        var body = compile();
+
+        var frame = new InterpreterDataType[declaration.frameSize];
+        var running = new Frame(frame, object);
+        int firstReturnSlot = arguments.length + locals.length;
+        var values = arguments;
+        do {
+            System.arraycopy(values, 0, frame, 0, values.length);
+            int slot = values.length;
+            for (var local : locals)
+                frame[slot++] = Interpreter.instantiate(local);
+            for (var ret : returns)
+                frame[slot++] = Interpreter.instantiate(ret);
+            // Implicit variables start out empty, also when the frame is reused
+            Arrays.fill(frame, slot, frame.length, null);
+            body.execute(running);
+            // A tail call runs the method again in the same frame
+            values = running.tailCallArguments;
+            running.tailCallArguments = null;
+        } while (values != null);
+        var returned = returns.length == 0 ? NO_VALUES : Arrays.copyOfRange(frame, firstReturnSlot, firstReturnSlot + returns.length);
+        if (memoKey != null)
+            memoCache.put(memoKey, Arrays.asList(returned));
+        return returned;
+    }
+}
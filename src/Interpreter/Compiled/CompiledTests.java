@@ -0,0 +1,37 @@
+package Interpreter.Compiled;
+
+import Interpreter.Interpreter;
+import Interpreter.InterpreterTests;
+import Interpreter.Optimizer.Optimizer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+// Runs every interpreter test on compiled code
+public class CompiledTests extends InterpreterTests {
+    @Override
+    protected Interpreter.Engine engine() {
+        return Interpreter.Engine.COMPILED;
+    }
+
+    private static final String TIMES_LOOP = """
+            class Tran
+                shared start()
+                    number i
+                    number n
+                    number total
+                    n = %d
+                    loop i = n.times()
+                        total = total + i * 2
+                    console.write(total)
+            """;
+
+    @Test
+    public void timesLoopsAllocateNothing() throws Exception {
+        // Warm up, so the JIT doesn't make the second run's allocations different
+        allocatedRunning(TIMES_LOOP.formatted(1000), Interpreter.Engine.COMPILED, new Optimizer());
+        long few = allocatedRunning(TIMES_LOOP.formatted(1000), Interpreter.Engine.COMPILED, new Optimizer());
+        long many = allocatedRunning(TIMES_LOOP.formatted(201000), Interpreter.Engine.COMPILED, new Optimizer());
+        // Less than a byte for each of the extra 200000 times round the loop: no iterator calls, and no NumberIDTs
+        Assertions.assertTrue(many - few < 200000, "%d bytes more".formatted(many - few));
+    }
+}
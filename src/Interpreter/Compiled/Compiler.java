@@ -0,0 +1,495 @@
+package Interpreter.Compiled;
+
+import AST.*;
+import Interpreter.Interpreter;
+import Interpreter.MemoCache;
+import Interpreter.TypeTable;
+import Interpreter.DataTypes.*;
+
+import java.util.*;
+
+/**
+ * Compiles method bodies into trees of Statements and Expressions, each of which does one thing when executed: the
+ * variable slots, the operators, the classes to create and the candidates for each call are all looked up once, here,
+ * instead of every time the code runs.
+ * <br></br>
+ * Compiled code does exactly what Interpreter does when it walks the same AST (including the order things are
+ * evaluated in, and the errors), so the Interpreter is the reference for how it behaves.
+ */
+public class Compiler {
+    private final Interpreter interpreter;
+    private final Map<String, ClassNode> classes = new HashMap<>();
+    // Synchronized, since TieredExecution compiles methods on its own thread
+    private final Map<MethodDeclarationNode, CompiledMethod> methods = Collections.synchronizedMap(new IdentityHashMap<>());
+    final ClassNode interatorClass;
+    private final int iteratorTypeId;
+    final MemoCache memoCache;
+
+    /**
+     * @param interpreter - the interpreter that loaded the program, for its type checks
+     * @param top - the head of the AST, after the interpreter has loaded it
+     * @param interatorClass - the built-in class of the iterators that times() makes
+     * @param iteratorTypeId - the type ID of the `iterator` interface
+     */
+    public Compiler(Interpreter interpreter, TranNode top, ClassNode interatorClass, int iteratorTypeId) {
+        this.interpreter = interpreter;
+        this.interatorClass = interatorClass;
+        this.iteratorTypeId = iteratorTypeId;
+        memoCache = interpreter.getMemoCache();
+        for (var classNode : top.Classes)
+            classes.putIfAbsent(classNode.name, classNode);
+    }
+
+    /**
+     * @return the compiled form of the method; its body is compiled when it is first called
+     */
+    public CompiledMethod methodFor(MethodDeclarationNode method) {
+        // times() makes a new built-in getNext for every iterator, so they aren't kept
+        if (method instanceof BuiltInMethodDeclarationNode)
+            return new CompiledMethod(method, this);
+        return methods.computeIfAbsent(method, m -> new CompiledMethod(m, this));
+    }
+
+    ClassNode classNamed(String name) {
+        return classes.get(name);
+    }
+
+    //              Statements
+
+    Statement compileBlock(List<StatementNode> statements) {
+        var compiled = new Statement[statements.size()];
+        for (int i = 0; i < compiled.length; i++)
+            compiled[i] = compile(statements.get(i));
+        if (compiled.length == 1)
+            return compiled[0];
+        return frame -> {
+            for (var statement : compiled)
+                statement.execute(frame);
+        };
+    }
+
+    private Statement compile(StatementNode statement) {
+        return switch (statement) {
+            // Arithmetic is stored straight into the number it is assigned to, without making a NumberIDT for it
+            case AssignmentNode assignment when assignment.expression instanceof MathOpNode mathOp && mathOp.type == TypeTable.NUMBER -> {
+                var target = compileReference(assignment.target);
+                var number = compileNumber(mathOp);
+                yield frame -> {
+                    var variable = target.execute(frame);
+                    if (variable instanceof NumberIDT value)
+                        value.set(number.execute(frame));
+                    else
+                        variable.Assign(new NumberIDT(number.execute(frame)));
+                };
+            }
+            case AssignmentNode assignment -> {
+                var target = compileReference(assignment.target);
+                var value = compile(assignment.expression);
+                yield frame -> target.execute(frame).Assign(value.execute(frame));
+            }
+            case MethodCallStatementNode methodCall -> compileCallStatement(methodCall);
+            case LoopNode loop -> loop.expressionType == TypeTable.BOOLEAN ? compileBooleanLoop(loop) : compileLoop(loop);
+            case IfNode ifNode -> compileIf(ifNode);
+            default -> throw new RuntimeException("Unknown statement: " + statement);
+        };
+    }
+
+    private Statement compileCallStatement(MethodCallStatementNode methodCall) {
+        if (methodCall.isTailCall)
+            return compileTailCall(methodCall);
+        var call = new CallSite(this, methodCall);
+        if (methodCall.returnValues.isEmpty())
+            return call::invoke;
+        var targets = methodCall.returnValues.stream().map(this::compileStore).toArray(Store[]::new);
+        return frame -> {
+            var returned = call.invoke(frame);
+            for (int i = 0; i < targets.length; i++)
+                targets[i].store(frame, returned[i]);
+        };
+    }
+
+    // Nothing runs after a tail call, so it just leaves the arguments for CompiledMethod.invoke() to start again with
+    private Statement compileTailCall(MethodCallStatementNode methodCall) {
+        var arguments = compileAll(methodCall.parameters);
+        return frame -> {
+            var values = new InterpreterDataType[arguments.length];
+            for (int i = 0; i < arguments.length; i++)
+                values[i] = Interpreter.copy(arguments[i].execute(frame));
+            frame.tailCallArguments = values;
+        };
+    }
+
+    private Statement compileIf(IfNode ifNode) {
+        var then = compileBlock(ifNode.statements);
+        Statement otherwise = ifNode.elseStatement.isPresent() ? compileBlock(ifNode.elseStatement.get().statements) : frame -> { };
+        // The TypeChecker has proven the condition is a boolean
+        if (ifNode.conditionType == TypeTable.BOOLEAN) {
+            var condition = compileCondition(ifNode.condition);
+            return frame -> {
+                if (condition.execute(frame))
+                    then.execute(frame);
+                else
+                    otherwise.execute(frame);
+            };
+        }
+        var condition = compile(ifNode.condition);
+        return frame -> {
+            if (!(condition.execute(frame) instanceof BooleanIDT value))
+                throw new RuntimeException("Expected boolean expression");
+            if (value.getValue())
+                then.execute(frame);
+            else
+                otherwise.execute(frame);
+        };
+    }
+
+    private Statement compileBooleanLoop(LoopNode loop) {
+        var condition = compileCondition(loop.expression);
+        var body = compileBlock(loop.statements);
+        if (loop.assignment.isEmpty()) {
+            return frame -> {
+                while (condition.execute(frame))
+                    body.execute(frame);
+            };
+        }
+        var create = compileStore(loop.assignment.get());
+        var variable = compileReference(loop.assignment.get());
+        return frame -> {
+            create.store(frame, Interpreter.instantiate("boolean"));
+            while (condition.execute(frame)) {
+                variable.execute(frame).Assign(new BooleanIDT(true));
+                body.execute(frame);
+            }
+        };
+    }
+
+    // A loop whose expression's type isn't known before it runs: an iterator, or a boolean
+    private Statement compileLoop(LoopNode loop) {
+        var expression = compile(loop.expression);
+        var body = compileBlock(loop.statements);
+        var create = loop.assignment.map(this::compileStore).orElse(null);
+        var variable = loop.assignment.map(this::compileReference).orElse(null);
+        Statement general = frame -> {
+            var condition = expression.execute(frame);
+            while (condition instanceof ReferenceIDT reference)
+                condition = reference.refersTo.orElseThrow(() -> new RuntimeException("<Null> Reference Exception"));
+            if (condition instanceof ObjectIDT iterator) {
+                if (!interpreter.typeMatchToIDT(iteratorTypeId, iterator))
+                    throw new RuntimeException("Object implementing <iterator> expected");
+                var getNext = findGetNext(iterator);
+                if (create != null)
+                    create.store(frame, Interpreter.instantiate(getNext.declaration.returns.get(1).type));
+                while (true) {
+                    var returned = getNext.invoke(iterator, CompiledMethod.NO_VALUES);
+                    if (!((BooleanIDT) returned[0]).getValue())
+                        break;
+                    if (variable != null)
+                        variable.execute(frame).Assign(returned[1]);
+                    body.execute(frame);
+                }
+            } else if (condition instanceof BooleanIDT) {
+                if (create != null)
+                    create.store(frame, Interpreter.instantiate("boolean"));
+                while (((BooleanIDT) expression.execute(frame)).getValue()) {
+                    if (variable != null)
+                        variable.execute(frame).Assign(new BooleanIDT(true));
+                    body.execute(frame);
+                }
+            } else {
+                throw new RuntimeException("Iterator or Boolean expected as condition");
+            }
+        };
+        if (!(loop.expression instanceof MethodCallExpressionNode call) || !call.methodName.equals("times")
+                || !call.parameters.isEmpty() || call.objectReference == null)
+            return general;
+        return compileTimesLoop(compileReference(call.objectReference), body, create, variable, general);
+    }
+
+    // `loop n.times()` on a number counts from 1 to n itself, the same as Interpreter.interpretTimesLoop(), instead of
+    // making an iterator and calling its getNext() every time round
+    private Statement compileTimesLoop(Expression count, Statement body, Store create, Expression variable, Statement general) {
+        return frame -> {
+            // An object with its own times() method is called like any other
+            if (!(count.execute(frame) instanceof NumberIDT number)) {
+                general.execute(frame);
+                return;
+            }
+            int times = (int) number.getValue();
+            InterpreterDataType value = null;
+            if (create != null) {
+                create.store(frame, Interpreter.instantiate("number"));
+                value = variable.execute(frame);
+            }
+            for (int i = 1; i <= times; i++) {
+                if (value instanceof NumberIDT counter)
+                    counter.set(i);
+                else if (value != null)
+                    value.Assign(NumberIDT.valueOf(i));
+                body.execute(frame);
+            }
+        };
+    }
+
+    /**
+     * @return the rest of a loop that the tree walker has started running, to carry on with compiled
+     */
+    public LoopContinuation continuationOf(LoopNode loop) {
+        return new LoopContinuation(this, compile(loop.expression), compileBlock(loop.statements),
+                loop.assignment.map(this::compileReference).orElse(null));
+    }
+
+    CompiledMethod findGetNext(ObjectIDT iterator) {
+        for (var method : iterator.astNode.methods)
+            if (method.name.equals("getNext") && argumentsMatch(method, CompiledMethod.NO_VALUES))
+                return methodFor(method);
+        throw new RuntimeException("Unable to resolve method call getNext ()");
+    }
+
+    //              Expressions
+
+    Expression[] compileAll(List<ExpressionNode> expressions) {
+        return expressions.stream().map(this::compile).toArray(Expression[]::new);
+    }
+
+    private Expression compile(ExpressionNode expression) {
+        return switch (expression) {
+            case BooleanLiteralNode literal -> {
+                boolean value = literal.value;
+                yield frame -> new BooleanIDT(value);
+            }
+            case NumericLiteralNode literal -> {
+                double value = literal.value;
+                yield frame -> new NumberIDT(value);
+            }
+            case StringLiteralNode literal -> {
+                String value = literal.value;
+                yield frame -> new StringIDT(value);
+            }
+            case CharLiteralNode literal -> {
+                char value = literal.value;
+                yield frame -> new CharIDT(value);
+            }
+            case VariableReferenceNode variable -> compileReference(variable);
+            case MathOpNode mathOp -> compileMath(mathOp);
+            case CompareNode compare when compare.operandType == TypeTable.NUMBER -> {
+                var condition = compileCondition(compare);
+                yield frame -> new BooleanIDT(condition.execute(frame));
+            }
+            case CompareNode compare -> {
+                var left = compile(compare.left);
+                var right = compile(compare.right);
+                yield frame -> {
+                    var l = left.execute(frame);
+                    return Interpreter.evaluateCompareExp(compare, l, right.execute(frame));
+                };
+            }
+            case BooleanOpNode ignored -> {
+                var condition = compileCondition(expression);
+                yield frame -> new BooleanIDT(condition.execute(frame));
+            }
+            case NotOpNode ignored -> {
+                var condition = compileCondition(expression);
+                yield frame -> new BooleanIDT(condition.execute(frame));
+            }
+            case MethodCallExpressionNode methodCall -> {
+                var call = new CallSite(this, new MethodCallStatementNode(methodCall));
+                yield frame -> {
+                    var returned = call.invoke(frame);
+                    if (returned.length == 0)
+                        throw new RuntimeException("Method %s doesn't return a value".formatted(methodCall.methodName));
+                    return returned[0];
+                };
+            }
+            case NewNode newNode -> compileNew(newNode);
+            default -> throw new RuntimeException("Unknown expression: " + expression);
+        };
+    }
+
+    private Expression compileMath(MathOpNode mathOp) {
+        // The TypeChecker has proven the types of both sides
+        if (mathOp.type == TypeTable.NUMBER) {
+            var number = compileNumber(mathOp);
+            return frame -> new NumberIDT(number.execute(frame));
+        }
+        var left = compile(mathOp.left);
+        var right = compile(mathOp.right);
+        // Strings and characters both print as themselves
+        if (mathOp.type == TypeTable.STRING)
+            return frame -> StringIDT.join(left.execute(frame), right.execute(frame));
+        var op = mathOp.op;
+        return frame -> {
+            var l = left.execute(frame);
+            var r = right.execute(frame);
+            return switch (l) {
+                case NumberIDT leftNum when r instanceof NumberIDT rightNum -> new NumberIDT(Interpreter.doMath(op, leftNum.getValue(), rightNum.getValue()));
+                case StringIDT leftStr when r instanceof StringIDT || r instanceof CharIDT -> StringIDT.join(leftStr, r);
+                case CharIDT leftChar when r instanceof StringIDT -> StringIDT.join(leftChar, r);
+                case null, default -> throw new RuntimeException(String.format("Undefined operation: '%s %s %s'", l, op, r));
+            };
+        };
+    }
+
+    /**
+     * Compile an expression that the interpreter would cast to a number, so its parts don't make NumberIDTs either
+     */
+    private NumberExpression compileNumber(ExpressionNode expression) {
+        if (expression instanceof NumericLiteralNode literal) {
+            double value = literal.value;
+            return frame -> value;
+        }
+        if (expression instanceof MathOpNode mathOp && mathOp.type == TypeTable.NUMBER) {
+            var left = compileNumber(mathOp.left);
+            var right = compileNumber(mathOp.right);
+            return switch (mathOp.op) {
+                case add -> frame -> left.execute(frame) + right.execute(frame);
+                case subtract -> frame -> left.execute(frame) - right.execute(frame);
+                case multiply -> frame -> left.execute(frame) * right.execute(frame);
+                case divide -> frame -> left.execute(frame) / right.execute(frame);
+                case modulo -> frame -> Interpreter.modulo(left.execute(frame), right.execute(frame));
+            };
+        }
+        var value = compile(expression);
+        return frame -> ((NumberIDT) value.execute(frame)).getValue();
+    }
+
+    /**
+     * Compile an expression that the interpreter would cast to a boolean, so its parts don't make BooleanIDTs either
+     */
+    private Condition compileCondition(ExpressionNode expression) {
+        return switch (expression) {
+            case BooleanLiteralNode literal -> {
+                boolean value = literal.value;
+                yield frame -> value;
+            }
+            case CompareNode compare when compare.operandType == TypeTable.NUMBER -> {
+                var left = compileNumber(compare.left);
+                var right = compileNumber(compare.right);
+                yield switch (compare.op) {
+                    case lt -> frame -> left.execute(frame) < right.execute(frame);
+                    case le -> frame -> left.execute(frame) <= right.execute(frame);
+                    case gt -> frame -> left.execute(frame) > right.execute(frame);
+                    case ge -> frame -> left.execute(frame) >= right.execute(frame);
+                    case eq -> frame -> left.execute(frame) == right.execute(frame);
+                    case ne -> frame -> left.execute(frame) != right.execute(frame);
+                };
+            }
+            case BooleanOpNode booleanOp -> {
+                var left = compileCondition(booleanOp.left);
+                var right = compileCondition(booleanOp.right);
+                // Both sides are always evaluated
+                yield switch (booleanOp.op) {
+                    case and -> frame -> left.execute(frame) & right.execute(frame);
+                    case or -> frame -> left.execute(frame) | right.execute(frame);
+                };
+            }
+            case NotOpNode notOp -> {
+                var operand = compileCondition(notOp.left);
+                yield frame -> !operand.execute(frame);
+            }
+            default -> {
+                var value = compile(expression);
+                yield frame -> ((BooleanIDT) value.execute(frame)).getValue();
+            }
+        };
+    }
+
+    private Expression compileNew(NewNode newNode) {
+        var classNode = classes.get(newNode.className);
+        if (classNode == null)
+            return frame -> { throw new RuntimeException("Class not found for constructor: %s".formatted(newNode)); };
+        var members = classNode.members.stream().map(member -> member.declaration).toArray(VariableDeclarationNode[]::new);
+        var arguments = compileAll(newNode.parameters);
+        var constructors = classNode.constructors.toArray(new ConstructorNode[0]);
+        var bodies = new Statement[constructors.length];
+        return frame -> {
+            var instance = new ObjectIDT(classNode);
+            for (int i = 0; i < members.length; i++)
+                instance.members[i] = Interpreter.instantiate(members[i]);
+            var values = new InterpreterDataType[arguments.length];
+            for (int i = 0; i < arguments.length; i++)
+                values[i] = Interpreter.copy(arguments[i].execute(frame));
+            for (int c = 0; c < constructors.length; c++) {
+                var constructor = constructors[c];
+                if (!typesMatch(constructor.parameters, values))
+                    continue;
+                if (bodies[c] == null)
+                    bodies[c] = compileBlock(constructor.statements);
+                var locals = new InterpreterDataType[constructor.frameSize];
+                System.arraycopy(values, 0, locals, 0, values.length);
+                int slot = values.length;
+                for (var local : constructor.locals)
+                    locals[slot++] = Interpreter.instantiate(local);
+                bodies[c].execute(new Frame(locals, instance));
+                return instance;
+            }
+            throw new RuntimeException("Constructor not found for %s".formatted(classNode.name));
+        };
+    }
+
+    //              Variables
+
+    /**
+     * @return an Expression that finds the variable itself (so it can be assigned to), or throws if it doesn't exist yet
+     */
+    Expression compileReference(VariableReferenceNode variable) {
+        int slot = variable.slot;
+        String name = variable.name;
+        if (variable.isMember) {
+            return frame -> {
+                if (frame.object == null || frame.object.members[slot] == null)
+                    throw new RuntimeException("Unable to find variable " + name);
+                return frame.object.members[slot];
+            };
+        }
+        if (slot < 0)
+            return frame -> { throw new RuntimeException("Unable to find variable " + name); };
+        return frame -> {
+            var value = frame.locals[slot];
+            if (value == null) // An implicit variable that hasn't been created yet
+                throw new RuntimeException("Unable to find variable " + name);
+            return value;
+        };
+    }
+
+    // Stores a value that a statement created: same as Interpreter.storeVariable()
+    private interface Store {
+        void store(Frame frame, InterpreterDataType value);
+    }
+
+    private Store compileStore(VariableReferenceNode variable) {
+        int slot = variable.slot;
+        String name = variable.name;
+        if (variable.isMember) {
+            return (frame, value) -> {
+                if (frame.object == null)
+                    throw new RuntimeException("Unable to find variable " + name);
+                frame.object.members[slot].Assign(value);
+            };
+        }
+        if (slot < 0)
+            return (frame, value) -> { throw new RuntimeException("Unable to find variable " + name); };
+        return (frame, value) -> {
+            if (frame.locals[slot] == null)
+                frame.locals[slot] = value;
+            else
+                frame.locals[slot].Assign(value);
+        };
+    }
+
+    //              Matching
+
+    boolean argumentsMatch(MethodDeclarationNode method, InterpreterDataType[] values) {
+        if (method instanceof BuiltInMethodDeclarationNode builtIn && builtIn.isVariadic)
+            return true;
+        return typesMatch(method.parameters, values);
+    }
+
+    private boolean typesMatch(List<VariableDeclarationNode> parameters, InterpreterDataType[] values) {
+        if (parameters.size() != values.length)
+            return false;
+        for (int i = 0; i < values.length; i++)
+            if (!interpreter.typeMatchToIDT(parameters.get(i).typeId, values[i]))
+                return false;
+        return true;
+    }
+}
@@ -0,0 +1,9 @@
+package Interpreter.Compiled;
+
+/**
+ * A compiled expression that the TypeChecker has proven is a boolean, evaluated without making a BooleanIDT
+ */
+@FunctionalInterface
+public interface Condition {
+    boolean execute(Frame frame);
+}
@@ -0,0 +1,12 @@
+package Interpreter.Compiled;
+
+import Interpreter.DataTypes.InterpreterDataType;
+
+/**
+ * A compiled ExpressionNode. Like Interpreter.evaluate(), a variable evaluates to the variable itself, and anything
+ * else to a new value.
+ */
+@FunctionalInterface
+public interface Expression {
+    InterpreterDataType execute(Frame frame);
+}
@@ -0,0 +1,20 @@
+package Interpreter.Compiled;
+
+import Interpreter.DataTypes.InterpreterDataType;
+import Interpreter.DataTypes.ObjectIDT;
+
+/**
+ * Everything a running method or constructor can see: its own variables, in the slots the Resolver gave them, and the
+ * object it was called on (null for shared methods).
+ */
+public class Frame {
+    public final InterpreterDataType[] locals;
+    public final ObjectIDT object;
+    // Set by a tail call (see TailCallFinder): the method runs again in this frame with these arguments
+    InterpreterDataType[] tailCallArguments;
+
+    public Frame(InterpreterDataType[] locals, ObjectIDT object) {
+        this.locals = locals;
+        this.object = object;
+    }
+}
@@ -0,0 +1,69 @@
+package Interpreter.Compiled;
+
+import Interpreter.DataTypes.BooleanIDT;
+import Interpreter.DataTypes.NumberIDT;
+import Interpreter.DataTypes.ObjectIDT;
+
+/**
+ * A loop compiled so that it can be entered part way through (on-stack replacement). The tree walker runs the first
+ * iterations, then hands over its frame, and the iterator if the loop has one, between two iterations; the compiled
+ * loop goes on from the next iteration until the loop is done.
+ */
+public class LoopContinuation {
+    private final Compiler compiler;
+    private final Expression expression;
+    private final Statement body;
+    // The loop variable, or null if there isn't one
+    private final Expression variable;
+
+    LoopContinuation(Compiler compiler, Expression expression, Statement body, Expression variable) {
+        this.compiler = compiler;
+        this.expression = expression;
+        this.body = body;
+        this.variable = variable;
+    }
+
+    /**
+     * Run the rest of the loop. The loop variable has already been created.
+     * @param frame - the frame of the method the loop is in, as the tree walker left it
+     * @param iterator - the iterator the loop is going over, or null if it is a boolean loop
+     */
+    public void resume(Frame frame, ObjectIDT iterator) {
+        if (iterator != null) {
+            var getNext = compiler.findGetNext(iterator);
+            while (true) {
+                var returned = getNext.invoke(iterator, CompiledMethod.NO_VALUES);
+                if (!((BooleanIDT) returned[0]).getValue())
+                    break;
+                if (variable != null)
+                    variable.execute(frame).Assign(returned[1]);
+                body.execute(frame);
+            }
+        } else {
+            while (((BooleanIDT) expression.execute(frame)).getValue()) {
+                if (variable != null)
+                    variable.execute(frame).Assign(new BooleanIDT(true));
+                body.execute(frame);
+            }
+        }
+    }
+
+    /**
+     * Run the rest of a loop over n.times() that the tree walker has been counting (see
+     * Interpreter.interpretTimesLoop()), counting on from where it got to instead of going over an iterator, so the
+     * compiled loop is never slower than the one it replaces.
+     * @param frame - the frame of the method the loop is in, as the tree walker left it
+     * @param next - the count of the next time round
+     * @param times - the last count
+     */
+    public void resume(Frame frame, int next, int times) {
+        var value = variable == null ? null : variable.execute(frame);
+        for (int i = next; i <= times; i++) {
+            if (value instanceof NumberIDT counter)
+                counter.set(i);
+            else if (value != null)
+                value.Assign(NumberIDT.valueOf(i));
+            body.execute(frame);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package Interpreter.Compiled;
+
+/**
+ * A compiled expression that the TypeChecker has proven is a number, evaluated without making a NumberIDT
+ */
+@FunctionalInterface
+public interface NumberExpression {
+    double execute(Frame frame);
+}
@@ -0,0 +1,9 @@
+package Interpreter.Compiled;
+
+/**
+ * A compiled StatementNode (or block of them), with its variables, callees and operators already worked out
+ */
+@FunctionalInterface
+public interface Statement {
+    void execute(Frame frame);
+}
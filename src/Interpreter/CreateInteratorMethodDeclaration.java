@@ -10,9 +10,15 @@ import java.util.List;
 
 public class CreateInteratorMethodDeclaration extends BuiltInMethodDeclarationNode {
     private final int callerValue;
+    private final ClassNode interatorTemplate;
 
-    public CreateInteratorMethodDeclaration(NumberIDT callingNum) {
-        this.callerValue = ((int) callingNum.Value);
+    /**
+     * @param callingNum the number `times()` was called on
+     * @param interatorTemplate the built-in `Interator` class, which has already been given its type ID
+     */
+    public CreateInteratorMethodDeclaration(NumberIDT callingNum, ClassNode interatorTemplate) {
+        this.callerValue = ((int) callingNum.getValue());
+        this.interatorTemplate = interatorTemplate;
     }
 
     /**
@@ -26,9 +32,11 @@ public class CreateInteratorMethodDeclaration extends BuiltInMethodDeclarationNo
             throw new RuntimeException("Expected 0 argument of type <Number> but received " + params);
 
         // Create an object implementing <iterator>
+        // Each one needs its own class, since the class holds the iteration state in its `getNext`
         var interatorClass = new ClassNode();
-        interatorClass.name = "Interator";
-        interatorClass.interfaces.add("iterator");
+        interatorClass.name = interatorTemplate.name;
+        interatorClass.typeId = interatorTemplate.typeId;
+        interatorClass.interfaces.addAll(interatorTemplate.interfaces);
         interatorClass.methods.add(new GetNextMethodDeclaration(callerValue));
         var interator = new ObjectIDT(interatorClass);
         return List.of(interator);
@@ -1,16 +1,45 @@
 package Interpreter.DataTypes;
 
 public class BooleanIDT implements InterpreterDataType {
-    public boolean Value;
+    public static final BooleanIDT TRUE = new BooleanIDT(true, true);
+    public static final BooleanIDT FALSE = new BooleanIDT(false, true);
+
+    // Only Assign() writes it, and it refuses to change a shared value
+    private boolean value;
+    private final boolean isShared;
 
     public BooleanIDT(boolean value) {
-        this.Value = value;
+        this(value, false);
+    }
+
+    private BooleanIDT(boolean value, boolean isShared) {
+        this.value = value;
+        this.isShared = isShared;
+    }
+
+    /**
+     * @return TRUE or FALSE, which are shared
+     */
+    public static BooleanIDT valueOf(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    public boolean getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean isShared() {
+        return isShared;
     }
 
     @Override
     public void Assign(InterpreterDataType in) {
-        if (in instanceof BooleanIDT inv) {
-            Value = inv.Value;
+        if (isShared) {
+            throw new RuntimeException("Trying to assign to a shared boolean IDT");
+        }
+        else if (in instanceof BooleanIDT inv) {
+            value = inv.value;
         }
         else {
             throw new RuntimeException("Trying to assign to a boolean IDT from a " + in.getClass());
@@ -19,6 +48,6 @@ public class BooleanIDT implements InterpreterDataType {
 
     @Override
     public String toString() {
-        return Value?"true":"false";
+        return value?"true":"false";
     }
 }
@@ -1,22 +1,62 @@
 package Interpreter.DataTypes;
 
 public class CharIDT implements InterpreterDataType {
-    public char Value;
+    // valueOf() doesn't make a new value for ASCII characters
+    private static final CharIDT[] ASCII = new CharIDT[128];
+
+    static {
+        for (char c = 0; c < ASCII.length; c++)
+            ASCII[c] = shared(c);
+    }
+
+    // Only Assign() writes it, and it refuses to change a shared value
+    private char value;
+    private final boolean isShared;
 
     public CharIDT(char value) {
-        Value = value;
+        this(value, false);
+    }
+
+    private CharIDT(char value, boolean isShared) {
+        this.value = value;
+        this.isShared = isShared;
+    }
+
+    /**
+     * @return a new value that is never assigned to
+     */
+    public static CharIDT shared(char value) {
+        return new CharIDT(value, true);
+    }
+
+    /**
+     * @return a shared value for an ASCII character, or a new one
+     */
+    public static CharIDT valueOf(char value) {
+        return value < ASCII.length ? ASCII[value] : new CharIDT(value);
+    }
+
+    public char getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean isShared() {
+        return isShared;
     }
 
     @Override
     public void Assign(InterpreterDataType in) {
-        if (in instanceof CharIDT inv) {
-            Value = inv.Value;
+        if (isShared) {
+            throw new RuntimeException("Trying to assign to a shared character IDT");
+        } else if (in instanceof CharIDT inv) {
+            value = inv.value;
         } else {
             throw new RuntimeException("Trying to assign to a character IDT from a " + in.getClass());
         }
     }
 
     public String toString() {
-        return String.valueOf(Value);
+        return String.valueOf(value);
     }
 }
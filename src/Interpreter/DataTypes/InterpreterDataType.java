@@ -2,4 +2,12 @@ package Interpreter.DataTypes;
 
 public interface InterpreterDataType {
     public void Assign(InterpreterDataType in);
+
+    /**
+     * Shared values, like the values of literals, are used by everything that reads them, so are never assigned to.
+     * Anything that keeps a value as a variable has to copy a shared one first (see Interpreter.copy()).
+     */
+    default boolean isShared() {
+        return false;
+    }
 }
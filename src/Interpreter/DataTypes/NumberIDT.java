@@ -1,22 +1,93 @@
 package Interpreter.DataTypes;
 
+import java.math.BigDecimal;
+
 public class NumberIDT implements InterpreterDataType {
-    public float Value;
+    // The integers valueOf() doesn't make a new value for
+    private static final int SMALLEST_SHARED = -128;
+    private static final int LARGEST_SHARED = 1024;
+    private static final NumberIDT[] SMALL = new NumberIDT[LARGEST_SHARED - SMALLEST_SHARED + 1];
+    private static final long NEGATIVE_ZERO = Double.doubleToRawLongBits(-0.0);
+    // Every integer up to this size is exact, and fits in a long
+    private static final double LARGEST_EXACT = 0x1p53;
+
+    static {
+        for (int i = 0; i < SMALL.length; i++)
+            SMALL[i] = shared(i + SMALLEST_SHARED);
+    }
+
+    // Only Assign() and set() write it, and they refuse to change a shared value
+    private double value;
+    private final boolean isShared;
+
+    public NumberIDT(double v) {
+        this(v, false);
+    }
+
+    private NumberIDT(double v, boolean isShared) {
+        value = v;
+        this.isShared = isShared;
+    }
+
+    /**
+     * @return a new value that is never assigned to
+     */
+    public static NumberIDT shared(double v) {
+        return new NumberIDT(v, true);
+    }
 
-    public NumberIDT(float v) {
-        Value = v;
+    /**
+     * @return a shared value for a small integer, or a new one
+     */
+    public static NumberIDT valueOf(double v) {
+        int i = (int) v;
+        if (i == v && i >= SMALLEST_SHARED && i <= LARGEST_SHARED && Double.doubleToRawLongBits(v) != NEGATIVE_ZERO)
+            return SMALL[i - SMALLEST_SHARED];
+        return new NumberIDT(v);
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * Assign a number without making a NumberIDT to assign from
+     */
+    public void set(double v) {
+        if (isShared)
+            throw new RuntimeException("Trying to assign to a shared number IDT");
+        value = v;
+    }
+
+    @Override
+    public boolean isShared() {
+        return isShared;
     }
 
     @Override
     public void Assign(InterpreterDataType in) {
-        if (in instanceof NumberIDT inv) {
-            Value = inv.Value;
+        if (isShared) {
+            throw new RuntimeException("Trying to assign to a shared number IDT");
+        } else if (in instanceof NumberIDT inv) {
+            value = inv.value;
         } else {
             throw new RuntimeException("Trying to assign to a number IDT from a " + in.getClass());
         }
     }
 
     public String toString() {
-        return String.valueOf(Value);
+        return format(value);
+    }
+
+    /**
+     * @return the number the way Tran prints it: an integer without a fraction, like 12, and anything else like 2.5
+     */
+    public static String format(double v) {
+        if (v != Math.rint(v) || Double.isInfinite(v))
+            return String.valueOf(v);
+        if (Math.abs(v) <= LARGEST_EXACT)
+            return Long.toString((long) v);
+        // Every double this big is an integer; write out the digits String.valueOf() would give, instead of 1.0E18
+        return new BigDecimal(String.valueOf(v)).toPlainString();
     }
 }
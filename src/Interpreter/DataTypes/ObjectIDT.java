@@ -2,14 +2,14 @@ package Interpreter.DataTypes;
 
 import AST.ClassNode;
 
-import java.util.HashMap;
-
 public class ObjectIDT implements InterpreterDataType {
-    public final HashMap<String, InterpreterDataType> members = new HashMap<>();
+    // Indexed in the same order as astNode.members
+    public final InterpreterDataType[] members;
     public final ClassNode astNode;
 
     public ObjectIDT(ClassNode astNode) {
         this.astNode = astNode;
+        this.members = new InterpreterDataType[astNode.members.size()];
     }
 
     @Override
@@ -20,8 +20,8 @@ public class ObjectIDT implements InterpreterDataType {
     @Override
     public String toString() {
         StringBuilder out = new StringBuilder();
-        for (var m : members.entrySet())
-            out.append(m.getKey()).append(" : ").append(m.getValue().toString()).append("\n");
+        for (int i = 0; i < members.length; i++)
+            out.append(astNode.members.get(i).declaration.name).append(" : ").append(members[i]).append("\n");
         return out.toString();
     }
 }
@@ -1,16 +1,76 @@
 package Interpreter.DataTypes;
 
+/**
+ * A string. Joining appends to a builder that the joined strings share, so building a string up piece by piece takes
+ * time linear in its length.<br></br>
+ * The characters are only copied out of the builder when they are needed, by toString().
+ */
 public class StringIDT implements InterpreterDataType {
-    public String Value;
+    // The characters, or null until toString() copies them out of the builder
+    private String value;
+    // This string is the first length characters of the builder, which is null for strings that were never joined
+    private StringBuilder builder;
+    private int length;
+    private final boolean isShared;
 
     public StringIDT(String s) {
-        Value = s;
+        this(s, false);
+    }
+
+    private StringIDT(String s, boolean isShared) {
+        value = s;
+        length = s.length();
+        this.isShared = isShared;
+    }
+
+    private StringIDT(StringBuilder builder) {
+        this.builder = builder;
+        length = builder.length();
+        isShared = false;
+    }
+
+    /**
+     * @return a new value that is never assigned to
+     */
+    public static StringIDT shared(String s) {
+        return new StringIDT(s, true);
+    }
+
+    /**
+     * @return left followed by right, which is appended to the builder left is in when nothing is after left yet
+     */
+    public static StringIDT join(InterpreterDataType left, InterpreterDataType right) {
+        if (left instanceof StringIDT string && string.builder != null && string.builder.length() == string.length) {
+            appendTo(string.builder, right);
+            return new StringIDT(string.builder);
+        }
+        var builder = new StringBuilder();
+        appendTo(builder, left);
+        appendTo(builder, right);
+        return new StringIDT(builder);
+    }
+
+    // Strings are appended straight from their builder, without copying them out of it first
+    private static void appendTo(StringBuilder builder, InterpreterDataType value) {
+        if (value instanceof StringIDT string && string.value == null)
+            builder.append(string.builder, 0, string.length);
+        else
+            builder.append(value.toString());
+    }
+
+    @Override
+    public boolean isShared() {
+        return isShared;
     }
 
     @Override
     public void Assign(InterpreterDataType in) {
-        if (in instanceof StringIDT inv) {
-            Value = inv.Value;
+        if (isShared) {
+            throw new RuntimeException("Trying to assign to a shared string IDT");
+        } else if (in instanceof StringIDT inv) {
+            value = inv.value;
+            builder = inv.builder;
+            length = inv.length;
         } else {
             throw new RuntimeException("Trying to assign to a string IDT from a " + in.getClass());
         }
@@ -18,6 +78,8 @@ public class StringIDT implements InterpreterDataType {
 
     @Override
     public String toString() {
-        return Value;
+        if (value == null)
+            value = builder.substring(0, length);
+        return value;
     }
 }
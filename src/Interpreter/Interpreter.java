@@ -1,13 +1,62 @@
 package Interpreter;
 
 import AST.*;
+import Interpreter.Compiled.Compiler;
+import Interpreter.Compiled.Frame;
 import Interpreter.DataTypes.*;
+import Interpreter.JVM.JvmCompiler;
+import Interpreter.Optimizer.Optimizer;
+import Interpreter.VM.RegisterVM;
+import Interpreter.VM.VM;
 
 import java.util.*;
 import java.util.stream.IntStream;
 
 public class Interpreter {
     private final TranNode top;
+    private final TypeTable types = new TypeTable();
+    private final ClassNode interatorClass;
+    private final int iteratorTypeId;
+    // Only set once memoization is turned on
+    private MemoCache memoCache;
+    private Engine engine = Engine.TREE_WALKER;
+    // How many instructions the VMs ran in the last start()
+    private long instructionsExecuted;
+    private Map<String, Long> superinstructionCounts = Map.of();
+    private boolean specializing;
+    private long specializations;
+    private long deoptimizations;
+    private int tierThreshold = 1000;
+    private TieredExecution.Tier forcedTier;
+    private long stackBudget = VM.DEFAULT_STACK_BUDGET;
+    // The arguments of the tail call that just ended a method body, for interpretMethodCall() to run it with
+    private List<InterpreterDataType> tailCallArguments;
+    private TieredExecution tiers;
+    // The profile of the method the tree walker is running, when TIERED
+    private TieredExecution.Profile currentProfile;
+
+    /**
+     * The ways a program can be run. They all give the same results.
+     */
+    public enum Engine {
+        // Walk the AST; the reference for how everything behaves
+        TREE_WALKER,
+        // Compile each method into a tree of Java objects the first time it is called (see Interpreter.Compiled)
+        COMPILED,
+        // Compile each method to bytecode the first time it is called, and run that (see Interpreter.VM)
+        VM,
+        // Like VM, but with instructions that work on the frame's slots instead of a stack (see RegisterVM)
+        REGISTER_VM,
+        // Compile the shared methods that can be to a JVM class when the program starts, and walk the AST for the rest
+        // (see Interpreter.JVM)
+        JVM,
+        // Walk the AST, letting math, comparisons, variable reads and method calls rewrite themselves for the values
+        // they see, and back when those values change (see AST.Specialization)
+        SPECIALIZING,
+        // Walk the AST, and run the methods that get called or loop the most compiled, once a background thread has
+        // compiled them (see TieredExecution)
+        TIERED
+    }
 
     /** Constructor - get the interpreter ready to run. Set members from parameters and "prepare" the class.
      * <br></br>
@@ -16,13 +65,36 @@ public class Interpreter {
      * @param top - the head of the AST
      */
     public Interpreter(TranNode top) {
+        this(top, new Optimizer());
+    }
+
+    /**
+     * Same as Interpreter(top), with the optimizer's passes configured by the caller
+     * @param top - the head of the AST
+     * @param optimizer - the passes to run over the AST before it runs
+     */
+    public Interpreter(TranNode top, Optimizer optimizer) {
         this.top = top;
         // Add built-in classes to AST//
         top.Classes.add(createConsoleClass());
-        top.Classes.add(createTimeIteratorClass());
+        interatorClass = createTimeIteratorClass();
+        top.Classes.add(interatorClass);
 
         // Add built-in interfaces to AST //
         top.Interfaces.add(createIteratorInterface());
+
+        // Number every type, and precompute which classes implement which interfaces //
+        types.register(top);
+        iteratorTypeId = types.idOf("iterator");
+
+        // Find type errors before anything runs, and record the types that are known //
+        new TypeChecker(top, types).check();
+
+        // Rewrite the AST so there is less to do at runtime //
+        optimizer.optimize(top);
+
+        // Give every variable a fixed slot //
+        new Resolver(top).resolve();
     }
 
     private InterfaceNode createIteratorInterface() {
@@ -68,14 +140,134 @@ public class Interpreter {
      * Throw an exception if no such method exists.
      */
     public void start() {
-        // Find 'start' method
-        var start = top.Classes.stream()
+        if (engine == Engine.JVM)
+            new JvmCompiler(top, memoCache != null).install();
+        specializing = engine == Engine.SPECIALIZING;
+        tiers = engine == Engine.TIERED
+                ? new TieredExecution(new Compiler(this, top, interatorClass, iteratorTypeId), tierThreshold, forcedTier)
+                : null;
+        var start = findStartMethod(top);
+        if (start.isEmpty())
+            throw new RuntimeException("No 'start' method found");
+        switch (engine) {
+            case TREE_WALKER, JVM, SPECIALIZING -> interpretMethodCall(Optional.empty(), start.get(), new LinkedList<>());
+            case TIERED -> {
+                try {
+                    interpretMethodCall(Optional.empty(), start.get(), new LinkedList<>());
+                } finally {
+                    tiers.shutDown();
+                }
+            }
+            case COMPILED -> new Compiler(this, top, interatorClass, iteratorTypeId).methodFor(start.get()).invoke(null, new InterpreterDataType[0]);
+            case VM -> run(new VM(this, top, interatorClass, iteratorTypeId), start.get());
+            case REGISTER_VM -> run(new RegisterVM(this, top, interatorClass, iteratorTypeId), start.get());
+        }
+    }
+
+    private void run(VM vm, MethodDeclarationNode start) {
+        vm.setStackBudget(stackBudget);
+        try {
+            vm.run(start);
+        } finally {
+            instructionsExecuted = vm.getInstructionsExecuted();
+            superinstructionCounts = vm.getSuperinstructionCounts();
+        }
+    }
+
+    /**
+     * @return how many instructions the last start() ran, if it used one of the VMs
+     */
+    public long getInstructionsExecuted() {
+        return instructionsExecuted;
+    }
+
+    /**
+     * @return how many times a node has been rewritten for the values it saw, when running SPECIALIZING
+     */
+    public long getSpecializations() {
+        return specializations;
+    }
+
+    /**
+     * @return how many times a specialized node has seen values its guard didn't allow, and gone back to generic
+     */
+    public long getDeoptimizations() {
+        return deoptimizations;
+    }
+
+    /**
+     * @return how many times each superinstruction ran in the last start() that used the VM, by name
+     */
+    public Map<String, Long> getSuperinstructionCounts() {
+        return superinstructionCounts;
+    }
+
+    /**
+     * @param threshold - how many calls and loop iterations make a method hot enough for TIERED to compile it
+     */
+    public void setTierThreshold(int threshold) {
+        tierThreshold = threshold;
+    }
+
+    /**
+     * Make TIERED keep every method in one tier, for testing.
+     * @param tier - INTERPRETED to never compile, COMPILED to compile every method when it is first called, or null
+     *             to go by the counters again
+     */
+    public void forceTier(TieredExecution.Tier tier) {
+        forcedTier = tier;
+    }
+
+    /**
+     * @return the counters and tiers of the methods from the last start() that used TIERED, or null
+     */
+    public TieredExecution getTieredExecution() {
+        return tiers;
+    }
+
+    /**
+     * @param slots - how many local and stack slots the VM's calls may use between them; recursion deeper than this
+     *              fails with a stack overflow. The VM keeps its calls on the heap, so this can be far deeper than
+     *              the Java stack allows
+     */
+    public void setStackBudget(long slots) {
+        stackBudget = slots;
+    }
+
+    /**
+     * @param engine - how start() runs the program
+     */
+    public void setEngine(Engine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Remember the results of pure methods (see PurityAnalyzer), so calling one again with the same arguments
+     * returns the remembered values instead of running it.
+     * @param capacity - the most results to remember; the least recently used are forgotten first
+     * @return the cache, for its hit and miss counts
+     */
+    public MemoCache enableMemoization(int capacity) {
+        memoCache = new MemoCache(capacity);
+        return memoCache;
+    }
+
+    /**
+     * @return the memo cache, or null if memoization hasn't been turned on
+     */
+    public MemoCache getMemoCache() {
+        return memoCache;
+    }
+
+    /**
+     * @param top - the head of the AST
+     * @return the first shared, non-private method named "start", if there is one
+     */
+    public static Optional<MethodDeclarationNode> findStartMethod(TranNode top) {
+        return top.Classes.stream()
                 .flatMap(classNode -> classNode.methods.stream())
                 .filter(method -> method.name.equals("start") && method.isShared && !method.isPrivate)
                 .findFirst();
-        if (start.isEmpty())
-            throw new RuntimeException("No 'start' method found");
-        interpretMethodCall(Optional.empty(), start.get(), new LinkedList<>());
     }
 
     //              Running Methods
@@ -98,9 +290,14 @@ public class Interpreter {
      * @param mc - the method call
      * @return - the return values
      */
-    private List<InterpreterDataType> findMethodForMethodCallAndRunIt(Optional<ObjectIDT> object, HashMap<String, InterpreterDataType> locals, MethodCallStatementNode mc) {
-        // Evaluate parameters
-        var parameters = getParameters(object, locals, mc);
+    private List<InterpreterDataType> findMethodForMethodCallAndRunIt(Optional<ObjectIDT> object, InterpreterDataType[] locals, MethodCallStatementNode mc) {
+        if (specializing)
+            return findSpecializedMethodAndRunIt(object, locals, mc);
+        return findMethodAndRunIt(object, locals, mc, getParameters(object, locals, mc));
+    }
+
+    // findMethodForMethodCallAndRunIt(), once the parameters have been evaluated
+    private List<InterpreterDataType> findMethodAndRunIt(Optional<ObjectIDT> object, InterpreterDataType[] locals, MethodCallStatementNode mc, List<InterpreterDataType> parameters) {
         // Find declaration for method //
         MethodDeclarationNode mDec;
 
@@ -129,12 +326,108 @@ public class Interpreter {
         return findMethodInInstanceAndRunIt(object, locals, mc, parameters);
     }
 
-    private List<InterpreterDataType> findMethodInInstanceAndRunIt(Optional<ObjectIDT> object, HashMap<String, InterpreterDataType> locals, MethodCallStatementNode mc, List<InterpreterDataType> parameters) {
+    /**
+     * A method call in the specializing engine. The first time it runs, the method it finds is remembered in an
+     * InlineCache; after that, while the receiver's class and the kinds of the arguments are the same, the remembered
+     * method is run without looking for it. Anything else makes the call generic, and it is looked for every time.
+     */
+    private List<InterpreterDataType> findSpecializedMethodAndRunIt(Optional<ObjectIDT> object, InterpreterDataType[] locals, MethodCallStatementNode mc) {
+        var parameters = getParameters(object, locals, mc);
+        switch (mc.specialization) {
+            case MONOMORPHIC -> {
+                var cache = mc.inlineCache;
+                var receiver = cache.isShared ? Optional.<ObjectIDT>empty() : receiverOf(object, locals, mc);
+                if ((cache.isShared || receiver.isPresent() && receiver.get().astNode == cache.receiverClass)
+                        && Arrays.equals(cache.argumentShapes, shapesOf(parameters)))
+                    return interpretMethodCall(receiver, cache.method, parameters);
+                deoptimize(mc);
+            }
+            case UNINITIALIZED -> {
+                var cache = inlineCacheFor(object, locals, mc, parameters);
+                if (cache != null) {
+                    mc.inlineCache = cache;
+                    mc.specialization = Specialization.MONOMORPHIC;
+                    specializations++;
+                    return interpretMethodCall(cache.isShared ? Optional.empty() : receiverOf(object, locals, mc), cache.method, parameters);
+                }
+                mc.specialization = Specialization.GENERIC;
+            }
+            default -> {}
+        }
+        return findMethodAndRunIt(object, locals, mc, parameters);
+    }
+
+    // The method findMethodAndRunIt() would run for this call, or null if it isn't one that can be remembered
+    private InlineCache inlineCacheFor(Optional<ObjectIDT> object, InterpreterDataType[] locals, MethodCallStatementNode mc, List<InterpreterDataType> parameters) {
+        var shapes = shapesOf(parameters);
+        if (shapes == null)
+            return null;
+        if (mc.objectName.isPresent()) {
+            var maybeClass = getClassByName(mc.objectName.get());
+            if (maybeClass.isPresent())
+                return maybeClass.get().methods.stream()
+                        .filter(m -> doesMatch(m, mc, parameters) && m.isShared && !m.isPrivate)
+                        .findFirst()
+                        .map(m -> new InlineCache(maybeClass.get(), m, true, shapes))
+                        .orElse(null);
+            // `clone` makes a new method for each object
+            if (mc.methodName.equals("clone"))
+                return null;
+        }
+        var receiver = receiverOf(object, locals, mc);
+        if (receiver.isEmpty())
+            return null;
+        return receiver.get().astNode.methods.stream()
+                .filter(m -> doesMatch(m, mc, parameters))
+                .findFirst()
+                .map(m -> new InlineCache(receiver.get().astNode, m, false, shapes))
+                .orElse(null);
+    }
+
+    // The object a (non-shared) method call is made on, if it is one
+    private Optional<ObjectIDT> receiverOf(Optional<ObjectIDT> object, InterpreterDataType[] locals, MethodCallStatementNode mc) {
+        if (mc.objectName.isEmpty())
+            return object;
+        if (mc.objectReference == null)
+            return Optional.empty();
+        var caller = findVariable(mc.objectReference, locals, object);
+        while (caller instanceof ReferenceIDT reference) {
+            if (reference.refersTo.isEmpty())
+                return Optional.empty();
+            caller = reference.refersTo.get();
+        }
+        return caller instanceof ObjectIDT callingObject ? Optional.of(callingObject) : Optional.empty();
+    }
+
+    // What doesMatch() looks at in each argument: the class of an object, otherwise the kind of value. Null if an argument is a null reference
+    private static Object[] shapesOf(List<InterpreterDataType> parameters) {
+        var shapes = new Object[parameters.size()];
+        for (int i = 0; i < shapes.length; i++) {
+            var value = parameters.get(i);
+            while (value instanceof ReferenceIDT reference) {
+                if (reference.refersTo.isEmpty())
+                    return null;
+                value = reference.refersTo.get();
+            }
+            shapes[i] = value instanceof ObjectIDT objectValue ? objectValue.astNode : value.getClass();
+        }
+        return shapes;
+    }
+
+    private void deoptimize(MethodCallStatementNode mc) {
+        mc.specialization = Specialization.GENERIC;
+        mc.inlineCache = null;
+        deoptimizations++;
+    }
+
+    private List<InterpreterDataType> findMethodInInstanceAndRunIt(Optional<ObjectIDT> object, InterpreterDataType[] locals, MethodCallStatementNode mc, List<InterpreterDataType> parameters) {
         if (mc.objectName.isEmpty()) {
             throw new RuntimeException("Caller object expected");
         }
         MethodDeclarationNode mDec;
-        var caller = findVariable(mc.objectName.get(), locals, object);
+        if (mc.objectReference == null)
+            throw new RuntimeException("Unable to find variable " + mc.objectName.get());
+        var caller = findVariable(mc.objectReference, locals, object);
 
         while (caller instanceof ReferenceIDT referenceToCaller) { // Dereference references to the caller
             caller = referenceToCaller.refersTo.orElseThrow(() -> new RuntimeException("<Null> reference exception"));
@@ -149,7 +442,7 @@ public class Interpreter {
         } else if (caller instanceof NumberIDT callingNumber) {
             if (!mc.methodName.equals("times")) // `times` is the only built-in method of all <Number>'s
                 throw new RuntimeException("Method %s not found for type <Number> ".formatted(mc.methodName));
-            return interpretMethodCall(Optional.empty(), new CreateInteratorMethodDeclaration(callingNumber), parameters);
+            return interpretMethodCall(Optional.empty(), new CreateInteratorMethodDeclaration(callingNumber, interatorClass), parameters);
         } else {
             throw new RuntimeException("Method %s not found in %s".formatted(mc.methodName, mc.objectName.get()));
         }
@@ -161,11 +454,11 @@ public class Interpreter {
      * in start() and dealing with loops with iterator objects, for example.
      * <br></br>
      * Check to see if "m" is a built-in. If so, call Execute() on it and return
-     * Make local variables, per "m"
+     * Make a frame for the local variables, per "m" (the Resolver has already numbered the slots)
      * If the number of passed in values doesn't match m's "expectations", throw
-     * Add the parameters by name to locals.
+     * Put the parameters, then new locals and return values, into their slots.
      * Call InterpretStatementBlock
-     * Build the return list - find the names from "m", then get the values for those names and add them to the list.
+     * Build the return list - get the values from the return slots and add them to the list.
      * @param object - The object this method is being called on (might be empty for shared)
      * @param m - Which method is being called
      * @param values - The values to be passed in
@@ -180,25 +473,53 @@ public class Interpreter {
          if (m.parameters.size() != values.size()) {
             throw new RuntimeException("Unexpected number of parameters passed into " + m.name);
          }
-        // Make hashmap for local variables
-        var locals = new HashMap<String, InterpreterDataType>();
-        // Add members of executing object
-        object.ifPresent(obj -> locals.putAll(obj.members));
-        // Add parameters that were passed to `m` to the local variables
-        IntStream.range(0, m.parameters.size()).forEach(i -> locals.put(m.parameters.get(i).name, values.get(i)));
-        // Add locals of `m` to local variables
-        IntStream.range(0, m.locals.size()).forEach(i -> locals.put(m.locals.get(i).name, instantiate(m.locals.get(i).type)));
-        // Add return targets of `m` to local variables
-        IntStream.range(0, m.returns.size()).forEach(i -> locals.put(m.returns.get(i).name, instantiate(m.returns.get(i).type)));
-
-        interpretStatementBlock(object, m.statements, locals); // 'locals' is now modified
+        // Once TIERED has compiled the method, run that instead
+        TieredExecution.Profile profile = null;
+        if (tiers != null) {
+            profile = tiers.enter(m);
+            var compiled = tiers.compiledCode(profile);
+            if (compiled != null)
+                return Arrays.asList(compiled.invoke(object.orElse(null), values.toArray(new InterpreterDataType[0])));
+        }
+        // Pure methods may have already been called with these arguments
+        MemoCache.Key memoKey = null;
+        if (memoCache != null && m.isPure) {
+            memoKey = MemoCache.keyOf(m, values);
+            var remembered = memoCache.get(memoKey);
+            if (remembered != null)
+                return remembered;
+        }
+        // Make frame for local variables; members stay in `object`
+        var locals = new InterpreterDataType[m.frameSize];
+        int firstReturnSlot = m.parameters.size() + m.locals.size();
+        var callerProfile = currentProfile;
+        currentProfile = profile;
+        var arguments = values;
+        do {
+            int slot = 0;
+            // Add parameters that were passed to `m` to the local variables
+            for (var value : arguments)
+                locals[slot++] = value;
+            // Add locals of `m` to local variables
+            for (var local : m.locals)
+                locals[slot++] = instantiate(local);
+            // Add return targets of `m` to local variables
+            for (var ret : m.returns)
+                locals[slot++] = instantiate(ret);
+            // Implicit variables start out empty, also when the frame is reused
+            Arrays.fill(locals, slot, locals.length, null);
+            interpretStatementBlock(object, m.statements, locals); // 'locals' is now modified
+            // A tail call runs `m` again in the same frame
+            arguments = tailCallArguments;
+            tailCallArguments = null;
+        } while (arguments != null);
+        currentProfile = callerProfile;
         // Collect return-values from locals, then return them
         var retVals = new LinkedList<InterpreterDataType>();
-        for (var ret : m.returns) {
-            if (locals.containsKey(ret.name)) {
-                retVals.add(locals.get(ret.name));
-            }
-        }
+        for (int i = 0; i < m.returns.size(); i++)
+            retVals.add(locals[firstReturnSlot + i]);
+        if (memoKey != null)
+            memoCache.put(memoKey, retVals);
         return retVals;
     }
 
@@ -217,7 +538,7 @@ public class Interpreter {
      * @param mc  - the method call for this construction
      * @param newOne - the object that we just created that we are calling the constructor for
      */
-    private void findConstructorAndRunIt(Optional<ObjectIDT> callerObj, HashMap<String, InterpreterDataType> locals, MethodCallStatementNode mc, ObjectIDT newOne) {
+    private void findConstructorAndRunIt(Optional<ObjectIDT> callerObj, InterpreterDataType[] locals, MethodCallStatementNode mc, ObjectIDT newOne) {
         // Find Constructor //
         var constructorClass = getClassByName(mc.methodName).orElseThrow(() -> new RuntimeException("Class not found for constructor"));
         // Convert the parameters of 'mc' into IDT's
@@ -233,9 +554,9 @@ public class Interpreter {
     /**
      * Similar to interpretMethodCall, but "just different enough" - for example, constructors don't return anything.
      * <br></br>
-     * Creates local variables (as defined by the ConstructorNode), calls Instantiate() to do the creation
      * Checks to ensure that the right number of parameters were passed in, if not throw.
-     * Adds the parameters (with the names from the ConstructorNode) to the locals.
+     * Makes a frame with the parameters, followed by the local variables (as defined by the ConstructorNode), calls
+     * Instantiate() to do the creation
      * Calls InterpretStatementBlock
      * @param object - the object that we allocated
      * @param c - which constructor is being called
@@ -245,25 +566,25 @@ public class Interpreter {
         // Check that the right number of parameters were passed in, if not throw.
         if (values.size() != c.parameters.size())
             throw new RuntimeException("Unexpected number of parameters");
-        // Create local variables hashmap
-        var locals = new HashMap<>(object.members); // Add members of 'object' to locals-hashmap
-        // Add local variables of 'c' to locals-hashmap
-        for (var localVar : c.locals) {
-            if (locals.containsKey(localVar.name))
-                throw new RuntimeException("Variable %s already declared".formatted(localVar.name));
-            locals.put(localVar.name, instantiate(localVar.type));
-        }
-        // Add parameters to locals-hashmap
+        // Create frame for local variables; members stay in 'object'
+        var locals = new InterpreterDataType[c.frameSize];
+        int slot = 0;
+        // Add parameters to frame
         for (int i = 0; i < c.parameters.size(); i++) {
             var param = c.parameters.get(i);
-            if (!typeMatchToIDT(param.type, values.get(i)))
+            if (!typeMatchToIDT(param.typeId, values.get(i)))
                 throw new RuntimeException("Expected argument of type %s for %s".formatted(param.type, param.name));
-            if (locals.containsKey(param.name))
-                throw new RuntimeException("Variable %s already declared".formatted(param.name));
-            locals.put(param.name, values.get(i));
+            locals[slot++] = values.get(i);
         }
+        // Add local variables of 'c' to frame
+        for (var localVar : c.locals)
+            locals[slot++] = instantiate(localVar);
         // Call interpretStatementBlock() on constructor body
-        interpretStatementBlock(Optional.empty(), c.statements, locals);
+        // Constructors aren't tiered, so their loops don't count towards the caller's
+        var callerProfile = currentProfile;
+        currentProfile = null;
+        interpretStatementBlock(Optional.of(object), c.statements, locals);
+        currentProfile = callerProfile;
     }
 
     //              Running Instructions
@@ -275,7 +596,7 @@ public class Interpreter {
      * For each statement in statements:
      * check the type:
      *      For AssignmentNode, FindVariable() to get the target. Evaluate() the expression. Call Assign() on the target with the result of Evaluate()
-     *      For MethodCallStatementNode, call interpretMethodCall(). Loop over the returned values and copy the into our local variables
+     *      For MethodCallStatementNode, call interpretMethodCall(). Loop over the returned values and store them in the targets' slots
      *      For LoopNode - there are 2 kinds.
      *          Setup:
      *          If this is a Loop over an iterator (an Object node whose class has "iterator" as an interface)
@@ -291,34 +612,49 @@ public class Interpreter {
      * @param statements - the statements to run
      * @param locals - the local variables
      */
-    private void interpretStatementBlock(Optional<ObjectIDT> object, List<StatementNode> statements, HashMap<String, InterpreterDataType> locals) {
+    private void interpretStatementBlock(Optional<ObjectIDT> object, List<StatementNode> statements, InterpreterDataType[] locals) {
         for (var statement : statements) {
             if (statement instanceof AssignmentNode assignment) {
-                var target = findVariable(assignment.target.name, locals, object);
+                var target = findVariable(assignment.target, locals, object);
                 var value = evaluate(locals, object, assignment.expression);
                 target.Assign(value);
+            } else if (statement instanceof MethodCallStatementNode methodCall && methodCall.isTailCall) {
+                // Nothing runs after a tail call: interpretMethodCall() starts the method again with these
+                tailCallArguments = getParameters(object, locals, methodCall);
+                return;
             } else if (statement instanceof MethodCallStatementNode methodCall) {
                 var retVals = findMethodForMethodCallAndRunIt(object, locals, methodCall);
-                IntStream
-                        .range(0, methodCall.returnValues.size())
-                        .forEach( i -> locals.put(methodCall.returnValues.get(i).name, retVals.get(i)));
+                for (int i = 0; i < methodCall.returnValues.size(); i++)
+                    storeVariable(methodCall.returnValues.get(i), locals, object, retVals.get(i));
             } else if (statement instanceof LoopNode loop) {
                 interpretLoopStatement(object, locals, loop);
+            } else if (statement instanceof IfNode ifStatement && ifStatement.conditionType == TypeTable.BOOLEAN) {
+                // The TypeChecker has proven the condition is a boolean
+                if (((BooleanIDT) evaluate(locals, object, ifStatement.condition)).getValue())
+                    interpretStatementBlock(object, ifStatement.statements, locals);
+                else
+                    ifStatement.elseStatement.ifPresent(elseNode -> interpretStatementBlock(object, elseNode.statements, locals));
             } else if (statement instanceof IfNode ifStatement) {
                 var condition = evaluate(locals, object, ifStatement.condition);
                 if (condition instanceof BooleanIDT boolExp) {
-                    if (boolExp.Value) // Value == true
+                    if (boolExp.getValue()) // Value == true
                         interpretStatementBlock(object, ifStatement.statements, locals);
                     else
                         ifStatement.elseStatement.ifPresent(elseNode -> interpretStatementBlock(object, elseNode.statements, locals));
-                    return;
+                    continue;
                 }
                 throw new RuntimeException("Expected boolean expression");
             }
         }
     }
 
-    private void interpretLoopStatement(Optional<ObjectIDT> object, HashMap<String, InterpreterDataType> locals, LoopNode loop) {
+    private void interpretLoopStatement(Optional<ObjectIDT> object, InterpreterDataType[] locals, LoopNode loop) {
+        if (loop.expressionType == TypeTable.BOOLEAN) {
+            interpretBooleanLoop(object, locals, loop);
+            return;
+        }
+        if (interpretTimesLoop(object, locals, loop))
+            return;
         Optional<MethodDeclarationNode> getNextMethod = Optional.empty();
         Optional<ObjectIDT> iterator = Optional.empty();
         var condition = evaluate(locals, object, loop.expression);
@@ -328,7 +664,7 @@ public class Interpreter {
         }
         if (condition instanceof ObjectIDT condObj) {
             // Check if objectIDT implements <iterator> interface
-            if (!typeMatchToIDT("iterator", condObj))
+            if (!typeMatchToIDT(iteratorTypeId, condObj))
                 throw new RuntimeException("Object implementing <iterator> expected");
             iterator = Optional.of(condObj);
 
@@ -346,7 +682,7 @@ public class Interpreter {
         // Add loop "variable of iteration" to locals
         if (loop.assignment.isPresent()) {
             var returnType = getNextMethod.map(m -> m.returns.get(1).type).orElse("boolean");
-            locals.put(loop.assignment.get().name, instantiate(returnType));
+            storeVariable(loop.assignment.get(), locals, object, instantiate(returnType));
         }
 
         while (true) {
@@ -354,8 +690,8 @@ public class Interpreter {
             var returnedValues = getNextMethod.map(getNext -> interpretMethodCall(finalIterator, getNext, new LinkedList<>()));
             // Determine if we should loop
             boolean shouldContinue = returnedValues.isPresent()
-                    ? ((BooleanIDT) returnedValues.get().getFirst()).Value // Condition is an iterator
-                    : ((BooleanIDT) evaluate(locals, object, loop.expression)).Value; // Condition is a boolean
+                    ? ((BooleanIDT) returnedValues.get().getFirst()).getValue() // Condition is an iterator
+                    : ((BooleanIDT) evaluate(locals, object, loop.expression)).getValue(); // Condition is a boolean
             if (!shouldContinue)
                 break;
             // Check if this loop is being assigned to a variable
@@ -365,14 +701,81 @@ public class Interpreter {
                 if (returnedValues.isPresent())
                     loopExpVal = returnedValues.get().get(1);
                 else
-                    loopExpVal = new BooleanIDT(true); // The boolean expression is always true if execution reached here
-                findVariable(loop.assignment.get().name, locals, object).Assign(loopExpVal);
+                    loopExpVal = BooleanIDT.TRUE; // The boolean expression is always true if execution reached here
+                findVariable(loop.assignment.get(), locals, object).Assign(loopExpVal);
             }
             // Interpret loop body
             interpretStatementBlock(object, loop.statements, locals);
+            if (tiers != null && replaceLoop(object, locals, loop, iterator.orElse(null)))
+                return;
+        }
+    }
+
+    /**
+     * A loop over n.times(), where n is a number, counts with an int instead of making an iterator and calling its
+     * getNext(), and writes each count straight into the loop variable. The iterator can't be reached from the loop
+     * body, so nothing can tell the difference: the loop still goes from 1 to n as it was when the loop started.
+     * @return false if the loop isn't over times() on a number, and nothing has run
+     */
+    private boolean interpretTimesLoop(Optional<ObjectIDT> object, InterpreterDataType[] locals, LoopNode loop) {
+        if (!(loop.expression instanceof MethodCallExpressionNode call) || !call.methodName.equals("times")
+                || !call.parameters.isEmpty() || call.objectReference == null)
+            return false;
+        if (!(findVariable(call.objectReference, locals, object) instanceof NumberIDT count))
+            return false;
+        int times = (int) count.getValue();
+        InterpreterDataType variable = null;
+        if (loop.assignment.isPresent()) {
+            storeVariable(loop.assignment.get(), locals, object, instantiate("number"));
+            variable = findVariable(loop.assignment.get(), locals, object);
+        }
+        for (int i = 1; i <= times; i++) {
+            if (variable instanceof NumberIDT number)
+                number.set(i);
+            else if (variable != null)
+                variable.Assign(NumberIDT.valueOf(i));
+            interpretStatementBlock(object, loop.statements, locals);
+            // TIERED carries on counting in the compiled loop, from the next count
+            if (tiers != null && replaceTimesLoop(object, locals, loop, i + 1, times))
+                return true;
+        }
+        return true;
+    }
+
+    private boolean replaceTimesLoop(Optional<ObjectIDT> object, InterpreterDataType[] locals, LoopNode loop, int next, int times) {
+        var continuation = tiers.backEdge(currentProfile, loop);
+        if (continuation == null)
+            return false;
+        continuation.resume(new Frame(locals, object.orElse(null)), next, times);
+        return true;
+    }
+
+    // A loop whose expression the TypeChecker has proven is a boolean: no need to check for an iterator
+    private void interpretBooleanLoop(Optional<ObjectIDT> object, InterpreterDataType[] locals, LoopNode loop) {
+        if (loop.assignment.isPresent())
+            storeVariable(loop.assignment.get(), locals, object, instantiate("boolean"));
+        while (((BooleanIDT) evaluate(locals, object, loop.expression)).getValue()) {
+            if (loop.assignment.isPresent())
+                findVariable(loop.assignment.get(), locals, object).Assign(BooleanIDT.TRUE);
+            interpretStatementBlock(object, loop.statements, locals);
+            if (tiers != null && replaceLoop(object, locals, loop, null))
+                return;
         }
     }
 
+    /**
+     * Count a loop going round for TIERED, and once it has been compiled, run the rest of it compiled.
+     * @param iterator - the iterator the loop is going over, or null for a boolean loop
+     * @return whether the compiled loop finished it
+     */
+    private boolean replaceLoop(Optional<ObjectIDT> object, InterpreterDataType[] locals, LoopNode loop, ObjectIDT iterator) {
+        var continuation = tiers.backEdge(currentProfile, loop);
+        if (continuation == null)
+            return false;
+        continuation.resume(new Frame(locals, object.orElse(null)), iterator);
+        return true;
+    }
+
     /**
      *  evaluate() processes everything that is an expression - math, variables, boolean expressions.
      *  There is a good bit of recursion in here, since math and comparisons have left and right sides that need to be evaluated.
@@ -391,78 +794,291 @@ public class Interpreter {
      * @param expression - some expression to evaluate
      * @return a value
      */
-    private InterpreterDataType evaluate(HashMap<String, InterpreterDataType> locals, Optional<ObjectIDT> object, ExpressionNode expression) {
+    private InterpreterDataType evaluate(InterpreterDataType[] locals, Optional<ObjectIDT> object, ExpressionNode expression) {
+        // A node the specializing engine has rewritten runs what it was rewritten into
+        if (specializing) {
+            var specialized = expression.specialized();
+            if (specialized != null)
+                return specialized.evaluate(locals, object);
+        }
+        return evaluateNode(locals, object, expression);
+    }
+
+    // evaluate(), for a node that hasn't been rewritten
+    private InterpreterDataType evaluateNode(InterpreterDataType[] locals, Optional<ObjectIDT> object, ExpressionNode expression) {
         // Boolean Literals (BooleanLiteralNode)
         if (expression instanceof BooleanLiteralNode booleanLiteral) {
-            return new BooleanIDT(booleanLiteral.value);
+            return BooleanIDT.valueOf(booleanLiteral.value);
         // Boolean Expressions (BooleanOpNode)
         } else if (expression instanceof BooleanOpNode boolOpNode) {
-            boolean l = ((BooleanIDT) evaluate(locals, object, boolOpNode.left)).Value;
-            boolean r = ((BooleanIDT) evaluate(locals, object, boolOpNode.right)).Value;
+            boolean l = ((BooleanIDT) evaluate(locals, object, boolOpNode.left)).getValue();
+            boolean r = ((BooleanIDT) evaluate(locals, object, boolOpNode.right)).getValue();
 
-            return new BooleanIDT(switch (boolOpNode.op) {
+            return BooleanIDT.valueOf(switch (boolOpNode.op) {
                 case and -> l && r;
                 case or -> l || r;
             });
         } else if (expression instanceof NotOpNode negBoolOpNode) {
-            var val = ((BooleanIDT) evaluate(locals, object, negBoolOpNode.left)).Value;
-            return new BooleanIDT(!val);
+            var val = ((BooleanIDT) evaluate(locals, object, negBoolOpNode.left)).getValue();
+            return BooleanIDT.valueOf(!val);
         // Comparisons (CompareNode)
         } else if (expression instanceof CompareNode compareNode) {
+            if (specializing)
+                return evaluateSpecializedCompare(locals, object, compareNode);
             var l = evaluate(locals, object, compareNode.left);
             var r = evaluate(locals, object, compareNode.right);
+            // Both sides are proven to be numbers
+            if (compareNode.operandType == TypeTable.NUMBER)
+                return BooleanIDT.valueOf(compareNumbers(compareNode.op, ((NumberIDT) l).getValue(), ((NumberIDT) r).getValue()));
 
             return evaluateCompareExp(compareNode, l, r);
         // Number Literals (NumericLiteralNode)
         } else if (expression instanceof NumericLiteralNode numberLiteral) {
-            return new NumberIDT(numberLiteral.value);
+            if (numberLiteral.sharedValue == null)
+                numberLiteral.sharedValue = NumberIDT.shared(numberLiteral.value);
+            if (specializing)
+                numberLiteral.specialized = constant(numberLiteral.sharedValue);
+            return numberLiteral.sharedValue;
         // Math Expressions (MathOpNode)
         } else if (expression instanceof MathOpNode mathOpNode) {
+            if (specializing)
+                return evaluateSpecializedMath(locals, object, mathOpNode);
             return evaluateMathExp(locals, object, mathOpNode);
             // String Literals (StringLiteralNode)
         } else if (expression instanceof StringLiteralNode stringLiteral) {
-            return new StringIDT(stringLiteral.value);
+            if (stringLiteral.sharedValue == null)
+                stringLiteral.sharedValue = StringIDT.shared(stringLiteral.value);
+            if (specializing)
+                stringLiteral.specialized = constant(stringLiteral.sharedValue);
+            return stringLiteral.sharedValue;
         // Method Calls (MethodCallExpressionNode)
         } else if (expression instanceof MethodCallExpressionNode methodCallExp) {
+            if (specializing) {
+                var statement = new MethodCallStatementNode(methodCallExp);
+                methodCallExp.specialized = (frame, self) -> findSpecializedMethodAndRunIt(self, frame, statement).getFirst();
+                return findSpecializedMethodAndRunIt(object, locals, statement).getFirst();
+            }
             return findMethodForMethodCallAndRunIt(object, locals, new MethodCallStatementNode(methodCallExp)).getFirst();
         // Variable Reference (VariableReferenceNode)
         } else if (expression instanceof VariableReferenceNode variableReference) {
-            return findVariable(variableReference.name, locals, object);
+            if (specializing)
+                return evaluateSpecializedVariable(locals, object, variableReference);
+            return findVariable(variableReference, locals, object);
         // Object instantiation (NewNode)
         } else if (expression instanceof NewNode constructExp) {
             return evaluateObjectInstantiation(locals, object, constructExp);
         // Character literals
         } else if (expression instanceof CharLiteralNode charLiteral) {
-            return new CharIDT(charLiteral.value);
+            if (charLiteral.sharedValue == null)
+                charLiteral.sharedValue = CharIDT.shared(charLiteral.value);
+            if (specializing)
+                charLiteral.specialized = constant(charLiteral.sharedValue);
+            return charLiteral.sharedValue;
         }
         throw new RuntimeException("Unknown expression: " + expression);
     }
 
-    private InterpreterDataType evaluateMathExp(HashMap<String, InterpreterDataType> locals, Optional<ObjectIDT> object, MathOpNode mathOpNode) {
+    private InterpreterDataType evaluateMathExp(InterpreterDataType[] locals, Optional<ObjectIDT> object, MathOpNode mathOpNode) {
         var l = evaluate(locals, object, mathOpNode.left);
         var r = evaluate(locals, object, mathOpNode.right);
+        // The TypeChecker has proven the types of both sides
+        if (mathOpNode.type == TypeTable.NUMBER)
+            return NumberIDT.valueOf(doMath(mathOpNode.op, ((NumberIDT) l).getValue(), ((NumberIDT) r).getValue()));
+        if (mathOpNode.type == TypeTable.STRING) // Strings and characters both print as themselves
+            return StringIDT.join(l, r);
+        return evaluateMath(mathOpNode, l, r);
+    }
+
+    // Math the TypeChecker couldn't prove the types of
+    private static InterpreterDataType evaluateMath(MathOpNode mathOpNode, InterpreterDataType l, InterpreterDataType r) {
         // If both l & r are numbers, do math operations
         return switch (l) {
-            case NumberIDT leftNum when r instanceof NumberIDT rightNum -> new NumberIDT(switch (mathOpNode.op) {
-                case add -> leftNum.Value + rightNum.Value;
-                case subtract -> leftNum.Value - rightNum.Value;
-                case multiply -> leftNum.Value * rightNum.Value;
-                case divide -> leftNum.Value / rightNum.Value;
-                case modulo -> leftNum.Value % rightNum.Value;
-            });
+            case NumberIDT leftNum when r instanceof NumberIDT rightNum -> NumberIDT.valueOf(doMath(mathOpNode.op, leftNum.getValue(), rightNum.getValue()));
             // If l & r are both strings or chars, do string operations
-            case StringIDT leftStr when r instanceof StringIDT rightStr ->
-                    new StringIDT(leftStr.Value + rightStr.Value);
-            case StringIDT leftStr when r instanceof CharIDT rightChar ->
-                    new StringIDT(leftStr.Value + rightChar.Value);
-            case CharIDT leftChar when r instanceof StringIDT rightStr ->
-                    new StringIDT(leftChar.Value + rightStr.Value);
+            case StringIDT leftStr when r instanceof StringIDT || r instanceof CharIDT -> StringIDT.join(leftStr, r);
+            case CharIDT leftChar when r instanceof StringIDT -> StringIDT.join(leftChar, r);
             case null, default ->
                     throw new RuntimeException(String.format("Undefined operation: '%s %s %s'", l, mathOpNode.op, r));
         };
     }
 
-    private ObjectIDT evaluateObjectInstantiation(HashMap<String, InterpreterDataType> locals, Optional<ObjectIDT> object, NewNode constructExp) {
+    /**
+     * Math in the specializing engine. The first time it runs, the node is rewritten into number math or string joining
+     * for the values it sees, which evaluate() runs from then on without looking at what kind of node it is. A guard
+     * checks the values are still that kind, and sends the node back to generic when they aren't; math the TypeChecker
+     * has proven the types of needs no guard.
+     */
+    private InterpreterDataType evaluateSpecializedMath(InterpreterDataType[] locals, Optional<ObjectIDT> object, MathOpNode mathOpNode) {
+        var l = evaluate(locals, object, mathOpNode.left);
+        var r = evaluate(locals, object, mathOpNode.right);
+        if (mathOpNode.specialization == Specialization.UNINITIALIZED)
+            specialize(mathOpNode, l, r);
+        return evaluateMath(mathOpNode, l, r);
+    }
+
+    private void specialize(MathOpNode mathOpNode, InterpreterDataType l, InterpreterDataType r) {
+        var left = operandOf(mathOpNode.left);
+        var right = operandOf(mathOpNode.right);
+        var op = mathOpNode.op;
+        if (mathOpNode.type == TypeTable.NUMBER) {
+            mathOpNode.specialization = Specialization.NUMBER;
+            mathOpNode.specialized = (frame, self) -> NumberIDT.valueOf(doMath(op,
+                    ((NumberIDT) read(left, frame, self)).getValue(), ((NumberIDT) read(right, frame, self)).getValue()));
+        } else if (mathOpNode.type == TypeTable.STRING) {
+            mathOpNode.specialization = Specialization.STRING;
+            mathOpNode.specialized = (frame, self) -> StringIDT.join(read(left, frame, self), read(right, frame, self));
+        } else if (l instanceof NumberIDT && r instanceof NumberIDT) {
+            mathOpNode.specialization = Specialization.NUMBER;
+            mathOpNode.specialized = (frame, self) -> {
+                var leftValue = read(left, frame, self);
+                var rightValue = read(right, frame, self);
+                if (leftValue instanceof NumberIDT leftNum && rightValue instanceof NumberIDT rightNum)
+                    return NumberIDT.valueOf(doMath(op, leftNum.getValue(), rightNum.getValue()));
+                deoptimize(mathOpNode);
+                return evaluateMath(mathOpNode, leftValue, rightValue);
+            };
+            specializations++;
+        } else if (isJoinable(l, r)) {
+            mathOpNode.specialization = Specialization.STRING;
+            mathOpNode.specialized = (frame, self) -> {
+                var leftValue = read(left, frame, self);
+                var rightValue = read(right, frame, self);
+                if (isJoinable(leftValue, rightValue))
+                    return StringIDT.join(leftValue, rightValue);
+                deoptimize(mathOpNode);
+                return evaluateMath(mathOpNode, leftValue, rightValue);
+            };
+            specializations++;
+        } else {
+            mathOpNode.specialization = Specialization.GENERIC;
+        }
+    }
+
+    // Two values evaluateMath() joins as strings: strings, or a string and a character
+    private static boolean isJoinable(InterpreterDataType l, InterpreterDataType r) {
+        return l instanceof StringIDT && (r instanceof StringIDT || r instanceof CharIDT)
+                || l instanceof CharIDT && r instanceof StringIDT;
+    }
+
+    // A comparison in the specializing engine; one of two numbers is rewritten into a number comparison, guarded like evaluateSpecializedMath()
+    private InterpreterDataType evaluateSpecializedCompare(InterpreterDataType[] locals, Optional<ObjectIDT> object, CompareNode compareNode) {
+        var l = evaluate(locals, object, compareNode.left);
+        var r = evaluate(locals, object, compareNode.right);
+        if (compareNode.specialization == Specialization.UNINITIALIZED)
+            specialize(compareNode, l, r);
+        if (l instanceof NumberIDT leftNum && r instanceof NumberIDT rightNum)
+            return BooleanIDT.valueOf(compareNumbers(compareNode.op, leftNum.getValue(), rightNum.getValue()));
+        return evaluateCompareExp(compareNode, l, r);
+    }
+
+    private void specialize(CompareNode compareNode, InterpreterDataType l, InterpreterDataType r) {
+        var left = operandOf(compareNode.left);
+        var right = operandOf(compareNode.right);
+        var op = compareNode.op;
+        if (compareNode.operandType == TypeTable.NUMBER) {
+            compareNode.specialization = Specialization.NUMBER;
+            compareNode.specialized = (frame, self) -> BooleanIDT.valueOf(compareNumbers(op,
+                    ((NumberIDT) read(left, frame, self)).getValue(), ((NumberIDT) read(right, frame, self)).getValue()));
+        } else if (l instanceof NumberIDT && r instanceof NumberIDT) {
+            compareNode.specialization = Specialization.NUMBER;
+            compareNode.specialized = (frame, self) -> {
+                var leftValue = read(left, frame, self);
+                var rightValue = read(right, frame, self);
+                if (leftValue instanceof NumberIDT leftNum && rightValue instanceof NumberIDT rightNum)
+                    return BooleanIDT.valueOf(compareNumbers(op, leftNum.getValue(), rightNum.getValue()));
+                deoptimize(compareNode);
+                return evaluateCompareExp(compareNode, leftValue, rightValue);
+            };
+            specializations++;
+        } else {
+            compareNode.specialization = Specialization.GENERIC;
+        }
+    }
+
+    /**
+     * A variable in the specializing engine. Once it has been found, it is rewritten to be read straight from wherever
+     * it was, the frame or the object, without going through findVariable(); an implicit variable that hasn't been
+     * created in this frame sends it back to generic.
+     */
+    private InterpreterDataType evaluateSpecializedVariable(InterpreterDataType[] locals, Optional<ObjectIDT> object, VariableReferenceNode variable) {
+        var value = findVariable(variable, locals, object);
+        if (variable.specialization != Specialization.UNINITIALIZED)
+            return value;
+        int slot = variable.slot;
+        if (variable.isMember) {
+            variable.specialization = Specialization.MEMBER;
+            variable.specialized = (frame, self) -> {
+                if (self.isPresent())
+                    return self.get().members[slot];
+                deoptimize(variable);
+                return findVariable(variable, frame, self);
+            };
+        } else {
+            variable.specialization = Specialization.LOCAL;
+            variable.specialized = (frame, self) -> {
+                var local = frame[slot];
+                if (local != null)
+                    return local;
+                deoptimize(variable);
+                return findVariable(variable, frame, self);
+            };
+        }
+        specializations++;
+        return value;
+    }
+
+    // A specialized node whose guard failed goes back to generic, and evaluate() looks at what kind of node it is again
+    private void deoptimize(MathOpNode mathOpNode) {
+        mathOpNode.specialization = Specialization.GENERIC;
+        mathOpNode.specialized = null;
+        deoptimizations++;
+    }
+
+    private void deoptimize(CompareNode compareNode) {
+        compareNode.specialization = Specialization.GENERIC;
+        compareNode.specialized = null;
+        deoptimizations++;
+    }
+
+    private void deoptimize(VariableReferenceNode variable) {
+        variable.specialization = Specialization.GENERIC;
+        variable.specialized = null;
+        deoptimizations++;
+    }
+
+    /**
+     * An operand of a rewritten node. A literal's value, or a variable's slot in the frame or the object, is read
+     * straight from the node that uses it instead of through evaluate(); anything else is evaluated.
+     */
+    private record Operand(ExpressionNode node, int slot, boolean isMember, InterpreterDataType value) {}
+
+    private static Operand operandOf(ExpressionNode node) {
+        return switch (node) {
+            case NumericLiteralNode literal when literal.sharedValue != null -> new Operand(node, -1, false, literal.sharedValue);
+            case StringLiteralNode literal when literal.sharedValue != null -> new Operand(node, -1, false, literal.sharedValue);
+            case CharLiteralNode literal when literal.sharedValue != null -> new Operand(node, -1, false, literal.sharedValue);
+            case VariableReferenceNode variable -> new Operand(node, variable.slot, variable.isMember, null);
+            default -> new Operand(node, -1, false, null);
+        };
+    }
+
+    private InterpreterDataType read(Operand operand, InterpreterDataType[] frame, Optional<ObjectIDT> self) {
+        if (operand.value != null)
+            return operand.value;
+        if (operand.slot >= 0) {
+            var value = operand.isMember ? self.isPresent() ? self.get().members[operand.slot] : null : frame[operand.slot];
+            if (value != null)
+                return value;
+        }
+        return evaluate(frame, self, operand.node);
+    }
+
+    // What a literal is rewritten into: its shared value, without looking at what kind of node it is
+    private static Specialized constant(InterpreterDataType value) {
+        return (frame, self) -> value;
+    }
+
+    private ObjectIDT evaluateObjectInstantiation(InterpreterDataType[] locals, Optional<ObjectIDT> object, NewNode constructExp) {
         // Create MethodCallStatementNode to hold constructor information
         var mc = new MethodCallStatementNode();
         mc.parameters = constructExp.parameters;
@@ -473,34 +1089,64 @@ public class Interpreter {
         var instance = new ObjectIDT(classNode);
         for (int i = 0; i < classNode.members.size(); i++) {
             var classField = classNode.members.get(i).declaration;
-            instance.members.put(classField.name, instantiate(classField.type));
+            instance.members[i] = instantiate(classField);
         }
         // Run constructor with allocated object
         findConstructorAndRunIt(object, locals, mc, instance); // Fields of `instance` will be populated
         return instance;
     }
 
-    private static BooleanIDT evaluateCompareExp(CompareNode compareNode, InterpreterDataType l, InterpreterDataType r) {
+    public static BooleanIDT evaluateCompareExp(CompareNode compareNode, InterpreterDataType l, InterpreterDataType r) {
         BooleanIDT retVal;
         if (l instanceof NumberIDT leftNum && r instanceof NumberIDT rightNum) {
-            retVal = new BooleanIDT(switch (compareNode.op) {
-                case lt -> leftNum.Value < rightNum.Value;
-                case le -> leftNum.Value <= rightNum.Value;
-                case gt -> leftNum.Value > rightNum.Value;
-                case ge -> leftNum.Value >= rightNum.Value;
-                case eq -> leftNum.Value == rightNum.Value;
-                case ne -> leftNum.Value != rightNum.Value;
-            });
+            retVal = new BooleanIDT(compareNumbers(compareNode.op, leftNum.getValue(), rightNum.getValue()));
         } else {
+            // Anything else is the same only if it is the same value. A shared value stands for a new one made where
+            // it was used, so it is never the same as anything, whichever engine made it
+            boolean same = l == r && !l.isShared();
             retVal = new BooleanIDT(switch (compareNode.op) {
-                case eq -> l == r;
-                case ne -> l != r;
+                case eq -> same;
+                case ne -> !same;
                 default -> throw new RuntimeException(String.format("Undefined operation: %s %s %s", l, compareNode.op, r));
             });
         }
         return retVal;
     }
 
+    public static double doMath(MathOpNode.MathOperations op, double l, double r) {
+        return switch (op) {
+            case add -> l + r;
+            case subtract -> l - r;
+            case multiply -> l * r;
+            case divide -> l / r;
+            case modulo -> modulo(l, r);
+        };
+    }
+
+    /**
+     * The same as l % r, but in long arithmetic when both are integers, which is much faster than for doubles
+     */
+    public static double modulo(double l, double r) {
+        long left = (long) l;
+        long right = (long) r;
+        if (left != l || right != r || right == 0)
+            return l % r;
+        long result = left % right;
+        // % on doubles keeps the sign of l, also when the result is 0
+        return result == 0 && l < 0 ? -0.0 : result;
+    }
+
+    public static boolean compareNumbers(CompareNode.CompareOperations op, double l, double r) {
+        return switch (op) {
+            case lt -> l < r;
+            case le -> l <= r;
+            case gt -> l > r;
+            case ge -> l >= r;
+            case eq -> l == r;
+            case ne -> l != r;
+        };
+    }
+
     //              Utility Methods
 
     /**
@@ -533,7 +1179,7 @@ public class Interpreter {
             // declaredAndCallSizeMatch && declaredAndArgumentsSizeMatch && declaredAndArgumentsTypesMatch
             parametersMatch = IntStream
                     .range(0, parameters.size())
-                    .allMatch(i -> typeMatchToIDT(m.parameters.get(i).type, parameters.get(i)));
+                    .allMatch(i -> typeMatchToIDT(m.parameters.get(i).typeId, parameters.get(i)));
         }
         return namesMatch && returnsMatch && parametersMatch;
     }
@@ -549,7 +1195,7 @@ public class Interpreter {
         boolean parameterCountsMatch = mc.parameters.size() == c.parameters.size() && c.parameters.size() == parameters.size();
         boolean parameterTypesMatch = true;
         for (int i = 0; i < c.parameters.size(); i++) {
-            if (!typeMatchToIDT(c.parameters.get(i).type, parameters.get(i)))
+            if (!typeMatchToIDT(c.parameters.get(i).typeId, parameters.get(i)))
                 parameterTypesMatch = false;
         }
         return parameterCountsMatch && parameterTypesMatch;
@@ -564,7 +1210,7 @@ public class Interpreter {
      * @param mc - a method call
      * @return the list of method values
      */
-    private List<InterpreterDataType> getParameters(Optional<ObjectIDT> object, HashMap<String, InterpreterDataType> locals, MethodCallStatementNode mc) {
+    private List<InterpreterDataType> getParameters(Optional<ObjectIDT> object, InterpreterDataType[] locals, MethodCallStatementNode mc) {
         return mc.parameters.stream().map(param -> copy(evaluate(locals, object, param))).toList();
     }
 
@@ -572,21 +1218,21 @@ public class Interpreter {
      * Used when we have an IDT and we want to see if it matches a type definition
      * Commonly, when someone is making a function call - do the parameter values match the method declaration?
      * <br></br>
-     * If the IDT is a simple type (boolean, number, etc.) - does the string type match the name of that IDT ("boolean", etc.)
-     * If the IDT is an object, check to see if the name matches OR the class has an interface that matches
+     * If the IDT is a simple type (boolean, number, etc.) - does the type ID match the ID of that IDT's type
+     * If the IDT is an object, check the TypeTable to see if its class is the type OR has an interface that is the type
      * If the IDT is a reference, check the inner (referred to) type
-     * @param type the name of a data type (parameter to a method)
+     * @param typeId the TypeTable ID of a data type (parameter to a method)
      * @param idt the IDT someone is trying to pass to this method
      * @return is this OK?
      */
-    private boolean typeMatchToIDT(String type, InterpreterDataType idt) {
+    public boolean typeMatchToIDT(int typeId, InterpreterDataType idt) {
         return switch (idt) {
-            case BooleanIDT ignored -> type.equals("boolean");
-            case NumberIDT ignored -> type.equals("number");
-            case StringIDT ignored -> type.equals("string");
-            case CharIDT ignored -> type.equals("character");
-            case ObjectIDT obj -> type.equals(obj.astNode.name) || obj.astNode.interfaces.stream().anyMatch(type::equals); // astNode.name is Class name
-            case ReferenceIDT ref -> typeMatchToIDT(type, ref.refersTo.orElseThrow(() -> new RuntimeException("<Null> Reference Exception: " + ref)));
+            case BooleanIDT ignored -> typeId == TypeTable.BOOLEAN;
+            case NumberIDT ignored -> typeId == TypeTable.NUMBER;
+            case StringIDT ignored -> typeId == TypeTable.STRING;
+            case CharIDT ignored -> typeId == TypeTable.CHARACTER;
+            case ObjectIDT obj -> types.isSubtype(obj.astNode.typeId, typeId);
+            case ReferenceIDT ref -> typeMatchToIDT(typeId, ref.refersTo.orElseThrow(() -> new RuntimeException("<Null> Reference Exception: " + ref)));
             default -> throw new RuntimeException(String.format("Undefined type: '%s'", idt));
         };
     }
@@ -619,23 +1265,44 @@ public class Interpreter {
     }
 
     /**
-     * Given an execution environment (the current object, the current local variables), find a variable by name.
+     * Given an execution environment (the current object, the current local variables), find a variable by its slot.
+     * The Resolver has already decided whether the variable is a local or a member.
      *
-     * @param name  - the variable that we are looking for
+     * @param variable  - the variable that we are looking for
      * @param locals - the current method's local variables
      * @param object - the current object (so we can find members)
      * @return the IDT that we are looking for or throw an exception
      */
-    private InterpreterDataType findVariable(String name, HashMap<String, InterpreterDataType> locals, Optional<ObjectIDT> object) {
-        // Check in locals-hashmap
-        if (locals.containsKey(name))
-            return locals.get(name);
-        if (object.isPresent()) {
+    private InterpreterDataType findVariable(VariableReferenceNode variable, InterpreterDataType[] locals, Optional<ObjectIDT> object) {
+        InterpreterDataType value = null;
+        if (!variable.isMember) {
+            // Check in frame
+            if (variable.slot >= 0)
+                value = locals[variable.slot];
+        } else if (object.isPresent()) {
             // Check in object members
-            if (object.get().members.containsKey(name))
-                return object.get().members.get(name);
+            value = object.get().members[variable.slot];
         }
-        throw new RuntimeException("Unable to find variable " + name);
+        if (value == null) // Unresolved, or an implicit variable that hasn't been created yet
+            throw new RuntimeException("Unable to find variable " + variable.name);
+        return value;
+    }
+
+    /**
+     * Store a value that a statement created (a loop variable, or a value returned from a method call) in a variable.
+     * A variable that already holds a value is assigned into, so it keeps its declared type. An implicit variable that
+     * hasn't been created yet holds the value itself, or a copy of it if it is shared.
+     */
+    private void storeVariable(VariableReferenceNode variable, InterpreterDataType[] locals, Optional<ObjectIDT> object, InterpreterDataType value) {
+        if (!variable.isMember && variable.slot >= 0) {
+            if (locals[variable.slot] == null)
+                locals[variable.slot] = value.isShared() ? copy(value) : value;
+            else
+                locals[variable.slot].Assign(value);
+        } else if (variable.isMember && object.isPresent())
+            object.get().members[variable.slot].Assign(value);
+        else
+            throw new RuntimeException("Unable to find variable " + variable.name);
     }
 
     /**
@@ -644,7 +1311,7 @@ public class Interpreter {
      * @param type The name of the type (string, number, boolean, character). Defaults to ReferenceIDT if not one of those.
      * @return an IDT with default values (0 for number, "" for string, false for boolean, ' ' for character)
      */
-    private InterpreterDataType instantiate(String type) {
+    public static InterpreterDataType instantiate(String type) {
         return switch (type) {
             case "string" -> new StringIDT("");
             case "number" -> new NumberIDT(0);
@@ -654,19 +1321,34 @@ public class Interpreter {
         };
     }
 
-    private InterpreterDataType copy(InterpreterDataType idt) {
+    // Same as instantiate(String), but switches on the type ID when the TypeTable has assigned one
+    public static InterpreterDataType instantiate(VariableDeclarationNode declaration) {
+        return switch (declaration.typeId) {
+            case TypeTable.UNKNOWN -> instantiate(declaration.type);
+            case TypeTable.STRING -> new StringIDT("");
+            case TypeTable.NUMBER -> new NumberIDT(0);
+            case TypeTable.BOOLEAN -> new BooleanIDT(false);
+            case TypeTable.CHARACTER -> new CharIDT('\0');
+            default -> new ReferenceIDT();
+        };
+    }
+
+    public static InterpreterDataType copy(InterpreterDataType idt) {
         if (idt instanceof ReferenceIDT ref) {
             if (ref.refersTo.isEmpty())
                 throw new RuntimeException("<Null> Reference Exception: " + ref);
             return copy(ref.refersTo.get());
         } else if (idt instanceof StringIDT str) {
-            return new StringIDT(str.Value);
+            // Shares the builder a joined string is in, rather than copying its characters out
+            var copy = new StringIDT("");
+            copy.Assign(str);
+            return copy;
         } else if (idt instanceof NumberIDT num) {
-            return new NumberIDT(num.Value);
+            return new NumberIDT(num.getValue());
         } else if (idt instanceof BooleanIDT bool) {
-            return new BooleanIDT(bool.Value);
+            return new BooleanIDT(bool.getValue());
         } else if (idt instanceof CharIDT charIDT) {
-            return new CharIDT(charIDT.Value);
+            return new CharIDT(charIDT.getValue());
         } else if (idt instanceof ObjectIDT obj) {
             return obj; // Objects should not be copied (like this)
         }
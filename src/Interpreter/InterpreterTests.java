@@ -1,15 +1,19 @@
 package Interpreter;
 
 import AST.TranNode;
+import Interpreter.Optimizer.Optimizer;
 import Lexer.Lexer;
 import Parser.Parser;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class InterpreterTests {
-    private static List<String> getConsole(TranNode tn) {
+    protected static List<String> getConsole(TranNode tn) {
         for (var c : tn.Classes)
             if (c.name.equals("console")) {
                 for (var m : c.methods)  {
@@ -21,7 +25,51 @@ public class InterpreterTests {
         throw new RuntimeException("Unable to find console");
     }
 
-    private static TranNode run(String program) {
+    protected static TranNode parse(String program) throws Exception {
+        var tran = new TranNode();
+        new Parser(tran, new Lexer(program).Lex()).Tran();
+        return tran;
+    }
+
+    // Small methods would otherwise be copied into their callers, and never called
+    protected static Optimizer notInlining() {
+        var optimizer = new Optimizer();
+        optimizer.inliner.maxSize = 0;
+        return optimizer;
+    }
+
+    /**
+     * Run a program that writes one line, for tests that check how much an engine allocates
+     * @return how many bytes running the program allocated on this thread
+     */
+    protected static long allocatedRunning(String program, Interpreter.Engine engine, Optimizer optimizer) throws Exception {
+        return allocatedRunning(program, engine, optimizer, interpreter -> {});
+    }
+
+    // allocatedRunning(), with the interpreter set up by configure before it starts
+    protected static long allocatedRunning(String program, Interpreter.Engine engine, Optimizer optimizer, Consumer<Interpreter> configure) throws Exception {
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        var tran = parse(program);
+        var interpreter = new Interpreter(tran, optimizer);
+        interpreter.setEngine(engine);
+        configure.accept(interpreter);
+        long before = threads.getCurrentThreadAllocatedBytes();
+        interpreter.start();
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        Assertions.assertEquals(1, getConsole(tran).size());
+        return allocated;
+    }
+
+    // Every test runs on this engine; subclasses run them all again on the other engines
+    protected Interpreter.Engine engine() {
+        return Interpreter.Engine.TREE_WALKER;
+    }
+
+    // Any other settings the engine needs
+    protected void configure(Interpreter interpreter) {
+    }
+
+    private TranNode run(String program) {
         var l  = new Lexer(program);
         try {
             var tokens = l.Lex();
@@ -30,6 +78,8 @@ public class InterpreterTests {
             var p = new Parser(tran,tokens);
             p.Tran();
             var i = new Interpreter(tran);
+            i.setEngine(engine());
+            configure(i);
             i.start();
             return tran;
         } catch (Exception e) {
@@ -53,7 +103,7 @@ public class InterpreterTests {
         var tranNode = run(program);
         var c = getConsole(tranNode);
         Assertions.assertEquals(1,c.size());
-        Assertions.assertEquals("12.0",c.getFirst());
+        Assertions.assertEquals("12",c.getFirst());
     }
 
     @Test
@@ -79,7 +129,7 @@ public class InterpreterTests {
         var tranNode = run(program);
         var c = getConsole(tranNode);
         Assertions.assertEquals(1,c.size());
-        Assertions.assertEquals("12.0",c.getFirst());
+        Assertions.assertEquals("12",c.getFirst());
     }
 
     @Test
@@ -105,7 +155,7 @@ public class InterpreterTests {
         var tranNode = run(program);
         var c = getConsole(tranNode);
         Assertions.assertEquals(1,c.size());
-        Assertions.assertEquals("12.0",c.getFirst());
+        Assertions.assertEquals("12",c.getFirst());
     }
 
     @Test
@@ -125,8 +175,8 @@ public class InterpreterTests {
         var tranNode = run(program);
         var c = getConsole(tranNode);
         Assertions.assertEquals(15,c.size());
-        Assertions.assertEquals("1.0",c.getFirst());
-        Assertions.assertEquals("15.0",c.getLast());
+        Assertions.assertEquals("1",c.getFirst());
+        Assertions.assertEquals("15",c.getLast());
     }
 
     @Test
@@ -164,8 +214,8 @@ public class InterpreterTests {
         var tranNode = run(program);
         var c = getConsole(tranNode);
         Assertions.assertEquals(3,c.size());
-        Assertions.assertEquals("michael phipps 99.0",c.getFirst());
-        Assertions.assertEquals("bart simpson 30.0",c.getLast());
+        Assertions.assertEquals("michael phipps 99",c.getFirst());
+        Assertions.assertEquals("bart simpson 30",c.getLast());
     }
 
 
@@ -212,15 +262,86 @@ public class InterpreterTests {
         var tranNode = run(program);
         var c = getConsole(tranNode);
         Assertions.assertEquals(7,c.size());
-        Assertions.assertEquals("10.0",c.get(0));
-        Assertions.assertEquals("20.0",c.get(1));
-        Assertions.assertEquals("15.0",c.get(2));
+        Assertions.assertEquals("10",c.get(0));
+        Assertions.assertEquals("20",c.get(1));
+        Assertions.assertEquals("15",c.get(2));
         Assertions.assertEquals("foobar messified",c.get(3));
         Assertions.assertEquals("foobar",c.get(4));
         Assertions.assertEquals("b",c.get(5));
         Assertions.assertEquals("a",c.get(6));
     }
 
+    @Test
+    public void literalsStayTheSameWhenWhatTheyWerePassedToChanges() {
+        String program = """
+                class Tran
+                    shared bump(number n, string s, character c) : number result, boolean done
+                        n = n + 1
+                        s = s + "!"
+                        c = 'z'
+                        result = n
+                        done = n > 3
+
+                    shared start()
+                        number i
+                        number n
+                        number total
+                        boolean done
+                        n = 3
+                        loop i = n.times()
+                            total, done = Tran.bump(3, "hi", 'a')
+                            total = total + 1
+                            console.write(total, " ", done, " ", 3, " ", "hi", 'a')
+                """;
+        var c = getConsole(run(program));
+        Assertions.assertEquals(3, c.size());
+        for (var line : c)
+            Assertions.assertEquals("5 true 3 hia", line);
+    }
+
+    @Test
+    public void valuesThatArentNumbersAreOnlyEqualToThemselves() {
+        String program = """
+                class Tran
+                    shared same(boolean b) : boolean result
+                        result = b == b
+
+                    shared start()
+                        number i
+                        number n
+                        boolean b
+                        character c
+                        boolean first
+                        boolean second
+                        boolean third
+                        boolean fourth
+                        boolean fifth
+                        n = 3
+                        b = true
+                        c = 'a'
+                        loop i = n.times()
+                            first = true == true
+                            second = (1 < 2) == (3 < 4)
+                            third = 'a' == 'a'
+                            fourth = "x" == "x"
+                            fifth = true != true
+                            console.write(first, " ", second, " ", third, " ", fourth, " ", fifth)
+                            first = b == b
+                            second = c == c
+                            third = Tran.same(false)
+                            fourth = b == true
+                            fifth = c != 'a'
+                            console.write(first, " ", second, " ", third, " ", fourth, " ", fifth)
+                """;
+        var c = getConsole(run(program));
+        Assertions.assertEquals(6, c.size());
+        for (int i = 0; i < c.size(); i += 2) {
+            // Every literal and every result is a new value, as it always was
+            Assertions.assertEquals("false false false false true", c.get(i));
+            Assertions.assertEquals("true true true false true", c.get(i + 1));
+        }
+    }
+
     @Test
     public void throwExceptionAt_ReturnTypeMismatch() {
         String program = "class Matrix\n" +
@@ -264,7 +385,7 @@ public class InterpreterTests {
         var c = getConsole(tranNode);
         Assertions.assertEquals(100,c.size());
         for (int i = 0; i < c.size(); i++) {
-            Assertions.assertEquals(((float) i+1) + " times!", c.get(i));
+            Assertions.assertEquals((i + 1) + " times!", c.get(i));
         }
     }
 
@@ -370,7 +491,7 @@ public class InterpreterTests {
         var c = getConsole(tranNode);
         Assertions.assertEquals(84, c.size());
         for (int i = 0; i < 84; i++) {
-            Assertions.assertEquals((i < 42 ? "i " : "j ") + (float)(i % 42 + 1), c.get(i));
+            Assertions.assertEquals((i < 42 ? "i " : "j ") + (i % 42 + 1), c.get(i));
         }
     }
 
@@ -409,8 +530,8 @@ public class InterpreterTests {
         var tranNode = run(program);
         var c = getConsole(tranNode);
         Assertions.assertEquals(6, c.size());
-        Assertions.assertEquals("15.0",c.get(0));
-        Assertions.assertEquals("5.0",c.get(1));
+        Assertions.assertEquals("15",c.get(0));
+        Assertions.assertEquals("5",c.get(1));
         Assertions.assertEquals("hello world",c.get(2));
         Assertions.assertEquals("false", c.get(3));
         Assertions.assertEquals("true", c.get(4));
@@ -513,7 +634,236 @@ public class InterpreterTests {
         var tranNode = run(program);
         var c = getConsole(tranNode);
         for (int i = 0; i < 4; i++) {
-            Assertions.assertEquals("" + (float)i, c.get(i));
+            Assertions.assertEquals("" + i, c.get(i));
+        }
+    }
+
+    @Test
+    public void variablesResolveToTheRightSlots() {
+        String program = """
+                class Counter
+                    number count
+
+                    construct(number start)
+                        number doubled
+                        doubled = start * 2
+                        count = doubled
+
+                    next() : number before, number after
+                        before = count
+                        count = count + 1
+                        after = count
+
+                    shared start()
+                        Counter c
+                        c = new Counter(5)
+                        number a
+                        a, b = c.next()
+                        if a == 10
+                            console.write("before ", a)
+                        console.write("after ", b)
+                        boolean going
+                        going = true
+                        loop g = going
+                            console.write(g)
+                            going = false
+                """;
+        var tranNode = run(program);
+        var c = getConsole(tranNode);
+        Assertions.assertEquals(3, c.size());
+        Assertions.assertEquals("before 10", c.get(0));
+        Assertions.assertEquals("after 11", c.get(1));
+        Assertions.assertEquals("true", c.get(2));
+    }
+
+    @Test
+    public void timesLoopsCountToTheNumberTheyStartedWith() {
+        String program = """
+                class Tran
+                    shared start()
+                        number n
+                        number total
+                        n = 3
+                        loop i = n.times()
+                            n = 10
+                            total = total + i
+                            i = 100
+                        loop n.times()
+                            total = total + 1
+                        console.write(total, " ", n)
+                """;
+        var tranNode = run(program);
+        var c = getConsole(tranNode);
+        Assertions.assertEquals(List.of("16 10"), c);
+    }
+
+    @Test
+    public void timesIteratorMatchesIteratorParameter() {
+        String program = """
+                class Summer
+                    shared sum(iterator numbers) : number total
+                        loop n = numbers
+                            total = total + n
+                
+                    shared start()
+                        number x
+                        x = 4
+                        console.write(Summer.sum(x.times()))
+                """;
+        var tranNode = run(program);
+        var c = getConsole(tranNode);
+        Assertions.assertEquals(1, c.size());
+        Assertions.assertEquals("10", c.getFirst());
+    }
+
+    @Test
+    public void integersStayExact() {
+        String program = """
+                class Tran
+                    shared start()
+                        number big
+                        number half
+                        big = 16777216 + 1
+                        half = 7 / 2
+                        console.write(big, " ", big % 10, " ", half, " ", 0 - 7 % 3)
+                """;
+        var tranNode = run(program);
+        var c = getConsole(tranNode);
+        Assertions.assertEquals(List.of("16777217 7 3.5 -1"), c);
+    }
+
+    @Test
+    public void largeIntegersPrintAllTheirDigits() {
+        String program = """
+                class Tran
+                    shared start()
+                        number largestExact
+                        number billion
+                        largestExact = 9007199254740990 + 1
+                        billion = 1000000000
+                        console.write(largestExact, " ", largestExact % 1000, " ", billion * billion, " ", 0 - billion * billion * 4096)
+                """;
+        var tranNode = run(program);
+        var c = getConsole(tranNode);
+        Assertions.assertEquals(List.of("9007199254740991 991 1000000000000000000 -4096000000000000000000"), c);
+    }
+
+    @Test
+    public void joinedStringsKeepTheirOwnCharacters() {
+        String program = """
+                class Tran
+                    shared start()
+                        string s
+                        string before
+                        string other
+                        s = "ab"
+                        s = s + "cd"
+                        before = s
+                        s = s + "ef"
+                        other = before + "xy"
+                        s = s + s
+                        console.write(before, " ", s, " ", other)
+                """;
+        var tranNode = run(program);
+        var c = getConsole(tranNode);
+        Assertions.assertEquals(List.of("abcd abcdefabcdef abcdxy"), c);
+    }
+
+    @Test
+    public void appendingToAStringTakesLinearTime() {
+        String program = """
+                class Tran
+                    shared start()
+                        string s
+                        number n
+                        n = 100000
+                        loop n.times()
+                            s = s + "0123456789"
+                        console.write(s)
+                """;
+        // Copying the whole string on every append would copy 50 GB
+        var tranNode = Assertions.assertTimeout(Duration.ofSeconds(20), () -> run(program));
+        var c = getConsole(tranNode);
+        Assertions.assertEquals(1000000, c.getFirst().length());
+        Assertions.assertEquals("0123456789".repeat(100000), c.getFirst());
+    }
+
+    @Test
+    public void typeErrorsAreReportedBeforeRunning() {
+        String program = """
+                class Tran
+                    shared start()
+                        number n
+                        boolean b
+                        console.write("started")
+                        if n > 1
+                            b = n + "one"
+                """;
+        var exception = Assertions.assertThrows(RuntimeException.class, () -> run(program));
+        Assertions.assertTrue(exception.getMessage().contains("Undefined operation: 'number add string'"), exception.getMessage());
+    }
+
+    @Test
+    public void pureMethodResultsAreRemembered() throws Exception {
+        String program = """
+                class Tran
+                    shared start()
+                        number f
+                        f = Tran.fib(20)
+                        console.write(f)
+                        Tran.say(f)
+
+                    shared fib(number n) : number r
+                        number a
+                        number b
+                        if n < 2
+                            r = n
+                        else
+                            a = Tran.fib(n - 1)
+                            b = Tran.fib(n - 2)
+                            r = a + b
+
+                    shared say(number n)
+                        console.write(n)
+                """;
+        for (int capacity : new int[] {100, 1}) {
+            var tran = new TranNode();
+            new Parser(tran, new Lexer(program).Lex()).Tran();
+            var i = new Interpreter(tran);
+            i.setEngine(engine());
+            configure(i);
+            var cache = i.enableMemoization(capacity);
+            i.start();
+            Assertions.assertEquals(List.of("6765", "6765"), getConsole(tran));
+            var methods = tran.Classes.stream().filter(c -> c.name.equals("Tran")).findFirst().orElseThrow().methods;
+            Assertions.assertTrue(methods.stream().filter(m -> m.name.equals("fib")).findFirst().orElseThrow().isPure);
+            Assertions.assertFalse(methods.stream().filter(m -> m.name.equals("say")).findFirst().orElseThrow().isPure);
+            Assertions.assertTrue(cache.size() <= capacity);
+            if (capacity == 1)
+                Assertions.assertTrue(cache.getEvictions() > 0);
+            else
+                Assertions.assertTrue(cache.getHits() > 0 && cache.getMisses() <= 21, cache.getHits() + " " + cache.getMisses());
         }
     }
+
+    @Test
+    public void selfCallsInTailPositionDontGrowTheStack() {
+        String program = """
+                class Tran
+                    shared start()
+                        console.write(Tran.count(200000, 0))
+
+                    shared count(number n, number counted) : number result
+                        number next
+                        next = counted + 1
+                        if n == 0
+                            result = counted
+                        else
+                            result = Tran.count(n - 1, next)
+                """;
+        // Far deeper than the Java stack goes if every call has its own frame
+        var tranNode = run(program);
+        var c = getConsole(tranNode);
+        Assertions.assertEquals(List.of("200000"), c);
+    }
 }
@@ -0,0 +1,233 @@
+package Interpreter.JVM;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes the code of one JVM method, keeping track of how deep the operand stack gets and which locals are used.
+ * <br></br>
+ * Jumps go to Labels, which are filled in once they're placed.
+ */
+final class CodeWriter {
+    // The JVM opcodes JvmCompiler uses
+    static final int ICONST_0 = 0x03;
+    static final int ICONST_1 = 0x04;
+    static final int DCONST_0 = 0x0e;
+    static final int BIPUSH = 0x10;
+    static final int SIPUSH = 0x11;
+    static final int LDC_W = 0x13;
+    static final int LDC2_W = 0x14;
+    static final int ILOAD = 0x15;
+    static final int DLOAD = 0x18;
+    static final int ISTORE = 0x36;
+    static final int DSTORE = 0x39;
+    static final int AALOAD = 0x32;
+    static final int AASTORE = 0x53;
+    static final int POP = 0x57;
+    static final int POP2 = 0x58;
+    static final int DUP = 0x59;
+    static final int DADD = 0x63;
+    static final int DSUB = 0x67;
+    static final int DMUL = 0x6b;
+    static final int DDIV = 0x6f;
+    static final int DREM = 0x73;
+    static final int IAND = 0x7e;
+    static final int IOR = 0x80;
+    static final int IXOR = 0x82;
+    static final int IINC = 0x84;
+    static final int I2D = 0x87;
+    static final int D2I = 0x8e;
+    static final int DCMPL = 0x97;
+    static final int DCMPG = 0x98;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9a;
+    static final int IFLT = 0x9b;
+    static final int IFGE = 0x9c;
+    static final int IFGT = 0x9d;
+    static final int IFLE = 0x9e;
+    static final int IF_ICMPGT = 0xa3;
+    static final int GOTO = 0xa7;
+    static final int IRETURN = 0xac;
+    static final int DRETURN = 0xaf;
+    static final int RETURN = 0xb1;
+    static final int GETSTATIC = 0xb2;
+    static final int INVOKESTATIC = 0xb8;
+    static final int ANEWARRAY = 0xbd;
+    static final int CHECKCAST = 0xc0;
+
+    /**
+     * A place in the code that jumps go to
+     */
+    static final class Label {
+        private int position = -1;
+        // How deep the stack is here, once known
+        private int stack = -1;
+        // Where the offsets of jumps to here go, and where those jumps are
+        private final List<int[]> uses = new ArrayList<>();
+    }
+
+    private final ClassWriter classWriter;
+    private final List<Label> labels = new ArrayList<>();
+    private byte[] code = new byte[64];
+    private int size;
+    private int stack;
+    private int maxStack;
+    private int maxLocals;
+
+    /**
+     * @param classWriter - the class the method is in, whose constants the code uses
+     * @param parameterSlots - how many locals the parameters take
+     */
+    CodeWriter(ClassWriter classWriter, int parameterSlots) {
+        this.classWriter = classWriter;
+        maxLocals = parameterSlots;
+    }
+
+    int maxStack() {
+        return maxStack;
+    }
+
+    int maxLocals() {
+        return maxLocals;
+    }
+
+    /**
+     * An instruction with no operands
+     * @param stackEffect - how much deeper the stack is after it
+     */
+    void op(int opcode, int stackEffect) {
+        write(opcode);
+        adjust(stackEffect);
+    }
+
+    // ILOAD, DLOAD, ISTORE or DSTORE; a double takes up two locals, and two words of the stack
+    void local(int opcode, int slot) {
+        int size = opcode == DLOAD || opcode == DSTORE ? 2 : 1;
+        if (slot + size - 1 > 0xFF)
+            throw new RuntimeException("Too many locals for compiled method");
+        write(opcode);
+        write(slot);
+        maxLocals = Math.max(maxLocals, slot + size);
+        adjust(opcode == ILOAD || opcode == DLOAD ? size : -size);
+    }
+
+    void increment(int slot, int amount) {
+        write(IINC);
+        write(slot);
+        write(amount);
+        maxLocals = Math.max(maxLocals, slot + 1);
+    }
+
+    void pushInt(int value) {
+        if (value >= -1 && value <= 5) {
+            write(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            write(BIPUSH);
+            write(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            write(SIPUSH);
+            writeShort(value);
+        } else {
+            write(LDC_W);
+            writeShort(classWriter.integer(value));
+        }
+        adjust(1);
+    }
+
+    void pushDouble(double value) {
+        // dconst_0 and 1; not -0.0, which has its own bits
+        if ((value == 0 || value == 1) && Double.doubleToRawLongBits(value) != Double.doubleToRawLongBits(-0.0)) {
+            write(DCONST_0 + (int) value);
+        } else {
+            write(LDC2_W);
+            writeShort(classWriter.doubleConstant(value));
+        }
+        adjust(2);
+    }
+
+    void pushString(String value) {
+        write(LDC_W);
+        writeShort(classWriter.string(value));
+        adjust(1);
+    }
+
+    void invokeStatic(String owner, String name, String descriptor, int stackEffect) {
+        write(INVOKESTATIC);
+        writeShort(classWriter.methodRef(owner, name, descriptor));
+        adjust(stackEffect);
+    }
+
+    void getStatic(String owner, String name, String descriptor) {
+        write(GETSTATIC);
+        writeShort(classWriter.fieldRef(owner, name, descriptor));
+        adjust(1);
+    }
+
+    // ANEWARRAY or CHECKCAST, which leave the stack as deep as it was
+    void type(int opcode, String internalName) {
+        write(opcode);
+        writeShort(classWriter.classRef(internalName));
+    }
+
+    Label label() {
+        var label = new Label();
+        labels.add(label);
+        return label;
+    }
+
+    void jump(int opcode, Label target) {
+        int at = size;
+        write(opcode);
+        target.uses.add(new int[]{size, at});
+        writeShort(0);
+        adjust(opcode == GOTO ? 0 : opcode == IF_ICMPGT ? -2 : -1);
+        if (target.stack < 0)
+            target.stack = stack;
+    }
+
+    /**
+     * Put the label here. Code after a GOTO can only be reached by jumping, so the stack is as deep as it was at the jump.
+     */
+    void place(Label label) {
+        label.position = size;
+        if (label.stack >= 0)
+            stack = label.stack;
+        else
+            label.stack = stack;
+    }
+
+    /**
+     * @return the code, with the jumps filled in
+     */
+    byte[] toBytes() {
+        if (size > 0xFFFF)
+            throw new RuntimeException("Compiled method is too large");
+        for (var label : labels) {
+            for (var use : label.uses) {
+                int offset = label.position - use[1];
+                if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE)
+                    throw new RuntimeException("Compiled method is too large");
+                code[use[0]] = (byte) (offset >> 8);
+                code[use[0] + 1] = (byte) offset;
+            }
+        }
+        return Arrays.copyOf(code, size);
+    }
+
+    private void adjust(int stackEffect) {
+        stack += stackEffect;
+        maxStack = Math.max(maxStack, stack);
+    }
+
+    private void write(int value) {
+        if (size == code.length)
+            code = Arrays.copyOf(code, size * 2);
+        code[size++] = (byte) value;
+    }
+
+    private void writeShort(int value) {
+        write(value >> 8);
+        write(value);
+    }
+}
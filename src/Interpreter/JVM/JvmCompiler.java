@@ -0,0 +1,546 @@
+package Interpreter.JVM;
+
+import AST.*;
+import Interpreter.ConsoleWrite;
+import Interpreter.TypeTable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.*;
+
+/**
+ * Compiles shared methods into a hidden JVM class, so HotSpot compiles them to machine code like any Java method.
+ * <br></br>
+ * A method is compiled if all of its variables are numbers or booleans, it returns at most one value, and it only
+ * does arithmetic, compares numbers, uses if and loops on booleans or on `n.times()`, writes to the console and calls
+ * other compiled shared methods. Numbers are doubles, as in NumberIDT, and calls between compiled methods are plain JVM
+ * calls. Everything else is left to the interpreter, which calls compiled methods through JvmMethod.
+ */
+public class JvmCompiler {
+    private static final String CLASS_NAME = "Interpreter/JVM/CompiledTran";
+    private static final String CONSTANTS = "constants";
+    private static final String IDT = "Interpreter/DataTypes/InterpreterDataType";
+    private static final String RUNTIME = "Interpreter/JVM/JvmRuntime";
+
+    private final TranNode top;
+    private final boolean memoizing;
+    // The methods that can be compiled
+    private final Set<MethodDeclarationNode> compiled = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Map<MethodDeclarationNode, String> names = new IdentityHashMap<>();
+    // Objects the compiled code uses, which it finds in the class's `constants` field
+    private final List<Object> constants = new ArrayList<>();
+
+    // The method being checked or compiled: the type ID of each slot
+    private int[] slotTypes;
+    // The JVM local each slot is in; numbers take up two
+    private int[] locals;
+    private CodeWriter code;
+    private int nextLocal;
+    // Where the method's code starts, for tail calls to go back to
+    private CodeWriter.Label start;
+
+    /**
+     * @param top - the head of the AST, after the interpreter has loaded it
+     * @param memoizing - whether the interpreter remembers the results of pure methods, which are then left to it
+     */
+    public JvmCompiler(TranNode top, boolean memoizing) {
+        this.top = top;
+        this.memoizing = memoizing;
+    }
+
+    /**
+     * Compile every method that can be, and replace each in its class with a JvmMethod that runs the compiled code
+     * @return the methods that were compiled
+     */
+    public List<MethodDeclarationNode> install() {
+        var candidates = new ArrayList<MethodDeclarationNode>();
+        for (var classNode : top.Classes)
+            for (var method : classNode.methods)
+                if (hasCompilableSignature(method))
+                    candidates.add(method);
+        compiled.addAll(candidates);
+        // A method can only be compiled if what it calls is, so drop methods until the rest only call each other
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (var method : candidates) {
+                if (compiled.contains(method) && !isCompilable(method)) {
+                    compiled.remove(method);
+                    changed = true;
+                }
+            }
+        }
+        var methods = candidates.stream().filter(compiled::contains).toList();
+        if (methods.isEmpty())
+            return methods;
+
+        for (var method : methods)
+            names.put(method, "m" + names.size());
+        var writer = new ClassWriter(CLASS_NAME);
+        writer.addField(ClassWriter.ACC_STATIC, CONSTANTS, "[Ljava/lang/Object;");
+        for (var method : methods)
+            writer.addMethod(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_STATIC, names.get(method), descriptor(method), compile(writer, method));
+        load(writer.toBytes());
+        return methods;
+    }
+
+    private void load(byte[] classFile) {
+        try {
+            var lookup = MethodHandles.lookup().defineHiddenClass(classFile, true);
+            var hidden = lookup.lookupClass();
+            lookup.findStaticSetter(hidden, CONSTANTS, Object[].class).invoke(constants.toArray());
+            for (var classNode : top.Classes) {
+                for (int i = 0; i < classNode.methods.size(); i++) {
+                    var method = classNode.methods.get(i);
+                    if (compiled.contains(method))
+                        classNode.methods.set(i, new JvmMethod(method, lookup.findStatic(hidden, names.get(method), methodType(method))));
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException("Unable to load compiled methods", e);
+        }
+    }
+
+    //              What can be compiled
+
+    private boolean hasCompilableSignature(MethodDeclarationNode method) {
+        if (method instanceof BuiltInMethodDeclarationNode || !method.isShared || method.returns.size() > 1)
+            return false;
+        if (memoizing && method.isPure)
+            return false;
+        // Implicit variables are made when the method runs, with whatever type they're given
+        var variables = variablesOf(method);
+        if (variables.size() != method.frameSize)
+            return false;
+        return variables.stream().allMatch(variable -> variable.typeId == TypeTable.NUMBER || variable.typeId == TypeTable.BOOLEAN);
+    }
+
+    // In the order of their slots
+    private static List<VariableDeclarationNode> variablesOf(MethodDeclarationNode method) {
+        var variables = new ArrayList<>(method.parameters);
+        variables.addAll(method.locals);
+        variables.addAll(method.returns);
+        return variables;
+    }
+
+    private boolean isCompilable(MethodDeclarationNode method) {
+        slotTypes = variablesOf(method).stream().mapToInt(variable -> variable.typeId).toArray();
+        return isCompilable(method.statements);
+    }
+
+    private boolean isCompilable(List<StatementNode> statements) {
+        for (var statement : statements) {
+            boolean compilable = switch (statement) {
+                case AssignmentNode assignment -> isLocal(assignment.target)
+                        && typeOf(assignment.expression) == slotTypes[assignment.target.slot];
+                case MethodCallStatementNode call -> isCompilable(call);
+                case IfNode ifNode -> typeOf(ifNode.condition) == TypeTable.BOOLEAN
+                        && isCompilable(ifNode.statements)
+                        && (ifNode.elseStatement.isEmpty() || isCompilable(ifNode.elseStatement.get().statements));
+                case LoopNode loop -> {
+                    if (loop.expressionType == TypeTable.BOOLEAN)
+                        yield typeOf(loop.expression) == TypeTable.BOOLEAN && variableHasType(loop, TypeTable.BOOLEAN) && isCompilable(loop.statements);
+                    yield timesOf(loop) != null && variableHasType(loop, TypeTable.NUMBER) && isCompilable(loop.statements);
+                }
+                default -> false;
+            };
+            if (!compilable)
+                return false;
+        }
+        return true;
+    }
+
+    private boolean isCompilable(MethodCallStatementNode call) {
+        return switch (calleeOf(call)) {
+            case ConsoleWrite ignored -> call.returnValues.isEmpty();
+            case MethodDeclarationNode method -> {
+                for (int i = 0; i < call.returnValues.size(); i++) {
+                    var target = call.returnValues.get(i);
+                    if (!isLocal(target) || slotTypes[target.slot] != method.returns.get(i).typeId)
+                        yield false;
+                }
+                yield true;
+            }
+            case null, default -> false;
+        };
+    }
+
+    private boolean isLocal(VariableReferenceNode variable) {
+        return !variable.isMember && variable.slot >= 0 && variable.slot < slotTypes.length;
+    }
+
+    private boolean variableHasType(LoopNode loop, int type) {
+        return loop.assignment.isEmpty() || isLocal(loop.assignment.get()) && slotTypes[loop.assignment.get().slot] == type;
+    }
+
+    /**
+     * @return the number variable a loop over `n.times()` is on, or null if it isn't that kind of loop
+     */
+    private VariableReferenceNode timesOf(LoopNode loop) {
+        if (!(loop.expression instanceof MethodCallExpressionNode call) || !call.methodName.equals("times") || !call.parameters.isEmpty())
+            return null;
+        if (call.objectName.isEmpty() || classNamed(call.objectName.get()) != null || call.objectReference == null)
+            return null;
+        var count = call.objectReference;
+        return isLocal(count) && slotTypes[count.slot] == TypeTable.NUMBER ? count : null;
+    }
+
+    /**
+     * @return the type ID of the expression's value, or UNKNOWN if it can't be compiled
+     */
+    private int typeOf(ExpressionNode expression) {
+        return switch (expression) {
+            case NumericLiteralNode ignored -> TypeTable.NUMBER;
+            case BooleanLiteralNode ignored -> TypeTable.BOOLEAN;
+            case VariableReferenceNode variable -> isLocal(variable) ? slotTypes[variable.slot] : TypeTable.UNKNOWN;
+            case MathOpNode mathOp -> bothAre(mathOp.left, mathOp.right, TypeTable.NUMBER) ? TypeTable.NUMBER : TypeTable.UNKNOWN;
+            // Other values are compared by identity
+            case CompareNode compare -> bothAre(compare.left, compare.right, TypeTable.NUMBER) ? TypeTable.BOOLEAN : TypeTable.UNKNOWN;
+            case BooleanOpNode booleanOp -> bothAre(booleanOp.left, booleanOp.right, TypeTable.BOOLEAN) ? TypeTable.BOOLEAN : TypeTable.UNKNOWN;
+            case NotOpNode notOp -> typeOf(notOp.left) == TypeTable.BOOLEAN ? TypeTable.BOOLEAN : TypeTable.UNKNOWN;
+            case MethodCallExpressionNode call -> {
+                if (calleeOf(new MethodCallStatementNode(call)) instanceof MethodDeclarationNode method && method.returns.size() == 1)
+                    yield method.returns.getFirst().typeId;
+                yield TypeTable.UNKNOWN;
+            }
+            default -> TypeTable.UNKNOWN;
+        };
+    }
+
+    private boolean bothAre(ExpressionNode left, ExpressionNode right, int type) {
+        return typeOf(left) == type && typeOf(right) == type;
+    }
+
+    // Strings and characters can only be written to the console
+    private int argumentTypeOf(ExpressionNode argument) {
+        return switch (argument) {
+            case StringLiteralNode ignored -> TypeTable.STRING;
+            case CharLiteralNode ignored -> TypeTable.CHARACTER;
+            default -> typeOf(argument);
+        };
+    }
+
+    /**
+     * Find the method the interpreter would call, the same way it does, from the types of the arguments
+     * @return console.write, a compiled method, or null if the call can't be compiled
+     */
+    private Object calleeOf(MethodCallStatementNode call) {
+        if (call.objectName.isEmpty())
+            return null;
+        var classNode = classNamed(call.objectName.get());
+        if (classNode == null)
+            return null;
+        var argumentTypes = call.parameters.stream().mapToInt(this::argumentTypeOf).toArray();
+        if (Arrays.stream(argumentTypes).anyMatch(type -> type == TypeTable.UNKNOWN))
+            return null;
+        for (var method : classNode.methods) {
+            if (!method.name.equals(call.methodName) || call.returnValues.size() > method.returns.size() || !method.isShared || method.isPrivate)
+                continue;
+            if (method instanceof BuiltInMethodDeclarationNode builtIn && builtIn.isVariadic)
+                return method instanceof ConsoleWrite ? method : null;
+            if (parametersMatch(method, argumentTypes))
+                return compiled.contains(method) ? method : null;
+        }
+        return null;
+    }
+
+    private static boolean parametersMatch(MethodDeclarationNode method, int[] argumentTypes) {
+        if (method.parameters.size() != argumentTypes.length)
+            return false;
+        for (int i = 0; i < argumentTypes.length; i++)
+            if (method.parameters.get(i).typeId != argumentTypes[i])
+                return false;
+        return true;
+    }
+
+    private ClassNode classNamed(String name) {
+        for (var classNode : top.Classes)
+            if (classNode.name.equals(name))
+                return classNode;
+        return null;
+    }
+
+    //              Compiling
+
+    private CodeWriter compile(ClassWriter writer, MethodDeclarationNode method) {
+        slotTypes = variablesOf(method).stream().mapToInt(variable -> variable.typeId).toArray();
+        locals = new int[slotTypes.length];
+        nextLocal = 0;
+        int parameterLocals = 0;
+        for (int slot = 0; slot < slotTypes.length; slot++) {
+            locals[slot] = nextLocal;
+            nextLocal += sizeOf(slotTypes[slot]);
+            if (slot < method.parameters.size())
+                parameterLocals = nextLocal;
+        }
+        code = new CodeWriter(writer, parameterLocals);
+        start = code.label();
+        code.place(start);
+        // Locals and returns start with their default values
+        for (int slot = method.parameters.size(); slot < slotTypes.length; slot++) {
+            if (slotTypes[slot] == TypeTable.NUMBER)
+                code.pushDouble(0);
+            else
+                code.pushInt(0);
+            store(slot);
+        }
+        compileStatements(method.statements);
+        if (method.returns.isEmpty()) {
+            code.op(CodeWriter.RETURN, 0);
+        } else {
+            int type = slotTypes[slotTypes.length - 1];
+            load(slotTypes.length - 1);
+            code.op(type == TypeTable.NUMBER ? CodeWriter.DRETURN : CodeWriter.IRETURN, -sizeOf(type));
+        }
+        return code;
+    }
+
+    // How many locals, or words of the stack, a value of the type takes up
+    private static int sizeOf(int type) {
+        return type == TypeTable.NUMBER ? 2 : 1;
+    }
+
+    private void compileStatements(List<StatementNode> statements) {
+        for (var statement : statements) {
+            switch (statement) {
+                case AssignmentNode assignment -> {
+                    compileExpression(assignment.expression);
+                    store(assignment.target.slot);
+                }
+                case MethodCallStatementNode call when call.isTailCall -> compileTailCall(call);
+                case MethodCallStatementNode call -> {
+                    int returned = compileCall(call);
+                    if (!call.returnValues.isEmpty())
+                        store(call.returnValues.getFirst().slot);
+                    else if (returned > 0)
+                        code.op(returned == 2 ? CodeWriter.POP2 : CodeWriter.POP, -returned);
+                }
+                case IfNode ifNode -> {
+                    var otherwise = code.label();
+                    var end = code.label();
+                    compileExpression(ifNode.condition);
+                    code.jump(CodeWriter.IFEQ, otherwise);
+                    compileStatements(ifNode.statements);
+                    code.jump(CodeWriter.GOTO, end);
+                    code.place(otherwise);
+                    ifNode.elseStatement.ifPresent(elseNode -> compileStatements(elseNode.statements));
+                    code.place(end);
+                }
+                case LoopNode loop -> {
+                    if (loop.expressionType == TypeTable.BOOLEAN)
+                        compileBooleanLoop(loop);
+                    else
+                        compileTimesLoop(loop);
+                }
+                default -> throw new RuntimeException("Unknown statement: " + statement);
+            }
+        }
+    }
+
+    private void compileBooleanLoop(LoopNode loop) {
+        var head = code.label();
+        var end = code.label();
+        if (loop.assignment.isPresent()) {
+            code.pushInt(0);
+            store(loop.assignment.get().slot);
+        }
+        code.place(head);
+        compileExpression(loop.expression);
+        code.jump(CodeWriter.IFEQ, end);
+        if (loop.assignment.isPresent()) {
+            code.pushInt(1);
+            store(loop.assignment.get().slot);
+        }
+        compileStatements(loop.statements);
+        code.jump(CodeWriter.GOTO, head);
+        code.place(end);
+    }
+
+    // The same numbers as the iterator times() makes: 1 to the number, cut down to an int when the loop starts
+    private void compileTimesLoop(LoopNode loop) {
+        int last = nextLocal++;
+        int counter = nextLocal++;
+        var head = code.label();
+        var end = code.label();
+        load(timesOf(loop).slot);
+        code.op(CodeWriter.D2I, -1);
+        code.local(CodeWriter.ISTORE, last);
+        if (loop.assignment.isPresent()) {
+            code.pushDouble(0);
+            store(loop.assignment.get().slot);
+        }
+        code.pushInt(1);
+        code.local(CodeWriter.ISTORE, counter);
+        code.place(head);
+        code.local(CodeWriter.ILOAD, counter);
+        code.local(CodeWriter.ILOAD, last);
+        code.jump(CodeWriter.IF_ICMPGT, end);
+        if (loop.assignment.isPresent()) {
+            code.local(CodeWriter.ILOAD, counter);
+            code.op(CodeWriter.I2D, 1);
+            store(loop.assignment.get().slot);
+        }
+        code.increment(counter, 1);
+        compileStatements(loop.statements);
+        code.jump(CodeWriter.GOTO, head);
+        code.place(end);
+        nextLocal -= 2;
+    }
+
+    private void compileExpression(ExpressionNode expression) {
+        switch (expression) {
+            case NumericLiteralNode literal -> code.pushDouble(literal.value);
+            case BooleanLiteralNode literal -> code.pushInt(literal.value ? 1 : 0);
+            case VariableReferenceNode variable -> load(variable.slot);
+            case MathOpNode mathOp -> {
+                compileExpression(mathOp.left);
+                compileExpression(mathOp.right);
+                code.op(switch (mathOp.op) {
+                    case add -> CodeWriter.DADD;
+                    case subtract -> CodeWriter.DSUB;
+                    case multiply -> CodeWriter.DMUL;
+                    case divide -> CodeWriter.DDIV;
+                    case modulo -> CodeWriter.DREM;
+                }, -2);
+            }
+            case CompareNode compare -> compileCompare(compare);
+            case BooleanOpNode booleanOp -> {
+                compileExpression(booleanOp.left);
+                compileExpression(booleanOp.right);
+                code.op(booleanOp.op == BooleanOpNode.BooleanOperations.and ? CodeWriter.IAND : CodeWriter.IOR, -1);
+            }
+            case NotOpNode notOp -> {
+                compileExpression(notOp.left);
+                code.pushInt(1);
+                code.op(CodeWriter.IXOR, -1);
+            }
+            case MethodCallExpressionNode call -> compileCall(new MethodCallStatementNode(call));
+            default -> throw new RuntimeException("Unknown expression: " + expression);
+        }
+    }
+
+    // The same instructions javac uses, so NaN compares the same way as in Java
+    private void compileCompare(CompareNode compare) {
+        compileExpression(compare.left);
+        compileExpression(compare.right);
+        boolean lessThan = compare.op == CompareNode.CompareOperations.lt || compare.op == CompareNode.CompareOperations.le;
+        code.op(lessThan ? CodeWriter.DCMPG : CodeWriter.DCMPL, -3);
+        var isFalse = code.label();
+        var end = code.label();
+        code.jump(switch (compare.op) {
+            case lt -> CodeWriter.IFGE;
+            case le -> CodeWriter.IFGT;
+            case gt -> CodeWriter.IFLE;
+            case ge -> CodeWriter.IFLT;
+            case eq -> CodeWriter.IFNE;
+            case ne -> CodeWriter.IFEQ;
+        }, isFalse);
+        code.pushInt(1);
+        code.jump(CodeWriter.GOTO, end);
+        code.place(isFalse);
+        code.pushInt(0);
+        code.place(end);
+    }
+
+    /**
+     * @return how many words of the stack the value the call leaves takes up, or 0 if it leaves none
+     */
+    private int compileCall(MethodCallStatementNode call) {
+        var callee = calleeOf(call);
+        if (callee instanceof ConsoleWrite console) {
+            compileWrite(console, call.parameters);
+            return 0;
+        }
+        var method = (MethodDeclarationNode) callee;
+        int arguments = 0;
+        for (var argument : call.parameters) {
+            compileExpression(argument);
+            arguments += sizeOf(typeOf(argument));
+        }
+        int returned = method.returns.isEmpty() ? 0 : sizeOf(method.returns.getFirst().typeId);
+        code.invokeStatic(CLASS_NAME, names.get(method), descriptor(method), returned - arguments);
+        return returned;
+    }
+
+    // A call of this method (see TailCallFinder) stores its arguments in the parameters and starts again
+    private void compileTailCall(MethodCallStatementNode call) {
+        for (var argument : call.parameters)
+            compileExpression(argument);
+        for (int slot = call.parameters.size() - 1; slot >= 0; slot--)
+            store(slot);
+        code.jump(CodeWriter.GOTO, start);
+    }
+
+    private void compileWrite(ConsoleWrite console, List<ExpressionNode> arguments) {
+        code.getStatic(CLASS_NAME, CONSTANTS, "[Ljava/lang/Object;");
+        code.pushInt(constant(console));
+        code.op(CodeWriter.AALOAD, -1);
+        code.pushInt(arguments.size());
+        code.type(CodeWriter.ANEWARRAY, IDT);
+        for (int i = 0; i < arguments.size(); i++) {
+            code.op(CodeWriter.DUP, 1);
+            code.pushInt(i);
+            var argument = arguments.get(i);
+            switch (argument) {
+                case StringLiteralNode literal -> {
+                    code.pushString(literal.value);
+                    code.invokeStatic(RUNTIME, "string", "(Ljava/lang/String;)L" + IDT + ";", 0);
+                }
+                case CharLiteralNode literal -> {
+                    code.pushInt(literal.value);
+                    code.invokeStatic(RUNTIME, "character", "(C)L" + IDT + ";", 0);
+                }
+                default -> {
+                    compileExpression(argument);
+                    if (typeOf(argument) == TypeTable.NUMBER)
+                        code.invokeStatic(RUNTIME, "number", "(D)L" + IDT + ";", -1);
+                    else
+                        code.invokeStatic(RUNTIME, "bool", "(Z)L" + IDT + ";", 0);
+                }
+            }
+            code.op(CodeWriter.AASTORE, -3);
+        }
+        code.invokeStatic(RUNTIME, "write", "(Ljava/lang/Object;[L" + IDT + ";)V", -2);
+    }
+
+    private void load(int slot) {
+        code.local(slotTypes[slot] == TypeTable.NUMBER ? CodeWriter.DLOAD : CodeWriter.ILOAD, locals[slot]);
+    }
+
+    private void store(int slot) {
+        code.local(slotTypes[slot] == TypeTable.NUMBER ? CodeWriter.DSTORE : CodeWriter.ISTORE, locals[slot]);
+    }
+
+    private int constant(Object value) {
+        for (int i = 0; i < constants.size(); i++)
+            if (constants.get(i) == value)
+                return i;
+        constants.add(value);
+        return constants.size() - 1;
+    }
+
+    //              Signatures
+
+    private static String descriptor(MethodDeclarationNode method) {
+        var descriptor = new StringBuilder("(");
+        for (var parameter : method.parameters)
+            descriptor.append(parameter.typeId == TypeTable.NUMBER ? 'D' : 'Z');
+        descriptor.append(')');
+        if (method.returns.isEmpty())
+            descriptor.append('V');
+        else
+            descriptor.append(method.returns.getFirst().typeId == TypeTable.NUMBER ? 'D' : 'Z');
+        return descriptor.toString();
+    }
+
+    private static MethodType methodType(MethodDeclarationNode method) {
+        var parameters = method.parameters.stream()
+                .map(parameter -> parameter.typeId == TypeTable.NUMBER ? double.class : boolean.class)
+                .toArray(Class<?>[]::new);
+        if (method.returns.isEmpty())
+            return MethodType.methodType(void.class, parameters);
+        return MethodType.methodType(method.returns.getFirst().typeId == TypeTable.NUMBER ? double.class : boolean.class, parameters);
+    }
+}
@@ -0,0 +1,59 @@
+package Interpreter.JVM;
+
+import AST.BuiltInMethodDeclarationNode;
+import AST.MethodDeclarationNode;
+import Interpreter.DataTypes.BooleanIDT;
+import Interpreter.DataTypes.InterpreterDataType;
+import Interpreter.DataTypes.NumberIDT;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.List;
+
+/**
+ * Takes the place of a method JvmCompiler has compiled, so the interpreter runs the JVM code when the method is called.
+ * It has the same name and signature as the method it replaces, so it is found the same way.
+ */
+public class JvmMethod extends BuiltInMethodDeclarationNode {
+    // The method it replaces
+    public final MethodDeclarationNode original;
+    // Takes the arguments as an Object[], and returns the boxed value or null
+    private final MethodHandle entry;
+
+    JvmMethod(MethodDeclarationNode original, MethodHandle compiled) {
+        this.original = original;
+        name = original.name;
+        isShared = original.isShared;
+        isPrivate = original.isPrivate;
+        parameters = original.parameters;
+        returns = original.returns;
+        entry = compiled.asSpreader(Object[].class, original.parameters.size())
+                .asType(MethodType.methodType(Object.class, Object[].class));
+    }
+
+    @Override
+    public List<InterpreterDataType> Execute(List<InterpreterDataType> params) {
+        var arguments = new Object[params.size()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = switch (params.get(i)) {
+                case NumberIDT number -> number.getValue();
+                case BooleanIDT bool -> bool.getValue();
+                default -> throw new RuntimeException("Unexpected argument to compiled method %s: %s".formatted(name, params.get(i)));
+            };
+        }
+        Object returned;
+        try {
+            returned = (Object) entry.invokeExact(arguments);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+        return switch (returned) {
+            case null -> List.of();
+            case Double number -> List.of(new NumberIDT(number));
+            case Boolean bool -> List.of(new BooleanIDT(bool));
+            default -> throw new RuntimeException("Unexpected value returned by compiled method %s: %s".formatted(name, returned));
+        };
+    }
+}
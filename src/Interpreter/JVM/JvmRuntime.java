@@ -0,0 +1,35 @@
+package Interpreter.JVM;
+
+import Interpreter.ConsoleWrite;
+import Interpreter.DataTypes.*;
+
+import java.util.Arrays;
+
+/**
+ * What compiled code calls for the things it can't do with JVM instructions alone. Public, as the compiled class is
+ * hidden and can only see public classes.
+ */
+public final class JvmRuntime {
+    private JvmRuntime() {
+    }
+
+    public static void write(Object console, InterpreterDataType[] values) {
+        ((ConsoleWrite) console).Execute(Arrays.asList(values));
+    }
+
+    public static InterpreterDataType number(double value) {
+        return new NumberIDT(value);
+    }
+
+    public static InterpreterDataType bool(boolean value) {
+        return new BooleanIDT(value);
+    }
+
+    public static InterpreterDataType string(String value) {
+        return new StringIDT(value);
+    }
+
+    public static InterpreterDataType character(char value) {
+        return new CharIDT(value);
+    }
+}
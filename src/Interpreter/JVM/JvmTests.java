@@ -0,0 +1,60 @@
+package Interpreter.JVM;
+
+import Interpreter.Interpreter;
+import Interpreter.InterpreterTests;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+// Runs every interpreter test with the methods that can be compiled to JVM code compiled
+public class JvmTests extends InterpreterTests {
+    @Override
+    protected Interpreter.Engine engine() {
+        return Interpreter.Engine.JVM;
+    }
+
+    @Test
+    public void numericMethodsAreCompiled() throws Exception {
+        String program = """
+                class Tran
+                    shared fib(number n) : number result
+                        number a
+                        if n < 2
+                            result = n
+                        else
+                            a = Tran.fib(n - 1)
+                            result = a + Tran.fib(n - 2)
+
+                    shared sumOdd(number n) : number total
+                        number i
+                        loop i = n.times()
+                            if i % 2 == 1
+                                total = total + i
+
+                    shared show(number n)
+                        boolean done
+                        boolean big
+                        big = n > 5
+                        console.write(Tran.fib(n), " ", Tran.sumOdd(n), ' ', big)
+                        loop not done
+                            done = true
+
+                    shared greet(string name)
+                        console.write("hello ", name)
+
+                    shared start()
+                        Tran.show(10)
+                        Tran.greet("world")
+                """;
+        var tran = parse(program);
+        var interpreter = new Interpreter(tran);
+        var compiled = new JvmCompiler(tran, false).install().stream().map(method -> method.name).toList();
+        // greet() has a string, and start() calls it, so the interpreter runs both
+        Assertions.assertEquals(List.of("fib", "sumOdd", "show"), compiled);
+        interpreter.start();
+
+        var console = getConsole(tran);
+        Assertions.assertEquals(List.of("55 25 true", "hello world"), console);
+    }
+}
@@ -0,0 +1,116 @@
+package Interpreter;
+
+import AST.MethodDeclarationNode;
+import Interpreter.DataTypes.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers the return values of pure methods, keyed by the method and its argument values, so calling a pure
+ * method again with the same arguments doesn't run it.
+ * <br></br>
+ * Holds at most `capacity` results; when it is full, the least recently used one is dropped.
+ * Values are copied going in and coming out, so a caller changing a returned variable can't change what is remembered.
+ */
+public class MemoCache {
+    /**
+     * A method and the values of its arguments. Made before the call runs, since the method can change its parameters.
+     */
+    public record Key(MethodDeclarationNode method, List<Object> arguments) {
+    }
+
+    private final int capacity;
+    private final LinkedHashMap<Key, List<InterpreterDataType>> results;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    public MemoCache(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Memo cache capacity must be at least 1");
+        this.capacity = capacity;
+        // Access order makes the first entry the least recently used
+        results = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, List<InterpreterDataType>> eldest) {
+                if (size() <= MemoCache.this.capacity)
+                    return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @return copies of the remembered return values, or null (counted as a miss) if there are none
+     */
+    public List<InterpreterDataType> get(Key key) {
+        var remembered = results.get(key);
+        if (remembered == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return copyAll(remembered);
+    }
+
+    public void put(Key key, List<InterpreterDataType> returned) {
+        results.put(key, copyAll(returned));
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public int size() {
+        return results.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void clear() {
+        results.clear();
+    }
+
+    // Pure methods only take primitives, so the Java values make a good key (Double.equals tells -0 from 0)
+    public static Key keyOf(MethodDeclarationNode method, List<InterpreterDataType> arguments) {
+        var key = new ArrayList<Object>(arguments.size());
+        for (var argument : arguments) {
+            key.add(switch (argument) {
+                case NumberIDT number -> number.getValue();
+                case StringIDT string -> string.toString();
+                case BooleanIDT bool -> bool.getValue();
+                case CharIDT character -> character.getValue();
+                default -> throw new RuntimeException("Can't remember a call with argument " + argument);
+            });
+        }
+        return new Key(method, key);
+    }
+
+    private static List<InterpreterDataType> copyAll(List<InterpreterDataType> values) {
+        var copies = new ArrayList<InterpreterDataType>(values.size());
+        for (var value : values) {
+            copies.add(switch (value) {
+                case NumberIDT number -> new NumberIDT(number.getValue());
+                case StringIDT string -> new StringIDT(string.toString());
+                case BooleanIDT bool -> new BooleanIDT(bool.getValue());
+                case CharIDT character -> new CharIDT(character.getValue());
+                default -> throw new RuntimeException("Can't remember a return value " + value);
+            });
+        }
+        return copies;
+    }
+}
@@ -0,0 +1,156 @@
+package Interpreter.Optimizer;
+
+import AST.*;
+import Interpreter.Interpreter;
+import Interpreter.TypeTable;
+
+import java.util.List;
+
+/**
+ * Replaces expressions whose value is known before the program runs with literals, so they are only worked out once.
+ * <br></br>
+ * Folds math, comparisons, and/or/not, and string/character concatenation when both sides are literals, using the same
+ * operations the interpreter would. Runs of literals appended to a string are joined into one literal. Also removes
+ * operations that can't change a number: x * 1, 1 * x, x / 1 and x - 0.
+ * (x + 0 is not one of them: -0 + 0 is 0, which prints differently.)
+ * <br></br>
+ * Comparisons of anything other than numbers are left alone, since the interpreter compares those by identity.
+ */
+public class ConstantFolder {
+    private int folded = 0;
+
+    public void fold(TranNode top) {
+        for (var classNode : top.Classes) {
+            for (var method : classNode.methods)
+                foldStatements(method.statements);
+            for (var constructor : classNode.constructors)
+                foldStatements(constructor.statements);
+        }
+    }
+
+    /**
+     * @return how many expressions have been replaced so far
+     */
+    public int getFolded() {
+        return folded;
+    }
+
+    public void foldStatements(List<StatementNode> statements) {
+        for (var statement : statements) {
+            if (statement instanceof AssignmentNode assignment) {
+                assignment.expression = fold(assignment.expression);
+            } else if (statement instanceof MethodCallStatementNode methodCall) {
+                methodCall.parameters.replaceAll(this::fold);
+            } else if (statement instanceof LoopNode loop) {
+                loop.expression = fold(loop.expression);
+                foldStatements(loop.statements);
+            } else if (statement instanceof IfNode ifNode) {
+                ifNode.condition = fold(ifNode.condition);
+                foldStatements(ifNode.statements);
+                ifNode.elseStatement.ifPresent(elseNode -> foldStatements(elseNode.statements));
+            }
+        }
+    }
+
+    /**
+     * @param expression any expression
+     * @return an expression that evaluates to the same value - a literal if possible
+     */
+    public ExpressionNode fold(ExpressionNode expression) {
+        if (expression instanceof MathOpNode mathOp) {
+            mathOp.left = fold(mathOp.left);
+            mathOp.right = fold(mathOp.right);
+            return countIfFolded(mathOp, foldMath(mathOp));
+        } else if (expression instanceof CompareNode compare) {
+            compare.left = fold(compare.left);
+            compare.right = fold(compare.right);
+            if (compare.left instanceof NumericLiteralNode l && compare.right instanceof NumericLiteralNode r)
+                return countIfFolded(compare, new BooleanLiteralNode(Interpreter.compareNumbers(compare.op, l.value, r.value)));
+        } else if (expression instanceof BooleanOpNode booleanOp) {
+            booleanOp.left = fold(booleanOp.left);
+            booleanOp.right = fold(booleanOp.right);
+            if (booleanOp.left instanceof BooleanLiteralNode l && booleanOp.right instanceof BooleanLiteralNode r)
+                return countIfFolded(booleanOp, new BooleanLiteralNode(switch (booleanOp.op) {
+                    case and -> l.value && r.value;
+                    case or -> l.value || r.value;
+                }));
+        } else if (expression instanceof NotOpNode notOp) {
+            notOp.left = fold(notOp.left);
+            if (notOp.left instanceof BooleanLiteralNode l)
+                return countIfFolded(notOp, new BooleanLiteralNode(!l.value));
+        } else if (expression instanceof MethodCallExpressionNode methodCall) {
+            methodCall.parameters.replaceAll(this::fold);
+        } else if (expression instanceof NewNode newNode) {
+            newNode.parameters.replaceAll(this::fold);
+        }
+        return expression;
+    }
+
+    private ExpressionNode foldMath(MathOpNode mathOp) {
+        var left = mathOp.left;
+        var right = mathOp.right;
+        // Numbers
+        if (left instanceof NumericLiteralNode l && right instanceof NumericLiteralNode r)
+            return numberLiteral(Interpreter.doMath(mathOp.op, l.value, r.value));
+        // Strings and characters
+        if (isStringOrChar(left) && isStringOrChar(right) && mathOp.op == MathOpNode.MathOperations.add
+                && (left instanceof StringLiteralNode || right instanceof StringLiteralNode))
+            return stringLiteral(literalText(left) + literalText(right));
+        // (x + "a") + "b" is x + "ab", since concatenation is associative
+        if (right instanceof StringLiteralNode || right instanceof CharLiteralNode) {
+            if (mathOp.op == MathOpNode.MathOperations.add && left instanceof MathOpNode inner && inner.type == TypeTable.STRING
+                    && inner.op == MathOpNode.MathOperations.add && isStringOrChar(inner.right)) {
+                inner.right = stringLiteral(literalText(inner.right) + literalText(right));
+                return inner;
+            }
+        }
+        // Identities, only when the other side is proven to be a number
+        if (mathOp.type == TypeTable.NUMBER) {
+            switch (mathOp.op) {
+                case multiply -> {
+                    if (isNumber(right, 1)) return left;
+                    if (isNumber(left, 1)) return right;
+                }
+                case divide -> {
+                    if (isNumber(right, 1)) return left;
+                }
+                case subtract -> {
+                    if (isNumber(right, 0)) return left;
+                }
+                default -> { }
+            }
+        }
+        return mathOp;
+    }
+
+    private ExpressionNode countIfFolded(ExpressionNode original, ExpressionNode result) {
+        if (result != original)
+            folded++;
+        return result;
+    }
+
+    private static boolean isNumber(ExpressionNode expression, double value) {
+        // Compare bits, so that -0 isn't mistaken for 0
+        return expression instanceof NumericLiteralNode number && Double.doubleToRawLongBits(number.value) == Double.doubleToRawLongBits(value);
+    }
+
+    private static boolean isStringOrChar(ExpressionNode expression) {
+        return expression instanceof StringLiteralNode || expression instanceof CharLiteralNode;
+    }
+
+    private static String literalText(ExpressionNode expression) {
+        return expression instanceof StringLiteralNode string ? string.value : String.valueOf(((CharLiteralNode) expression).value);
+    }
+
+    private static NumericLiteralNode numberLiteral(double value) {
+        var literal = new NumericLiteralNode();
+        literal.value = value;
+        return literal;
+    }
+
+    private static StringLiteralNode stringLiteral(String value) {
+        var literal = new StringLiteralNode();
+        literal.value = value;
+        return literal;
+    }
+}
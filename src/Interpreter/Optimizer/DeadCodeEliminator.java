@@ -0,0 +1,227 @@
+package Interpreter.Optimizer;
+
+import AST.*;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Removes code that can never run, and local variables that are never read.
+ * <br></br>
+ * An if whose condition is a literal (usually thanks to the ConstantFolder) is replaced by the branch that would run,
+ * and "loop false" is removed. A local that is only ever assigned to is removed along with those assignments, so the
+ * interpreter doesn't create it on every call. Assignments whose expression could do something (call a method, create
+ * an object) are kept: a lone call to a method known to return a value is turned into a method call statement, anything
+ * else keeps the local.
+ */
+public class DeadCodeEliminator {
+    private int branchesRemoved = 0;
+    private int localsRemoved = 0;
+    private final Map<String, ClassNode> classes = new HashMap<>();
+    // Where the statements being looked at are, for finding the methods they call
+    private ClassNode classNode;
+    private boolean inSharedMethod;
+
+    public void eliminate(TranNode top) {
+        top.Classes.forEach(c -> classes.put(c.name, c));
+        for (var classNode : top.Classes) {
+            this.classNode = classNode;
+            var memberNames = classNode.members.stream().map(m -> m.declaration.name).collect(Collectors.toSet());
+            for (var method : classNode.methods) {
+                inSharedMethod = method.isShared;
+                removeDeadBranches(method.statements);
+                removeUnusedLocals(method.locals, method.statements, method.parameters, method.returns, memberNames);
+            }
+            inSharedMethod = false;
+            for (var constructor : classNode.constructors) {
+                removeDeadBranches(constructor.statements);
+                removeUnusedLocals(constructor.locals, constructor.statements, constructor.parameters, List.of(), memberNames);
+            }
+        }
+    }
+
+    /**
+     * @return how many ifs and loops have been removed or replaced by one of their branches
+     */
+    public int getBranchesRemoved() {
+        return branchesRemoved;
+    }
+
+    /**
+     * @return how many local variables have been removed
+     */
+    public int getLocalsRemoved() {
+        return localsRemoved;
+    }
+
+    //              Branches
+
+    public void removeDeadBranches(List<StatementNode> statements) {
+        var iterator = statements.listIterator();
+        while (iterator.hasNext()) {
+            var statement = iterator.next();
+            if (statement instanceof IfNode ifNode) {
+                removeDeadBranches(ifNode.statements);
+                ifNode.elseStatement.ifPresent(elseNode -> removeDeadBranches(elseNode.statements));
+                if (ifNode.condition instanceof BooleanLiteralNode condition) {
+                    // Replace the if with the statements of the branch that always runs
+                    iterator.remove();
+                    var branch = condition.value ? ifNode.statements : ifNode.elseStatement.map(e -> e.statements).orElse(List.of());
+                    branch.forEach(iterator::add);
+                    branchesRemoved++;
+                }
+            } else if (statement instanceof LoopNode loop) {
+                removeDeadBranches(loop.statements);
+                // A loop variable still gets set to false, so only loops without one can go
+                if (loop.expression instanceof BooleanLiteralNode condition && !condition.value && loop.assignment.isEmpty()) {
+                    iterator.remove();
+                    branchesRemoved++;
+                }
+            }
+        }
+    }
+
+    //              Locals
+
+    private void removeUnusedLocals(List<VariableDeclarationNode> locals, List<StatementNode> statements, List<VariableDeclarationNode> parameters, List<VariableDeclarationNode> returns, Set<String> memberNames) {
+        // Locals that share a name with another variable or a member are left alone (the Resolver reports the errors)
+        var declaredCount = new HashMap<String, Integer>();
+        for (var declarations : List.of(parameters, locals, returns))
+            for (var declaration : declarations)
+                declaredCount.merge(declaration.name, 1, Integer::sum);
+
+        // Removing an assignment can leave the variables it read unused, so repeat until nothing changes
+        while (true) {
+            var used = new HashSet<String>();
+            findUsedVariables(statements, used);
+
+            var removable = new HashSet<String>();
+            for (var local : locals)
+                if (!used.contains(local.name) && declaredCount.get(local.name) == 1 && !memberNames.contains(local.name)
+                        && canRemoveAssignments(statements, local.name))
+                    removable.add(local.name);
+            if (removable.isEmpty())
+                return;
+
+            removeAssignments(statements, removable);
+            locals.removeIf(local -> removable.contains(local.name));
+            localsRemoved += removable.size();
+        }
+    }
+
+    // Reads, and writes that can't be removed (loop variables and return targets)
+    private static void findUsedVariables(List<StatementNode> statements, Set<String> used) {
+        for (var statement : statements) {
+            if (statement instanceof AssignmentNode assignment) {
+                findUsedVariables(assignment.expression, used);
+            } else if (statement instanceof MethodCallStatementNode methodCall) {
+                methodCall.objectName.ifPresent(used::add);
+                methodCall.parameters.forEach(p -> findUsedVariables(p, used));
+                methodCall.returnValues.forEach(r -> used.add(r.name));
+            } else if (statement instanceof LoopNode loop) {
+                loop.assignment.ifPresent(v -> used.add(v.name));
+                findUsedVariables(loop.expression, used);
+                findUsedVariables(loop.statements, used);
+            } else if (statement instanceof IfNode ifNode) {
+                findUsedVariables(ifNode.condition, used);
+                findUsedVariables(ifNode.statements, used);
+                ifNode.elseStatement.ifPresent(elseNode -> findUsedVariables(elseNode.statements, used));
+            }
+        }
+    }
+
+    private static void findUsedVariables(ExpressionNode expression, Set<String> used) {
+        if (expression instanceof VariableReferenceNode variable) {
+            used.add(variable.name);
+        } else if (expression instanceof MathOpNode mathOp) {
+            findUsedVariables(mathOp.left, used);
+            findUsedVariables(mathOp.right, used);
+        } else if (expression instanceof CompareNode compare) {
+            findUsedVariables(compare.left, used);
+            findUsedVariables(compare.right, used);
+        } else if (expression instanceof BooleanOpNode booleanOp) {
+            findUsedVariables(booleanOp.left, used);
+            findUsedVariables(booleanOp.right, used);
+        } else if (expression instanceof NotOpNode notOp) {
+            findUsedVariables(notOp.left, used);
+        } else if (expression instanceof MethodCallExpressionNode methodCall) {
+            methodCall.objectName.ifPresent(used::add);
+            methodCall.parameters.forEach(p -> findUsedVariables(p, used));
+        } else if (expression instanceof NewNode newNode) {
+            newNode.parameters.forEach(p -> findUsedVariables(p, used));
+        }
+    }
+
+    private boolean canRemoveAssignments(List<StatementNode> statements, String name) {
+        for (var statement : statements) {
+            if (statement instanceof AssignmentNode assignment && assignment.target.name.equals(name)) {
+                if (assignment.expression instanceof MethodCallExpressionNode methodCall ? !canDropValue(methodCall) : !isPure(assignment.expression))
+                    return false;
+            } else if (statement instanceof LoopNode loop) {
+                if (!canRemoveAssignments(loop.statements, name))
+                    return false;
+            } else if (statement instanceof IfNode ifNode) {
+                if (!canRemoveAssignments(ifNode.statements, name))
+                    return false;
+                if (ifNode.elseStatement.isPresent() && !canRemoveAssignments(ifNode.elseStatement.get().statements, name))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A call that keeps no value can find a different method, or none, so the value is only dropped when the same
+     * method, which returns one, is known to run either way.
+     */
+    private boolean canDropValue(MethodCallExpressionNode methodCall) {
+        ClassNode callee;
+        if (methodCall.objectName.isEmpty()) {
+            // Without an object, there is nothing to call the method on
+            if (inSharedMethod)
+                return false;
+            callee = classNode;
+        } else {
+            callee = classes.get(methodCall.objectName.get());
+            if (callee == null)
+                return false;
+        }
+        boolean sharedOnly = methodCall.objectName.isPresent();
+        var method = Nodes.findMethod(callee, methodCall.methodName, methodCall.parameters, 1, sharedOnly);
+        return method != null && method == Nodes.findMethod(callee, methodCall.methodName, methodCall.parameters, 0, sharedOnly);
+    }
+
+    private static void removeAssignments(List<StatementNode> statements, Set<String> names) {
+        var iterator = statements.listIterator();
+        while (iterator.hasNext()) {
+            var statement = iterator.next();
+            if (statement instanceof AssignmentNode assignment && names.contains(assignment.target.name)) {
+                // Keep the call for its side effects, drop the value
+                if (assignment.expression instanceof MethodCallExpressionNode methodCall)
+                    iterator.set(new MethodCallStatementNode(methodCall));
+                else
+                    iterator.remove();
+            } else if (statement instanceof LoopNode loop) {
+                removeAssignments(loop.statements, names);
+            } else if (statement instanceof IfNode ifNode) {
+                removeAssignments(ifNode.statements, names);
+                ifNode.elseStatement.ifPresent(elseNode -> removeAssignments(elseNode.statements, names));
+            }
+        }
+    }
+
+    /**
+     * @return true if evaluating the expression can't call a method or run a constructor
+     */
+    public static boolean isPure(ExpressionNode expression) {
+        if (expression instanceof MathOpNode mathOp)
+            return isPure(mathOp.left) && isPure(mathOp.right);
+        if (expression instanceof CompareNode compare)
+            return isPure(compare.left) && isPure(compare.right);
+        if (expression instanceof BooleanOpNode booleanOp)
+            return isPure(booleanOp.left) && isPure(booleanOp.right);
+        if (expression instanceof NotOpNode notOp)
+            return isPure(notOp.left);
+        return !(expression instanceof MethodCallExpressionNode) && !(expression instanceof NewNode);
+    }
+}
@@ -0,0 +1,346 @@
+package Interpreter.Optimizer;
+
+import AST.*;
+import Interpreter.TypeTable;
+
+import java.util.*;
+
+/**
+ * Replaces calls to small methods with a copy of the method's body, so they don't pay for finding the method, copying
+ * parameters and building a frame.
+ * <br></br>
+ * Only calls whose method is known before the program runs are inlined: shared calls on a class (Class.method()) and
+ * calls with no object, which run on the same object as the caller. Calls on variables aren't, since a variable can
+ * hold an object of a class other than its declared type.
+ * <br></br>
+ * Parameters become new locals that are assigned the arguments (which copies them, just like a call), and locals and
+ * returns become new locals that are reset to their defaults first. Return values are assigned to the targets
+ * afterwards. A call inside an expression is moved to just before its statement, so that is only done when nothing
+ * that runs before it in the statement calls anything or reads a member.
+ * <br></br>
+ * Only methods whose variables are all primitives, with at most maxSize nodes, are inlined. Calls in the copied bodies
+ * are inlined too, up to maxDepth levels; a method is never inlined into a copy of itself, so recursion stops.
+ */
+public class Inliner {
+    public int maxSize = 40;
+    public int maxDepth = 3;
+
+    private Map<String, ClassNode> classes;
+    private int inlined = 0;
+    // Makes the names of the copies' variables unique
+    private int copies = 0;
+
+    public void inline(TranNode top) {
+        classes = new HashMap<>();
+        for (var classNode : top.Classes)
+            classes.putIfAbsent(classNode.name, classNode);
+        for (var classNode : top.Classes) {
+            var members = new HashSet<String>();
+            classNode.members.forEach(member -> members.add(member.declaration.name));
+            for (var method : classNode.methods) {
+                if (method instanceof BuiltInMethodDeclarationNode)
+                    continue;
+                var caller = new Caller(classNode, method.isShared, method.locals, members);
+                caller.declareAll(method.parameters, method.locals, method.returns);
+                inlineInStatements(method.statements, caller, List.of(method), 0);
+            }
+            for (var constructor : classNode.constructors) {
+                var caller = new Caller(classNode, false, constructor.locals, members);
+                caller.declareAll(constructor.parameters, constructor.locals, List.of());
+                inlineInStatements(constructor.statements, caller, List.of(), 0);
+            }
+        }
+    }
+
+    /**
+     * @return how many calls have been replaced by the method's body
+     */
+    public int getInlined() {
+        return inlined;
+    }
+
+    // The method or constructor that copies are being made into
+    private static class Caller {
+        final ClassNode classNode;
+        final boolean isShared;
+        final List<VariableDeclarationNode> locals;
+        final Set<String> members;
+        final Set<String> declared = new HashSet<>();
+
+        Caller(ClassNode classNode, boolean isShared, List<VariableDeclarationNode> locals, Set<String> members) {
+            this.classNode = classNode;
+            this.isShared = isShared;
+            this.locals = locals;
+            this.members = isShared ? Set.of() : members;
+        }
+
+        @SafeVarargs
+        final void declareAll(List<VariableDeclarationNode>... declarations) {
+            for (var list : declarations)
+                list.forEach(d -> declared.add(d.name));
+        }
+
+        boolean canAssign(String name) {
+            return declared.contains(name) || members.contains(name);
+        }
+    }
+
+    //              Rewriting callers
+
+    // `inlining` is the methods whose copies these statements are in (they won't be inlined again), `depth` how many copies deep they are
+    private void inlineInStatements(List<StatementNode> statements, Caller caller, List<MethodDeclarationNode> inlining, int depth) {
+        var rewritten = new ArrayList<StatementNode>(statements.size());
+        for (var statement : statements) {
+            var before = new Before(rewritten, caller, inlining, depth);
+            if (statement instanceof AssignmentNode assignment) {
+                assignment.expression = inlineInExpression(assignment.expression, before);
+                rewritten.add(assignment);
+            } else if (statement instanceof MethodCallStatementNode methodCall) {
+                // The arguments all run before the body, in order, whether or not the call is inlined
+                methodCall.parameters.replaceAll(p -> inlineInExpression(p, before));
+                var callee = findCallee(methodCall.objectName, methodCall.methodName, methodCall.parameters, methodCall.returnValues.size(), caller, inlining);
+                if (callee != null && methodCall.returnValues.stream().allMatch(target -> caller.canAssign(target.name))) {
+                    var returns = copyBody(callee, methodCall.parameters, before);
+                    for (int i = 0; i < methodCall.returnValues.size(); i++) {
+                        var copy = new AssignmentNode();
+                        copy.target = methodCall.returnValues.get(i);
+                        copy.expression = Nodes.reference(returns.get(i));
+                        rewritten.add(copy);
+                    }
+                } else {
+                    rewritten.add(methodCall);
+                }
+            } else if (statement instanceof LoopNode loop) {
+                // The loop's expression runs on every iteration, so nothing can be moved out of it
+                inlineInStatements(loop.statements, caller, inlining, depth);
+                rewritten.add(loop);
+            } else if (statement instanceof IfNode ifNode) {
+                ifNode.condition = inlineInExpression(ifNode.condition, before);
+                inlineInStatements(ifNode.statements, caller, inlining, depth);
+                ifNode.elseStatement.ifPresent(elseNode -> inlineInStatements(elseNode.statements, caller, inlining, depth));
+                rewritten.add(ifNode);
+            } else {
+                rewritten.add(statement);
+            }
+        }
+        statements.clear();
+        statements.addAll(rewritten);
+    }
+
+    /**
+     * Where the copies for one statement go.
+     * dirty is set once something that stays in the statement calls a method, creates an object or reads a member:
+     * a call after that can't be moved in front of it.
+     */
+    private static class Before {
+        final List<StatementNode> statements;
+        final Caller caller;
+        final List<MethodDeclarationNode> inlining;
+        final int depth;
+        boolean dirty = false;
+
+        Before(List<StatementNode> statements, Caller caller, List<MethodDeclarationNode> inlining, int depth) {
+            this.statements = statements;
+            this.caller = caller;
+            this.inlining = inlining;
+            this.depth = depth;
+        }
+    }
+
+    // Visits the expression in the order the interpreter evaluates it
+    private ExpressionNode inlineInExpression(ExpressionNode expression, Before before) {
+        if (expression instanceof VariableReferenceNode variable) {
+            if (!before.caller.declared.contains(variable.name))
+                before.dirty = true;
+        } else if (expression instanceof MathOpNode mathOp) {
+            mathOp.left = inlineInExpression(mathOp.left, before);
+            mathOp.right = inlineInExpression(mathOp.right, before);
+        } else if (expression instanceof CompareNode compare) {
+            compare.left = inlineInExpression(compare.left, before);
+            compare.right = inlineInExpression(compare.right, before);
+        } else if (expression instanceof BooleanOpNode booleanOp) {
+            booleanOp.left = inlineInExpression(booleanOp.left, before);
+            booleanOp.right = inlineInExpression(booleanOp.right, before);
+        } else if (expression instanceof NotOpNode notOp) {
+            notOp.left = inlineInExpression(notOp.left, before);
+        } else if (expression instanceof MethodCallExpressionNode methodCall) {
+            // The arguments move with the call, so only what ran before them matters
+            boolean wasDirty = before.dirty;
+            methodCall.parameters.replaceAll(p -> inlineInExpression(p, before));
+            var callee = wasDirty ? null : findCallee(methodCall.objectName, methodCall.methodName, methodCall.parameters, 0, before.caller, before.inlining);
+            // A call in an expression uses the first return value
+            if (callee != null && !callee.returns.isEmpty()) {
+                before.dirty = false;
+                return Nodes.reference(copyBody(callee, methodCall.parameters, before).getFirst());
+            }
+            before.dirty = true;
+        } else if (expression instanceof NewNode newNode) {
+            newNode.parameters.replaceAll(p -> inlineInExpression(p, before));
+            before.dirty = true;
+        }
+        return expression;
+    }
+
+    /**
+     * Adds a copy of the callee's body to the statements before the call, and inlines calls in the copy.
+     * @return the new locals holding the return values
+     */
+    private List<VariableDeclarationNode> copyBody(MethodDeclarationNode callee, List<ExpressionNode> arguments, Before before) {
+        var caller = before.caller;
+        var copy = new Renamer().copyBody(callee.parameters, callee.locals, callee.returns, callee.statements, arguments,
+                "%s#%d$".formatted(callee.name, ++copies), declaration -> {
+                    caller.locals.add(declaration);
+                    caller.declared.add(declaration.name);
+                }, before.statements);
+        var body = copy.statements();
+        if (before.depth + 1 < maxDepth) {
+            var inlining = new ArrayList<>(before.inlining);
+            inlining.add(callee);
+            inlineInStatements(body, caller, inlining, before.depth + 1);
+        }
+        before.statements.addAll(body);
+        inlined++;
+        return copy.returns();
+    }
+
+    //              Choosing callees
+
+    /**
+     * Finds the method the interpreter would run for a call, if it can be known before running and can be inlined.
+     * @return the method, or null
+     */
+    private MethodDeclarationNode findCallee(Optional<String> objectName, String methodName, List<ExpressionNode> arguments, int returnCount,
+                                             Caller caller, List<MethodDeclarationNode> inlining) {
+        ClassNode classNode;
+        if (objectName.isEmpty()) {
+            // Without an object, there is nothing to call the method on
+            if (caller.isShared)
+                return null;
+            classNode = caller.classNode;
+        } else {
+            classNode = classes.get(objectName.get());
+            if (classNode == null)
+                return null;
+        }
+        var method = Nodes.findMethod(classNode, methodName, arguments, returnCount, objectName.isPresent());
+        if (method == null || !canInline(method, objectName.isEmpty(), caller, inlining))
+            return null;
+        return method;
+    }
+
+    private boolean canInline(MethodDeclarationNode callee, boolean onSameObject, Caller caller, List<MethodDeclarationNode> inlining) {
+        if (inlining.contains(callee) || size(callee.statements) > maxSize)
+            return false;
+        var declared = new HashSet<String>();
+        for (var declarations : List.of(callee.parameters, callee.locals, callee.returns))
+            for (var declaration : declarations)
+                if (!TypeTable.isPrimitive(declaration.typeId) || !declared.add(declaration.name))
+                    return false;
+        // Members the copy uses must not be hidden by the caller's own variables
+        var members = new HashSet<String>();
+        if (onSameObject && !callee.isShared)
+            caller.classNode.members.forEach(member -> members.add(member.declaration.name));
+        var used = new HashSet<String>();
+        if (!usesOnly(callee.statements, declared, members, used, !onSameObject || callee.isShared))
+            return false;
+        return used.stream().noneMatch(caller.declared::contains);
+    }
+
+    // Are all variables declared or members (recording the members used), and if `noObject`, are there no calls without an object?
+    private static boolean usesOnly(List<StatementNode> statements, Set<String> declared, Set<String> members, Set<String> used, boolean noObject) {
+        for (var statement : statements) {
+            if (statement instanceof AssignmentNode assignment) {
+                if (!usesOnly(assignment.target, declared, members, used) || !usesOnly(assignment.expression, declared, members, used, noObject))
+                    return false;
+            } else if (statement instanceof MethodCallStatementNode methodCall) {
+                if (!usesOnlyInCall(methodCall.objectName, methodCall.parameters, declared, members, used, noObject))
+                    return false;
+                for (var target : methodCall.returnValues)
+                    if (!usesOnly(target, declared, members, used))
+                        return false;
+            } else if (statement instanceof LoopNode loop) {
+                if (loop.assignment.isPresent() && !usesOnly(loop.assignment.get(), declared, members, used))
+                    return false;
+                if (!usesOnly(loop.expression, declared, members, used, noObject) || !usesOnly(loop.statements, declared, members, used, noObject))
+                    return false;
+            } else if (statement instanceof IfNode ifNode) {
+                if (!usesOnly(ifNode.condition, declared, members, used, noObject) || !usesOnly(ifNode.statements, declared, members, used, noObject))
+                    return false;
+                if (ifNode.elseStatement.isPresent() && !usesOnly(ifNode.elseStatement.get().statements, declared, members, used, noObject))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean usesOnly(ExpressionNode expression, Set<String> declared, Set<String> members, Set<String> used, boolean noObject) {
+        if (expression instanceof VariableReferenceNode variable)
+            return usesOnly(variable, declared, members, used);
+        if (expression instanceof MathOpNode mathOp)
+            return usesOnly(mathOp.left, declared, members, used, noObject) && usesOnly(mathOp.right, declared, members, used, noObject);
+        if (expression instanceof CompareNode compare)
+            return usesOnly(compare.left, declared, members, used, noObject) && usesOnly(compare.right, declared, members, used, noObject);
+        if (expression instanceof BooleanOpNode booleanOp)
+            return usesOnly(booleanOp.left, declared, members, used, noObject) && usesOnly(booleanOp.right, declared, members, used, noObject);
+        if (expression instanceof NotOpNode notOp)
+            return usesOnly(notOp.left, declared, members, used, noObject);
+        if (expression instanceof MethodCallExpressionNode methodCall)
+            return usesOnlyInCall(methodCall.objectName, methodCall.parameters, declared, members, used, noObject);
+        if (expression instanceof NewNode newNode)
+            return newNode.parameters.stream().allMatch(p -> usesOnly(p, declared, members, used, noObject));
+        return true;
+    }
+
+    private static boolean usesOnlyInCall(Optional<String> objectName, List<ExpressionNode> parameters, Set<String> declared, Set<String> members, Set<String> used, boolean noObject) {
+        if (objectName.isEmpty() && noObject)
+            return false;
+        // Calls on a member use it; calls on a class or a declared variable are fine
+        if (objectName.isPresent() && members.contains(objectName.get()) && !declared.contains(objectName.get()))
+            used.add(objectName.get());
+        return parameters.stream().allMatch(p -> usesOnly(p, declared, members, used, noObject));
+    }
+
+    private static boolean usesOnly(VariableReferenceNode variable, Set<String> declared, Set<String> members, Set<String> used) {
+        if (declared.contains(variable.name))
+            return true;
+        if (!members.contains(variable.name))
+            return false;
+        used.add(variable.name);
+        return true;
+    }
+
+    //              Size
+
+    private static int size(List<StatementNode> statements) {
+        int size = 0;
+        for (var statement : statements) {
+            size++;
+            if (statement instanceof AssignmentNode assignment) {
+                size += size(assignment.expression);
+            } else if (statement instanceof MethodCallStatementNode methodCall) {
+                size += methodCall.returnValues.size();
+                for (var parameter : methodCall.parameters)
+                    size += size(parameter);
+            } else if (statement instanceof LoopNode loop) {
+                size += size(loop.expression) + size(loop.statements);
+            } else if (statement instanceof IfNode ifNode) {
+                size += size(ifNode.condition) + size(ifNode.statements);
+                if (ifNode.elseStatement.isPresent())
+                    size += size(ifNode.elseStatement.get().statements);
+            }
+        }
+        return size;
+    }
+
+    private static int size(ExpressionNode expression) {
+        return 1 + switch (expression) {
+            case MathOpNode mathOp -> size(mathOp.left) + size(mathOp.right);
+            case CompareNode compare -> size(compare.left) + size(compare.right);
+            case BooleanOpNode booleanOp -> size(booleanOp.left) + size(booleanOp.right);
+            case NotOpNode notOp -> size(notOp.left);
+            case MethodCallExpressionNode methodCall -> methodCall.parameters.stream().mapToInt(Inliner::size).sum();
+            case NewNode newNode -> newNode.parameters.stream().mapToInt(Inliner::size).sum();
+            default -> 0;
+        };
+    }
+}
@@ -0,0 +1,259 @@
+package Interpreter.Optimizer;
+
+import AST.*;
+import Interpreter.TypeTable;
+
+import java.util.*;
+
+/**
+ * Moves expressions whose value can't change while a loop runs out of the loop, so they are worked out once.
+ * <br></br>
+ * An expression is invariant in a loop if every variable it reads is never assigned in the loop, and every method it
+ * calls is pure (see PurityAnalyzer). Members also count as assigned if anything in the loop could change them: a call
+ * to a method that isn't pure, or a new. Each largest invariant expression (that isn't just a variable or a literal) is
+ * assigned to a new local just before the loop, and replaced by that local.
+ * <br></br>
+ * The new assignment runs even if the loop body never does, or the expression was inside an if. So expressions are
+ * only moved if they can't fail: their types must be known primitives, and called methods must always finish.
+ * Inner loops are done first, so an expression can move out of several loops.
+ */
+public class LoopInvariantHoister {
+    private PurityAnalyzer purity;
+    private int hoisted = 0;
+    // Makes the names of the new locals unique
+    private int temporaries = 0;
+
+    public void hoist(TranNode top) {
+        purity = new PurityAnalyzer(top);
+        for (var classNode : top.Classes) {
+            for (var method : classNode.methods) {
+                if (method instanceof BuiltInMethodDeclarationNode)
+                    continue;
+                var body = new Body(method.locals);
+                body.declareAll(method.parameters, method.locals, method.returns);
+                hoistInStatements(method.statements, body);
+            }
+            for (var constructor : classNode.constructors) {
+                var body = new Body(constructor.locals);
+                body.declareAll(constructor.parameters, constructor.locals, List.of());
+                hoistInStatements(constructor.statements, body);
+            }
+        }
+    }
+
+    /**
+     * @return how many expressions have been moved out of loops
+     */
+    public int getHoisted() {
+        return hoisted;
+    }
+
+    private static class Body {
+        final List<VariableDeclarationNode> locals;
+        // Variables that are in the frame; anything else that is read is a member
+        final Set<String> declared = new HashSet<>();
+
+        Body(List<VariableDeclarationNode> locals) {
+            this.locals = locals;
+        }
+
+        @SafeVarargs
+        final void declareAll(List<VariableDeclarationNode>... declarations) {
+            for (var list : declarations)
+                list.forEach(d -> declared.add(d.name));
+        }
+    }
+
+    private void hoistInStatements(List<StatementNode> statements, Body body) {
+        var iterator = statements.listIterator();
+        while (iterator.hasNext()) {
+            var statement = iterator.next();
+            if (statement instanceof LoopNode loop) {
+                hoistInStatements(loop.statements, body);
+                var before = hoistOutOf(loop, body);
+                if (!before.isEmpty()) {
+                    iterator.previous();
+                    before.forEach(iterator::add);
+                    iterator.next();
+                }
+            } else if (statement instanceof IfNode ifNode) {
+                hoistInStatements(ifNode.statements, body);
+                ifNode.elseStatement.ifPresent(elseNode -> hoistInStatements(elseNode.statements, body));
+            }
+        }
+    }
+
+    /**
+     * @return the assignments to run before the loop
+     */
+    private List<StatementNode> hoistOutOf(LoopNode loop, Body body) {
+        var loopState = new Loop(body);
+        loop.assignment.ifPresent(v -> loopState.assigned.add(v.name));
+        loopState.findChanges(loop.statements);
+
+        var before = new ArrayList<StatementNode>();
+        // Only a boolean loop's expression runs more than once
+        if (loop.expressionType == TypeTable.BOOLEAN)
+            loop.expression = hoistInExpression(loop.expression, loopState, before);
+        hoistInStatements(loop.statements, loopState, before);
+        return before;
+    }
+
+    private void hoistInStatements(List<StatementNode> statements, Loop loop, List<StatementNode> before) {
+        for (var statement : statements) {
+            if (statement instanceof AssignmentNode assignment) {
+                assignment.expression = hoistInExpression(assignment.expression, loop, before);
+            } else if (statement instanceof MethodCallStatementNode methodCall) {
+                methodCall.parameters.replaceAll(p -> hoistInExpression(p, loop, before));
+            } else if (statement instanceof LoopNode inner) {
+                if (inner.expressionType == TypeTable.BOOLEAN)
+                    inner.expression = hoistInExpression(inner.expression, loop, before);
+                hoistInStatements(inner.statements, loop, before);
+            } else if (statement instanceof IfNode ifNode) {
+                ifNode.condition = hoistInExpression(ifNode.condition, loop, before);
+                hoistInStatements(ifNode.statements, loop, before);
+                ifNode.elseStatement.ifPresent(elseNode -> hoistInStatements(elseNode.statements, loop, before));
+            }
+        }
+    }
+
+    private ExpressionNode hoistInExpression(ExpressionNode expression, Loop loop, List<StatementNode> before) {
+        if (expression instanceof VariableReferenceNode)
+            return expression;
+        int type = loop.invariantType(expression);
+        if (type != TypeTable.UNKNOWN && isWorthMoving(expression)) {
+            var temporary = new VariableDeclarationNode();
+            temporary.name = "loop#" + ++temporaries;
+            temporary.typeId = type;
+            temporary.type = switch (type) {
+                case TypeTable.NUMBER -> "number";
+                case TypeTable.STRING -> "string";
+                case TypeTable.CHARACTER -> "character";
+                default -> "boolean";
+            };
+            loop.body.locals.add(temporary);
+            loop.body.declared.add(temporary.name);
+            before.add(Nodes.assign(temporary, expression));
+            hoisted++;
+            return Nodes.reference(temporary);
+        }
+        switch (expression) {
+            case MathOpNode mathOp -> {
+                mathOp.left = hoistInExpression(mathOp.left, loop, before);
+                mathOp.right = hoistInExpression(mathOp.right, loop, before);
+            }
+            case CompareNode compare -> {
+                compare.left = hoistInExpression(compare.left, loop, before);
+                compare.right = hoistInExpression(compare.right, loop, before);
+            }
+            case BooleanOpNode booleanOp -> {
+                booleanOp.left = hoistInExpression(booleanOp.left, loop, before);
+                booleanOp.right = hoistInExpression(booleanOp.right, loop, before);
+            }
+            case NotOpNode notOp -> notOp.left = hoistInExpression(notOp.left, loop, before);
+            case MethodCallExpressionNode methodCall -> methodCall.parameters.replaceAll(p -> hoistInExpression(p, loop, before));
+            case NewNode newNode -> newNode.parameters.replaceAll(p -> hoistInExpression(p, loop, before));
+            default -> { }
+        }
+        return expression;
+    }
+
+    private static boolean isWorthMoving(ExpressionNode expression) {
+        return expression instanceof MathOpNode || expression instanceof CompareNode || expression instanceof BooleanOpNode
+                || expression instanceof NotOpNode || expression instanceof MethodCallExpressionNode;
+    }
+
+    // What one loop changes
+    private class Loop {
+        final Body body;
+        final Set<String> assigned = new HashSet<>();
+        boolean changesMembers = false;
+
+        Loop(Body body) {
+            this.body = body;
+        }
+
+        void findChanges(List<StatementNode> statements) {
+            for (var statement : statements) {
+                if (statement instanceof AssignmentNode assignment) {
+                    assigned.add(assignment.target.name);
+                    findChanges(assignment.expression);
+                } else if (statement instanceof MethodCallStatementNode methodCall) {
+                    methodCall.returnValues.forEach(target -> assigned.add(target.name));
+                    methodCall.parameters.forEach(this::findChanges);
+                    if (purity.pureCallee(methodCall.objectName, methodCall.methodName, methodCall.parameters, methodCall.returnValues.size()) == null)
+                        changesMembers = true;
+                } else if (statement instanceof LoopNode loop) {
+                    loop.assignment.ifPresent(v -> assigned.add(v.name));
+                    findChanges(loop.expression);
+                    findChanges(loop.statements);
+                } else if (statement instanceof IfNode ifNode) {
+                    findChanges(ifNode.condition);
+                    findChanges(ifNode.statements);
+                    ifNode.elseStatement.ifPresent(elseNode -> findChanges(elseNode.statements));
+                }
+            }
+        }
+
+        void findChanges(ExpressionNode expression) {
+            switch (expression) {
+                case MathOpNode mathOp -> {
+                    findChanges(mathOp.left);
+                    findChanges(mathOp.right);
+                }
+                case CompareNode compare -> {
+                    findChanges(compare.left);
+                    findChanges(compare.right);
+                }
+                case BooleanOpNode booleanOp -> {
+                    findChanges(booleanOp.left);
+                    findChanges(booleanOp.right);
+                }
+                case NotOpNode notOp -> findChanges(notOp.left);
+                case MethodCallExpressionNode methodCall -> {
+                    methodCall.parameters.forEach(this::findChanges);
+                    if (purity.pureCallee(methodCall.objectName, methodCall.methodName, methodCall.parameters, 0) == null)
+                        changesMembers = true;
+                }
+                case NewNode newNode -> {
+                    newNode.parameters.forEach(this::findChanges);
+                    changesMembers = true;
+                }
+                default -> { }
+            }
+        }
+
+        /**
+         * @return the expression's type, if it is invariant and can't fail; otherwise UNKNOWN
+         */
+        int invariantType(ExpressionNode expression) {
+            return switch (expression) {
+                case NumericLiteralNode ignored -> TypeTable.NUMBER;
+                case StringLiteralNode ignored -> TypeTable.STRING;
+                case CharLiteralNode ignored -> TypeTable.CHARACTER;
+                case BooleanLiteralNode ignored -> TypeTable.BOOLEAN;
+                case VariableReferenceNode variable -> {
+                    boolean changes = assigned.contains(variable.name) || (!body.declared.contains(variable.name) && changesMembers);
+                    yield changes || !TypeTable.isPrimitive(variable.type) ? TypeTable.UNKNOWN : variable.type;
+                }
+                case MathOpNode mathOp -> TypeTable.isPrimitive(mathOp.type) && invariantType(mathOp.left) != TypeTable.UNKNOWN
+                        && invariantType(mathOp.right) != TypeTable.UNKNOWN ? mathOp.type : TypeTable.UNKNOWN;
+                case CompareNode compare -> TypeTable.isPrimitive(compare.operandType) && invariantType(compare.left) == compare.operandType
+                        && invariantType(compare.right) == compare.operandType ? TypeTable.BOOLEAN : TypeTable.UNKNOWN;
+                case BooleanOpNode booleanOp -> invariantType(booleanOp.left) == TypeTable.BOOLEAN
+                        && invariantType(booleanOp.right) == TypeTable.BOOLEAN ? TypeTable.BOOLEAN : TypeTable.UNKNOWN;
+                case NotOpNode notOp -> invariantType(notOp.left) == TypeTable.BOOLEAN ? TypeTable.BOOLEAN : TypeTable.UNKNOWN;
+                case MethodCallExpressionNode methodCall -> {
+                    var callee = purity.pureCallee(methodCall.objectName, methodCall.methodName, methodCall.parameters, 0);
+                    if (callee == null || callee.returns.isEmpty() || !purity.alwaysFinishes(callee))
+                        yield TypeTable.UNKNOWN;
+                    for (var parameter : methodCall.parameters)
+                        if (invariantType(parameter) == TypeTable.UNKNOWN)
+                            yield TypeTable.UNKNOWN;
+                    yield callee.returns.getFirst().typeId;
+                }
+                default -> TypeTable.UNKNOWN;
+            };
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package Interpreter.Optimizer;
+
+import AST.*;
+import Interpreter.TypeTable;
+
+import java.util.List;
+
+/**
+ * Small helpers for the passes that build new AST nodes.
+ */
+final class Nodes {
+    private Nodes() {
+    }
+
+    /**
+     * @return the type the TypeChecker proved the expression has, or UNKNOWN
+     */
+    static int typeOf(ExpressionNode expression) {
+        return switch (expression) {
+            case NumericLiteralNode ignored -> TypeTable.NUMBER;
+            case StringLiteralNode ignored -> TypeTable.STRING;
+            case CharLiteralNode ignored -> TypeTable.CHARACTER;
+            case BooleanLiteralNode ignored -> TypeTable.BOOLEAN;
+            case CompareNode ignored -> TypeTable.BOOLEAN;
+            case BooleanOpNode ignored -> TypeTable.BOOLEAN;
+            case NotOpNode ignored -> TypeTable.BOOLEAN;
+            case VariableReferenceNode variable -> variable.type;
+            case MathOpNode mathOp -> mathOp.type;
+            default -> TypeTable.UNKNOWN;
+        };
+    }
+
+    static ExpressionNode defaultValue(int typeId) {
+        return switch (typeId) {
+            case TypeTable.NUMBER -> {
+                var literal = new NumericLiteralNode();
+                literal.value = 0;
+                yield literal;
+            }
+            case TypeTable.STRING -> {
+                var literal = new StringLiteralNode();
+                literal.value = "";
+                yield literal;
+            }
+            case TypeTable.CHARACTER -> {
+                var literal = new CharLiteralNode();
+                literal.value = '\0';
+                yield literal;
+            }
+            case TypeTable.BOOLEAN -> new BooleanLiteralNode(false);
+            default -> throw new RuntimeException("No default literal for type " + typeId);
+        };
+    }
+
+    static VariableReferenceNode reference(VariableDeclarationNode declaration) {
+        var reference = new VariableReferenceNode();
+        reference.name = declaration.name;
+        reference.type = declaration.typeId;
+        return reference;
+    }
+
+    static AssignmentNode assign(VariableDeclarationNode target, ExpressionNode value) {
+        var assignment = new AssignmentNode();
+        assignment.target = reference(target);
+        assignment.expression = value;
+        return assignment;
+    }
+
+    /**
+     * Finds the method the interpreter will pick for a call, when that can be known before running: every argument
+     * has a known primitive type, and no built-in method (which takes any arguments) comes first.
+     * @param sharedOnly - true for calls on a class name, which only find shared, non-private methods
+     * @return the method, or null if it can't be known
+     */
+    static MethodDeclarationNode findMethod(ClassNode classNode, String methodName, List<ExpressionNode> arguments, int returnCount, boolean sharedOnly) {
+        var argumentTypes = arguments.stream().map(Nodes::typeOf).toList();
+        if (!argumentTypes.stream().allMatch(TypeTable::isPrimitive))
+            return null;
+        for (var method : classNode.methods) {
+            if (!method.name.equals(methodName) || (sharedOnly && (!method.isShared || method.isPrivate)))
+                continue;
+            if (method instanceof BuiltInMethodDeclarationNode)
+                return null;
+            if (method.returns.size() < returnCount || method.parameters.size() != arguments.size())
+                continue;
+            boolean matches = true;
+            for (int i = 0; i < arguments.size(); i++)
+                if (method.parameters.get(i).typeId != argumentTypes.get(i))
+                    matches = false;
+            if (matches)
+                return method;
+        }
+        return null;
+    }
+}
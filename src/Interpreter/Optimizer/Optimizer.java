@@ -0,0 +1,34 @@
+package Interpreter.Optimizer;
+
+import AST.TranNode;
+
+/**
+ * Runs the optimization passes over a type-checked program, before the Resolver numbers its variables.
+ * <br></br>
+ * Every pass rewrites the AST in place and keeps the program's output the same.
+ */
+public class Optimizer {
+    public final TreeShaker treeShaker = new TreeShaker();
+    public final Inliner inliner = new Inliner();
+    public final ConstantFolder constantFolder = new ConstantFolder();
+    public final ScalarReplacer scalarReplacer = new ScalarReplacer();
+    public final LoopInvariantHoister loopInvariantHoister = new LoopInvariantHoister();
+    public final DeadCodeEliminator deadCodeEliminator = new DeadCodeEliminator();
+    public final TailCallFinder tailCallFinder = new TailCallFinder();
+
+    public void optimize(TranNode top) {
+        // Everything after this only has to look at code that can run
+        treeShaker.shake(top);
+        // Copies of bodies give folding constant arguments to work with
+        inliner.inline(top);
+        constantFolder.fold(top);
+        scalarReplacer.replace(top);
+        loopInvariantHoister.hoist(top);
+        // Folding turns constant conditions into literals, and replaced objects leave unread members, so this comes after them
+        deadCodeEliminator.eliminate(top);
+        // Removing dead code can leave a recursive call as the last statement
+        tailCallFinder.mark(top);
+        // Checked on the final code, for the interpreter's memo cache
+        new PurityAnalyzer(top).markPureMethods();
+    }
+}
@@ -0,0 +1,379 @@
+package Interpreter.Optimizer;
+
+import AST.*;
+import Interpreter.ConsoleWrite;
+import Interpreter.Interpreter;
+import Lexer.Lexer;
+import Parser.Parser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class OptimizerTests {
+    private static TranNode load(String program) {
+        try {
+            var tran = new TranNode();
+            var p = new Parser(tran, new Lexer(program).Lex());
+            p.Tran();
+            return tran;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static List<String> getConsole(TranNode tn) {
+        for (var c : tn.Classes)
+            if (c.name.equals("console"))
+                return ((ConsoleWrite) c.methods.getFirst()).console;
+        throw new RuntimeException("Unable to find console");
+    }
+
+    private static MethodDeclarationNode getMethod(TranNode tn, String className, String methodName) {
+        for (var c : tn.Classes)
+            if (c.name.equals(className))
+                for (var m : c.methods)
+                    if (m.name.equals(methodName))
+                        return m;
+        throw new RuntimeException("Unable to find " + className + "." + methodName);
+    }
+
+    @Test
+    public void constantsAreFolded() {
+        var tran = load("""
+                class Tran
+                    shared start()
+                        number seconds
+                        string s
+                        boolean b
+                        seconds = 60 * 60 * 24
+                        s = "a" + "b" + 'c'
+                        b = not (1 < 2 and false)
+                        console.write(seconds, s, b)
+                """);
+        var interpreter = new Interpreter(tran);
+        var statements = getMethod(tran, "Tran", "start").statements;
+        Assertions.assertEquals(86400.0, ((NumericLiteralNode) ((AssignmentNode) statements.get(0)).expression).value);
+        Assertions.assertEquals("abc", ((StringLiteralNode) ((AssignmentNode) statements.get(1)).expression).value);
+        Assertions.assertTrue(((BooleanLiteralNode) ((AssignmentNode) statements.get(2)).expression).value);
+        interpreter.start();
+        Assertions.assertEquals("86400abctrue", getConsole(tran).getFirst());
+    }
+
+    @Test
+    public void numberIdentitiesAreRemoved() {
+        var tran = load("""
+                class Tran
+                    shared start()
+                        number x
+                        number y
+                        string s
+                        x = 7
+                        y = (x * 1 - 0) / 1
+                        s = s + 'a' + "b" + "c"
+                        x = x + 0
+                        console.write(y, s, x)
+                """);
+        var interpreter = new Interpreter(tran);
+        var statements = getMethod(tran, "Tran", "start").statements;
+        Assertions.assertInstanceOf(VariableReferenceNode.class, ((AssignmentNode) statements.get(1)).expression);
+        var concat = (MathOpNode) ((AssignmentNode) statements.get(2)).expression;
+        Assertions.assertEquals("abc", ((StringLiteralNode) concat.right).value);
+        // -0 + 0 is 0, so x + 0 has to stay
+        Assertions.assertInstanceOf(MathOpNode.class, ((AssignmentNode) statements.get(3)).expression);
+        interpreter.start();
+        Assertions.assertEquals("7abc7", getConsole(tran).getFirst());
+    }
+
+    @Test
+    public void deadBranchesAndUnusedLocalsAreRemoved() {
+        var tran = load("""
+                class Tran
+                    shared start()
+                        number unused
+                        number counted
+                        boolean debug
+                        debug = false
+                        unused = 1 + 2
+                        counted = Tran.next()
+                        if 1 < 2
+                            console.write("taken")
+                        else
+                            console.write("not taken")
+                        loop false
+                            console.write("never")
+                        if debug
+                            console.write("debug")
+                    shared next() : number n
+                        console.write("next")
+                        n = 1
+                """);
+        var interpreter = new Interpreter(tran);
+        var start = getMethod(tran, "Tran", "start");
+        // Only debug is left; the call to next() stays for what it prints
+        Assertions.assertEquals(1, start.locals.size());
+        Assertions.assertEquals("debug", start.locals.getFirst().name);
+        Assertions.assertInstanceOf(MethodCallStatementNode.class, start.statements.get(1));
+        Assertions.assertInstanceOf(MethodCallStatementNode.class, start.statements.get(2));
+        Assertions.assertInstanceOf(IfNode.class, start.statements.get(3));
+        Assertions.assertEquals(4, start.statements.size());
+        interpreter.start();
+        Assertions.assertEquals(List.of("next", "taken"), getConsole(tran));
+    }
+
+    @Test
+    public void unusedValuesOfCallsThatReturnNothingAreKept() {
+        var tran = load("""
+                class Quiet
+                    construct()
+                    f()
+                        console.write("quiet")
+                class Loud
+                    construct()
+                    f() : number n
+                        n = 1
+                class Tran
+                    shared start()
+                        Quiet q
+                        number unused
+                        q = new Quiet()
+                        unused = q.f()
+                    shared loud()
+                        Loud l
+                        l = new Loud()
+                        l.f()
+                """);
+        // Loud.f() returns a value, so this passes the TypeChecker, but the Quiet.f() it runs doesn't
+        var interpreter = new Interpreter(tran);
+        Assertions.assertInstanceOf(AssignmentNode.class, getMethod(tran, "Tran", "start").statements.get(1));
+        Assertions.assertThrows(RuntimeException.class, interpreter::start);
+    }
+
+    @Test
+    public void unreachableClassesAndMethodsAreRemoved() {
+        var tran = load("""
+                interface shape
+                    area() : number a
+                class Square implements shape
+                    number side
+                    construct(number s)
+                        side = s
+                    area() : number a
+                        a = side * side
+                    perimeter() : number p
+                        p = side * 4
+                class Circle implements shape
+                    area() : number a
+                        a = 3
+                class Unused
+                    shared help()
+                        console.write("help")
+                class Tran
+                    shared start()
+                        shape s
+                        s = new Square(3)
+                        console.write(s.area())
+                    shared unused()
+                        Unused.help()
+                """);
+        var interpreter = new Interpreter(tran);
+        Assertions.assertEquals(List.of("Square", "Tran", "console", "Interator"), tran.Classes.stream().map(c -> c.name).toList());
+        Assertions.assertEquals(List.of("area"), tran.Classes.getFirst().methods.stream().map(m -> m.name).toList());
+        interpreter.start();
+        Assertions.assertEquals("9", getConsole(tran).getFirst());
+    }
+
+    @Test
+    public void objectsThatDontEscapeAreReplacedByTheirMembers() {
+        var tran = load("""
+                class Point
+                    number x
+                    number y
+                    construct(number a, number b)
+                        x = a
+                        y = b
+                    sum() : number s
+                        s = x + y
+                    scale(number f)
+                        x = x * f
+                        y = y * f
+                class Tran
+                    shared start()
+                        number total
+                        number n
+                        Point p
+                        Point escapes
+                        Point other
+                        n = 5
+                        loop i = n.times()
+                            p = new Point(i, 2)
+                            p.scale(2)
+                            total = total + p.sum()
+                        escapes = new Point(1, 1)
+                        other = escapes
+                        console.write(total, other.sum())
+                """);
+        var interpreter = new Interpreter(tran);
+        var locals = getMethod(tran, "Tran", "start").locals.stream().filter(l -> l.type.equals("Point")).map(l -> l.name).toList();
+        Assertions.assertEquals(List.of("escapes", "other"), locals);
+        interpreter.start();
+        Assertions.assertEquals("502", getConsole(tran).getFirst());
+    }
+
+    @Test
+    public void objectsPassedToMethodsThatOnlyCallMethodsOnThemAreReplaced() {
+        var tran = load("""
+                class Point
+                    number x
+                    number y
+                    construct(number a, number b)
+                        x = a
+                        y = b
+                    sum() : number s
+                        s = x + y
+                    scale(number f)
+                        x = x * f
+                        y = y * f
+                class Tran
+                    shared start()
+                        Point p
+                        number total
+                        p = new Point(3, 4)
+                        Tran.grow(p, 2)
+                        total = 1 + Tran.sum(p)
+                        console.write(total)
+                    shared grow(Point q, number f)
+                        q.scale(f)
+                    shared sum(Point q) : number s
+                        s = q.sum()
+                """);
+        var interpreter = new Interpreter(tran);
+        var start = getMethod(tran, "Tran", "start");
+        Assertions.assertTrue(start.locals.stream().noneMatch(l -> l.type.equals("Point")));
+        Assertions.assertFalse(start.statements.toString().contains("Tran."));
+        interpreter.start();
+        Assertions.assertEquals("15", getConsole(tran).getFirst());
+    }
+
+    private static final String INLINING_PROGRAM = """
+            class Counter
+                number count
+                construct()
+                    count = 0
+                increment()
+                    count = count + 1
+                get() : number c
+                    c = count
+                run(number times) : number total
+                    loop i = times.times()
+                        increment()
+                    total = get()
+            class Tran
+                shared start()
+                    Counter c
+                    number r
+                    c = new Counter()
+                    r = c.run(4)
+                    console.write(r, Tran.fib(10), Tran.add(1, Tran.add(2, 3)))
+                shared fib(number n) : number f
+                    number x
+                    number y
+                    if n < 2
+                        f = n
+                    else
+                        x = Tran.fib(n - 1)
+                        y = Tran.fib(n - 2)
+                        f = x + y
+                shared add(number a, number b) : number s
+                    s = a + b
+            """;
+
+    @Test
+    public void smallMethodsAreInlined() {
+        var tran = load(INLINING_PROGRAM);
+        var interpreter = new Interpreter(tran);
+        Assertions.assertFalse(getMethod(tran, "Tran", "start").statements.toString().contains("Tran.add"));
+        Assertions.assertFalse(getMethod(tran, "Counter", "run").statements.toString().contains("increment"));
+        // Recursive calls are left once the method has been copied into itself
+        Assertions.assertTrue(getMethod(tran, "Tran", "fib").statements.toString().contains("Tran.fib"));
+        interpreter.start();
+        Assertions.assertEquals("4556", getConsole(tran).getFirst());
+    }
+
+    @Test
+    public void inliningCanBeTurnedOff() {
+        var tran = load(INLINING_PROGRAM);
+        var optimizer = new Optimizer();
+        optimizer.inliner.maxSize = 0;
+        var interpreter = new Interpreter(tran, optimizer);
+        Assertions.assertEquals(0, optimizer.inliner.getInlined());
+        Assertions.assertTrue(getMethod(tran, "Tran", "start").statements.toString().contains("Tran.add"));
+        interpreter.start();
+        Assertions.assertEquals("4556", getConsole(tran).getFirst());
+    }
+
+    @Test
+    public void loopInvariantExpressionsAreHoisted() {
+        var tran = load("""
+                class Tran
+                    shared start()
+                        number total
+                        number k
+                        number i
+                        number t
+                        k = 3
+                        loop i < 4
+                            t = Tran.twice(k)
+                            total = total + k * 2 + t + Tran.cube(k)
+                            i = i + 1
+                        console.write(total)
+                    shared twice(number n) : number d
+                        d = n + n
+                    shared cube(number n) : number c
+                        console.write("cube")
+                        c = n * n * n
+                """);
+        var optimizer = new Optimizer();
+        // Keep the calls, so there is a pure one and one that isn't
+        optimizer.inliner.maxSize = 0;
+        var interpreter = new Interpreter(tran, optimizer);
+        var statements = getMethod(tran, "Tran", "start").statements;
+        // twice(k) and k * 2 are worked out once before the loop; cube() writes to the console, so it stays
+        Assertions.assertEquals(2, optimizer.loopInvariantHoister.getHoisted());
+        Assertions.assertInstanceOf(MethodCallExpressionNode.class, ((AssignmentNode) statements.get(1)).expression);
+        Assertions.assertInstanceOf(MathOpNode.class, ((AssignmentNode) statements.get(2)).expression);
+        Assertions.assertInstanceOf(LoopNode.class, statements.get(3));
+        interpreter.start();
+        Assertions.assertEquals(List.of("cube", "cube", "cube", "cube", "156"), getConsole(tran));
+    }
+
+    @Test
+    public void selfCallsInTailPositionReuseTheFrame() {
+        var tran = load("""
+                class Tran
+                    shared count(number n, number counted) : number result
+                        if n == 0
+                            result = counted
+                        else
+                            result = Tran.count(n - 1, counted + 1)
+
+                    shared fib(number n) : number result
+                        if n < 2
+                            result = n
+                        else
+                            result = Tran.fib(n - 1)
+                            result = result + Tran.fib(n - 2)
+
+                    shared start()
+                        console.write(Tran.count(100000, 0), " ", Tran.fib(10))
+                """);
+        var interpreter = new Interpreter(tran);
+        // fib() does more after calling itself
+        var count = getMethod(tran, "Tran", "count");
+        var call = (MethodCallStatementNode) ((IfNode) count.statements.getFirst()).elseStatement.orElseThrow().statements.getFirst();
+        Assertions.assertTrue(call.isTailCall);
+        interpreter.start();
+        // Far deeper than the Java stack would go if every call had its own frame
+        Assertions.assertEquals("100000 55", getConsole(tran).getFirst());
+    }
+}
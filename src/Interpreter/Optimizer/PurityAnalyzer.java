@@ -0,0 +1,220 @@
+package Interpreter.Optimizer;
+
+import AST.*;
+import Interpreter.TypeTable;
+
+import java.util.*;
+
+/**
+ * Works out which shared methods are pure: their return values depend only on their arguments, and calling them has
+ * no effect other than taking time.
+ * <br></br>
+ * A shared method is pure if its variables are all primitives (so it can't be handed an object to change), it doesn't
+ * create objects, and the only methods it calls are pure shared methods (and times() on its own numbers).
+ * console.write is a built-in, so it is never pure. Methods that call each other are assumed pure until one of them
+ * is shown not to be, so recursive methods can be pure.
+ * <br></br>
+ * A pure method also always finishes if it has no boolean loops and can't end up calling itself.
+ */
+public class PurityAnalyzer {
+    private final TranNode top;
+    private final Map<String, ClassNode> classes = new HashMap<>();
+    private final Set<MethodDeclarationNode> pure = new HashSet<>();
+    private final Map<MethodDeclarationNode, Boolean> finishes = new HashMap<>();
+
+    public PurityAnalyzer(TranNode top) {
+        this.top = top;
+        for (var classNode : top.Classes)
+            classes.putIfAbsent(classNode.name, classNode);
+        for (var classNode : top.Classes)
+            for (var method : classNode.methods)
+                if (isPureOnItsOwn(method))
+                    pure.add(method);
+        // Remove methods that call anything impure, until nothing changes
+        boolean changed = true;
+        while (changed)
+            changed = pure.removeIf(method -> !callsOnlyPureMethods(method.statements, declaredNumbers(method)));
+    }
+
+    public boolean isPure(MethodDeclarationNode method) {
+        return pure.contains(method);
+    }
+
+    /**
+     * Record the result on every method, so the interpreter can use it
+     */
+    public void markPureMethods() {
+        for (var classNode : top.Classes)
+            for (var method : classNode.methods)
+                method.isPure = isPure(method);
+    }
+
+    /**
+     * @return is the method pure, and does every call to it finish?
+     */
+    public boolean alwaysFinishes(MethodDeclarationNode method) {
+        if (!isPure(method))
+            return false;
+        var known = finishes.get(method);
+        if (known != null)
+            return known;
+        // Calling this method from inside itself means it might not finish
+        finishes.put(method, false);
+        boolean result = hasNoBooleanLoops(method.statements) && callees(method).stream().allMatch(this::alwaysFinishes);
+        finishes.put(method, result);
+        return result;
+    }
+
+    /**
+     * @return the pure method that a shared call on a class will run, or null if there isn't one
+     */
+    public MethodDeclarationNode pureCallee(Optional<String> objectName, String methodName, List<ExpressionNode> parameters, int returnCount) {
+        if (objectName.isEmpty() || !classes.containsKey(objectName.get()))
+            return null;
+        var callee = Nodes.findMethod(classes.get(objectName.get()), methodName, parameters, returnCount, true);
+        return callee != null && isPure(callee) ? callee : null;
+    }
+
+    //              Checking methods
+
+    private static boolean isPureOnItsOwn(MethodDeclarationNode method) {
+        if (method instanceof BuiltInMethodDeclarationNode || !method.isShared)
+            return false;
+        for (var declarations : List.of(method.parameters, method.locals, method.returns))
+            for (var declaration : declarations)
+                if (!TypeTable.isPrimitive(declaration.typeId))
+                    return false;
+        return true;
+    }
+
+    private static Set<String> declaredNumbers(MethodDeclarationNode method) {
+        var numbers = new HashSet<String>();
+        for (var declarations : List.of(method.parameters, method.locals, method.returns))
+            for (var declaration : declarations)
+                if (declaration.typeId == TypeTable.NUMBER)
+                    numbers.add(declaration.name);
+        return numbers;
+    }
+
+    private boolean callsOnlyPureMethods(List<StatementNode> statements, Set<String> numbers) {
+        for (var statement : statements) {
+            if (statement instanceof AssignmentNode assignment) {
+                if (!callsOnlyPureMethods(assignment.expression, numbers))
+                    return false;
+            } else if (statement instanceof MethodCallStatementNode methodCall) {
+                if (!isPureCall(methodCall.objectName, methodCall.methodName, methodCall.parameters, methodCall.returnValues.size(), numbers))
+                    return false;
+            } else if (statement instanceof LoopNode loop) {
+                if (!callsOnlyPureMethods(loop.expression, numbers) || !callsOnlyPureMethods(loop.statements, numbers))
+                    return false;
+            } else if (statement instanceof IfNode ifNode) {
+                if (!callsOnlyPureMethods(ifNode.condition, numbers) || !callsOnlyPureMethods(ifNode.statements, numbers))
+                    return false;
+                if (ifNode.elseStatement.isPresent() && !callsOnlyPureMethods(ifNode.elseStatement.get().statements, numbers))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean callsOnlyPureMethods(ExpressionNode expression, Set<String> numbers) {
+        return switch (expression) {
+            case MathOpNode mathOp -> callsOnlyPureMethods(mathOp.left, numbers) && callsOnlyPureMethods(mathOp.right, numbers);
+            case CompareNode compare -> callsOnlyPureMethods(compare.left, numbers) && callsOnlyPureMethods(compare.right, numbers);
+            case BooleanOpNode booleanOp -> callsOnlyPureMethods(booleanOp.left, numbers) && callsOnlyPureMethods(booleanOp.right, numbers);
+            case NotOpNode notOp -> callsOnlyPureMethods(notOp.left, numbers);
+            case MethodCallExpressionNode methodCall -> isPureCall(methodCall.objectName, methodCall.methodName, methodCall.parameters, 0, numbers);
+            case NewNode ignored -> false;
+            default -> true;
+        };
+    }
+
+    private boolean isPureCall(Optional<String> objectName, String methodName, List<ExpressionNode> parameters, int returnCount, Set<String> numbers) {
+        if (!parameters.stream().allMatch(p -> callsOnlyPureMethods(p, numbers)))
+            return false;
+        if (objectName.isEmpty())
+            return false;
+        var classNode = classes.get(objectName.get());
+        // n.times() only makes an iterator to loop over
+        if (classNode == null)
+            return numbers.contains(objectName.get()) && methodName.equals("times") && parameters.isEmpty();
+        var callee = Nodes.findMethod(classNode, methodName, parameters, returnCount, true);
+        return callee != null && pure.contains(callee);
+    }
+
+    //              Finishing
+
+    private static boolean hasNoBooleanLoops(List<StatementNode> statements) {
+        for (var statement : statements) {
+            if (statement instanceof LoopNode loop) {
+                // The only other loops in a pure method are over n.times()
+                boolean overTimes = loop.expression instanceof MethodCallExpressionNode call && call.methodName.equals("times");
+                if (!overTimes || !hasNoBooleanLoops(loop.statements))
+                    return false;
+            } else if (statement instanceof IfNode ifNode) {
+                if (!hasNoBooleanLoops(ifNode.statements))
+                    return false;
+                if (ifNode.elseStatement.isPresent() && !hasNoBooleanLoops(ifNode.elseStatement.get().statements))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    // The shared methods a pure method calls (every call in a pure method is to one)
+    private List<MethodDeclarationNode> callees(MethodDeclarationNode method) {
+        var callees = new ArrayList<MethodDeclarationNode>();
+        collectCallees(method.statements, callees);
+        return callees;
+    }
+
+    private void collectCallees(List<StatementNode> statements, List<MethodDeclarationNode> callees) {
+        for (var statement : statements) {
+            if (statement instanceof AssignmentNode assignment) {
+                collectCallees(assignment.expression, callees);
+            } else if (statement instanceof MethodCallStatementNode methodCall) {
+                methodCall.parameters.forEach(p -> collectCallees(p, callees));
+                addCallee(methodCall.objectName, methodCall.methodName, methodCall.parameters, methodCall.returnValues.size(), callees);
+            } else if (statement instanceof LoopNode loop) {
+                collectCallees(loop.expression, callees);
+                collectCallees(loop.statements, callees);
+            } else if (statement instanceof IfNode ifNode) {
+                collectCallees(ifNode.condition, callees);
+                collectCallees(ifNode.statements, callees);
+                ifNode.elseStatement.ifPresent(elseNode -> collectCallees(elseNode.statements, callees));
+            }
+        }
+    }
+
+    private void collectCallees(ExpressionNode expression, List<MethodDeclarationNode> callees) {
+        switch (expression) {
+            case MathOpNode mathOp -> {
+                collectCallees(mathOp.left, callees);
+                collectCallees(mathOp.right, callees);
+            }
+            case CompareNode compare -> {
+                collectCallees(compare.left, callees);
+                collectCallees(compare.right, callees);
+            }
+            case BooleanOpNode booleanOp -> {
+                collectCallees(booleanOp.left, callees);
+                collectCallees(booleanOp.right, callees);
+            }
+            case NotOpNode notOp -> collectCallees(notOp.left, callees);
+            case MethodCallExpressionNode methodCall -> {
+                methodCall.parameters.forEach(p -> collectCallees(p, callees));
+                addCallee(methodCall.objectName, methodCall.methodName, methodCall.parameters, 0, callees);
+            }
+            default -> { }
+        }
+    }
+
+    private void addCallee(Optional<String> objectName, String methodName, List<ExpressionNode> parameters, int returnCount, List<MethodDeclarationNode> callees) {
+        var classNode = objectName.map(classes::get).orElse(null);
+        if (classNode == null)
+            return;
+        var callee = Nodes.findMethod(classNode, methodName, parameters, returnCount, true);
+        if (callee != null)
+            callees.add(callee);
+    }
+}
@@ -0,0 +1,169 @@
+package Interpreter.Optimizer;
+
+import AST.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Makes deep copies of statements and expressions, renaming variables on the way.
+ * <br></br>
+ * Used to copy a method's body into another one: the copy's variables are renamed to names that can't clash with the
+ * variables already there. Names without a new name are kept. Type annotations are copied; slots are not, since
+ * copies are made before the Resolver runs.
+ */
+public class Renamer {
+    private final Map<String, String> names = new HashMap<>();
+
+    public void rename(String from, String to) {
+        names.put(from, to);
+    }
+
+    public String nameOf(String name) {
+        return names.getOrDefault(name, name);
+    }
+
+    /**
+     * A copy of a method's or constructor's body, and the new locals its return values end up in
+     */
+    public record Copy(List<StatementNode> statements, List<VariableDeclarationNode> returns) {
+    }
+
+    /**
+     * Copy a method's or constructor's body so that it can run in place of a call to it. Each parameter becomes a new
+     * local that is assigned its argument (which copies it, just like a call), and each local and return a new local
+     * that is reset to its default first, since they are new on every call. Names already renamed (members, say) are
+     * renamed in the copy too.
+     * @param prefix - what the new locals' names start with; the names they replace follow
+     * @param declare - adds a new local to the method that the copy goes into
+     * @param before - where the assignments go; the copied statements are returned instead, to go after them
+     */
+    public Copy copyBody(List<VariableDeclarationNode> parameters, List<VariableDeclarationNode> locals, List<VariableDeclarationNode> returns,
+                         List<StatementNode> statements, List<ExpressionNode> arguments, String prefix,
+                         Consumer<VariableDeclarationNode> declare, List<StatementNode> before) {
+        for (int i = 0; i < parameters.size(); i++)
+            before.add(Nodes.assign(declareLike(parameters.get(i), prefix, declare), arguments.get(i)));
+        var returnLocals = new ArrayList<VariableDeclarationNode>();
+        for (var declarations : List.of(locals, returns)) {
+            for (var declaration : declarations) {
+                var renamed = declareLike(declaration, prefix, declare);
+                before.add(Nodes.assign(renamed, Nodes.defaultValue(renamed.typeId)));
+                if (declarations == returns)
+                    returnLocals.add(renamed);
+            }
+        }
+        return new Copy(copyStatements(statements), returnLocals);
+    }
+
+    private VariableDeclarationNode declareLike(VariableDeclarationNode like, String prefix, Consumer<VariableDeclarationNode> declare) {
+        var declaration = new VariableDeclarationNode();
+        declaration.name = prefix + like.name;
+        declaration.type = like.type;
+        declaration.typeId = like.typeId;
+        declare.accept(declaration);
+        rename(like.name, declaration.name);
+        return declaration;
+    }
+
+    public List<StatementNode> copyStatements(List<StatementNode> statements) {
+        var copies = new ArrayList<StatementNode>(statements.size());
+        for (var statement : statements)
+            copies.add(copy(statement));
+        return copies;
+    }
+
+    public StatementNode copy(StatementNode statement) {
+        if (statement instanceof AssignmentNode assignment) {
+            var copy = new AssignmentNode();
+            copy.target = copy(assignment.target);
+            copy.expression = copy(assignment.expression);
+            return copy;
+        } else if (statement instanceof MethodCallStatementNode methodCall) {
+            var copy = new MethodCallStatementNode();
+            copy.objectName = methodCall.objectName.map(this::nameOf);
+            copy.methodName = methodCall.methodName;
+            copy.parameters = copyExpressions(methodCall.parameters);
+            methodCall.returnValues.forEach(target -> copy.returnValues.add(copy(target)));
+            return copy;
+        } else if (statement instanceof LoopNode loop) {
+            var copy = new LoopNode();
+            copy.assignment = loop.assignment.map(this::copy);
+            copy.expression = copy(loop.expression);
+            copy.expressionType = loop.expressionType;
+            copy.statements = copyStatements(loop.statements);
+            return copy;
+        } else if (statement instanceof IfNode ifNode) {
+            var copy = new IfNode();
+            copy.condition = copy(ifNode.condition);
+            copy.conditionType = ifNode.conditionType;
+            copy.statements = copyStatements(ifNode.statements);
+            copy.elseStatement = ifNode.elseStatement.map(elseNode -> {
+                var elseCopy = new ElseNode();
+                elseCopy.statements = copyStatements(elseNode.statements);
+                return elseCopy;
+            });
+            return copy;
+        }
+        throw new RuntimeException("Unable to copy " + statement);
+    }
+
+    public ExpressionNode copy(ExpressionNode expression) {
+        if (expression instanceof VariableReferenceNode variable) {
+            return copy(variable);
+        } else if (expression instanceof MathOpNode mathOp) {
+            var copy = new MathOpNode();
+            copy.op = mathOp.op;
+            copy.type = mathOp.type;
+            copy.left = copy(mathOp.left);
+            copy.right = copy(mathOp.right);
+            return copy;
+        } else if (expression instanceof CompareNode compare) {
+            var copy = new CompareNode();
+            copy.op = compare.op;
+            copy.operandType = compare.operandType;
+            copy.left = copy(compare.left);
+            copy.right = copy(compare.right);
+            return copy;
+        } else if (expression instanceof BooleanOpNode booleanOp) {
+            var copy = new BooleanOpNode();
+            copy.op = booleanOp.op;
+            copy.left = copy(booleanOp.left);
+            copy.right = copy(booleanOp.right);
+            return copy;
+        } else if (expression instanceof NotOpNode notOp) {
+            var copy = new NotOpNode();
+            copy.left = copy(notOp.left);
+            return copy;
+        } else if (expression instanceof MethodCallExpressionNode methodCall) {
+            var copy = new MethodCallExpressionNode();
+            copy.objectName = methodCall.objectName.map(this::nameOf);
+            copy.methodName = methodCall.methodName;
+            copy.parameters = copyExpressions(methodCall.parameters);
+            return copy;
+        } else if (expression instanceof NewNode newNode) {
+            var copy = new NewNode();
+            copy.className = newNode.className;
+            copy.parameters = copyExpressions(newNode.parameters);
+            return copy;
+        }
+        // Literals are never changed once parsed, so they can be shared
+        return expression;
+    }
+
+    public VariableReferenceNode copy(VariableReferenceNode variable) {
+        var copy = new VariableReferenceNode();
+        copy.name = nameOf(variable.name);
+        copy.type = variable.type;
+        return copy;
+    }
+
+    private List<ExpressionNode> copyExpressions(List<ExpressionNode> expressions) {
+        var copies = new ArrayList<ExpressionNode>(expressions.size());
+        for (var expression : expressions)
+            copies.add(copy(expression));
+        return copies;
+    }
+}
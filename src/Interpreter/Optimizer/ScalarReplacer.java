@@ -0,0 +1,678 @@
+package Interpreter.Optimizer;
+
+import AST.*;
+import Interpreter.TypeTable;
+
+import java.util.*;
+
+/**
+ * Replaces objects that never leave the method that creates them with one local variable per member.
+ * <br></br>
+ * A local holding an object escapes if it is read as a value for anything other than calling a method on it: passed to
+ * a method, assigned to another variable, written to the console, and so on. If it never escapes, the "new" is
+ * replaced by resetting the member locals and a copy of the constructor's body, and each call on it is replaced by a
+ * copy of the method's body (a call inside an expression runs just before the statement it is in).
+ * <br></br>
+ * Passing the local to a shared method doesn't make it escape if all the method does with it is call methods on it (a
+ * reader): the call is replaced by a copy of the method's body that calls them on the local instead.
+ * <br></br>
+ * To keep this simple and safe, it is only done when:
+ * - the class's members, and the constructor's and methods' variables, are all primitives
+ * - the constructor and methods that are used don't call anything or create objects, and can be chosen from the
+ *   number and (known) types of the arguments alone
+ * - every use of the local comes after a "new" in the same block, so it is never used before it is created
+ * - a statement that has a call on the object inside an expression has no other calls in it, so moving the call
+ *   can't change the order things happen in
+ */
+public class ScalarReplacer {
+    private Map<String, ClassNode> classes;
+    private int replaced = 0;
+    // Makes the names of the copies' variables unique
+    private int copies = 0;
+
+    public void replace(TranNode top) {
+        classes = new HashMap<>();
+        for (var classNode : top.Classes)
+            classes.putIfAbsent(classNode.name, classNode);
+        for (var classNode : top.Classes) {
+            var members = new HashSet<String>();
+            classNode.members.forEach(member -> members.add(member.declaration.name));
+            for (var method : classNode.methods)
+                if (!(method instanceof BuiltInMethodDeclarationNode))
+                    replaceIn(new Body(method.parameters, method.locals, method.returns, method.statements, method.isShared ? Set.of() : members));
+            for (var constructor : classNode.constructors)
+                replaceIn(new Body(constructor.parameters, constructor.locals, List.of(), constructor.statements, members));
+        }
+    }
+
+    /**
+     * @return how many locals have been replaced by their members
+     */
+    public int getReplaced() {
+        return replaced;
+    }
+
+    private record Body(List<VariableDeclarationNode> parameters, List<VariableDeclarationNode> locals,
+                        List<VariableDeclarationNode> returns, List<StatementNode> statements, Set<String> members) {
+        int timesDeclared(String name) {
+            int count = members.contains(name) ? 1 : 0;
+            for (var declarations : List.of(parameters, locals, returns))
+                for (var declaration : declarations)
+                    if (declaration.name.equals(name))
+                        count++;
+            return count;
+        }
+    }
+
+    private void replaceIn(Body body) {
+        for (var local : List.copyOf(body.locals)) {
+            var classNode = classes.get(local.type);
+            if (classNode == null || body.timesDeclared(local.name) != 1)
+                continue;
+            if (!classNode.members.stream().allMatch(member -> TypeTable.isPrimitive(member.declaration.typeId)))
+                continue;
+            var candidate = new Candidate(local, classNode, body);
+            if (candidate.canReplace()) {
+                candidate.replace();
+                replaced++;
+            }
+        }
+    }
+
+    private class Candidate {
+        final VariableDeclarationNode local;
+        final String name;
+        final ClassNode classNode;
+        final Body body;
+        final Map<String, VariableDeclarationNode> memberLocals = new LinkedHashMap<>();
+        // The body's statements, with calls to readers replaced by copies of them
+        private List<StatementNode> statements;
+        // The variables of those copies, which are only added to the body if the local is replaced
+        private final List<VariableDeclarationNode> readerLocals = new ArrayList<>();
+
+        Candidate(VariableDeclarationNode local, ClassNode classNode, Body body) {
+            this.local = local;
+            this.name = local.name;
+            this.classNode = classNode;
+            this.body = body;
+        }
+
+        //              Checking
+
+        boolean canReplace() {
+            // The copies are made on a copy of the body, in case the local can't be replaced after all
+            statements = hasReaderCalls(body.statements) ? copyReaders(new Renamer().copyStatements(body.statements)) : body.statements;
+            var block = blockOfUses(statements);
+            if (block == null)
+                return false;
+            var first = block.stream().filter(this::mentions).findFirst().orElseThrow();
+            if (!(first instanceof AssignmentNode assignment && isCreation(assignment)))
+                return false;
+            return checkStatements(statements);
+        }
+
+        // The innermost block that has every use of the local in it
+        private List<StatementNode> blockOfUses(List<StatementNode> statements) {
+            var uses = statements.stream().filter(this::mentions).toList();
+            if (uses.isEmpty())
+                return null;
+            if (uses.size() == 1 && uses.getFirst() instanceof LoopNode loop
+                    && !mentions(loop.expression) && loop.assignment.map(v -> !v.name.equals(name)).orElse(true))
+                return blockOfUses(loop.statements);
+            if (uses.size() == 1 && uses.getFirst() instanceof IfNode ifNode && !mentions(ifNode.condition)) {
+                boolean inElse = ifNode.elseStatement.map(e -> e.statements.stream().anyMatch(this::mentions)).orElse(false);
+                boolean inThen = ifNode.statements.stream().anyMatch(this::mentions);
+                if (inThen && !inElse)
+                    return blockOfUses(ifNode.statements);
+                if (inElse && !inThen)
+                    return blockOfUses(ifNode.elseStatement.get().statements);
+            }
+            return statements;
+        }
+
+        private boolean isCreation(AssignmentNode assignment) {
+            return assignment.target.name.equals(name) && assignment.expression instanceof NewNode newNode && newNode.className.equals(classNode.name);
+        }
+
+        private boolean checkStatements(List<StatementNode> statements) {
+            for (var statement : statements) {
+                if (statement instanceof AssignmentNode assignment) {
+                    if (assignment.target.name.equals(name)) {
+                        if (!isCreation(assignment))
+                            return false;
+                        var newNode = (NewNode) assignment.expression;
+                        if (newNode.parameters.stream().anyMatch(this::mentions) || findConstructor(newNode.parameters) == null)
+                            return false;
+                    } else if (!checkExpressions(List.of(assignment.expression))) {
+                        return false;
+                    }
+                } else if (statement instanceof MethodCallStatementNode methodCall) {
+                    if (methodCall.returnValues.stream().anyMatch(target -> target.name.equals(name)))
+                        return false;
+                    if (isCallOnLocal(methodCall.objectName)) {
+                        if (methodCall.parameters.stream().anyMatch(this::mentions)
+                                || findMethod(methodCall.methodName, methodCall.parameters, methodCall.returnValues.size()) == null)
+                            return false;
+                        // Return values are copied into the targets with assignments, which need them to exist
+                        if (methodCall.returnValues.stream().anyMatch(target -> body.timesDeclared(target.name) == 0))
+                            return false;
+                    } else if (!checkExpressions(methodCall.parameters)) {
+                        return false;
+                    }
+                } else if (statement instanceof LoopNode loop) {
+                    if (mentions(loop.expression) || loop.assignment.map(v -> v.name.equals(name)).orElse(false))
+                        return false;
+                    if (!checkStatements(loop.statements))
+                        return false;
+                } else if (statement instanceof IfNode ifNode) {
+                    if (!checkExpressions(List.of(ifNode.condition)) || !checkStatements(ifNode.statements))
+                        return false;
+                    if (ifNode.elseStatement.isPresent() && !checkStatements(ifNode.elseStatement.get().statements))
+                        return false;
+                }
+            }
+            return true;
+        }
+
+        // The expressions of one statement: calls on the local are fine, as long as nothing else is called
+        private boolean checkExpressions(List<ExpressionNode> expressions) {
+            var counts = new int[2]; // calls on the local, other calls and news
+            for (var expression : expressions)
+                if (!checkExpression(expression, counts))
+                    return false;
+            return counts[0] == 0 || counts[1] == 0;
+        }
+
+        private boolean checkExpression(ExpressionNode expression, int[] counts) {
+            if (expression instanceof VariableReferenceNode variable)
+                return !variable.name.equals(name);
+            if (expression instanceof MathOpNode mathOp)
+                return checkExpression(mathOp.left, counts) && checkExpression(mathOp.right, counts);
+            if (expression instanceof CompareNode compare)
+                return checkExpression(compare.left, counts) && checkExpression(compare.right, counts);
+            if (expression instanceof BooleanOpNode booleanOp)
+                return checkExpression(booleanOp.left, counts) && checkExpression(booleanOp.right, counts);
+            if (expression instanceof NotOpNode notOp)
+                return checkExpression(notOp.left, counts);
+            if (expression instanceof MethodCallExpressionNode methodCall) {
+                if (isCallOnLocal(methodCall.objectName)) {
+                    counts[0]++;
+                    return methodCall.parameters.stream().noneMatch(this::mentions)
+                            && findMethod(methodCall.methodName, methodCall.parameters, 1) != null;
+                }
+                counts[1]++;
+                return methodCall.parameters.stream().allMatch(p -> checkExpression(p, counts));
+            }
+            if (expression instanceof NewNode newNode) {
+                counts[1]++;
+                return newNode.parameters.stream().allMatch(p -> checkExpression(p, counts));
+            }
+            return true;
+        }
+
+        private boolean isCallOnLocal(Optional<String> objectName) {
+            return objectName.map(n -> n.equals(name)).orElse(false);
+        }
+
+        private ConstructorNode findConstructor(List<ExpressionNode> arguments) {
+            var candidates = classNode.constructors.stream().filter(c -> c.parameters.size() == arguments.size()).toList();
+            if (candidates.size() != 1)
+                return null;
+            var constructor = candidates.getFirst();
+            if (!argumentsMatch(constructor.parameters, arguments) || !isSimple(constructor.parameters, constructor.locals, List.of(), constructor.statements))
+                return null;
+            return constructor;
+        }
+
+        private MethodDeclarationNode findMethod(String methodName, List<ExpressionNode> arguments, int returnCount) {
+            // clone is built in, and would make a real object
+            if (methodName.equals("clone"))
+                return null;
+            var candidates = classNode.methods.stream()
+                    .filter(m -> m.name.equals(methodName) && m.parameters.size() == arguments.size() && m.returns.size() >= returnCount)
+                    .toList();
+            if (candidates.size() != 1)
+                return null;
+            var method = candidates.getFirst();
+            // Shared methods can't see members, so they aren't worth the trouble
+            if (method instanceof BuiltInMethodDeclarationNode || method.isShared || !argumentsMatch(method.parameters, arguments))
+                return null;
+            if (!isSimple(method.parameters, method.locals, method.returns, method.statements))
+                return null;
+            return method;
+        }
+
+        private boolean argumentsMatch(List<VariableDeclarationNode> parameters, List<ExpressionNode> arguments) {
+            for (int i = 0; i < parameters.size(); i++)
+                if (Nodes.typeOf(arguments.get(i)) != parameters.get(i).typeId)
+                    return false;
+            return true;
+        }
+
+        // Primitive variables, no calls or news, and every variable is declared or a member
+        private boolean isSimple(List<VariableDeclarationNode> parameters, List<VariableDeclarationNode> locals, List<VariableDeclarationNode> returns, List<StatementNode> statements) {
+            var declared = new HashSet<String>();
+            for (var declarations : List.of(parameters, locals, returns))
+                for (var declaration : declarations)
+                    if (!TypeTable.isPrimitive(declaration.typeId) || !declared.add(declaration.name))
+                        return false;
+            classNode.members.forEach(member -> declared.add(member.declaration.name));
+            return isSimple(statements, declared);
+        }
+
+        private boolean isSimple(List<StatementNode> statements, Set<String> declared) {
+            for (var statement : statements) {
+                if (statement instanceof AssignmentNode assignment) {
+                    if (!declared.contains(assignment.target.name) || !isSimple(assignment.expression, declared))
+                        return false;
+                } else if (statement instanceof LoopNode loop) {
+                    if (loop.assignment.isPresent() && !declared.contains(loop.assignment.get().name))
+                        return false;
+                    if (!isSimple(loop.expression, declared) || !isSimple(loop.statements, declared))
+                        return false;
+                } else if (statement instanceof IfNode ifNode) {
+                    if (!isSimple(ifNode.condition, declared) || !isSimple(ifNode.statements, declared))
+                        return false;
+                    if (ifNode.elseStatement.isPresent() && !isSimple(ifNode.elseStatement.get().statements, declared))
+                        return false;
+                } else {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean isSimple(ExpressionNode expression, Set<String> declared) {
+            if (expression instanceof VariableReferenceNode variable)
+                return declared.contains(variable.name);
+            if (expression instanceof MathOpNode mathOp)
+                return isSimple(mathOp.left, declared) && isSimple(mathOp.right, declared);
+            if (expression instanceof CompareNode compare)
+                return isSimple(compare.left, declared) && isSimple(compare.right, declared);
+            if (expression instanceof BooleanOpNode booleanOp)
+                return isSimple(booleanOp.left, declared) && isSimple(booleanOp.right, declared);
+            if (expression instanceof NotOpNode notOp)
+                return isSimple(notOp.left, declared);
+            return !(expression instanceof MethodCallExpressionNode) && !(expression instanceof NewNode);
+        }
+
+        //              Readers
+
+        /**
+         * A shared method the call passes the local to, whose body only calls methods on it, so a copy of the body can
+         * call them on the local instead
+         * @return the method, or null if the call isn't to one
+         */
+        private MethodDeclarationNode readerOf(Optional<String> objectName, String methodName, List<ExpressionNode> arguments, int returnCount) {
+            int position = positionOfLocal(arguments);
+            if (position < 0 || objectName.isEmpty() || body.timesDeclared(objectName.get()) != 0)
+                return null;
+            var calleeClass = classes.get(objectName.get());
+            if (calleeClass == null)
+                return null;
+            var candidates = calleeClass.methods.stream()
+                    .filter(m -> m.name.equals(methodName) && m.isShared && !m.isPrivate && m.parameters.size() == arguments.size() && m.returns.size() >= returnCount)
+                    .toList();
+            if (candidates.size() != 1 || candidates.getFirst() instanceof BuiltInMethodDeclarationNode)
+                return null;
+            var method = candidates.getFirst();
+            var declared = new HashSet<String>();
+            for (int i = 0; i < arguments.size(); i++) {
+                var parameter = method.parameters.get(i);
+                if (i == position ? !parameter.type.equals(classNode.name)
+                        : !TypeTable.isPrimitive(parameter.typeId) || parameter.typeId != Nodes.typeOf(arguments.get(i)))
+                    return null;
+                if (i != position)
+                    declared.add(parameter.name);
+            }
+            for (var declarations : List.of(method.locals, method.returns))
+                for (var declaration : declarations)
+                    if (!TypeTable.isPrimitive(declaration.typeId) || !declared.add(declaration.name))
+                        return null;
+            var object = method.parameters.get(position).name;
+            return !declared.contains(object) && onlyCallsOn(object, method.statements, declared) ? method : null;
+        }
+
+        // Where the local is in the arguments, if it is exactly one of them
+        private int positionOfLocal(List<ExpressionNode> arguments) {
+            int position = -1;
+            for (int i = 0; i < arguments.size(); i++) {
+                if (arguments.get(i) instanceof VariableReferenceNode variable && variable.name.equals(name)) {
+                    if (position >= 0)
+                        return -1;
+                    position = i;
+                }
+            }
+            return position;
+        }
+
+        // Primitive variables, no news, and no calls other than on the object (which is never used any other way)
+        private static boolean onlyCallsOn(String object, List<StatementNode> statements, Set<String> declared) {
+            for (var statement : statements) {
+                if (statement instanceof AssignmentNode assignment) {
+                    if (!declared.contains(assignment.target.name) || !onlyCallsOn(object, assignment.expression, declared))
+                        return false;
+                } else if (statement instanceof MethodCallStatementNode methodCall) {
+                    if (!methodCall.objectName.map(object::equals).orElse(false) || !methodCall.returnValues.stream().allMatch(target -> declared.contains(target.name)))
+                        return false;
+                    if (!methodCall.parameters.stream().allMatch(p -> onlyCallsOn(object, p, declared)))
+                        return false;
+                } else if (statement instanceof LoopNode loop) {
+                    if (loop.assignment.isPresent() && !declared.contains(loop.assignment.get().name))
+                        return false;
+                    if (!onlyCallsOn(object, loop.expression, declared) || !onlyCallsOn(object, loop.statements, declared))
+                        return false;
+                } else if (statement instanceof IfNode ifNode) {
+                    if (!onlyCallsOn(object, ifNode.condition, declared) || !onlyCallsOn(object, ifNode.statements, declared))
+                        return false;
+                    if (ifNode.elseStatement.isPresent() && !onlyCallsOn(object, ifNode.elseStatement.get().statements, declared))
+                        return false;
+                } else {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean onlyCallsOn(String object, ExpressionNode expression, Set<String> declared) {
+            if (expression instanceof VariableReferenceNode variable)
+                return declared.contains(variable.name);
+            if (expression instanceof MathOpNode mathOp)
+                return onlyCallsOn(object, mathOp.left, declared) && onlyCallsOn(object, mathOp.right, declared);
+            if (expression instanceof CompareNode compare)
+                return onlyCallsOn(object, compare.left, declared) && onlyCallsOn(object, compare.right, declared);
+            if (expression instanceof BooleanOpNode booleanOp)
+                return onlyCallsOn(object, booleanOp.left, declared) && onlyCallsOn(object, booleanOp.right, declared);
+            if (expression instanceof NotOpNode notOp)
+                return onlyCallsOn(object, notOp.left, declared);
+            if (expression instanceof MethodCallExpressionNode methodCall)
+                return methodCall.objectName.map(object::equals).orElse(false)
+                        && methodCall.parameters.stream().allMatch(p -> onlyCallsOn(object, p, declared));
+            return !(expression instanceof NewNode);
+        }
+
+        private boolean hasReaderCalls(List<StatementNode> statements) {
+            for (var statement : statements) {
+                if (statement instanceof MethodCallStatementNode methodCall
+                        && readerOf(methodCall.objectName, methodCall.methodName, methodCall.parameters, methodCall.returnValues.size()) != null)
+                    return true;
+                if (statement instanceof LoopNode loop && hasReaderCalls(loop.statements))
+                    return true;
+                if (statement instanceof IfNode ifNode && (hasReaderCalls(ifNode.statements)
+                        || ifNode.elseStatement.map(e -> hasReaderCalls(e.statements)).orElse(false)))
+                    return true;
+                if (uses(statement) == 1 && hasReaderCall(statement))
+                    return true;
+            }
+            return false;
+        }
+
+        private boolean hasReaderCall(StatementNode statement) {
+            return switch (statement) {
+                case AssignmentNode assignment -> findsReaderCall(assignment.expression);
+                case MethodCallStatementNode methodCall -> methodCall.parameters.stream().anyMatch(this::findsReaderCall);
+                case IfNode ifNode -> findsReaderCall(ifNode.condition);
+                default -> false;
+            };
+        }
+
+        private boolean findsReaderCall(ExpressionNode expression) {
+            return switch (expression) {
+                case MathOpNode mathOp -> findsReaderCall(mathOp.left) || findsReaderCall(mathOp.right);
+                case CompareNode compare -> findsReaderCall(compare.left) || findsReaderCall(compare.right);
+                case BooleanOpNode booleanOp -> findsReaderCall(booleanOp.left) || findsReaderCall(booleanOp.right);
+                case NotOpNode notOp -> findsReaderCall(notOp.left);
+                case MethodCallExpressionNode methodCall -> isMovableReaderCall(methodCall) || methodCall.parameters.stream().anyMatch(this::findsReaderCall);
+                case NewNode newNode -> newNode.parameters.stream().anyMatch(this::findsReaderCall);
+                default -> false;
+            };
+        }
+
+        /**
+         * A reader call inside an expression is copied in front of its statement, so only when that can't change what
+         * happens: its other arguments are literals or variables, and the statement doesn't use the local anywhere else
+         * (readers only change the object, so nothing else in the statement can see the difference)
+         */
+        private boolean isMovableReaderCall(MethodCallExpressionNode methodCall) {
+            for (var argument : methodCall.parameters)
+                if (!(argument instanceof VariableReferenceNode || argument instanceof NumericLiteralNode || argument instanceof StringLiteralNode
+                        || argument instanceof CharLiteralNode || argument instanceof BooleanLiteralNode))
+                    return false;
+            return readerOf(methodCall.objectName, methodCall.methodName, methodCall.parameters, 1) != null;
+        }
+
+        // How many times the statement reads the local or calls a method on it, not counting the statements inside it
+        private int uses(StatementNode statement) {
+            return switch (statement) {
+                case AssignmentNode assignment -> (assignment.target.name.equals(name) ? 1 : 0) + uses(assignment.expression);
+                case MethodCallStatementNode methodCall -> (isCallOnLocal(methodCall.objectName) ? 1 : 0)
+                        + methodCall.parameters.stream().mapToInt(this::uses).sum()
+                        + (int) methodCall.returnValues.stream().filter(target -> target.name.equals(name)).count();
+                case IfNode ifNode -> uses(ifNode.condition);
+                default -> 0;
+            };
+        }
+
+        private int uses(ExpressionNode expression) {
+            return switch (expression) {
+                case VariableReferenceNode variable -> variable.name.equals(name) ? 1 : 0;
+                case MathOpNode mathOp -> uses(mathOp.left) + uses(mathOp.right);
+                case CompareNode compare -> uses(compare.left) + uses(compare.right);
+                case BooleanOpNode booleanOp -> uses(booleanOp.left) + uses(booleanOp.right);
+                case NotOpNode notOp -> uses(notOp.left);
+                case MethodCallExpressionNode methodCall -> (isCallOnLocal(methodCall.objectName) ? 1 : 0) + methodCall.parameters.stream().mapToInt(this::uses).sum();
+                case NewNode newNode -> newNode.parameters.stream().mapToInt(this::uses).sum();
+                default -> 0;
+            };
+        }
+
+        // Replaces calls to readers in (a copy of) the body with copies of the readers
+        private List<StatementNode> copyReaders(List<StatementNode> statements) {
+            var copied = new ArrayList<StatementNode>(statements.size());
+            for (var statement : statements) {
+                if (statement instanceof MethodCallStatementNode methodCall
+                        && readerOf(methodCall.objectName, methodCall.methodName, methodCall.parameters, methodCall.returnValues.size()) instanceof MethodDeclarationNode reader) {
+                    var returns = copyReader(reader, methodCall.parameters, copied);
+                    for (int i = 0; i < methodCall.returnValues.size(); i++) {
+                        var copy = new AssignmentNode();
+                        copy.target = methodCall.returnValues.get(i);
+                        copy.expression = Nodes.reference(returns.get(i));
+                        copied.add(copy);
+                    }
+                    continue;
+                }
+                if (statement instanceof LoopNode loop) {
+                    loop.statements = copyReaders(loop.statements);
+                } else if (statement instanceof IfNode ifNode) {
+                    ifNode.statements = copyReaders(ifNode.statements);
+                    ifNode.elseStatement.ifPresent(elseNode -> elseNode.statements = copyReaders(elseNode.statements));
+                }
+                if (uses(statement) == 1) {
+                    switch (statement) {
+                        case AssignmentNode assignment -> assignment.expression = copyReaders(assignment.expression, copied);
+                        case MethodCallStatementNode methodCall -> methodCall.parameters.replaceAll(p -> copyReaders(p, copied));
+                        case IfNode ifNode -> ifNode.condition = copyReaders(ifNode.condition, copied);
+                        default -> {}
+                    }
+                }
+                copied.add(statement);
+            }
+            return copied;
+        }
+
+        private ExpressionNode copyReaders(ExpressionNode expression, List<StatementNode> before) {
+            if (expression instanceof MathOpNode mathOp) {
+                mathOp.left = copyReaders(mathOp.left, before);
+                mathOp.right = copyReaders(mathOp.right, before);
+            } else if (expression instanceof CompareNode compare) {
+                compare.left = copyReaders(compare.left, before);
+                compare.right = copyReaders(compare.right, before);
+            } else if (expression instanceof BooleanOpNode booleanOp) {
+                booleanOp.left = copyReaders(booleanOp.left, before);
+                booleanOp.right = copyReaders(booleanOp.right, before);
+            } else if (expression instanceof NotOpNode notOp) {
+                notOp.left = copyReaders(notOp.left, before);
+            } else if (expression instanceof MethodCallExpressionNode methodCall && isMovableReaderCall(methodCall)) {
+                var reader = readerOf(methodCall.objectName, methodCall.methodName, methodCall.parameters, 1);
+                return Nodes.reference(copyReader(reader, methodCall.parameters, before).getFirst());
+            } else if (expression instanceof MethodCallExpressionNode methodCall) {
+                methodCall.parameters.replaceAll(p -> copyReaders(p, before));
+            } else if (expression instanceof NewNode newNode) {
+                newNode.parameters.replaceAll(p -> copyReaders(p, before));
+            }
+            return expression;
+        }
+
+        /**
+         * Adds a copy of a reader's body to `statements`, with the object it is passed renamed to the local
+         * @return the new locals holding the return values
+         */
+        private List<VariableDeclarationNode> copyReader(MethodDeclarationNode reader, List<ExpressionNode> arguments, List<StatementNode> statements) {
+            var renamer = new Renamer();
+            int position = positionOfLocal(arguments);
+            var parameters = new ArrayList<>(reader.parameters);
+            var values = new ArrayList<>(arguments);
+            renamer.rename(parameters.remove(position).name, name);
+            values.remove(position);
+            var copy = renamer.copyBody(parameters, reader.locals, reader.returns, reader.statements, values,
+                    "%s$%d$".formatted(name, ++copies), readerLocals::add, statements);
+            statements.addAll(copy.statements());
+            return copy.returns();
+        }
+
+        //              Replacing
+
+        void replace() {
+            body.locals.addAll(readerLocals);
+            for (var member : classNode.members)
+                memberLocals.put(member.declaration.name, declare(name + "$" + member.declaration.name, member.declaration));
+            var rewritten = rewrite(statements);
+            body.statements.clear();
+            body.statements.addAll(rewritten);
+            body.locals.remove(local);
+        }
+
+        private List<StatementNode> rewrite(List<StatementNode> statements) {
+            var rewritten = new ArrayList<StatementNode>(statements.size());
+            for (var statement : statements) {
+                if (statement instanceof AssignmentNode assignment && assignment.target.name.equals(name)) {
+                    var newNode = (NewNode) assignment.expression;
+                    // A new object starts with default members
+                    for (var member : memberLocals.values())
+                        rewritten.add(Nodes.assign(member, Nodes.defaultValue(member.typeId)));
+                    var constructor = findConstructor(newNode.parameters);
+                    copyBody(constructor.parameters, constructor.locals, List.of(), constructor.statements, newNode.parameters, rewritten);
+                } else if (statement instanceof AssignmentNode assignment) {
+                    assignment.expression = hoistCalls(assignment.expression, rewritten);
+                    rewritten.add(assignment);
+                } else if (statement instanceof MethodCallStatementNode methodCall && isCallOnLocal(methodCall.objectName)) {
+                    var method = findMethod(methodCall.methodName, methodCall.parameters, methodCall.returnValues.size());
+                    var returns = copyBody(method.parameters, method.locals, method.returns, method.statements, methodCall.parameters, rewritten);
+                    for (int i = 0; i < methodCall.returnValues.size(); i++) {
+                        var copy = new AssignmentNode();
+                        copy.target = methodCall.returnValues.get(i);
+                        copy.expression = Nodes.reference(returns.get(i));
+                        rewritten.add(copy);
+                    }
+                } else if (statement instanceof MethodCallStatementNode methodCall) {
+                    methodCall.parameters.replaceAll(p -> hoistCalls(p, rewritten));
+                    rewritten.add(methodCall);
+                } else if (statement instanceof LoopNode loop) {
+                    loop.statements = rewrite(loop.statements);
+                    rewritten.add(loop);
+                } else if (statement instanceof IfNode ifNode) {
+                    ifNode.condition = hoistCalls(ifNode.condition, rewritten);
+                    ifNode.statements = rewrite(ifNode.statements);
+                    ifNode.elseStatement.ifPresent(elseNode -> elseNode.statements = rewrite(elseNode.statements));
+                    rewritten.add(ifNode);
+                } else {
+                    rewritten.add(statement);
+                }
+            }
+            return rewritten;
+        }
+
+        // Moves calls on the local out of the expression, in the order they would have run, leaving their results
+        private ExpressionNode hoistCalls(ExpressionNode expression, List<StatementNode> before) {
+            if (expression instanceof MathOpNode mathOp) {
+                mathOp.left = hoistCalls(mathOp.left, before);
+                mathOp.right = hoistCalls(mathOp.right, before);
+            } else if (expression instanceof CompareNode compare) {
+                compare.left = hoistCalls(compare.left, before);
+                compare.right = hoistCalls(compare.right, before);
+            } else if (expression instanceof BooleanOpNode booleanOp) {
+                booleanOp.left = hoistCalls(booleanOp.left, before);
+                booleanOp.right = hoistCalls(booleanOp.right, before);
+            } else if (expression instanceof NotOpNode notOp) {
+                notOp.left = hoistCalls(notOp.left, before);
+            } else if (expression instanceof MethodCallExpressionNode methodCall && isCallOnLocal(methodCall.objectName)) {
+                var method = findMethod(methodCall.methodName, methodCall.parameters, 1);
+                return Nodes.reference(copyBody(method.parameters, method.locals, method.returns, method.statements, methodCall.parameters, before).getFirst());
+            } else if (expression instanceof MethodCallExpressionNode methodCall) {
+                methodCall.parameters.replaceAll(p -> hoistCalls(p, before));
+            } else if (expression instanceof NewNode newNode) {
+                newNode.parameters.replaceAll(p -> hoistCalls(p, before));
+            }
+            return expression;
+        }
+
+        /**
+         * Adds a copy of a constructor's or method's body to `statements`, with its variables renamed to new locals
+         * and its members renamed to the member locals.
+         * @return the new locals holding the return values
+         */
+        private List<VariableDeclarationNode> copyBody(List<VariableDeclarationNode> parameters, List<VariableDeclarationNode> locals, List<VariableDeclarationNode> returns,
+                                                       List<StatementNode> copied, List<ExpressionNode> arguments, List<StatementNode> statements) {
+            var renamer = new Renamer();
+            memberLocals.forEach((memberName, memberLocal) -> renamer.rename(memberName, memberLocal.name));
+            var copy = renamer.copyBody(parameters, locals, returns, copied, arguments,
+                    "%s$%d$".formatted(name, ++copies), body.locals::add, statements);
+            statements.addAll(copy.statements());
+            return copy.returns();
+        }
+
+        private VariableDeclarationNode declare(String newName, VariableDeclarationNode like) {
+            var declaration = new VariableDeclarationNode();
+            declaration.name = newName;
+            declaration.type = like.type;
+            declaration.typeId = like.typeId;
+            body.locals.add(declaration);
+            return declaration;
+        }
+
+        //              Finding uses
+
+        private boolean mentions(StatementNode statement) {
+            if (statement instanceof AssignmentNode assignment)
+                return assignment.target.name.equals(name) || mentions(assignment.expression);
+            if (statement instanceof MethodCallStatementNode methodCall)
+                return isCallOnLocal(methodCall.objectName) || methodCall.parameters.stream().anyMatch(this::mentions)
+                        || methodCall.returnValues.stream().anyMatch(target -> target.name.equals(name));
+            if (statement instanceof LoopNode loop)
+                return loop.assignment.map(v -> v.name.equals(name)).orElse(false) || mentions(loop.expression)
+                        || loop.statements.stream().anyMatch(this::mentions);
+            if (statement instanceof IfNode ifNode)
+                return mentions(ifNode.condition) || ifNode.statements.stream().anyMatch(this::mentions)
+                        || ifNode.elseStatement.map(e -> e.statements.stream().anyMatch(this::mentions)).orElse(false);
+            return false;
+        }
+
+        private boolean mentions(ExpressionNode expression) {
+            if (expression instanceof VariableReferenceNode variable)
+                return variable.name.equals(name);
+            if (expression instanceof MathOpNode mathOp)
+                return mentions(mathOp.left) || mentions(mathOp.right);
+            if (expression instanceof CompareNode compare)
+                return mentions(compare.left) || mentions(compare.right);
+            if (expression instanceof BooleanOpNode booleanOp)
+                return mentions(booleanOp.left) || mentions(booleanOp.right);
+            if (expression instanceof NotOpNode notOp)
+                return mentions(notOp.left);
+            if (expression instanceof MethodCallExpressionNode methodCall)
+                return isCallOnLocal(methodCall.objectName) || methodCall.parameters.stream().anyMatch(this::mentions);
+            if (expression instanceof NewNode newNode)
+                return newNode.parameters.stream().anyMatch(this::mentions);
+            return false;
+        }
+    }
+}
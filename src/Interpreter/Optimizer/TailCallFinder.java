@@ -0,0 +1,74 @@
+package Interpreter.Optimizer;
+
+import AST.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Marks the calls a shared method makes to itself as the last thing it does, and whose results it returns as they
+ * are, so every engine can run them in the caller's frame instead of a new one.
+ * <br></br>
+ * A call is in tail position if it is the last statement of the method, or of a branch of an if that is. Its return
+ * targets must be the method's return variables, in order: "result = Tran.f(n - 1)" in a method returning only
+ * result is turned into the call statement "result = Tran.f(n - 1)", which returns into the same variable.
+ * Only calls on the method's own class name are marked, since they can only ever find the method itself.
+ */
+public class TailCallFinder {
+    private int tailCallsFound = 0;
+
+    public void mark(TranNode top) {
+        for (var classNode : top.Classes)
+            for (var method : classNode.methods)
+                if (method.isShared && !(method instanceof BuiltInMethodDeclarationNode))
+                    markTailCalls(classNode, method, method.statements);
+    }
+
+    /**
+     * @return how many calls have been marked
+     */
+    public int getTailCallsFound() {
+        return tailCallsFound;
+    }
+
+    // The last statement of statements is the last thing the method does
+    private void markTailCalls(ClassNode classNode, MethodDeclarationNode method, List<StatementNode> statements) {
+        if (statements.isEmpty())
+            return;
+        int last = statements.size() - 1;
+        switch (statements.get(last)) {
+            case IfNode ifNode -> {
+                markTailCalls(classNode, method, ifNode.statements);
+                ifNode.elseStatement.ifPresent(elseNode -> markTailCalls(classNode, method, elseNode.statements));
+            }
+            case AssignmentNode assignment when assignment.expression instanceof MethodCallExpressionNode expression -> {
+                var call = new MethodCallStatementNode(expression);
+                call.returnValues = new ArrayList<>(List.of(assignment.target));
+                if (isSelfCall(classNode, method, call)) {
+                    statements.set(last, call);
+                    call.isTailCall = true;
+                    tailCallsFound++;
+                }
+            }
+            case MethodCallStatementNode call when isSelfCall(classNode, method, call) -> {
+                call.isTailCall = true;
+                tailCallsFound++;
+            }
+            default -> { }
+        }
+    }
+
+    private static boolean isSelfCall(ClassNode classNode, MethodDeclarationNode method, MethodCallStatementNode call) {
+        if (call.objectName.isEmpty() || !call.objectName.get().equals(classNode.name))
+            return false;
+        if (Nodes.findMethod(classNode, call.methodName, call.parameters, call.returnValues.size(), true) != method)
+            return false;
+        // What the call returns goes straight back to our caller
+        if (call.returnValues.size() != method.returns.size())
+            return false;
+        for (int i = 0; i < method.returns.size(); i++)
+            if (!call.returnValues.get(i).name.equals(method.returns.get(i).name))
+                return false;
+        return true;
+    }
+}
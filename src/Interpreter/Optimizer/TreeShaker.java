@@ -0,0 +1,163 @@
+package Interpreter.Optimizer;
+
+import AST.*;
+import Interpreter.Interpreter;
+
+import java.util.*;
+
+/**
+ * Removes the classes and methods that can't be reached from the start method, so later passes and the Resolver
+ * don't spend time on them and they don't stay in memory.
+ * <br></br>
+ * Starting from start(), every reachable body is scanned for calls and "new"s. Calls on a class name reach that class's
+ * methods of the same name, unqualified calls reach methods of the same name in the same class, and calls on anything
+ * else reach every method of that name in any class that is created somewhere reachable (objects can be passed around
+ * as interfaces, so the type of the caller isn't used). Every class whose name is created reaches all of its constructors.
+ * <br></br>
+ * Built-in classes are always kept, and a loop over an object calls its getNext() without a call appearing in the AST.
+ * Classes that are kept stay in their original order.
+ */
+public class TreeShaker {
+    private static final Set<String> BUILT_IN_CLASSES = Set.of("console", "Interator");
+
+    private int classesRemoved = 0;
+    private int methodsRemoved = 0;
+
+    private Map<String, ClassNode> classes;
+    private final Set<ClassNode> usedClasses = new HashSet<>();
+    private final Set<ClassNode> createdClasses = new HashSet<>();
+    private final Set<String> calledOnObjects = new HashSet<>();
+    private final Set<MethodDeclarationNode> reachedMethods = new HashSet<>();
+    private final Deque<Runnable> work = new ArrayDeque<>();
+
+    /**
+     * Does nothing if the program has no start method, since then nothing can run (and start() will report it)
+     */
+    public void shake(TranNode top) {
+        var start = Interpreter.findStartMethod(top);
+        if (start.isEmpty())
+            return;
+        classes = new HashMap<>();
+        for (var classNode : top.Classes)
+            classes.putIfAbsent(classNode.name, classNode);
+
+        for (var classNode : top.Classes)
+            if (BUILT_IN_CLASSES.contains(classNode.name))
+                create(classNode);
+        calledOnObjects.add("getNext");
+        for (var classNode : top.Classes)
+            if (classNode.methods.contains(start.get()))
+                reach(classNode, start.get());
+        while (!work.isEmpty())
+            work.pop().run();
+
+        for (var classNode : top.Classes) {
+            int before = classNode.methods.size();
+            classNode.methods.removeIf(method -> !reachedMethods.contains(method));
+            methodsRemoved += before - classNode.methods.size();
+        }
+        int before = top.Classes.size();
+        top.Classes.removeIf(classNode -> !usedClasses.contains(classNode));
+        classesRemoved += before - top.Classes.size();
+    }
+
+    /**
+     * @return how many classes have been removed
+     */
+    public int getClassesRemoved() {
+        return classesRemoved;
+    }
+
+    /**
+     * @return how many methods have been removed, not counting the methods of removed classes
+     */
+    public int getMethodsRemoved() {
+        return methodsRemoved;
+    }
+
+    //              Reachability
+
+    private void use(ClassNode classNode) {
+        usedClasses.add(classNode);
+    }
+
+    private void create(ClassNode classNode) {
+        use(classNode);
+        if (!createdClasses.add(classNode))
+            return;
+        for (var constructor : classNode.constructors)
+            work.add(() -> scanStatements(classNode, constructor.statements));
+        for (var method : classNode.methods)
+            if (calledOnObjects.contains(method.name))
+                reach(classNode, method);
+    }
+
+    private void reach(ClassNode classNode, MethodDeclarationNode method) {
+        use(classNode);
+        if (reachedMethods.add(method))
+            work.add(() -> scanStatements(classNode, method.statements));
+    }
+
+    private void reachByName(ClassNode classNode, String methodName) {
+        for (var method : classNode.methods)
+            if (method.name.equals(methodName))
+                reach(classNode, method);
+    }
+
+    private void call(ClassNode current, Optional<String> objectName, String methodName) {
+        if (objectName.isEmpty()) {
+            reachByName(current, methodName);
+            return;
+        }
+        // A class name is a shared call, but a variable could have the same name, so count it as a call on an object too
+        var classNode = classes.get(objectName.get());
+        if (classNode != null)
+            reachByName(classNode, methodName);
+        if (calledOnObjects.add(methodName))
+            for (var created : createdClasses)
+                reachByName(created, methodName);
+    }
+
+    //              Scanning bodies
+
+    private void scanStatements(ClassNode current, List<StatementNode> statements) {
+        for (var statement : statements) {
+            if (statement instanceof AssignmentNode assignment) {
+                scanExpression(current, assignment.expression);
+            } else if (statement instanceof MethodCallStatementNode methodCall) {
+                call(current, methodCall.objectName, methodCall.methodName);
+                methodCall.parameters.forEach(p -> scanExpression(current, p));
+            } else if (statement instanceof LoopNode loop) {
+                scanExpression(current, loop.expression);
+                scanStatements(current, loop.statements);
+            } else if (statement instanceof IfNode ifNode) {
+                scanExpression(current, ifNode.condition);
+                scanStatements(current, ifNode.statements);
+                ifNode.elseStatement.ifPresent(elseNode -> scanStatements(current, elseNode.statements));
+            }
+        }
+    }
+
+    private void scanExpression(ClassNode current, ExpressionNode expression) {
+        if (expression instanceof MathOpNode mathOp) {
+            scanExpression(current, mathOp.left);
+            scanExpression(current, mathOp.right);
+        } else if (expression instanceof CompareNode compare) {
+            scanExpression(current, compare.left);
+            scanExpression(current, compare.right);
+        } else if (expression instanceof BooleanOpNode booleanOp) {
+            scanExpression(current, booleanOp.left);
+            scanExpression(current, booleanOp.right);
+        } else if (expression instanceof NotOpNode notOp) {
+            scanExpression(current, notOp.left);
+        } else if (expression instanceof MethodCallExpressionNode methodCall) {
+            call(current, methodCall.objectName, methodCall.methodName);
+            methodCall.parameters.forEach(p -> scanExpression(current, p));
+        } else if (expression instanceof NewNode newNode) {
+            var classNode = classes.get(newNode.className);
+            if (classNode != null)
+                create(classNode);
+            newNode.parameters.forEach(p -> scanExpression(current, p));
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package Interpreter;
+
+import AST.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves every variable name in the program to a fixed index, so the interpreter never has to look variables up by name.
+ * <br></br>
+ * For each method, parameters, locals and returns (in that order) get consecutive frame slots; constructors have
+ * parameters then locals. Variables that are only created implicitly (loop variables, targets of multiple-assignment
+ * method calls) get slots after those.
+ * Members are not copied into frames; references to them get the member's index into ObjectIDT.members instead.
+ * References that can't be resolved keep slot -1 and fail when (and if) they are executed.
+ */
+public class Resolver {
+    private final TranNode top;
+    private final Set<String> classNames;
+
+    public Resolver(TranNode top) {
+        this.top = top;
+        classNames = top.Classes.stream().map(c -> c.name).collect(Collectors.toSet());
+    }
+
+    public void resolve() {
+        for (var classNode : top.Classes)
+            resolveClass(classNode);
+    }
+
+    public void resolveClass(ClassNode classNode) {
+        var members = new HashMap<String, Integer>();
+        for (int i = 0; i < classNode.members.size(); i++)
+            members.put(classNode.members.get(i).declaration.name, i);
+
+        for (var method : classNode.methods) {
+            if (method instanceof BuiltInMethodDeclarationNode)
+                continue;
+            var scope = new Scope(method.isShared ? new HashMap<>() : members);
+            scope.declareAll(method.parameters);
+            scope.declareAll(method.locals);
+            scope.declareAll(method.returns);
+            declareImplicitVariables(method.statements, scope);
+            resolveStatements(method.statements, scope);
+            method.frameSize = scope.size;
+        }
+
+        for (var constructor : classNode.constructors) {
+            var scope = new Scope(members);
+            // Constructors are not allowed to shadow members
+            for (var declaration : constructor.parameters) {
+                if (scope.isDeclared(declaration.name))
+                    throw new RuntimeException("Variable %s already declared".formatted(declaration.name));
+                scope.declare(declaration.name);
+            }
+            for (var declaration : constructor.locals) {
+                if (scope.isDeclared(declaration.name))
+                    throw new RuntimeException("Variable %s already declared".formatted(declaration.name));
+                scope.declare(declaration.name);
+            }
+            declareImplicitVariables(constructor.statements, scope);
+            resolveStatements(constructor.statements, scope);
+            constructor.frameSize = scope.size;
+        }
+    }
+
+    // Loop variables and return targets that weren't declared are created when they're first written to
+    private void declareImplicitVariables(List<StatementNode> statements, Scope scope) {
+        for (var statement : statements) {
+            if (statement instanceof MethodCallStatementNode methodCall) {
+                for (var target : methodCall.returnValues)
+                    if (!scope.isDeclared(target.name))
+                        scope.declare(target.name);
+            } else if (statement instanceof LoopNode loop) {
+                loop.assignment.ifPresent(variable -> {
+                    if (!scope.isDeclared(variable.name))
+                        scope.declare(variable.name);
+                });
+                declareImplicitVariables(loop.statements, scope);
+            } else if (statement instanceof IfNode ifNode) {
+                declareImplicitVariables(ifNode.statements, scope);
+                ifNode.elseStatement.ifPresent(elseNode -> declareImplicitVariables(elseNode.statements, scope));
+            }
+        }
+    }
+
+    private void resolveStatements(List<StatementNode> statements, Scope scope) {
+        for (var statement : statements) {
+            if (statement instanceof AssignmentNode assignment) {
+                resolveReference(assignment.target, scope);
+                resolveExpression(assignment.expression, scope);
+            } else if (statement instanceof MethodCallStatementNode methodCall) {
+                methodCall.objectReference = resolveCaller(methodCall.objectName.orElse(null), scope);
+                methodCall.parameters.forEach(p -> resolveExpression(p, scope));
+                methodCall.returnValues.forEach(target -> resolveReference(target, scope));
+            } else if (statement instanceof LoopNode loop) {
+                resolveExpression(loop.expression, scope);
+                loop.assignment.ifPresent(variable -> resolveReference(variable, scope));
+                resolveStatements(loop.statements, scope);
+            } else if (statement instanceof IfNode ifNode) {
+                resolveExpression(ifNode.condition, scope);
+                resolveStatements(ifNode.statements, scope);
+                ifNode.elseStatement.ifPresent(elseNode -> resolveStatements(elseNode.statements, scope));
+            }
+        }
+    }
+
+    private void resolveExpression(ExpressionNode expression, Scope scope) {
+        if (expression instanceof VariableReferenceNode variable) {
+            resolveReference(variable, scope);
+        } else if (expression instanceof MathOpNode mathOp) {
+            resolveExpression(mathOp.left, scope);
+            resolveExpression(mathOp.right, scope);
+        } else if (expression instanceof CompareNode compare) {
+            resolveExpression(compare.left, scope);
+            resolveExpression(compare.right, scope);
+        } else if (expression instanceof BooleanOpNode booleanOp) {
+            resolveExpression(booleanOp.left, scope);
+            resolveExpression(booleanOp.right, scope);
+        } else if (expression instanceof NotOpNode notOp) {
+            resolveExpression(notOp.left, scope);
+        } else if (expression instanceof MethodCallExpressionNode methodCall) {
+            methodCall.objectReference = resolveCaller(methodCall.objectName.orElse(null), scope);
+            methodCall.parameters.forEach(p -> resolveExpression(p, scope));
+        } else if (expression instanceof NewNode newNode) {
+            newNode.parameters.forEach(p -> resolveExpression(p, scope));
+        }
+    }
+
+    // A class name as the caller means a shared method call, which has nothing to resolve
+    private VariableReferenceNode resolveCaller(String objectName, Scope scope) {
+        if (objectName == null || classNames.contains(objectName))
+            return null;
+        var caller = new VariableReferenceNode();
+        caller.name = objectName;
+        resolveReference(caller, scope);
+        return caller;
+    }
+
+    private void resolveReference(VariableReferenceNode variable, Scope scope) {
+        if (scope.locals.containsKey(variable.name)) {
+            variable.slot = scope.locals.get(variable.name);
+            variable.isMember = false;
+        } else if (scope.members.containsKey(variable.name)) {
+            variable.slot = scope.members.get(variable.name);
+            variable.isMember = true;
+        }
+    }
+
+    private static class Scope {
+        final HashMap<String, Integer> members;
+        final HashMap<String, Integer> locals = new HashMap<>();
+        int size = 0;
+
+        Scope(HashMap<String, Integer> members) {
+            this.members = members;
+        }
+
+        boolean isDeclared(String name) {
+            return locals.containsKey(name) || members.containsKey(name);
+        }
+
+        // Later declarations of the same name hide earlier ones, but every declaration keeps its own slot
+        void declare(String name) {
+            locals.put(name, size++);
+        }
+
+        void declareAll(List<VariableDeclarationNode> declarations) {
+            declarations.forEach(d -> declare(d.name));
+        }
+    }
+}
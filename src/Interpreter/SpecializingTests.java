@@ -0,0 +1,87 @@
+package Interpreter;
+
+import AST.*;
+import Interpreter.DataTypes.InterpreterDataType;
+import Interpreter.DataTypes.NumberIDT;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+// Runs every interpreter test with nodes rewriting themselves for the values they see
+public class SpecializingTests extends InterpreterTests {
+    @Override
+    protected Interpreter.Engine engine() {
+        return Interpreter.Engine.SPECIALIZING;
+    }
+
+    @Test
+    public void nodesGoBackToGenericWhenTheirValuesChange() throws Exception {
+        String program = """
+                class Tran
+                    shared num() : number n, number m
+                        n = 21
+
+                    shared str() : string s, string t
+                        s = "ab"
+
+                    shared show(boolean flag)
+                        if flag
+                            x, y = Tran.num()
+                        else
+                            x, y = Tran.str()
+                        console.write(x + x)
+
+                    shared start()
+                        Tran.show(true)
+                        Tran.show(true)
+                        Tran.show(false)
+                """;
+        var tran = parse(program);
+        var interpreter = new Interpreter(tran);
+        interpreter.setEngine(Interpreter.Engine.SPECIALIZING);
+        interpreter.start();
+
+        Assertions.assertEquals(List.of("42", "42", "abab"), getConsole(tran));
+        Assertions.assertTrue(interpreter.getSpecializations() > 0);
+        // x + x was number math, and then had to join strings
+        Assertions.assertTrue(interpreter.getDeoptimizations() > 0);
+        var write = (MethodCallStatementNode) method(tran, "show").statements.getLast();
+        var sum = (MathOpNode) write.parameters.getFirst();
+        Assertions.assertEquals(Specialization.GENERIC, sum.specialization);
+        Assertions.assertNull(sum.specialized());
+    }
+
+    @Test
+    public void rewrittenNodesRunWhatTheyWereRewrittenInto() throws Exception {
+        String program = """
+                class Tran
+                    shared twice(number x) : number y
+                        y = x + x
+
+                    shared start()
+                        console.write(Tran.twice(1), " ", Tran.twice(20))
+                """;
+        var tran = parse(program);
+        var interpreter = new Interpreter(tran, notInlining());
+        interpreter.setEngine(Interpreter.Engine.SPECIALIZING);
+        interpreter.start();
+
+        Assertions.assertEquals(List.of("2 40"), getConsole(tran));
+        var assignment = (AssignmentNode) method(tran, "twice").statements.getFirst();
+        var sum = (MathOpNode) assignment.expression;
+        Assertions.assertEquals(Specialization.NUMBER, sum.specialization);
+        // evaluate() runs this instead of looking at what kind of node it is
+        var locals = new InterpreterDataType[] { new NumberIDT(4), null };
+        Assertions.assertEquals("8", sum.specialized().evaluate(locals, Optional.empty()).toString());
+    }
+
+    private static MethodDeclarationNode method(TranNode tran, String name) {
+        return tran.Classes.stream()
+                .flatMap(classNode -> classNode.methods.stream())
+                .filter(method -> method.name.equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,266 @@
+package Interpreter;
+
+import AST.LoopNode;
+import AST.MethodDeclarationNode;
+import Interpreter.Compiled.CompiledMethod;
+import Interpreter.Compiled.Compiler;
+import Interpreter.Compiled.LoopContinuation;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Decides when the TIERED engine stops walking a method's AST and runs it compiled (see Interpreter.Compiled).
+ * <br></br>
+ * Every method starts out INTERPRETED. Each call, and each time one of its loops goes round, counts towards the
+ * threshold; once it is reached the method is queued for the compiler thread and is COMPILING. The compiler thread
+ * compiles the body and installs it with a compare-and-set, after which the interpreter calls the compiled method
+ * instead: it is COMPILED.
+ * <br></br>
+ * A method that is only called once never gets there, however long its loops run, so loops are counted on their own
+ * too. A loop that goes round threshold times is compiled the same way, and the tree walker hands the running loop
+ * over to the compiled one between two iterations (on-stack replacement).
+ * <br></br>
+ * The counters are only touched by the thread running the program. The compiler thread only ever sets a method's
+ * compiled entry point, or marks it as failed, so neither thread waits for the other. A method or loop the compiler
+ * fails on goes back to INTERPRETED, and stays there. When the program's thread gets to run the compiled code depends on
+ * the compiler thread, so tests that need to know use forceTier(COMPILED), which compiles on the program's own thread.
+ * <br></br>
+ * A compiled method or loop is never slower than walking it: a loop over n.times() that the tree walker counts with an
+ * int carries on counting in the compiled loop, instead of going over an iterator.
+ */
+public class TieredExecution {
+    public enum Tier { INTERPRETED, COMPILING, COMPILED }
+
+    /**
+     * A method going from one tier to the next
+     */
+    public record Transition(MethodDeclarationNode method, Tier from, Tier to) {
+    }
+
+    /**
+     * What is known about one method
+     */
+    public static final class Profile {
+        public final MethodDeclarationNode method;
+        private long invocations;
+        private long backEdges;
+        private boolean queued;
+        // Set by the compiler thread if the method couldn't be compiled
+        private volatile boolean failed;
+        private final AtomicReference<CompiledMethod> compiled = new AtomicReference<>();
+
+        private Profile(MethodDeclarationNode method) {
+            this.method = method;
+        }
+
+        public long getInvocations() {
+            return invocations;
+        }
+
+        // How many times the method's loops have gone round
+        public long getBackEdges() {
+            return backEdges;
+        }
+
+        public Tier getTier() {
+            if (compiled.get() != null)
+                return Tier.COMPILED;
+            return queued && !failed ? Tier.COMPILING : Tier.INTERPRETED;
+        }
+    }
+
+    /**
+     * What is known about one loop
+     */
+    public static final class LoopProfile {
+        public final LoopNode loop;
+        private long backEdges;
+        private long replacements;
+        private boolean queued;
+        private volatile boolean failed;
+        private final AtomicReference<LoopContinuation> compiled = new AtomicReference<>();
+
+        private LoopProfile(LoopNode loop) {
+            this.loop = loop;
+        }
+
+        public long getBackEdges() {
+            return backEdges;
+        }
+
+        // How many times a running loop has been handed over to the compiled one
+        public long getReplacements() {
+            return replacements;
+        }
+
+        public Tier getTier() {
+            if (compiled.get() != null)
+                return Tier.COMPILED;
+            return queued && !failed ? Tier.COMPILING : Tier.INTERPRETED;
+        }
+    }
+
+    private final Compiler compiler;
+    private final int threshold;
+    private final Tier forcedTier;
+    private final Map<MethodDeclarationNode, Profile> profiles = new IdentityHashMap<>();
+    private final Map<LoopNode, LoopProfile> loops = new IdentityHashMap<>();
+    private final ConcurrentLinkedQueue<Transition> transitions = new ConcurrentLinkedQueue<>();
+    private final ExecutorService compilerThread = Executors.newSingleThreadExecutor(task -> {
+        var thread = new Thread(task, "Tran compiler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param compiler - compiles the methods that get hot
+     * @param threshold - how many calls and loop iterations make a method hot
+     * @param forcedTier - null to go by the counters; INTERPRETED to never compile; COMPILED to compile every method
+     *                   on its first call, on the thread running the program
+     */
+    public TieredExecution(Compiler compiler, int threshold, Tier forcedTier) {
+        if (threshold < 1)
+            throw new IllegalArgumentException("Tier threshold must be at least 1");
+        if (forcedTier == Tier.COMPILING)
+            throw new IllegalArgumentException("Can't force a method to stay compiling");
+        this.compiler = compiler;
+        this.threshold = threshold;
+        this.forcedTier = forcedTier;
+    }
+
+    /**
+     * Count a call to the method.
+     * @return the method's profile, which the method's loops count their iterations in
+     */
+    Profile enter(MethodDeclarationNode method) {
+        var profile = profiles.computeIfAbsent(method, Profile::new);
+        profile.invocations++;
+        if (forcedTier != Tier.COMPILED)
+            checkHot(profile);
+        else if (profile.compiled.get() == null && !profile.failed)
+            install(profile, Tier.INTERPRETED);
+        return profile;
+    }
+
+    /**
+     * @return the compiled method to run instead of walking the AST, or null if it isn't compiled yet
+     */
+    CompiledMethod compiledCode(Profile profile) {
+        return profile.compiled.get();
+    }
+
+    /**
+     * One of the method's loops went round.
+     * @param profile - the method's profile, or null if the loop is in a constructor
+     * @return the compiled loop to carry on in, or null to keep walking the AST
+     */
+    LoopContinuation backEdge(Profile profile, LoopNode loop) {
+        if (profile != null) {
+            profile.backEdges++;
+            checkHot(profile);
+        }
+        var loopProfile = loops.computeIfAbsent(loop, LoopProfile::new);
+        loopProfile.backEdges++;
+        var continuation = loopProfile.compiled.get();
+        if (continuation == null && !loopProfile.queued && forcedTier != Tier.INTERPRETED
+                && (forcedTier == Tier.COMPILED || loopProfile.backEdges >= threshold)) {
+            loopProfile.queued = true;
+            if (forcedTier == Tier.COMPILED) {
+                install(loopProfile);
+                continuation = loopProfile.compiled.get();
+            } else {
+                compilerThread.execute(() -> install(loopProfile));
+            }
+        }
+        if (continuation != null)
+            loopProfile.replacements++;
+        return continuation;
+    }
+
+    private void checkHot(Profile profile) {
+        if (profile.queued || forcedTier == Tier.INTERPRETED || profile.invocations + profile.backEdges < threshold)
+            return;
+        profile.queued = true;
+        transitions.add(new Transition(profile.method, Tier.INTERPRETED, Tier.COMPILING));
+        compilerThread.execute(() -> install(profile, Tier.COMPILING));
+    }
+
+    private void install(Profile profile, Tier from) {
+        CompiledMethod method;
+        try {
+            method = compiler.methodFor(profile.method);
+            method.compile();
+        } catch (RuntimeException e) {
+            // The interpreter carries on walking the method, and it isn't queued again
+            profile.failed = true;
+            if (from != Tier.INTERPRETED)
+                transitions.add(new Transition(profile.method, from, Tier.INTERPRETED));
+            return;
+        }
+        if (profile.compiled.compareAndSet(null, method))
+            transitions.add(new Transition(profile.method, from, Tier.COMPILED));
+    }
+
+    private void install(LoopProfile profile) {
+        LoopContinuation continuation;
+        try {
+            continuation = compiler.continuationOf(profile.loop);
+        } catch (RuntimeException e) {
+            profile.failed = true;
+            return;
+        }
+        profile.compiled.compareAndSet(null, continuation);
+    }
+
+    /**
+     * Let the compiler thread finish what it has been given, and stop it.
+     */
+    void shutDown() {
+        compilerThread.shutdown();
+    }
+
+    /**
+     * Wait for the compiler thread to finish what it has been given, so the tiers stop changing.
+     */
+    public void awaitCompilations() throws InterruptedException {
+        compilerThread.shutdown();
+        if (!compilerThread.awaitTermination(1, TimeUnit.MINUTES))
+            throw new RuntimeException("Compiler thread didn't finish");
+    }
+
+    /**
+     * @return the profile of the method, or null if it has never been called
+     */
+    public Profile profileOf(MethodDeclarationNode method) {
+        return profiles.get(method);
+    }
+
+    /**
+     * @return the profiles of every method that has been called
+     */
+    public List<Profile> getProfiles() {
+        return new ArrayList<>(profiles.values());
+    }
+
+    /**
+     * @return the profile of the loop, or null if it has never gone round
+     */
+    public LoopProfile loopProfileOf(LoopNode loop) {
+        return loops.get(loop);
+    }
+
+    /**
+     * @return every change of tier so far, oldest first
+     */
+    public List<Transition> getTransitions() {
+        return new ArrayList<>(transitions);
+    }
+}
@@ -0,0 +1,218 @@
+package Interpreter;
+
+import AST.LoopNode;
+import AST.MethodDeclarationNode;
+import AST.TranNode;
+import Interpreter.Compiled.CompiledMethod;
+import Interpreter.Compiled.Compiler;
+import Interpreter.Optimizer.Optimizer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+// Runs every interpreter test with methods moving to the compiled tier after a couple of calls
+public class TieredTests extends InterpreterTests {
+    private static final String PROGRAM = """
+            class Tran
+                shared fib(number n) : number result
+                    number a
+                    if n < 2
+                        result = n
+                    else
+                        a = Tran.fib(n - 1)
+                        result = a + Tran.fib(n - 2)
+
+                shared count(number n) : number total
+                    number i
+                    loop i = n.times()
+                        total = total + i
+
+                shared start()
+                    console.write(Tran.fib(15), " ", Tran.count(50))
+            """;
+
+    @Override
+    protected Interpreter.Engine engine() {
+        return Interpreter.Engine.TIERED;
+    }
+
+    @Override
+    protected void configure(Interpreter interpreter) {
+        interpreter.setTierThreshold(2);
+    }
+
+    @Test
+    public void hotMethodsAreCompiled() throws Exception {
+        var tran = parse();
+        var interpreter = new Interpreter(tran, notInlining());
+        interpreter.setEngine(Interpreter.Engine.TIERED);
+        interpreter.setTierThreshold(10);
+        interpreter.start();
+        var tiers = interpreter.getTieredExecution();
+        tiers.awaitCompilations();
+
+        Assertions.assertEquals(List.of("610 1275"), getConsole(tran));
+        var fib = tiers.profileOf(method(tran, "fib"));
+        Assertions.assertEquals(TieredExecution.Tier.COMPILED, fib.getTier());
+        // Counted until the compiled fib took over its own calls
+        Assertions.assertTrue(fib.getInvocations() >= 10);
+        // count() is called once, but its loop goes round 50 times
+        var count = tiers.profileOf(method(tran, "count"));
+        Assertions.assertEquals(1, count.getInvocations());
+        Assertions.assertTrue(count.getBackEdges() >= 9);
+        Assertions.assertEquals(TieredExecution.Tier.COMPILED, count.getTier());
+        Assertions.assertEquals(TieredExecution.Tier.INTERPRETED, tiers.profileOf(method(tran, "start")).getTier());
+        Assertions.assertTrue(tiers.getTransitions().contains(
+                new TieredExecution.Transition(fib.method, TieredExecution.Tier.COMPILING, TieredExecution.Tier.COMPILED)));
+    }
+
+    @Test
+    public void tiersCanBeForced() throws Exception {
+        for (var tier : List.of(TieredExecution.Tier.INTERPRETED, TieredExecution.Tier.COMPILED)) {
+            var tran = parse();
+            var interpreter = new Interpreter(tran, notInlining());
+            interpreter.setEngine(Interpreter.Engine.TIERED);
+            interpreter.setTierThreshold(1);
+            interpreter.forceTier(tier);
+            interpreter.start();
+            var tiers = interpreter.getTieredExecution();
+            tiers.awaitCompilations();
+
+            Assertions.assertEquals(List.of("610 1275"), getConsole(tran));
+            for (var profile : tiers.getProfiles())
+                Assertions.assertEquals(tier, profile.getTier(), profile.method.name);
+        }
+    }
+
+    @Test
+    public void longLoopsAreReplacedWhileRunning() throws Exception {
+        String program = """
+                class Tran
+                    shared start()
+                        number i
+                        number n
+                        number total
+                        number countdown
+                        n = 2000
+                        loop i = n.times()
+                            total = total + i
+                        countdown = 20000
+                        loop countdown > 0
+                            countdown = countdown - 1
+                        console.write(total, " ", countdown)
+                """;
+        var tran = parse(program);
+        var interpreter = new Interpreter(tran);
+        interpreter.setEngine(Interpreter.Engine.TIERED);
+        interpreter.setTierThreshold(100);
+        interpreter.start();
+        var tiers = interpreter.getTieredExecution();
+        tiers.awaitCompilations();
+
+        // start() is only called once, so only its loops can be compiled; whenever they were, they carried on from there
+        Assertions.assertEquals(List.of("2001000 0"), getConsole(tran));
+        var start = method(tran, "start");
+        Assertions.assertEquals(1, tiers.profileOf(start).getInvocations());
+        for (var statement : start.statements) {
+            if (!(statement instanceof LoopNode loop))
+                continue;
+            var profile = tiers.loopProfileOf(loop);
+            Assertions.assertEquals(TieredExecution.Tier.COMPILED, profile.getTier());
+            Assertions.assertTrue(profile.getBackEdges() >= 100);
+            Assertions.assertTrue(profile.getReplacements() <= 1);
+        }
+    }
+
+    @Test
+    public void comparisonsDontDependOnWhenMethodsAreCompiled() throws Exception {
+        String program = """
+                class Tran
+                    shared same() : boolean result
+                        result = true == true
+
+                    shared start()
+                        number i
+                        number n
+                        boolean same
+                        n = 4
+                        loop i = n.times()
+                            same = Tran.same()
+                            console.write(same)
+                """;
+        for (int threshold = 1; threshold <= 3; threshold++) {
+            var tran = parse(program);
+            var interpreter = new Interpreter(tran, notInlining());
+            interpreter.setEngine(Interpreter.Engine.TIERED);
+            interpreter.setTierThreshold(threshold);
+            interpreter.start();
+            interpreter.getTieredExecution().awaitCompilations();
+            Assertions.assertEquals(List.of("false", "false", "false", "false"), getConsole(tran), "threshold " + threshold);
+        }
+    }
+
+    @Test
+    public void methodsThatFailToCompileStayInterpreted() throws Exception {
+        var tran = parse();
+        var interpreter = new Interpreter(tran);
+        var failing = new Compiler(interpreter, tran, null, -1) {
+            @Override
+            public CompiledMethod methodFor(MethodDeclarationNode method) {
+                throw new RuntimeException("Can't compile " + method.name);
+            }
+        };
+        var fib = method(tran, "fib");
+        var tiers = new TieredExecution(failing, 2, null);
+        tiers.enter(fib);
+        tiers.enter(fib);
+        tiers.awaitCompilations();
+
+        var profile = tiers.profileOf(fib);
+        Assertions.assertEquals(TieredExecution.Tier.INTERPRETED, profile.getTier());
+        Assertions.assertEquals(List.of(
+                new TieredExecution.Transition(fib, TieredExecution.Tier.INTERPRETED, TieredExecution.Tier.COMPILING),
+                new TieredExecution.Transition(fib, TieredExecution.Tier.COMPILING, TieredExecution.Tier.INTERPRETED)),
+                tiers.getTransitions());
+        // It isn't queued again
+        Assertions.assertEquals(TieredExecution.Tier.INTERPRETED, tiers.enter(fib).getTier());
+        Assertions.assertEquals(2, tiers.getTransitions().size());
+    }
+
+    private static final String TIMES_LOOP = """
+            class Tran
+                shared start()
+                    number i
+                    number n
+                    number total
+                    n = %d
+                    loop i = n.times()
+                        total = i
+                    console.write(total)
+            """;
+
+    @Test
+    public void compiledTimesLoopsKeepCounting() throws Exception {
+        // Forced, so the loop doesn't depend on when the compiler thread gets to run
+        Consumer<Interpreter> compiled = interpreter -> interpreter.forceTier(TieredExecution.Tier.COMPILED);
+        // Warm up, so the JIT doesn't make the second run's allocations different
+        allocatedRunning(TIMES_LOOP.formatted(1000), Interpreter.Engine.TIERED, new Optimizer(), compiled);
+        long few = allocatedRunning(TIMES_LOOP.formatted(1000), Interpreter.Engine.TIERED, new Optimizer(), compiled);
+        long many = allocatedRunning(TIMES_LOOP.formatted(201000), Interpreter.Engine.TIERED, new Optimizer(), compiled);
+        // The compiled loop counts, instead of calling an iterator's getNext() every time round: less than a byte for
+        // each of the extra 200000 times
+        Assertions.assertTrue(many - few < 200000, "%d bytes more".formatted(many - few));
+    }
+
+    private static TranNode parse() throws Exception {
+        return parse(PROGRAM);
+    }
+
+    private static MethodDeclarationNode method(TranNode tran, String name) {
+        return tran.Classes.stream()
+                .flatMap(classNode -> classNode.methods.stream())
+                .filter(method -> method.name.equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+}
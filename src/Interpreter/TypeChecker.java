@@ -0,0 +1,393 @@
+package Interpreter;
+
+import AST.*;
+
+import java.util.*;
+
+/**
+ * Checks the types of the whole program before it runs, and records what it proves on the AST so that the interpreter
+ * doesn't have to discover them again.
+ * <br></br>
+ * Primitive variables always hold a value of their declared type (assignments and method calls check this when they
+ * run), so the type of any expression built from them can be worked out from the declarations. Objects are different:
+ * any object can be assigned to any reference, so the checker only tells objects apart from primitives, and a call on
+ * an object only gets a type if every method it could reach agrees on it.
+ * <br></br>
+ * Only things that are certain to fail when they run are reported. All errors are reported together, by throwing from
+ * check().
+ */
+public class TypeChecker {
+    private static final int UNSET = -2;
+
+    private final TranNode top;
+    private final TypeTable types;
+    private final HashMap<String, ClassNode> classes = new HashMap<>();
+    private final int interatorTypeId;
+    private final List<String> errors = new ArrayList<>();
+    // Errors are only collected on the last walk over a body, once the implicit variables' types have settled
+    private boolean reporting;
+
+    public TypeChecker(TranNode top, TypeTable types) {
+        this.top = top;
+        this.types = types;
+        for (var classNode : top.Classes)
+            classes.putIfAbsent(classNode.name, classNode);
+        interatorTypeId = types.idOf("Interator");
+    }
+
+    /**
+     * Check every method and constructor body, annotating the AST as it goes.
+     * Throws a RuntimeException listing every type error, if there are any.
+     */
+    public void check() {
+        for (var classNode : top.Classes) {
+            for (var method : classNode.methods) {
+                if (method instanceof BuiltInMethodDeclarationNode)
+                    continue;
+                var scope = new Scope(classNode, method.isShared, "%s.%s".formatted(classNode.name, method.name));
+                scope.declareAll(method.parameters);
+                scope.declareAll(method.locals);
+                scope.declareAll(method.returns);
+                checkBody(method.statements, scope);
+            }
+            for (var constructor : classNode.constructors) {
+                var scope = new Scope(classNode, false, "%s.construct".formatted(classNode.name));
+                scope.declareAll(constructor.parameters);
+                scope.declareAll(constructor.locals);
+                checkBody(constructor.statements, scope);
+            }
+        }
+        if (!errors.isEmpty())
+            throw new RuntimeException("Type errors:\n" + String.join("\n", errors));
+    }
+
+    private void checkBody(List<StatementNode> statements, Scope scope) {
+        declareImplicitVariables(statements, scope);
+        // Implicit variables get their type from the statements that create them, which may come after their uses
+        reporting = false;
+        do {
+            scope.changed = false;
+            checkStatements(statements, scope);
+        } while (scope.changed);
+        reporting = true;
+        checkStatements(statements, scope);
+    }
+
+    private void declareImplicitVariables(List<StatementNode> statements, Scope scope) {
+        for (var statement : statements) {
+            if (statement instanceof MethodCallStatementNode methodCall) {
+                for (var target : methodCall.returnValues)
+                    if (!scope.isDeclared(target.name))
+                        scope.implicit.put(target.name, UNSET);
+            } else if (statement instanceof LoopNode loop) {
+                loop.assignment.ifPresent(variable -> {
+                    if (!scope.isDeclared(variable.name))
+                        scope.implicit.put(variable.name, UNSET);
+                });
+                declareImplicitVariables(loop.statements, scope);
+            } else if (statement instanceof IfNode ifNode) {
+                declareImplicitVariables(ifNode.statements, scope);
+                ifNode.elseStatement.ifPresent(elseNode -> declareImplicitVariables(elseNode.statements, scope));
+            }
+        }
+    }
+
+    //              Statements
+
+    private void checkStatements(List<StatementNode> statements, Scope scope) {
+        for (var statement : statements) {
+            if (statement instanceof AssignmentNode assignment) {
+                var target = typeOfVariable(assignment.target, scope);
+                var value = typeOf(assignment.expression, scope);
+                checkAssignable(target, value, assignment.target.name, scope);
+            } else if (statement instanceof MethodCallStatementNode methodCall) {
+                var returned = typeOfCall(methodCall.objectName, methodCall.methodName, methodCall.parameters, methodCall.returnValues.size(), scope);
+                for (int i = 0; i < methodCall.returnValues.size(); i++)
+                    store(methodCall.returnValues.get(i), returned.size() > i ? returned.get(i) : TypeTable.UNKNOWN, scope);
+            } else if (statement instanceof LoopNode loop) {
+                checkLoop(loop, scope);
+            } else if (statement instanceof IfNode ifNode) {
+                ifNode.conditionType = typeOf(ifNode.condition, scope);
+                if (ifNode.conditionType != TypeTable.UNKNOWN && ifNode.conditionType != TypeTable.BOOLEAN)
+                    error(scope, "Expected boolean expression, found %s: %s", types.nameOf(ifNode.conditionType), ifNode.condition);
+                checkStatements(ifNode.statements, scope);
+                ifNode.elseStatement.ifPresent(elseNode -> checkStatements(elseNode.statements, scope));
+            }
+        }
+    }
+
+    private void checkLoop(LoopNode loop, Scope scope) {
+        loop.expressionType = typeOf(loop.expression, scope);
+        int element;
+        if (loop.expressionType == TypeTable.BOOLEAN) {
+            element = TypeTable.BOOLEAN;
+        } else if (TypeTable.isPrimitive(loop.expressionType)) {
+            error(scope, "Iterator or Boolean expected as condition, found %s: %s", types.nameOf(loop.expressionType), loop.expression);
+            element = TypeTable.UNKNOWN;
+        } else if (loop.expressionType == interatorTypeId) {
+            element = TypeTable.NUMBER;
+        } else {
+            // Could be any object with a getNext(), including the built-in one
+            var getNexts = new ArrayList<MethodDeclarationNode>();
+            for (var classNode : top.Classes)
+                for (var method : classNode.methods)
+                    if (method.name.equals("getNext") && method.parameters.isEmpty() && method.returns.size() >= 2)
+                        getNexts.add(method);
+            element = agreedReturnTypes(getNexts, List.of(TypeTable.BOOLEAN, TypeTable.NUMBER)).get(1);
+        }
+        loop.assignment.ifPresent(variable -> store(variable, element, scope));
+        checkStatements(loop.statements, scope);
+    }
+
+    // A loop variable or return target; implicit variables get their type from here
+    private void store(VariableReferenceNode variable, int value, Scope scope) {
+        if (scope.implicit.containsKey(variable.name)) {
+            int current = scope.implicit.get(variable.name);
+            if (current == UNSET || (current != value && current != TypeTable.UNKNOWN)) {
+                scope.implicit.put(variable.name, current == UNSET ? value : TypeTable.UNKNOWN);
+                scope.changed = true;
+            }
+            variable.type = scope.implicit.get(variable.name);
+        } else {
+            checkAssignable(typeOfVariable(variable, scope), value, variable.name, scope);
+        }
+    }
+
+    private void checkAssignable(int target, int value, String name, Scope scope) {
+        if (target == TypeTable.UNKNOWN || value == TypeTable.UNKNOWN)
+            return;
+        if (TypeTable.isPrimitive(target) ? target != value : TypeTable.isPrimitive(value))
+            error(scope, "Cannot store a %s in %s %s", types.nameOf(value), types.nameOf(target), name);
+    }
+
+    //              Expressions
+
+    /**
+     * Work out the type of an expression, annotating it (and everything inside it) on the way.
+     * @return the type ID, or UNKNOWN if it can't be known before running
+     */
+    private int typeOf(ExpressionNode expression, Scope scope) {
+        if (expression instanceof BooleanLiteralNode) {
+            return TypeTable.BOOLEAN;
+        } else if (expression instanceof NumericLiteralNode) {
+            return TypeTable.NUMBER;
+        } else if (expression instanceof StringLiteralNode) {
+            return TypeTable.STRING;
+        } else if (expression instanceof CharLiteralNode) {
+            return TypeTable.CHARACTER;
+        } else if (expression instanceof VariableReferenceNode variable) {
+            return typeOfVariable(variable, scope);
+        } else if (expression instanceof MathOpNode mathOp) {
+            mathOp.type = typeOfMath(mathOp, typeOf(mathOp.left, scope), typeOf(mathOp.right, scope), scope);
+            return mathOp.type;
+        } else if (expression instanceof CompareNode compare) {
+            int l = typeOf(compare.left, scope);
+            int r = typeOf(compare.right, scope);
+            boolean isEquality = compare.op == CompareNode.CompareOperations.eq || compare.op == CompareNode.CompareOperations.ne;
+            if (!isEquality && l != TypeTable.UNKNOWN && r != TypeTable.UNKNOWN && (l != TypeTable.NUMBER || r != TypeTable.NUMBER))
+                error(scope, "Undefined operation: %s %s %s", types.nameOf(l), compare.op, types.nameOf(r));
+            compare.operandType = (l == r) ? l : TypeTable.UNKNOWN;
+            return TypeTable.BOOLEAN;
+        } else if (expression instanceof BooleanOpNode booleanOp) {
+            expectBoolean(booleanOp.left, scope);
+            expectBoolean(booleanOp.right, scope);
+            return TypeTable.BOOLEAN;
+        } else if (expression instanceof NotOpNode notOp) {
+            expectBoolean(notOp.left, scope);
+            return TypeTable.BOOLEAN;
+        } else if (expression instanceof MethodCallExpressionNode methodCall) {
+            var returned = typeOfCall(methodCall.objectName, methodCall.methodName, methodCall.parameters, 1, scope);
+            return returned.isEmpty() ? TypeTable.UNKNOWN : returned.getFirst();
+        } else if (expression instanceof NewNode newNode) {
+            return typeOfNew(newNode, scope);
+        }
+        return TypeTable.UNKNOWN;
+    }
+
+    private int typeOfVariable(VariableReferenceNode variable, Scope scope) {
+        if (scope.declared.containsKey(variable.name)) {
+            variable.type = scope.declared.get(variable.name);
+        } else if (scope.implicit.containsKey(variable.name)) {
+            int type = scope.implicit.get(variable.name);
+            variable.type = (type == UNSET) ? TypeTable.UNKNOWN : type;
+        } else {
+            error(scope, "Unable to find variable %s", variable.name);
+            variable.type = TypeTable.UNKNOWN;
+        }
+        return variable.type;
+    }
+
+    private int typeOfMath(MathOpNode mathOp, int l, int r, Scope scope) {
+        if (l == TypeTable.UNKNOWN || r == TypeTable.UNKNOWN)
+            return TypeTable.UNKNOWN;
+        if (l == TypeTable.NUMBER && r == TypeTable.NUMBER)
+            return TypeTable.NUMBER;
+        if ((l == TypeTable.STRING && (r == TypeTable.STRING || r == TypeTable.CHARACTER)) || (l == TypeTable.CHARACTER && r == TypeTable.STRING))
+            return TypeTable.STRING;
+        error(scope, "Undefined operation: '%s %s %s' in %s", types.nameOf(l), mathOp.op, types.nameOf(r), mathOp);
+        return TypeTable.UNKNOWN;
+    }
+
+    private void expectBoolean(ExpressionNode expression, Scope scope) {
+        int type = typeOf(expression, scope);
+        if (type != TypeTable.UNKNOWN && type != TypeTable.BOOLEAN)
+            error(scope, "Expected boolean, found %s: %s", types.nameOf(type), expression);
+    }
+
+    private int typeOfNew(NewNode newNode, Scope scope) {
+        var arguments = newNode.parameters.stream().map(p -> typeOf(p, scope)).toList();
+        var classNode = classes.get(newNode.className);
+        if (classNode == null) {
+            error(scope, "Class not found for constructor: %s", newNode);
+            return TypeTable.UNKNOWN;
+        }
+        boolean anyMatch = classNode.constructors.stream().anyMatch(c -> argumentsMatch(c.parameters, arguments));
+        if (!anyMatch)
+            error(scope, "Constructor not found for %s", newNode);
+        return classNode.typeId;
+    }
+
+    //              Method calls
+
+    /**
+     * Find every method a call could run, and work out the types they return.
+     * @return the type of each return value that all the candidates agree on (UNKNOWN where they don't)
+     */
+    private List<Integer> typeOfCall(Optional<String> objectName, String methodName, List<ExpressionNode> parameters, int returnCount, Scope scope) {
+        var arguments = parameters.stream().map(p -> typeOf(p, scope)).toList();
+        List<MethodDeclarationNode> candidates;
+
+        if (objectName.isEmpty()) {
+            // Methods on the object we're inside
+            candidates = matchingMethods(scope.owner.methods, methodName, arguments, returnCount, false);
+            if (candidates.isEmpty())
+                error(scope, "Unable to resolve method call %s", methodName);
+            return agreedReturnTypes(candidates, List.of());
+        }
+
+        var classNode = classes.get(objectName.get());
+        if (classNode != null) {
+            // Shared method on a class
+            candidates = matchingMethods(classNode.methods, methodName, arguments, returnCount, true);
+            if (candidates.isEmpty())
+                error(scope, "shared method '%s' not found in '%s'", methodName, classNode.name);
+            return agreedReturnTypes(candidates, List.of());
+        }
+
+        // Method on a variable
+        var caller = new VariableReferenceNode();
+        caller.name = objectName.get();
+        int callerType = typeOfVariable(caller, scope);
+        if (callerType == TypeTable.NUMBER) {
+            if (!methodName.equals("times") || !arguments.isEmpty()) {
+                error(scope, "Method %s not found for type <Number>", methodName);
+                return List.of();
+            }
+            return List.of(interatorTypeId);
+        }
+        if (TypeTable.isPrimitive(callerType)) {
+            error(scope, "Method %s not found in %s", methodName, objectName.get());
+            return List.of();
+        }
+        if (methodName.equals("clone"))
+            return List.of(callerType);
+        // The object could be of any class
+        candidates = new ArrayList<>();
+        for (var anyClass : top.Classes)
+            candidates.addAll(matchingMethods(anyClass.methods, methodName, arguments, returnCount, false));
+        var builtIn = methodName.equals("getNext") && arguments.isEmpty() ? List.of(TypeTable.BOOLEAN, TypeTable.NUMBER) : List.<Integer>of();
+        if (candidates.isEmpty() && builtIn.isEmpty()) {
+            error(scope, "Unable to resolve method call %s.%s", objectName.get(), methodName);
+            return List.of();
+        }
+        return agreedReturnTypes(candidates, builtIn);
+    }
+
+    private List<MethodDeclarationNode> matchingMethods(List<MethodDeclarationNode> methods, String name, List<Integer> arguments, int returnCount, boolean sharedOnly) {
+        var matching = new ArrayList<MethodDeclarationNode>();
+        for (var method : methods) {
+            if (!method.name.equals(name) || method.returns.size() < returnCount)
+                continue;
+            if (sharedOnly && (!method.isShared || method.isPrivate))
+                continue;
+            if ((method instanceof BuiltInMethodDeclarationNode builtIn && builtIn.isVariadic) || argumentsMatch(method.parameters, arguments))
+                matching.add(method);
+        }
+        return matching;
+    }
+
+    // Objects are only checked at runtime, so any object (or unknown) argument can match any non-primitive parameter
+    private boolean argumentsMatch(List<VariableDeclarationNode> parameters, List<Integer> arguments) {
+        if (parameters.size() != arguments.size())
+            return false;
+        for (int i = 0; i < parameters.size(); i++) {
+            int parameter = parameters.get(i).typeId;
+            int argument = arguments.get(i);
+            if (argument == TypeTable.UNKNOWN)
+                continue;
+            if (TypeTable.isPrimitive(parameter) ? parameter != argument : TypeTable.isPrimitive(argument))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param candidates the methods that might run
+     * @param builtIn the return types of a built-in method that might also run (empty if none)
+     * @return for each return value that every candidate has, its type if they all agree (any object type if they are
+     * all objects), else UNKNOWN
+     */
+    private List<Integer> agreedReturnTypes(List<MethodDeclarationNode> candidates, List<Integer> builtIn) {
+        var all = new ArrayList<List<Integer>>();
+        for (var method : candidates)
+            all.add(method.returns.stream().map(r -> r.typeId).toList());
+        if (!builtIn.isEmpty())
+            all.add(builtIn);
+        if (all.isEmpty())
+            return List.of();
+
+        int count = all.stream().mapToInt(List::size).min().orElse(0);
+        var agreed = new ArrayList<Integer>(count);
+        for (int i = 0; i < count; i++) {
+            int first = all.getFirst().get(i);
+            boolean allSame = true, allObjects = true;
+            for (var returns : all) {
+                allSame &= returns.get(i) == first;
+                allObjects &= !TypeTable.isPrimitive(returns.get(i)) && returns.get(i) != TypeTable.UNKNOWN;
+            }
+            agreed.add(allSame || allObjects ? first : TypeTable.UNKNOWN);
+        }
+        return agreed;
+    }
+
+    private void error(Scope scope, String format, Object... args) {
+        if (reporting)
+            errors.add("In %s: %s".formatted(scope.where, format.formatted(args)));
+    }
+
+    private static class Scope {
+        final ClassNode owner;
+        final String where;
+        // Members (unless shared), parameters, locals and returns; later declarations hide earlier ones
+        final HashMap<String, Integer> declared = new HashMap<>();
+        // Loop variables and return targets that weren't declared, and their type so far
+        final HashMap<String, Integer> implicit = new HashMap<>();
+        boolean changed;
+
+        Scope(ClassNode owner, boolean isShared, String where) {
+            this.owner = owner;
+            this.where = where;
+            if (!isShared)
+                for (var member : owner.members)
+                    declared.put(member.declaration.name, member.declaration.typeId);
+        }
+
+        boolean isDeclared(String name) {
+            return declared.containsKey(name);
+        }
+
+        void declareAll(List<VariableDeclarationNode> declarations) {
+            declarations.forEach(d -> declared.put(d.name, d.typeId));
+        }
+    }
+}
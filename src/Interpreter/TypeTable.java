@@ -0,0 +1,111 @@
+package Interpreter;
+
+import AST.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Gives every type in the program a small integer ID, so that type checks don't need to compare strings.
+ * <br></br>
+ * The primitive types have fixed IDs. Every class, interface, and any other type name used in a declaration gets the
+ * next free ID when the program is loaded. For each class, the set of types it can be used as (itself and the
+ * interfaces it implements) is stored as a bitset, so "is this object a T?" is a single bit test.
+ */
+public final class TypeTable {
+    public static final int UNKNOWN = -1;
+    public static final int BOOLEAN = 0;
+    public static final int NUMBER = 1;
+    public static final int STRING = 2;
+    public static final int CHARACTER = 3;
+
+    private final HashMap<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    // supertypes.get(id) is the set of type IDs a value of type `id` can be used as; empty for non-classes
+    private final List<BitSet> supertypes = new ArrayList<>();
+
+    public TypeTable() {
+        idOf("boolean");
+        idOf("number");
+        idOf("string");
+        idOf("character");
+    }
+
+    /**
+     * Assign IDs to every class and interface, precompute what each class implements, and record the ID of every
+     * declared type on its VariableDeclarationNode.
+     * @param top - the head of the AST, with the built-in classes and interfaces already added
+     */
+    public void register(TranNode top) {
+        for (var interfaceNode : top.Interfaces) {
+            idOf(interfaceNode.name);
+            for (var header : interfaceNode.methods) {
+                registerDeclarations(header.parameters);
+                registerDeclarations(header.returns);
+            }
+        }
+        for (var classNode : top.Classes)
+            registerClass(classNode);
+    }
+
+    public void registerClass(ClassNode classNode) {
+        classNode.typeId = idOf(classNode.name);
+        var implemented = supertypes.get(classNode.typeId);
+        implemented.set(classNode.typeId);
+        for (var interfaceName : classNode.interfaces)
+            implemented.set(idOf(interfaceName));
+
+        for (var member : classNode.members)
+            registerDeclaration(member.declaration);
+        for (var constructor : classNode.constructors) {
+            registerDeclarations(constructor.parameters);
+            registerDeclarations(constructor.locals);
+        }
+        for (var method : classNode.methods) {
+            registerDeclarations(method.parameters);
+            registerDeclarations(method.locals);
+            registerDeclarations(method.returns);
+        }
+    }
+
+    private void registerDeclarations(List<VariableDeclarationNode> declarations) {
+        declarations.forEach(this::registerDeclaration);
+    }
+
+    private void registerDeclaration(VariableDeclarationNode declaration) {
+        declaration.typeId = idOf(declaration.type);
+    }
+
+    /**
+     * @param name the name of a type
+     * @return the ID of that type, giving it a new one if it hasn't been seen before
+     */
+    public int idOf(String name) {
+        var id = ids.get(name);
+        if (id != null)
+            return id;
+        ids.put(name, names.size());
+        names.add(name);
+        supertypes.add(new BitSet());
+        return names.size() - 1;
+    }
+
+    public String nameOf(int id) {
+        return id == UNKNOWN ? "unknown" : names.get(id);
+    }
+
+    /**
+     * @param classId the type ID of an object's class
+     * @param typeId the type ID it is being used as
+     * @return is the class the same as, or an implementation of, the type?
+     */
+    public boolean isSubtype(int classId, int typeId) {
+        return classId != UNKNOWN && typeId != UNKNOWN && supertypes.get(classId).get(typeId);
+    }
+
+    public static boolean isPrimitive(int typeId) {
+        return typeId >= BOOLEAN && typeId <= CHARACTER;
+    }
+}
@@ -0,0 +1,148 @@
+package Interpreter.VM;
+
+import AST.TranNode;
+import Interpreter.Interpreter;
+import Lexer.Lexer;
+import Parser.Parser;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Map;
+
+/**
+ * Runs some programs on every engine and prints how long each took, how many times faster than the tree walker that
+ * is, and how many instructions the VMs ran.
+ * <br></br>
+ * Usage: Benchmarks [repetitions]. Each program is run that many times on each engine, and the fastest is reported,
+ * so the JVM has had a chance to compile the engine first.
+ * <br></br>
+ * "tiered" starts out in the tree walker under TIERED, then has both a hot method and a running loop compiled, so it
+ * shows whether moving up a tier pays for itself.
+ */
+public class Benchmarks {
+    private static final Map<String, String> PROGRAMS = Map.of(
+            "loops", """
+                    class Tran
+                        shared start()
+                            number i
+                            number j
+                            number total
+                            number outer
+                            number inner
+                            outer = 300
+                            inner = 1000
+                            loop i = outer.times()
+                                loop j = inner.times()
+                                    if j % 3 == 0
+                                        total = total + i * j
+                            console.write(total)
+                    """,
+            "fib", """
+                    class Tran
+                        shared fib(number n) : number result
+                            number a
+                            number b
+                            if n < 2
+                                result = n
+                            else
+                                a = Tran.fib(n - 1)
+                                b = Tran.fib(n - 2)
+                                result = a + b
+
+                        shared start()
+                            console.write(Tran.fib(22))
+                    """,
+            "objects", """
+                    class Counter
+                        number count
+                        construct()
+                            count = 0
+                        add(number amount)
+                            count = count + amount
+                        get() : number value
+                            value = count
+
+                    class Tran
+                        shared start()
+                            Counter counter
+                            number i
+                            number n
+                            n = 100000
+                            counter = new Counter()
+                            loop i = n.times()
+                                counter.add(i)
+                            console.write(counter.get())
+                    """,
+            "tiered", """
+                    class Tran
+                        shared step(number x) : number y
+                            number half
+                            half = x / 2
+                            if x % 2 == 0
+                                y = half
+                            else
+                                y = x * 3 + 1
+
+                        shared start()
+                            number i
+                            number n
+                            number total
+                            n = 200000
+                            loop i = n.times()
+                                total = total + Tran.step(i)
+                            console.write(total)
+                    """,
+            "strings", """
+                    class Tran
+                        shared start()
+                            string text
+                            number i
+                            number n
+                            n = 2000
+                            loop i = n.times()
+                                text = text + "x"
+                            console.write(text)
+                    """
+    );
+
+    public static void main(String[] args) throws Exception {
+        int repetitions = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        System.out.printf("%-8s %-12s %10s %8s %14s%n", "program", "engine", "best ms", "speedup", "instructions");
+        for (var name : PROGRAMS.keySet().stream().sorted().toList()) {
+            long treeWalker = 0;
+            for (var engine : Interpreter.Engine.values()) {
+                long best = Long.MAX_VALUE;
+                long instructions = 0;
+                for (int i = 0; i < repetitions; i++) {
+                    var interpreter = load(PROGRAMS.get(name));
+                    interpreter.setEngine(engine);
+                    long nanos = runQuietly(interpreter);
+                    best = Math.min(best, nanos);
+                    instructions = interpreter.getInstructionsExecuted();
+                }
+                if (engine == Interpreter.Engine.TREE_WALKER)
+                    treeWalker = best;
+                System.out.printf("%-8s %-12s %10.1f %7.1fx %14s%n", name, engine, best / 1e6, (double) treeWalker / best, instructions == 0 ? "-" : instructions);
+            }
+        }
+    }
+
+    private static Interpreter load(String program) throws Exception {
+        var tran = new TranNode();
+        new Parser(tran, new Lexer(program).Lex()).Tran();
+        return new Interpreter(tran);
+    }
+
+    // What the program writes isn't part of the benchmark
+    private static long runQuietly(Interpreter interpreter) {
+        var out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            long started = System.nanoTime();
+            interpreter.start();
+            return System.nanoTime() - started;
+        } finally {
+            System.setOut(out);
+        }
+    }
+}
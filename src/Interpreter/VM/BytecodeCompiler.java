@@ -0,0 +1,553 @@
+package Interpreter.VM;
+
+import AST.*;
+import Interpreter.ConsoleWrite;
+import Interpreter.TypeTable;
+
+import java.util.*;
+
+/**
+ * Compiles method and constructor bodies to bytecode (see Opcode), after the Resolver has given every variable its slot.
+ * <br></br>
+ * The bytecode does the same things in the same order as Interpreter does when it walks the AST, including where it
+ * fails, so the VM gives the same results.
+ * <br></br>
+ * Numbers, booleans and characters are raw wherever their type is known (see rawTypeOf()), and are only boxed where
+ * they leave the method's frame: as arguments, into members, and when they are written or returned.
+ */
+public class BytecodeCompiler {
+    private final Map<String, ClassNode> classes = new HashMap<>();
+
+    // The method being compiled
+    private int[] code;
+    private int size;
+    private List<Object> constants;
+    private Map<Object, Integer> constantIndexes;
+    private int stack;
+    private int maxStack;
+    private int maxLocals;
+    // Slots below this hold declared variables, which always exist
+    private int declaredSlots;
+    // The raw type of each declared slot, or TypeTable.UNKNOWN if it holds an InterpreterDataType
+    private int[] rawTypes;
+
+    public BytecodeCompiler(TranNode top) {
+        for (var classNode : top.Classes)
+            classes.putIfAbsent(classNode.name, classNode);
+    }
+
+    public BytecodeMethod compile(MethodDeclarationNode method) {
+        var variables = new ArrayList<VariableDeclarationNode>(method.locals);
+        variables.addAll(method.returns);
+        return compile(method.name, method.statements, method.frameSize, method.parameters, variables, method.returns.size());
+    }
+
+    public BytecodeMethod compile(ConstructorNode constructor) {
+        return compile("construct", constructor.statements, constructor.frameSize, constructor.parameters, constructor.locals, 0);
+    }
+
+    private BytecodeMethod compile(String name, List<StatementNode> statements, int frameSize, List<VariableDeclarationNode> parameters,
+                                   List<VariableDeclarationNode> variables, int returnCount) {
+        code = new int[64];
+        size = 0;
+        constants = new ArrayList<>();
+        constantIndexes = new HashMap<>();
+        stack = 0;
+        maxStack = 0;
+        maxLocals = frameSize;
+        declaredSlots = parameters.size() + variables.size();
+        rawTypes = new int[declaredSlots];
+        int slot = 0;
+        for (var parameter : parameters)
+            rawTypes[slot++] = rawTypeOf(parameter.typeId);
+        for (var variable : variables)
+            rawTypes[slot++] = rawTypeOf(variable.typeId);
+
+        compileStatements(statements);
+        emit(Opcode.RETURN, 0);
+        return new BytecodeMethod(name, Arrays.copyOf(code, size), constants.toArray(), maxStack, maxLocals, parameters.size(),
+                variables.toArray(new VariableDeclarationNode[0]), returnCount, rawTypes);
+    }
+
+    // The type, if a value of it can be raw
+    private static int rawTypeOf(int typeId) {
+        return typeId == TypeTable.NUMBER || typeId == TypeTable.BOOLEAN || typeId == TypeTable.CHARACTER ? typeId : TypeTable.UNKNOWN;
+    }
+
+    // The raw type of the local variable, or TypeTable.UNKNOWN if it isn't a declared one that is raw
+    private int rawTypeOf(VariableReferenceNode variable) {
+        return !variable.isMember && variable.slot >= 0 && variable.slot < declaredSlots ? rawTypes[variable.slot] : TypeTable.UNKNOWN;
+    }
+
+    //              Statements
+
+    private void compileStatements(List<StatementNode> statements) {
+        for (var statement : statements) {
+            switch (statement) {
+                case AssignmentNode assignment -> compileAssignment(assignment);
+                case MethodCallStatementNode methodCall when isSingleWrite(methodCall) -> {
+                    compileExpression(methodCall.parameters.getFirst());
+                    emit(Opcode.WRITE, -1, constant(consoleWrite()));
+                }
+                case MethodCallStatementNode methodCall when methodCall.isTailCall -> {
+                    compileArguments(methodCall.parameters);
+                    emit(Opcode.TAIL_CALL, -methodCall.parameters.size(), methodCall.parameters.size());
+                }
+                case MethodCallStatementNode methodCall -> {
+                    compileCall(methodCall, methodCall.returnValues.size());
+                    for (var target : methodCall.returnValues)
+                        compileCreate(target);
+                }
+                case LoopNode loop -> {
+                    if (loop.expressionType == TypeTable.BOOLEAN)
+                        compileBooleanLoop(loop);
+                    else if (timesCountOf(loop) != null)
+                        compileTimesLoop(loop, timesCountOf(loop));
+                    else
+                        compileLoop(loop);
+                }
+                case IfNode ifNode -> compileIf(ifNode);
+                default -> throw new RuntimeException("Unknown statement: " + statement);
+            }
+        }
+    }
+
+    private void compileAssignment(AssignmentNode assignment) {
+        var target = assignment.target;
+        // The interpreter finds the target before evaluating the expression, so fails first if it doesn't exist yet
+        if (!target.isMember && target.slot >= declaredSlots) {
+            emit(Opcode.LOAD, 1, target.slot, constant(target.name));
+            emit(Opcode.POP, -1);
+        } else if (!target.isMember && target.slot < 0) {
+            emit(Opcode.FAIL, 0, constant("Unable to find variable " + target.name));
+            return;
+        }
+        // x = x + 1 and x = x + expression, on a declared number local
+        if (assignment.expression instanceof MathOpNode mathOp && mathOp.op == MathOpNode.MathOperations.add
+                && mathOp.type == TypeTable.NUMBER && isNumberLocal(mathOp.left) && isSameVariable(target, mathOp.left)) {
+            if (mathOp.right instanceof NumericLiteralNode literal) {
+                emit(Opcode.INCREMENT, 0, target.slot, constant(literal.value));
+            } else {
+                compileRaw(mathOp.right, TypeTable.NUMBER);
+                emit(Opcode.ADD_TO, -1, target.slot);
+            }
+            return;
+        }
+        int rawType = rawTypeOf(target);
+        if (rawType != TypeTable.UNKNOWN) {
+            compileRaw(assignment.expression, rawType);
+            emit(Opcode.RAW_STORE, -1, target.slot);
+            return;
+        }
+        compileExpression(assignment.expression);
+        compileStore(target);
+    }
+
+    // A declared local that is a raw number
+    private boolean isNumberLocal(ExpressionNode expression) {
+        return expression instanceof VariableReferenceNode variable && rawTypeOf(variable) == TypeTable.NUMBER;
+    }
+
+    private static boolean isSameVariable(VariableReferenceNode target, ExpressionNode expression) {
+        return expression instanceof VariableReferenceNode variable && !target.isMember && variable.slot == target.slot;
+    }
+
+    // A number local compared with a number literal, like i < 10
+    private boolean isLocalCompare(ExpressionNode expression) {
+        return expression instanceof CompareNode compare && compare.operandType == TypeTable.NUMBER
+                && isNumberLocal(compare.left) && compare.right instanceof NumericLiteralNode;
+    }
+
+    // Emit a jump that is taken if the condition is false; the condition is an isLocalCompare() one
+    private int emitCompareJump(ExpressionNode condition) {
+        var compare = (CompareNode) condition;
+        return emitJump(Opcode.JUMP_IF_COMPARE_FALSE, 0, ((VariableReferenceNode) compare.left).slot,
+                constant(((NumericLiteralNode) compare.right).value), compare.op.ordinal());
+    }
+
+    // console.write() with one argument, going to the built-in console
+    private boolean isSingleWrite(MethodCallStatementNode call) {
+        return call.parameters.size() == 1 && call.returnValues.isEmpty() && call.methodName.equals("write")
+                && call.objectName.equals(Optional.of("console")) && consoleWrite() != null;
+    }
+
+    // The built-in console.write, if it is the only write the console class has
+    private ConsoleWrite consoleWrite() {
+        var console = classes.get("console");
+        if (console == null)
+            return null;
+        var writes = console.methods.stream().filter(method -> method.name.equals("write")).toList();
+        return writes.size() == 1 && writes.getFirst() instanceof ConsoleWrite write ? write : null;
+    }
+
+    // Assign the value on top of the stack to the variable
+    private void compileStore(VariableReferenceNode variable) {
+        if (rawTypeOf(variable) != TypeTable.UNKNOWN)
+            compileRawStore(variable);
+        else if (variable.isMember)
+            emit(Opcode.STORE_MEMBER, -1, variable.slot, constant(variable.name));
+        else if (variable.slot >= 0)
+            emit(Opcode.STORE, -1, variable.slot, constant(variable.name));
+        else
+            emit(Opcode.FAIL, -1, constant("Unable to find variable " + variable.name));
+    }
+
+    // Store the value on top of the stack the way Interpreter.storeVariable() does
+    private void compileCreate(VariableReferenceNode variable) {
+        if (rawTypeOf(variable) != TypeTable.UNKNOWN)
+            compileRawStore(variable);
+        else if (variable.isMember)
+            emit(Opcode.STORE_MEMBER, -1, variable.slot, constant(variable.name));
+        else if (variable.slot >= 0)
+            emit(Opcode.CREATE, -1, variable.slot);
+        else
+            emit(Opcode.FAIL, -1, constant("Unable to find variable " + variable.name));
+    }
+
+    // A raw local always exists, so storing in it is the same as creating it
+    private void compileRawStore(VariableReferenceNode variable) {
+        emit(Opcode.UNBOX, 0, rawTypeOf(variable));
+        emit(Opcode.RAW_STORE, -1, variable.slot);
+    }
+
+    // Set a boolean loop's variable
+    private void compileLoopVariable(VariableReferenceNode variable, boolean value, boolean create) {
+        if (rawTypeOf(variable) == TypeTable.BOOLEAN) {
+            emit(Opcode.RAW_CONST, 1, constant(value ? 1L : 0L));
+            emit(Opcode.RAW_STORE, -1, variable.slot);
+            return;
+        }
+        emit(Opcode.CONST, 1, constant(value));
+        if (create)
+            compileCreate(variable);
+        else
+            compileStore(variable);
+    }
+
+    private void compileIf(IfNode ifNode) {
+        int toElse;
+        if (isLocalCompare(ifNode.condition)) {
+            toElse = emitCompareJump(ifNode.condition);
+        } else if (ifNode.conditionType == TypeTable.BOOLEAN) {
+            // The TypeChecker has proven the condition is a boolean
+            compileRaw(ifNode.condition, TypeTable.BOOLEAN);
+            toElse = emitJump(Opcode.JUMP_IF_FALSE, -1);
+        } else {
+            compileExpression(ifNode.condition);
+            toElse = emitJump(Opcode.JUMP_IF_NOT_TRUE, -1);
+        }
+        compileStatements(ifNode.statements);
+        if (ifNode.elseStatement.isEmpty()) {
+            patch(toElse);
+            return;
+        }
+        int toEnd = emitJump(Opcode.JUMP, 0);
+        patch(toElse);
+        compileStatements(ifNode.elseStatement.get().statements);
+        patch(toEnd);
+    }
+
+    private void compileBooleanLoop(LoopNode loop) {
+        if (loop.assignment.isPresent())
+            compileLoopVariable(loop.assignment.get(), false, true);
+        int head = size;
+        int toEnd;
+        if (isLocalCompare(loop.expression)) {
+            toEnd = emitCompareJump(loop.expression);
+        } else {
+            compileRaw(loop.expression, TypeTable.BOOLEAN);
+            toEnd = emitJump(Opcode.JUMP_IF_FALSE, -1);
+        }
+        if (loop.assignment.isPresent())
+            compileLoopVariable(loop.assignment.get(), true, false);
+        compileStatements(loop.statements);
+        emit(Opcode.JUMP, 0, head);
+        patch(toEnd);
+    }
+
+    /**
+     * @return the raw number local a loop over `n.times()` is on, or null if it isn't that kind of loop
+     */
+    private VariableReferenceNode timesCountOf(LoopNode loop) {
+        if (!(loop.expression instanceof MethodCallExpressionNode call) || !call.methodName.equals("times")
+                || !call.parameters.isEmpty() || call.objectReference == null)
+            return null;
+        return rawTypeOf(call.objectReference) == TypeTable.NUMBER ? call.objectReference : null;
+    }
+
+    // Counts from 1 to n, the same as Interpreter.interpretTimesLoop(), instead of making an iterator
+    private void compileTimesLoop(LoopNode loop, VariableReferenceNode count) {
+        int counter = maxLocals;
+        maxLocals += 2;
+        emit(Opcode.RAW_LOAD, 1, count.slot);
+        emit(Opcode.TIMES_START, -1, counter);
+        var variable = loop.assignment.orElse(null);
+        if (variable != null && rawTypeOf(variable) == TypeTable.NUMBER) {
+            // The raw bits of 0.0 are 0
+            emit(Opcode.RAW_CONST, 1, constant(0L));
+            emit(Opcode.RAW_STORE, -1, variable.slot);
+        } else if (variable != null) {
+            emit(Opcode.CONST, 1, constant(0.0));
+            compileCreate(variable);
+        }
+
+        int head = size;
+        int toEnd = emitJump(Opcode.TIMES_NEXT, 1, counter);
+        if (variable != null && rawTypeOf(variable) == TypeTable.NUMBER) {
+            emit(Opcode.RAW_STORE, -1, variable.slot);
+        } else if (variable != null) {
+            emit(Opcode.BOX, 0, TypeTable.NUMBER);
+            compileStore(variable);
+        } else {
+            emit(Opcode.POP, -1);
+        }
+        compileStatements(loop.statements);
+        emit(Opcode.JUMP, 0, head);
+        patch(toEnd);
+    }
+
+    // A loop over an iterator. If the TypeChecker couldn't tell, the expression might turn out to be a boolean, which
+    // is evaluated again every time
+    private void compileLoop(LoopNode loop) {
+        int iterator = maxLocals++;
+        boolean hasVariable = loop.assignment.isPresent();
+        compileExpression(loop.expression);
+        emit(Opcode.LOOP_START, hasVariable ? 0 : -1, iterator, hasVariable ? 1 : 0);
+        if (hasVariable)
+            compileCreate(loop.assignment.get());
+
+        int head = size;
+        int toEndFromBoolean = -1;
+        int toBody = -1;
+        if (loop.expressionType == TypeTable.UNKNOWN) {
+            int toIterator = emitJump(Opcode.JUMP_IF_ITERATOR, 0, iterator);
+            compileRaw(loop.expression, TypeTable.BOOLEAN);
+            toEndFromBoolean = emitJump(Opcode.JUMP_IF_FALSE, -1);
+            if (hasVariable)
+                compileLoopVariable(loop.assignment.get(), true, false);
+            toBody = emitJump(Opcode.JUMP, 0);
+            patch(toIterator);
+        }
+        int toEndFromIterator = emitJump(Opcode.ITER_NEXT, 1, iterator);
+        if (hasVariable)
+            compileStore(loop.assignment.get());
+        else
+            emit(Opcode.POP, -1);
+
+        if (toBody >= 0)
+            patch(toBody);
+        compileStatements(loop.statements);
+        emit(Opcode.JUMP, 0, head);
+        if (toEndFromBoolean >= 0)
+            patch(toEndFromBoolean);
+        patch(toEndFromIterator);
+    }
+
+    //              Expressions
+
+    /**
+     * @return the type of the raw value the expression makes without boxing anything, or TypeTable.UNKNOWN if it makes
+     * an InterpreterDataType
+     */
+    private int rawTypeOf(ExpressionNode expression) {
+        return switch (expression) {
+            case NumericLiteralNode literal -> TypeTable.NUMBER;
+            case BooleanLiteralNode literal -> TypeTable.BOOLEAN;
+            case CharLiteralNode literal -> TypeTable.CHARACTER;
+            case VariableReferenceNode variable -> rawTypeOf(variable);
+            // The TypeChecker has proven the types of both sides
+            case MathOpNode mathOp when mathOp.type == TypeTable.NUMBER -> TypeTable.NUMBER;
+            case CompareNode compare when compare.operandType == TypeTable.NUMBER -> TypeTable.BOOLEAN;
+            case BooleanOpNode booleanOp -> TypeTable.BOOLEAN;
+            case NotOpNode notOp -> TypeTable.BOOLEAN;
+            default -> TypeTable.UNKNOWN;
+        };
+    }
+
+    // Push the expression's value raw; one that isn't raw already has to be of the type
+    private void compileRaw(ExpressionNode expression, int type) {
+        if (rawTypeOf(expression) != type) {
+            compileExpression(expression);
+            emit(Opcode.UNBOX, 0, type);
+            return;
+        }
+        switch (expression) {
+            case NumericLiteralNode literal -> emit(Opcode.RAW_CONST, 1, constant(VM.bits(literal.value)));
+            case BooleanLiteralNode literal -> emit(Opcode.RAW_CONST, 1, constant(literal.value ? 1L : 0L));
+            case CharLiteralNode literal -> emit(Opcode.RAW_CONST, 1, constant((long) literal.value));
+            case VariableReferenceNode variable -> emit(Opcode.RAW_LOAD, 1, variable.slot);
+            case MathOpNode mathOp -> {
+                compileRaw(mathOp.left, TypeTable.NUMBER);
+                compileRaw(mathOp.right, TypeTable.NUMBER);
+                emit(switch (mathOp.op) {
+                    case add -> Opcode.ADD;
+                    case subtract -> Opcode.SUBTRACT;
+                    case multiply -> Opcode.MULTIPLY;
+                    case divide -> Opcode.DIVIDE;
+                    case modulo -> Opcode.MODULO;
+                }, -1);
+            }
+            case CompareNode compare -> {
+                compileRaw(compare.left, TypeTable.NUMBER);
+                compileRaw(compare.right, TypeTable.NUMBER);
+                emit(switch (compare.op) {
+                    case lt -> Opcode.LESS;
+                    case le -> Opcode.LESS_EQUAL;
+                    case gt -> Opcode.GREATER;
+                    case ge -> Opcode.GREATER_EQUAL;
+                    case eq -> Opcode.EQUAL;
+                    case ne -> Opcode.NOT_EQUAL;
+                }, -1);
+            }
+            case BooleanOpNode booleanOp -> {
+                compileRaw(booleanOp.left, TypeTable.BOOLEAN);
+                compileRaw(booleanOp.right, TypeTable.BOOLEAN);
+                emit(booleanOp.op == BooleanOpNode.BooleanOperations.and ? Opcode.AND : Opcode.OR, -1);
+            }
+            case NotOpNode notOp -> {
+                compileRaw(notOp.left, TypeTable.BOOLEAN);
+                emit(Opcode.NOT, 0);
+            }
+            default -> throw new RuntimeException("Not a raw expression: " + expression);
+        }
+    }
+
+    // `v == v` or `v != v` on a raw variable, which isn't a number
+    private boolean isSameRawVariable(CompareNode compare) {
+        return (compare.op == CompareNode.CompareOperations.eq || compare.op == CompareNode.CompareOperations.ne)
+                && compare.left instanceof VariableReferenceNode left && compare.right instanceof VariableReferenceNode right
+                && rawTypeOf(left) != TypeTable.UNKNOWN && rawTypeOf(left) != TypeTable.NUMBER && left.slot == right.slot;
+    }
+
+    // Does the expression make a new value, which nothing else can change?
+    private boolean isNewValue(ExpressionNode expression) {
+        return rawTypeOf(expression) != TypeTable.UNKNOWN || expression instanceof StringLiteralNode;
+    }
+
+    private void compileExpression(ExpressionNode expression) {
+        switch (expression) {
+            case NumericLiteralNode literal -> emit(Opcode.CONST, 1, constant(literal.value));
+            case StringLiteralNode literal -> emit(Opcode.CONST, 1, constant(literal.value));
+            case BooleanLiteralNode literal -> emit(Opcode.CONST, 1, constant(literal.value));
+            case CharLiteralNode literal -> emit(Opcode.CONST, 1, constant(literal.value));
+            case ExpressionNode raw when rawTypeOf(raw) != TypeTable.UNKNOWN -> {
+                int type = rawTypeOf(raw);
+                compileRaw(raw, type);
+                emit(Opcode.BOX, 0, type);
+            }
+            case VariableReferenceNode variable -> compileLoad(variable);
+            case MathOpNode mathOp -> {
+                compileExpression(mathOp.left);
+                compileExpression(mathOp.right);
+                if (mathOp.type == TypeTable.STRING)
+                    emit(Opcode.CONCAT, -1);
+                else
+                    emit(Opcode.MATH, -1, mathOp.op.ordinal());
+            }
+            case CompareNode compare when isSameRawVariable(compare) -> {
+                // A raw variable is boxed anew every time it is loaded, but it is still the same value as itself
+                emit(Opcode.RAW_CONST, 1, constant(compare.op == CompareNode.CompareOperations.eq ? 1L : 0L));
+                emit(Opcode.BOX, 0, TypeTable.BOOLEAN);
+            }
+            case CompareNode compare -> {
+                compileExpression(compare.left);
+                compileExpression(compare.right);
+                emit(Opcode.COMPARE, -1, constant(compare));
+            }
+            case MethodCallExpressionNode methodCall -> compileCall(new MethodCallStatementNode(methodCall), 1);
+            case NewNode newNode -> {
+                var classNode = classes.get(newNode.className);
+                if (classNode == null) {
+                    emit(Opcode.FAIL, 1, constant("Class not found for constructor: %s".formatted(newNode)));
+                    return;
+                }
+                compileArguments(newNode.parameters);
+                emit(Opcode.NEW, 1 - newNode.parameters.size(), constant(new NewSite(classNode, newNode.parameters.size())));
+            }
+            default -> throw new RuntimeException("Unknown expression: " + expression);
+        }
+    }
+
+    private void compileLoad(VariableReferenceNode variable) {
+        int rawType = rawTypeOf(variable);
+        if (rawType != TypeTable.UNKNOWN) {
+            emit(Opcode.RAW_LOAD, 1, variable.slot);
+            emit(Opcode.BOX, 0, rawType);
+        } else if (variable.isMember)
+            emit(Opcode.LOAD_MEMBER, 1, variable.slot, constant(variable.name));
+        else if (variable.slot >= 0)
+            emit(Opcode.LOAD, 1, variable.slot, constant(variable.name));
+        else
+            emit(Opcode.FAIL, 1, constant("Unable to find variable " + variable.name));
+    }
+
+    private void compileCall(MethodCallStatementNode call, int returnCount) {
+        compileArguments(call.parameters);
+        CallSite.Kind kind;
+        if (call.objectName.isEmpty()) {
+            kind = CallSite.Kind.SELF;
+        } else if (classes.containsKey(call.objectName.get())) {
+            kind = CallSite.Kind.SHARED;
+        } else {
+            kind = CallSite.Kind.OBJECT;
+            // The arguments are evaluated before the object is found
+            if (call.objectReference == null)
+                emit(Opcode.FAIL, 1, constant("Unable to find variable " + call.objectName.get()));
+            else
+                compileLoad(call.objectReference);
+        }
+        var site = new CallSite(call, kind, returnCount);
+        if (kind == CallSite.Kind.SHARED)
+            site.cachedClass = classes.get(call.objectName.get());
+        int popped = call.parameters.size() + (kind == CallSite.Kind.OBJECT ? 1 : 0);
+        emit(Opcode.CALL, returnCount - popped, constant(site));
+    }
+
+    // Each argument is copied as soon as it is evaluated, so later arguments can't change it
+    private void compileArguments(List<ExpressionNode> arguments) {
+        for (var argument : arguments) {
+            compileExpression(argument);
+            if (!isNewValue(argument))
+                emit(Opcode.COPY, 0);
+        }
+    }
+
+    //              Emitting
+
+    private void emit(int opcode, int stackEffect, int... operands) {
+        if (size + 1 + operands.length > code.length)
+            code = Arrays.copyOf(code, code.length * 2 + operands.length);
+        code[size++] = opcode;
+        for (var operand : operands)
+            code[size++] = operand;
+        stack += stackEffect;
+        maxStack = Math.max(maxStack, stack);
+    }
+
+    /**
+     * Emit a jump whose target is filled in later by patch(); its target is its last operand
+     * @return where the target goes
+     */
+    private int emitJump(int opcode, int stackEffect, int... operands) {
+        var withTarget = Arrays.copyOf(operands, operands.length + 1);
+        emit(opcode, stackEffect, withTarget);
+        return size - 1;
+    }
+
+    // Make the jump go to the next instruction
+    private void patch(int target) {
+        code[target] = size;
+    }
+
+    private int constant(Object value) {
+        // Call sites and compares are never shared; values are
+        if (value instanceof CallSite || value instanceof NewSite || value instanceof CompareNode) {
+            constants.add(value);
+            return constants.size() - 1;
+        }
+        return constantIndexes.computeIfAbsent(value, v -> {
+            constants.add(v);
+            return constants.size() - 1;
+        });
+    }
+}
@@ -0,0 +1,45 @@
+package Interpreter.VM;
+
+import AST.VariableDeclarationNode;
+
+/**
+ * A method or constructor compiled to bytecode.
+ * <br></br>
+ * The frame has maxLocals slots: the parameters, locals and returns in the slots the Resolver gave them, then
+ * implicit variables, then slots the compiler added for iterators. The stack never holds more than maxStack values.
+ * <br></br>
+ * Parameters, locals and returns with a rawType are kept raw (see Opcode) for as long as the method runs.
+ */
+public class BytecodeMethod {
+    public final String name;
+    public final int[] code;
+    public final Object[] constants;
+    public final int maxStack;
+    public final int maxLocals;
+    public final int parameterCount;
+    // Declared locals and returns, which are given their default values when the method is called
+    final VariableDeclarationNode[] variables;
+    public final int firstReturnSlot;
+    public final int returnCount;
+    // The type of each parameter, local and return that is raw, or TypeTable.UNKNOWN
+    final int[] rawTypes;
+
+    BytecodeMethod(String name, int[] code, Object[] constants, int maxStack, int maxLocals, int parameterCount,
+                   VariableDeclarationNode[] variables, int returnCount, int[] rawTypes) {
+        this.name = name;
+        this.code = code;
+        this.constants = constants;
+        this.maxStack = maxStack;
+        this.maxLocals = maxLocals;
+        this.parameterCount = parameterCount;
+        this.variables = variables;
+        this.returnCount = returnCount;
+        this.rawTypes = rawTypes;
+        firstReturnSlot = parameterCount + variables.length - returnCount;
+    }
+
+    @Override
+    public String toString() {
+        return Disassembler.disassemble(this);
+    }
+}
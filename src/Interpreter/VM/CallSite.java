@@ -0,0 +1,42 @@
+package Interpreter.VM;
+
+import AST.ClassNode;
+import AST.MethodCallStatementNode;
+import AST.MethodDeclarationNode;
+
+/**
+ * The constant a CALL instruction refers to: what is being called, and the methods it went to last time.
+ */
+class CallSite {
+    enum Kind {
+        // On a class name: a shared method
+        SHARED,
+        // With no object name: a method of the current object
+        SELF,
+        // On a variable: a method of the object it holds, or times() on a number
+        OBJECT
+    }
+
+    final MethodCallStatementNode call;
+    final Kind kind;
+    final int argumentCount;
+    // How many of the returned values are pushed
+    final int returnCount;
+    // For SHARED calls, the class; otherwise the class of the last object called on
+    ClassNode cachedClass;
+    // The methods of cachedClass that the call could mean, before looking at the arguments, in the order they're tried
+    MethodDeclarationNode[] candidates;
+
+    CallSite(MethodCallStatementNode call, Kind kind, int returnCount) {
+        this.call = call;
+        this.kind = kind;
+        this.argumentCount = call.parameters.size();
+        this.returnCount = returnCount;
+    }
+
+    @Override
+    public String toString() {
+        return call.objectName.map(name -> name + ".").orElse("") + call.methodName
+                + " (" + argumentCount + " arguments, " + returnCount + " returns)";
+    }
+}
@@ -0,0 +1,118 @@
+package Interpreter.VM;
+
+import AST.CompareNode;
+import AST.MathOpNode;
+import Interpreter.DataTypes.CharIDT;
+import Interpreter.DataTypes.StringIDT;
+import Interpreter.TypeTable;
+
+import java.util.StringJoiner;
+
+/**
+ * Prints bytecode or register code one instruction per line, for debugging. Each line is the instruction's offset, its name and its
+ * operands, with any constant it refers to after a semicolon.
+ */
+public final class Disassembler {
+    private Disassembler() {
+    }
+
+    public static String disassemble(BytecodeMethod method) {
+        var out = new StringBuilder();
+        out.append("%s (max stack %d, max locals %d)\n".formatted(method.name, method.maxStack, method.maxLocals));
+        int pc = 0;
+        while (pc < method.code.length) {
+            pc = disassemble(method, pc, out);
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    /**
+     * Print the instruction at pc
+     * @return where the next instruction is
+     */
+    public static int disassemble(BytecodeMethod method, int pc, StringBuilder out) {
+        int opcode = method.code[pc];
+        out.append("%4d: %s".formatted(pc, Opcode.nameOf(opcode)));
+        int operands = Opcode.operandCount(opcode);
+        for (int i = 1; i <= operands; i++)
+            out.append(' ').append(method.code[pc + i]);
+        var comment = switch (opcode) {
+            case Opcode.CONST, Opcode.COMPARE, Opcode.CALL, Opcode.NEW, Opcode.FAIL -> describe(method.constants[method.code[pc + 1]]);
+            case Opcode.WRITE -> "console.write";
+            case Opcode.INCREMENT -> describe(method.constants[method.code[pc + 2]]);
+            case Opcode.JUMP_IF_COMPARE_FALSE -> CompareNode.CompareOperations.values()[method.code[pc + 3]] + " " + describe(method.constants[method.code[pc + 2]]);
+            case Opcode.LOAD, Opcode.LOAD_MEMBER, Opcode.STORE, Opcode.STORE_MEMBER -> method.constants[method.code[pc + 2]].toString();
+            case Opcode.MATH -> MathOpNode.MathOperations.values()[method.code[pc + 1]].toString();
+            case Opcode.BOX, Opcode.UNBOX -> switch (method.code[pc + 1]) {
+                case TypeTable.NUMBER -> "number";
+                case TypeTable.BOOLEAN -> "boolean";
+                default -> "character";
+            };
+            default -> null;
+        };
+        if (comment != null)
+            out.append(" ; ").append(comment);
+        return pc + 1 + operands;
+    }
+
+    public static String disassemble(RegisterMethod method) {
+        var out = new StringBuilder();
+        out.append("%s (%d registers, literals from r%d)\n".formatted(method.name, method.registerCount, method.firstLiteral));
+        int pc = 0;
+        while (pc < method.code.length) {
+            pc = disassemble(method, pc, out);
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    /**
+     * Print the register instruction at pc. Registers are printed as r and their number; the values of literals and
+     * any constants come after the semicolon.
+     * @return where the next instruction is
+     */
+    public static int disassemble(RegisterMethod method, int pc, StringBuilder out) {
+        int opcode = method.code[pc];
+        out.append("%4d: %s".formatted(pc, RegisterOpcode.nameOf(opcode)));
+        var operands = RegisterOpcode.operandsOf(opcode);
+        var comments = new StringJoiner(", ");
+        for (int i = 0; i < operands.length(); i++) {
+            int operand = method.code[pc + 1 + i];
+            switch (operands.charAt(i)) {
+                case 'r' -> {
+                    out.append(operand < 0 ? " -" : " r" + operand);
+                    int literal = operand - method.firstLiteral;
+                    if (literal >= 0 && literal < method.literals.length)
+                        comments.add("r%d = %s".formatted(operand, describe(method.literals[literal])));
+                }
+                case 'k' -> {
+                    out.append(' ').append(operand);
+                    comments.add(describe(method.constants[operand]));
+                }
+                case 'o' -> {
+                    out.append(' ').append(operand);
+                    comments.add(MathOpNode.MathOperations.values()[operand].toString());
+                }
+                case 'c' -> {
+                    out.append(' ').append(operand);
+                    comments.add(CompareNode.CompareOperations.values()[operand].toString());
+                }
+                default -> out.append(' ').append(operand);
+            }
+        }
+        if (comments.length() > 0)
+            out.append(" ; ").append(comments);
+        return pc + 1 + operands.length();
+    }
+
+    private static String describe(Object constant) {
+        return switch (constant) {
+            case String string -> '"' + string + '"';
+            case Character character -> "'" + character + "'";
+            case StringIDT string -> '"' + string.toString() + '"';
+            case CharIDT character -> "'" + character.getValue() + "'";
+            default -> constant.toString();
+        };
+    }
+}
@@ -0,0 +1,23 @@
+package Interpreter.VM;
+
+import AST.ClassNode;
+
+/**
+ * The constant a NEW instruction refers to: the class to create, and its constructors once they're compiled
+ */
+class NewSite {
+    final ClassNode classNode;
+    final int argumentCount;
+    final BytecodeMethod[] constructors;
+
+    NewSite(ClassNode classNode, int argumentCount) {
+        this.classNode = classNode;
+        this.argumentCount = argumentCount;
+        constructors = new BytecodeMethod[classNode.constructors.size()];
+    }
+
+    @Override
+    public String toString() {
+        return "new " + classNode.name + " (" + argumentCount + " arguments)";
+    }
+}
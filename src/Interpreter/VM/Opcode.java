@@ -0,0 +1,163 @@
+package Interpreter.VM;
+
+/**
+ * The instructions of the bytecode the VM runs. Each instruction is its opcode followed by its operands, all ints.
+ * <br></br>
+ * Values on the stack are InterpreterDataTypes, the same as Interpreter.evaluate() returns: loading a variable pushes
+ * the variable itself, and everything else pushes a new value. "k" operands are indexes into the method's constants.
+ * <br></br>
+ * Numbers, booleans and characters the TypeChecker has proven the type of are raw instead: a long in the VM's raw
+ * slots, with no object (see VM). So are declared local variables of those types. BOX and UNBOX turn one
+ * into the other where a value goes somewhere that needs an object, like a call, a member or console.write.
+ */
+public final class Opcode {
+    private Opcode() {
+    }
+
+    // CONST k: push a new value equal to constant k (a Double, String, Boolean or Character)
+    public static final int CONST = 0;
+    // LOAD slot k: push the local variable in slot; k is its name
+    public static final int LOAD = 1;
+    // LOAD_MEMBER index k: push the member of the current object
+    public static final int LOAD_MEMBER = 2;
+    // STORE slot k: pop a value and assign it to the local variable
+    public static final int STORE = 3;
+    // STORE_MEMBER index k: pop a value and assign it to the member
+    public static final int STORE_MEMBER = 4;
+    // CREATE slot: pop a value and store it in the local; an implicit variable that doesn't exist yet becomes the value
+    public static final int CREATE = 5;
+    // POP: throw away the top of the stack
+    public static final int POP = 6;
+
+    // Arithmetic on two raw numbers: pop right, pop left, push the result
+    public static final int ADD = 7;
+    public static final int SUBTRACT = 8;
+    public static final int MULTIPLY = 9;
+    public static final int DIVIDE = 10;
+    public static final int MODULO = 11;
+    // CONCAT: pop two values that are proven to make a string, push them joined
+    public static final int CONCAT = 12;
+    // MATH op: pop two values of unknown types and do MathOperations.values()[op] on them
+    public static final int MATH = 13;
+
+    // Comparisons of two raw numbers: pop right, pop left, push a raw boolean
+    public static final int LESS = 14;
+    public static final int LESS_EQUAL = 15;
+    public static final int GREATER = 16;
+    public static final int GREATER_EQUAL = 17;
+    public static final int EQUAL = 18;
+    public static final int NOT_EQUAL = 19;
+    // COMPARE k: pop two values of unknown types and compare them with the CompareNode in constant k
+    public static final int COMPARE = 20;
+
+    // Boolean operators on raw booleans; both sides have always been evaluated
+    public static final int AND = 21;
+    public static final int OR = 22;
+    public static final int NOT = 23;
+
+    // JUMP target: continue at target
+    public static final int JUMP = 24;
+    // JUMP_IF_FALSE target: pop a raw boolean, and jump if it is false
+    public static final int JUMP_IF_FALSE = 25;
+    // JUMP_IF_NOT_TRUE target: like JUMP_IF_FALSE, but fails if the value isn't a boolean
+    public static final int JUMP_IF_NOT_TRUE = 26;
+
+    // CALL k: pop the object (for calls on a variable), then the arguments, and run the call site in constant k.
+    // Pushes the values it returns, last first, so the first one is on top.
+    public static final int CALL = 27;
+    // NEW k: pop the constructor's arguments, make the object described by constant k, and push it
+    public static final int NEW = 28;
+
+    // LOOP_START slot push: pop the loop's value. An iterator is kept in slot (a boolean leaves slot empty). If push
+    // is 1, push a default value for the loop variable.
+    public static final int LOOP_START = 29;
+    // JUMP_IF_ITERATOR slot target: jump if slot holds an iterator
+    public static final int JUMP_IF_ITERATOR = 30;
+    // ITER_NEXT slot target: call getNext() on the iterator in slot; jump if it is done, otherwise push the next value
+    public static final int ITER_NEXT = 31;
+
+    // RETURN: end the method; what it returns is in its return variables
+    public static final int RETURN = 32;
+    // FAIL k: throw an error with the message in constant k
+    public static final int FAIL = 33;
+    // COPY: replace the top of the stack with a copy, as the value of an argument (objects aren't copied)
+    public static final int COPY = 34;
+    // TAIL_CALL count: pop the arguments of a call of this method (see TailCallFinder) into its parameters, and run it
+    // again from the start in the same frame
+    public static final int TAIL_CALL = 35;
+
+    // RAW_CONST k: push raw constant k (a Long)
+    public static final int RAW_CONST = 36;
+    // RAW_LOAD slot: push the raw local in slot
+    public static final int RAW_LOAD = 37;
+    // RAW_STORE slot: pop a raw value into the raw local in slot
+    public static final int RAW_STORE = 38;
+    // BOX type: replace the raw value on top of the stack with a new value of type (a TypeTable ID)
+    public static final int BOX = 39;
+    // UNBOX type: replace the value on top of the stack with its raw value; fails like Assign() if it isn't of type
+    public static final int UNBOX = 40;
+
+    // A loop over n.times() on a raw number local counts in two raw slots instead of calling an iterator's getNext().
+    // TIMES_START slot: pop the raw number n; slot counts from 0, up to n cut down to an int, which goes in slot + 1
+    public static final int TIMES_START = 41;
+    // TIMES_NEXT slot target: count one more in slot; jump if that is past the last, otherwise push it as a raw number
+    public static final int TIMES_NEXT = 42;
+
+    // Superinstructions: the most common statement shapes, done as one instruction that makes no values.
+    // "slot" is a raw number local.
+    // INCREMENT slot k: slot = slot + constant k
+    public static final int INCREMENT = 43;
+    // ADD_TO slot: pop a raw number, and slot = slot + it
+    public static final int ADD_TO = 44;
+    // JUMP_IF_COMPARE_FALSE slot k op target: jump unless slot compared with constant k by CompareOperations.values()[op] is true
+    public static final int JUMP_IF_COMPARE_FALSE = 45;
+    // WRITE k: pop a value and write it with the console.write in constant k
+    public static final int WRITE = 46;
+    public static final int FIRST_SUPERINSTRUCTION = INCREMENT;
+
+    private static final String[] NAMES = {
+            "CONST", "LOAD", "LOAD_MEMBER", "STORE", "STORE_MEMBER", "CREATE", "POP",
+            "ADD", "SUBTRACT", "MULTIPLY", "DIVIDE", "MODULO", "CONCAT", "MATH",
+            "LESS", "LESS_EQUAL", "GREATER", "GREATER_EQUAL", "EQUAL", "NOT_EQUAL", "COMPARE",
+            "AND", "OR", "NOT",
+            "JUMP", "JUMP_IF_FALSE", "JUMP_IF_NOT_TRUE",
+            "CALL", "NEW",
+            "LOOP_START", "JUMP_IF_ITERATOR", "ITER_NEXT",
+            "RETURN", "FAIL", "COPY", "TAIL_CALL",
+            "RAW_CONST", "RAW_LOAD", "RAW_STORE", "BOX", "UNBOX",
+            "TIMES_START", "TIMES_NEXT",
+            "INCREMENT", "ADD_TO", "JUMP_IF_COMPARE_FALSE", "WRITE"
+    };
+
+    private static final int[] OPERANDS = {
+            1, 2, 2, 2, 2, 1, 0,
+            0, 0, 0, 0, 0, 0, 1,
+            0, 0, 0, 0, 0, 0, 1,
+            0, 0, 0,
+            1, 1, 1,
+            1, 1,
+            2, 2, 2,
+            0, 1, 0, 1,
+            1, 1, 1, 1, 1,
+            1, 2,
+            2, 1, 4, 1
+    };
+
+    /**
+     * @return how many opcodes there are
+     */
+    public static int count() {
+        return NAMES.length;
+    }
+
+    public static String nameOf(int opcode) {
+        return NAMES[opcode];
+    }
+
+    /**
+     * @return how many operands follow the opcode
+     */
+    public static int operandCount(int opcode) {
+        return OPERANDS[opcode];
+    }
+}
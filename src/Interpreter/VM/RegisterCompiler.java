@@ -0,0 +1,538 @@
+package Interpreter.VM;
+
+import AST.*;
+import Interpreter.DataTypes.*;
+import Interpreter.TypeTable;
+
+import java.util.*;
+
+/**
+ * Compiles method and constructor bodies to register code (see RegisterOpcode), after the Resolver has given every
+ * variable its slot.
+ * <br></br>
+ * Variables are used straight from their registers, and every literal has a register of its own, so neither needs an
+ * instruction. Each operator writes its result to a new temporary, or straight to the variable it is assigned to when
+ * that is a declared variable of the result's type. Temporaries are reused once the statement using them is done.
+ * <br></br>
+ * Like BytecodeCompiler, the code does the same things in the same order as Interpreter, including where it fails.
+ */
+public class RegisterCompiler {
+    private final Map<String, ClassNode> classes = new HashMap<>();
+
+    // The method being compiled
+    private int[] code;
+    private int size;
+    private List<Object> constants;
+    private Map<Object, Integer> constantIndexes;
+    private Map<ExpressionNode, Integer> literalRegisters;
+    private List<InterpreterDataType> literals;
+    // Registers holding false and true, for the variables of loops on booleans
+    private int falseRegister;
+    private int trueRegister;
+    // The next free temporary, and how many registers the method needs
+    private int nextRegister;
+    private int registerCount;
+    // Slots below this hold declared variables, which always exist
+    private int declaredSlots;
+    // The type ID of each declared slot
+    private int[] slotTypes;
+
+    public RegisterCompiler(TranNode top) {
+        for (var classNode : top.Classes)
+            classes.putIfAbsent(classNode.name, classNode);
+    }
+
+    public RegisterMethod compile(MethodDeclarationNode method) {
+        var variables = new ArrayList<VariableDeclarationNode>(method.locals);
+        variables.addAll(method.returns);
+        return compile(method.name, method.statements, method.frameSize, method.parameters, variables, method.returns.size());
+    }
+
+    public RegisterMethod compile(ConstructorNode constructor) {
+        return compile("construct", constructor.statements, constructor.frameSize, constructor.parameters, constructor.locals, 0);
+    }
+
+    private RegisterMethod compile(String name, List<StatementNode> statements, int frameSize, List<VariableDeclarationNode> parameters,
+                                   List<VariableDeclarationNode> variables, int returnCount) {
+        int parameterCount = parameters.size();
+        code = new int[64];
+        size = 0;
+        constants = new ArrayList<>();
+        constantIndexes = new HashMap<>();
+        literalRegisters = new IdentityHashMap<>();
+        literals = new ArrayList<>();
+        falseRegister = -1;
+        trueRegister = -1;
+        declaredSlots = parameterCount + variables.size();
+        slotTypes = new int[declaredSlots];
+        int slot = 0;
+        for (var declarations : List.of(parameters, variables))
+            for (var declaration : declarations)
+                slotTypes[slot++] = declaration.typeId;
+
+        // The literals go straight after the variables, so temporaries start after them
+        nextRegister = frameSize;
+        findLiterals(statements);
+        registerCount = nextRegister;
+
+        compileStatements(statements);
+        emit(RegisterOpcode.RETURN);
+        return new RegisterMethod(name, Arrays.copyOf(code, size), constants.toArray(), registerCount, parameterCount,
+                variables.toArray(new VariableDeclarationNode[0]), returnCount, frameSize, literals.toArray(new InterpreterDataType[0]));
+    }
+
+    //              Literals
+
+    private void findLiterals(List<StatementNode> statements) {
+        for (var statement : statements) {
+            switch (statement) {
+                case AssignmentNode assignment -> findLiterals(assignment.expression);
+                case MethodCallStatementNode methodCall -> methodCall.parameters.forEach(this::findLiterals);
+                case LoopNode loop -> {
+                    findLiterals(loop.expression);
+                    if (loop.assignment.isPresent() && falseRegister < 0) {
+                        falseRegister = literal(null, new BooleanIDT(false));
+                        trueRegister = literal(null, new BooleanIDT(true));
+                    }
+                    findLiterals(loop.statements);
+                }
+                case IfNode ifNode -> {
+                    findLiterals(ifNode.condition);
+                    findLiterals(ifNode.statements);
+                    ifNode.elseStatement.ifPresent(elseNode -> findLiterals(elseNode.statements));
+                }
+                default -> throw new RuntimeException("Unknown statement: " + statement);
+            }
+        }
+    }
+
+    // Every literal gets its own register, even if another has the same value, as the interpreter makes a new value
+    // each time (`"a" == "a"` is false)
+    private void findLiterals(ExpressionNode expression) {
+        switch (expression) {
+            case NumericLiteralNode literal -> literal(literal, new NumberIDT(literal.value));
+            case StringLiteralNode literal -> literal(literal, new StringIDT(literal.value));
+            case BooleanLiteralNode literal -> literal(literal, new BooleanIDT(literal.value));
+            case CharLiteralNode literal -> literal(literal, new CharIDT(literal.value));
+            case MathOpNode mathOp -> {
+                findLiterals(mathOp.left);
+                findLiterals(mathOp.right);
+            }
+            case CompareNode compare -> {
+                findLiterals(compare.left);
+                findLiterals(compare.right);
+            }
+            case BooleanOpNode booleanOp -> {
+                findLiterals(booleanOp.left);
+                findLiterals(booleanOp.right);
+            }
+            case NotOpNode notOp -> findLiterals(notOp.left);
+            case MethodCallExpressionNode methodCall -> methodCall.parameters.forEach(this::findLiterals);
+            case NewNode newNode -> newNode.parameters.forEach(this::findLiterals);
+            default -> {
+            }
+        }
+    }
+
+    private int literal(ExpressionNode node, InterpreterDataType value) {
+        int register = nextRegister++;
+        literals.add(value);
+        if (node != null)
+            literalRegisters.put(node, register);
+        return register;
+    }
+
+    //              Statements
+
+    private void compileStatements(List<StatementNode> statements) {
+        for (var statement : statements) {
+            int firstTemporary = nextRegister;
+            switch (statement) {
+                case AssignmentNode assignment -> compileAssignment(assignment);
+                case MethodCallStatementNode methodCall when methodCall.isTailCall -> {
+                    int arguments = temporaries(methodCall.parameters.size());
+                    compileArguments(methodCall.parameters, arguments);
+                    emit(RegisterOpcode.TAIL_CALL, arguments);
+                }
+                case MethodCallStatementNode methodCall -> {
+                    int returned = compileCall(methodCall, methodCall.returnValues.size());
+                    for (int i = 0; i < methodCall.returnValues.size(); i++)
+                        compileCreate(methodCall.returnValues.get(i), returned + i);
+                }
+                case LoopNode loop -> {
+                    if (loop.expressionType == TypeTable.BOOLEAN)
+                        compileBooleanLoop(loop);
+                    else if (timesCountOf(loop) != null)
+                        compileTimesLoop(loop, timesCountOf(loop));
+                    else
+                        compileLoop(loop);
+                }
+                case IfNode ifNode -> compileIf(ifNode);
+                default -> throw new RuntimeException("Unknown statement: " + statement);
+            }
+            nextRegister = firstTemporary;
+        }
+    }
+
+    private void compileAssignment(AssignmentNode assignment) {
+        var target = assignment.target;
+        if (target.isMember) {
+            emit(RegisterOpcode.STORE_MEMBER, target.slot, compileExpression(assignment.expression), constant(target.name));
+            return;
+        }
+        if (target.slot < 0) {
+            emit(RegisterOpcode.FAIL, constant("Unable to find variable " + target.name));
+            return;
+        }
+        // The interpreter finds the target before evaluating the expression, so fails first if it doesn't exist yet
+        if (target.slot >= declaredSlots)
+            emit(RegisterOpcode.CHECK, target.slot, constant(target.name));
+        if (!compileInto(assignment.expression, target))
+            emit(RegisterOpcode.MOVE, target.slot, compileExpression(assignment.expression));
+    }
+
+    // Assign the value in a register to the variable, which has been created already
+    private void compileStore(VariableReferenceNode variable, int value) {
+        if (variable.isMember)
+            emit(RegisterOpcode.STORE_MEMBER, variable.slot, value, constant(variable.name));
+        else if (variable.slot >= 0)
+            emit(RegisterOpcode.MOVE, variable.slot, value);
+        else
+            emit(RegisterOpcode.FAIL, constant("Unable to find variable " + variable.name));
+    }
+
+    // Store the value in a register the way Interpreter.storeVariable() does
+    private void compileCreate(VariableReferenceNode variable, int value) {
+        if (variable.isMember)
+            emit(RegisterOpcode.STORE_MEMBER, variable.slot, value, constant(variable.name));
+        else if (variable.slot >= 0)
+            emit(RegisterOpcode.CREATE, variable.slot, value);
+        else
+            emit(RegisterOpcode.FAIL, constant("Unable to find variable " + variable.name));
+    }
+
+    private void compileIf(IfNode ifNode) {
+        int toElse = compileJumpIfFalse(ifNode.condition, ifNode.conditionType == TypeTable.BOOLEAN);
+        compileStatements(ifNode.statements);
+        if (ifNode.elseStatement.isEmpty()) {
+            patch(toElse);
+            return;
+        }
+        int toEnd = emitJump(RegisterOpcode.JUMP);
+        patch(toElse);
+        compileStatements(ifNode.elseStatement.get().statements);
+        patch(toEnd);
+    }
+
+    /**
+     * Emit a jump taken when the condition is false. A comparison of two numbers jumps on the comparison itself,
+     * instead of making a boolean and then testing it.
+     * @param isBoolean - whether the TypeChecker has proven the condition is a boolean
+     * @return where the target goes
+     */
+    private int compileJumpIfFalse(ExpressionNode condition, boolean isBoolean) {
+        if (condition instanceof CompareNode compare && compare.operandType == TypeTable.NUMBER) {
+            int left = compileExpression(compare.left);
+            int right = compileExpression(compare.right);
+            return emitJump(RegisterOpcode.JUMP_IF_COMPARE_FALSE, left, right, compare.op.ordinal());
+        }
+        int value = compileExpression(condition);
+        return emitJump(isBoolean ? RegisterOpcode.JUMP_IF_FALSE : RegisterOpcode.JUMP_IF_NOT_TRUE, value);
+    }
+
+    private void compileBooleanLoop(LoopNode loop) {
+        if (loop.assignment.isPresent()) {
+            // A new value, as the variable may become it
+            int initial = temporary();
+            emit(RegisterOpcode.COPY, initial, falseRegister);
+            compileCreate(loop.assignment.get(), initial);
+        }
+        int head = size;
+        int toEnd = compileJumpIfFalse(loop.expression, true);
+        if (loop.assignment.isPresent())
+            compileStore(loop.assignment.get(), trueRegister);
+        compileStatements(loop.statements);
+        emit(RegisterOpcode.JUMP, head);
+        patch(toEnd);
+    }
+
+    /**
+     * @return the declared number variable a loop over `n.times()` is on, or null if it isn't that kind of loop
+     */
+    private VariableReferenceNode timesCountOf(LoopNode loop) {
+        if (!(loop.expression instanceof MethodCallExpressionNode call) || !call.methodName.equals("times")
+                || !call.parameters.isEmpty() || call.objectReference == null)
+            return null;
+        var count = call.objectReference;
+        boolean isDeclared = !count.isMember && count.slot >= 0 && count.slot < declaredSlots;
+        return isDeclared && slotTypes[count.slot] == TypeTable.NUMBER ? count : null;
+    }
+
+    // Counts from 1 to n, the same as Interpreter.interpretTimesLoop(), instead of making an iterator
+    private void compileTimesLoop(LoopNode loop, VariableReferenceNode count) {
+        int counter = temporaries(2);
+        emit(RegisterOpcode.TIMES_START, counter, count.slot);
+        if (loop.assignment.isPresent()) {
+            // A new value, as the variable may become it
+            int initial = temporary();
+            emit(RegisterOpcode.COPY, initial, counter);
+            compileCreate(loop.assignment.get(), initial);
+        }
+
+        int head = size;
+        int toEnd = emitJump(RegisterOpcode.TIMES_NEXT, counter);
+        if (loop.assignment.isPresent())
+            compileStore(loop.assignment.get(), counter);
+        compileStatements(loop.statements);
+        emit(RegisterOpcode.JUMP, head);
+        patch(toEnd);
+    }
+
+    // A loop over an iterator. If the TypeChecker couldn't tell, the expression might turn out to be a boolean, which
+    // is evaluated again every time
+    private void compileLoop(LoopNode loop) {
+        int iterator = temporary();
+        boolean hasVariable = loop.assignment.isPresent();
+        int value = compileExpression(loop.expression);
+        int next = temporary();
+        emit(RegisterOpcode.LOOP_START, iterator, value, hasVariable ? next : -1);
+        if (hasVariable)
+            compileCreate(loop.assignment.get(), next);
+
+        int head = size;
+        int toEndFromBoolean = -1;
+        int toBody = -1;
+        if (loop.expressionType == TypeTable.UNKNOWN) {
+            int toIterator = emitJump(RegisterOpcode.JUMP_IF_ITERATOR, iterator);
+            int condition = compileExpression(loop.expression);
+            toEndFromBoolean = emitJump(RegisterOpcode.JUMP_IF_FALSE, condition);
+            if (hasVariable)
+                compileStore(loop.assignment.get(), trueRegister);
+            toBody = emitJump(RegisterOpcode.JUMP);
+            patch(toIterator);
+        }
+        int toEndFromIterator = emitJump(RegisterOpcode.ITER_NEXT, iterator, next);
+        if (hasVariable)
+            compileStore(loop.assignment.get(), next);
+
+        if (toBody >= 0)
+            patch(toBody);
+        compileStatements(loop.statements);
+        emit(RegisterOpcode.JUMP, head);
+        if (toEndFromBoolean >= 0)
+            patch(toEndFromBoolean);
+        patch(toEndFromIterator);
+    }
+
+    //              Expressions
+
+    /**
+     * @return the register that holds the expression's value
+     */
+    private int compileExpression(ExpressionNode expression) {
+        switch (expression) {
+            case NumericLiteralNode literal -> {
+                return literalRegisters.get(literal);
+            }
+            case StringLiteralNode literal -> {
+                return literalRegisters.get(literal);
+            }
+            case BooleanLiteralNode literal -> {
+                return literalRegisters.get(literal);
+            }
+            case CharLiteralNode literal -> {
+                return literalRegisters.get(literal);
+            }
+            case VariableReferenceNode variable -> {
+                return compileLoad(variable);
+            }
+            case MethodCallExpressionNode methodCall -> {
+                return compileCall(new MethodCallStatementNode(methodCall), 1);
+            }
+            case NewNode newNode -> {
+                var classNode = classes.get(newNode.className);
+                if (classNode == null) {
+                    emit(RegisterOpcode.FAIL, constant("Class not found for constructor: %s".formatted(newNode)));
+                    return temporary();
+                }
+                int arguments = temporaries(Math.max(newNode.parameters.size(), 1));
+                compileArguments(newNode.parameters, arguments);
+                emit(RegisterOpcode.NEW, constant(new NewSite(classNode, newNode.parameters.size())), arguments, arguments);
+                return arguments;
+            }
+            default -> {
+                int result = temporary();
+                compileOperator(expression, result);
+                return result;
+            }
+        }
+    }
+
+    // An operator makes a new value, which can go straight into a declared variable of the same type instead of
+    // being assigned to it
+    private boolean compileInto(ExpressionNode expression, VariableReferenceNode target) {
+        if (target.slot >= declaredSlots)
+            return false;
+        int type = switch (expression) {
+            case MathOpNode mathOp -> mathOp.type;
+            case CompareNode compare -> TypeTable.BOOLEAN;
+            case BooleanOpNode booleanOp -> TypeTable.BOOLEAN;
+            case NotOpNode notOp -> TypeTable.BOOLEAN;
+            default -> TypeTable.UNKNOWN;
+        };
+        if (type == TypeTable.UNKNOWN || type != target.type)
+            return false;
+        compileOperator(expression, target.slot);
+        return true;
+    }
+
+    private void compileOperator(ExpressionNode expression, int result) {
+        switch (expression) {
+            case MathOpNode mathOp -> {
+                int left = compileExpression(mathOp.left);
+                int right = compileExpression(mathOp.right);
+                // The TypeChecker has proven the types of both sides
+                if (mathOp.type == TypeTable.NUMBER) {
+                    emit(switch (mathOp.op) {
+                        case add -> RegisterOpcode.ADD;
+                        case subtract -> RegisterOpcode.SUBTRACT;
+                        case multiply -> RegisterOpcode.MULTIPLY;
+                        case divide -> RegisterOpcode.DIVIDE;
+                        case modulo -> RegisterOpcode.MODULO;
+                    }, result, left, right);
+                } else if (mathOp.type == TypeTable.STRING) {
+                    emit(RegisterOpcode.CONCAT, result, left, right);
+                } else {
+                    emit(RegisterOpcode.MATH, result, left, right, mathOp.op.ordinal());
+                }
+            }
+            case CompareNode compare -> {
+                int left = compileExpression(compare.left);
+                int right = compileExpression(compare.right);
+                if (compare.operandType == TypeTable.NUMBER) {
+                    emit(switch (compare.op) {
+                        case lt -> RegisterOpcode.LESS;
+                        case le -> RegisterOpcode.LESS_EQUAL;
+                        case gt -> RegisterOpcode.GREATER;
+                        case ge -> RegisterOpcode.GREATER_EQUAL;
+                        case eq -> RegisterOpcode.EQUAL;
+                        case ne -> RegisterOpcode.NOT_EQUAL;
+                    }, result, left, right);
+                } else {
+                    emit(RegisterOpcode.COMPARE, result, left, right, constant(compare));
+                }
+            }
+            case BooleanOpNode booleanOp -> {
+                int left = compileExpression(booleanOp.left);
+                int right = compileExpression(booleanOp.right);
+                emit(booleanOp.op == BooleanOpNode.BooleanOperations.and ? RegisterOpcode.AND : RegisterOpcode.OR, result, left, right);
+            }
+            case NotOpNode notOp -> emit(RegisterOpcode.NOT, result, compileExpression(notOp.left));
+            default -> throw new RuntimeException("Unknown expression: " + expression);
+        }
+    }
+
+    private int compileLoad(VariableReferenceNode variable) {
+        if (variable.isMember) {
+            int member = temporary();
+            emit(RegisterOpcode.LOAD_MEMBER, member, variable.slot, constant(variable.name));
+            return member;
+        }
+        if (variable.slot < 0) {
+            emit(RegisterOpcode.FAIL, constant("Unable to find variable " + variable.name));
+            return temporary();
+        }
+        if (variable.slot >= declaredSlots)
+            emit(RegisterOpcode.CHECK, variable.slot, constant(variable.name));
+        return variable.slot;
+    }
+
+    /**
+     * @return the first of the registers the returned values are put in
+     */
+    private int compileCall(MethodCallStatementNode call, int returnCount) {
+        int arguments = temporaries(Math.max(call.parameters.size(), returnCount));
+        compileArguments(call.parameters, arguments);
+        CallSite.Kind kind;
+        int object = -1;
+        if (call.objectName.isEmpty()) {
+            kind = CallSite.Kind.SELF;
+        } else if (classes.containsKey(call.objectName.get())) {
+            kind = CallSite.Kind.SHARED;
+        } else {
+            kind = CallSite.Kind.OBJECT;
+            // The arguments are evaluated before the object is found
+            if (call.objectReference == null)
+                emit(RegisterOpcode.FAIL, constant("Unable to find variable " + call.objectName.get()));
+            else
+                object = compileLoad(call.objectReference);
+        }
+        var site = new CallSite(call, kind, returnCount);
+        if (kind == CallSite.Kind.SHARED)
+            site.cachedClass = classes.get(call.objectName.get());
+        emit(RegisterOpcode.CALL, constant(site), arguments, object);
+        return arguments;
+    }
+
+    // Each argument is copied as soon as it is evaluated, so later arguments can't change it. An operator's result is
+    // already a new value, so goes straight into its register.
+    private void compileArguments(List<ExpressionNode> arguments, int first) {
+        for (int i = 0; i < arguments.size(); i++) {
+            var argument = arguments.get(i);
+            if (argument instanceof MathOpNode || argument instanceof CompareNode || argument instanceof BooleanOpNode || argument instanceof NotOpNode)
+                compileOperator(argument, first + i);
+            else
+                emit(RegisterOpcode.COPY, first + i, compileExpression(argument));
+        }
+    }
+
+    //              Registers
+
+    private int temporary() {
+        return temporaries(1);
+    }
+
+    // Reserve count registers in a row until the statement is done
+    private int temporaries(int count) {
+        int first = nextRegister;
+        nextRegister += count;
+        registerCount = Math.max(registerCount, nextRegister);
+        return first;
+    }
+
+    //              Emitting
+
+    private void emit(int opcode, int... operands) {
+        if (size + 1 + operands.length > code.length)
+            code = Arrays.copyOf(code, code.length * 2 + operands.length);
+        code[size++] = opcode;
+        for (var operand : operands)
+            code[size++] = operand;
+    }
+
+    /**
+     * Emit a jump whose target is filled in later by patch(); its target is its last operand
+     * @return where the target goes
+     */
+    private int emitJump(int opcode, int... operands) {
+        emit(opcode, Arrays.copyOf(operands, operands.length + 1));
+        return size - 1;
+    }
+
+    // Make the jump go to the next instruction
+    private void patch(int target) {
+        code[target] = size;
+    }
+
+    private int constant(Object value) {
+        // Call sites and compares are never shared; names and messages are
+        if (value instanceof CallSite || value instanceof NewSite || value instanceof CompareNode) {
+            constants.add(value);
+            return constants.size() - 1;
+        }
+        return constantIndexes.computeIfAbsent(value, v -> {
+            constants.add(v);
+            return constants.size() - 1;
+        });
+    }
+}
@@ -0,0 +1,44 @@
+package Interpreter.VM;
+
+import AST.VariableDeclarationNode;
+import Interpreter.DataTypes.InterpreterDataType;
+
+/**
+ * A method or constructor compiled to register code (see RegisterOpcode).
+ * <br></br>
+ * The frame has registerCount registers: the parameters, locals and returns in the slots the Resolver gave them, then
+ * implicit variables, then one register for each literal, starting at firstLiteral, then temporaries and iterators.
+ */
+public class RegisterMethod {
+    public final String name;
+    public final int[] code;
+    public final Object[] constants;
+    public final int registerCount;
+    public final int parameterCount;
+    // Declared locals and returns, which are given their default values when the method is called
+    final VariableDeclarationNode[] variables;
+    public final int firstReturnSlot;
+    public final int returnCount;
+    public final int firstLiteral;
+    // The values of the literals. Every call shares them, since nothing assigns to a literal's register.
+    final InterpreterDataType[] literals;
+
+    RegisterMethod(String name, int[] code, Object[] constants, int registerCount, int parameterCount,
+                   VariableDeclarationNode[] variables, int returnCount, int firstLiteral, InterpreterDataType[] literals) {
+        this.name = name;
+        this.code = code;
+        this.constants = constants;
+        this.registerCount = registerCount;
+        this.parameterCount = parameterCount;
+        this.variables = variables;
+        this.returnCount = returnCount;
+        this.firstLiteral = firstLiteral;
+        this.literals = literals;
+        firstReturnSlot = parameterCount + variables.length - returnCount;
+    }
+
+    @Override
+    public String toString() {
+        return Disassembler.disassemble(this);
+    }
+}
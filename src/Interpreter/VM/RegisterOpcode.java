@@ -0,0 +1,132 @@
+package Interpreter.VM;
+
+/**
+ * The instructions of the register VM. Like Opcode, each instruction is its opcode followed by its operands, but
+ * operands name registers (the method's frame slots) instead of working on a stack, so most expressions need one
+ * instruction per operator and none to move values around.
+ * <br></br>
+ * The registers are the method's variables (in the slots the Resolver gave them), then one register for each literal
+ * (see RegisterMethod), then temporaries. "k" operands are indexes into the method's constants.
+ */
+public final class RegisterOpcode {
+    private RegisterOpcode() {
+    }
+
+    // MOVE dst src: assign src to the variable in dst
+    public static final int MOVE = 0;
+    // CREATE dst src: store src the way Interpreter.storeVariable() does; an implicit variable becomes src
+    public static final int CREATE = 1;
+    // COPY dst src: put a copy of src in dst, as the value of an argument (objects aren't copied)
+    public static final int COPY = 2;
+    // CHECK src k: fail if the implicit variable k in src hasn't been created yet
+    public static final int CHECK = 3;
+    // LOAD_MEMBER dst index k: put the current object's member in dst; k is its name
+    public static final int LOAD_MEMBER = 4;
+    // STORE_MEMBER index src k: assign src to the current object's member
+    public static final int STORE_MEMBER = 5;
+
+    // Arithmetic on two numbers, proven by the TypeChecker: OP dst left right
+    public static final int ADD = 6;
+    public static final int SUBTRACT = 7;
+    public static final int MULTIPLY = 8;
+    public static final int DIVIDE = 9;
+    public static final int MODULO = 10;
+    // CONCAT dst left right: join two values proven to make a string
+    public static final int CONCAT = 11;
+    // MATH dst left right op: do MathOperations.values()[op] on two values of unknown types
+    public static final int MATH = 12;
+
+    // Comparisons of two numbers, proven by the TypeChecker: OP dst left right
+    public static final int LESS = 13;
+    public static final int LESS_EQUAL = 14;
+    public static final int GREATER = 15;
+    public static final int GREATER_EQUAL = 16;
+    public static final int EQUAL = 17;
+    public static final int NOT_EQUAL = 18;
+    // COMPARE dst left right k: compare two values of unknown types with the CompareNode in constant k
+    public static final int COMPARE = 19;
+
+    // Boolean operators: AND/OR dst left right, NOT dst operand
+    public static final int AND = 20;
+    public static final int OR = 21;
+    public static final int NOT = 22;
+
+    // JUMP target
+    public static final int JUMP = 23;
+    // JUMP_IF_FALSE src target: jump if the boolean in src is false
+    public static final int JUMP_IF_FALSE = 24;
+    // JUMP_IF_NOT_TRUE src target: like JUMP_IF_FALSE, but fails if src isn't a boolean
+    public static final int JUMP_IF_NOT_TRUE = 25;
+
+    // CALL k base object: run the call site in constant k with the arguments in the registers from base. object is
+    // the register holding the object for calls on a variable (otherwise -1). The returned values go in the registers
+    // from base.
+    public static final int CALL = 26;
+    // NEW k base dst: make the object described by constant k, with the arguments in the registers from base
+    public static final int NEW = 27;
+
+    // LOOP_START iterator src dst: start a loop over the value in src. An iterator is kept in register iterator (a
+    // boolean leaves it empty). If dst isn't -1, a default value for the loop variable goes there.
+    public static final int LOOP_START = 28;
+    // JUMP_IF_ITERATOR iterator target: jump if the register holds an iterator
+    public static final int JUMP_IF_ITERATOR = 29;
+    // ITER_NEXT iterator dst target: call getNext(); jump if it is done, otherwise put the next value in dst
+    public static final int ITER_NEXT = 30;
+
+    // RETURN: end the method; what it returns is in its return variables
+    public static final int RETURN = 31;
+    // FAIL k: throw an error with the message in constant k
+    public static final int FAIL = 32;
+    // TAIL_CALL base: a call of this method (see TailCallFinder); its arguments, in the registers from base, become
+    // the parameters, and the method runs again
+    public static final int TAIL_CALL = 33;
+
+    // A loop over n.times() on a number variable counts in a register instead of calling an iterator's getNext().
+    // TIMES_START counter src: counter counts from 0, up to the number in src cut down to an int, kept in counter + 1
+    public static final int TIMES_START = 34;
+    // TIMES_NEXT counter target: count one more in counter; jump if that is past the last
+    public static final int TIMES_NEXT = 35;
+
+    // JUMP_IF_COMPARE_FALSE left right c target: compare two numbers with compare operator c, and jump if that is
+    // false, without making a boolean
+    public static final int JUMP_IF_COMPARE_FALSE = 36;
+
+    private static final String[] NAMES = {
+            "MOVE", "CREATE", "COPY", "CHECK", "LOAD_MEMBER", "STORE_MEMBER",
+            "ADD", "SUBTRACT", "MULTIPLY", "DIVIDE", "MODULO", "CONCAT", "MATH",
+            "LESS", "LESS_EQUAL", "GREATER", "GREATER_EQUAL", "EQUAL", "NOT_EQUAL", "COMPARE",
+            "AND", "OR", "NOT",
+            "JUMP", "JUMP_IF_FALSE", "JUMP_IF_NOT_TRUE",
+            "CALL", "NEW",
+            "LOOP_START", "JUMP_IF_ITERATOR", "ITER_NEXT",
+            "RETURN", "FAIL", "TAIL_CALL",
+            "TIMES_START", "TIMES_NEXT",
+            "JUMP_IF_COMPARE_FALSE"
+    };
+
+    // What each operand is: r a register, k a constant, t a jump target, i a member index, o a math operator, c a
+    // compare operator
+    private static final String[] OPERANDS = {
+            "rr", "rr", "rr", "rk", "rik", "irk",
+            "rrr", "rrr", "rrr", "rrr", "rrr", "rrr", "rrro",
+            "rrr", "rrr", "rrr", "rrr", "rrr", "rrr", "rrrk",
+            "rrr", "rrr", "rr",
+            "t", "rt", "rt",
+            "krr", "krr",
+            "rrr", "rt", "rrt",
+            "", "k", "r",
+            "rr", "rt",
+            "rrct"
+    };
+
+    public static String nameOf(int opcode) {
+        return NAMES[opcode];
+    }
+
+    /**
+     * @return one character for each operand that follows the opcode, saying what it is
+     */
+    public static String operandsOf(int opcode) {
+        return OPERANDS[opcode];
+    }
+}
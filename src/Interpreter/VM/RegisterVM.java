@@ -0,0 +1,261 @@
+package Interpreter.VM;
+
+import AST.*;
+import Interpreter.Interpreter;
+import Interpreter.DataTypes.*;
+
+import java.util.*;
+
+/**
+ * Runs a program by compiling each method to register code (see RegisterOpcode) the first time it is called. Finds
+ * methods and constructors the same way as VM; only what runs them is different.
+ */
+public class RegisterVM extends VM {
+    private static final InterpreterDataType[] NO_VALUES = new InterpreterDataType[0];
+    private static final CompareNode.CompareOperations[] COMPARE_OPERATIONS = CompareNode.CompareOperations.values();
+
+    private final RegisterCompiler compiler;
+    private final Map<MethodDeclarationNode, RegisterMethod> methods = new IdentityHashMap<>();
+    private final Map<ConstructorNode, RegisterMethod> constructors = new IdentityHashMap<>();
+
+    /**
+     * @param interpreter - the interpreter that loaded the program, for its type checks
+     * @param top - the head of the AST, after the interpreter has loaded it
+     * @param interatorClass - the built-in class of the iterators that times() makes
+     * @param iteratorTypeId - the type ID of the `iterator` interface
+     */
+    public RegisterVM(Interpreter interpreter, TranNode top, ClassNode interatorClass, int iteratorTypeId) {
+        super(interpreter, top, interatorClass, iteratorTypeId);
+        compiler = new RegisterCompiler(top);
+    }
+
+    /**
+     * @return the method's register code, compiling it if it hasn't been called yet
+     */
+    public RegisterMethod registerCodeOf(MethodDeclarationNode method) {
+        return methods.computeIfAbsent(method, compiler::compile);
+    }
+
+    @Override
+    protected InterpreterDataType[] invoke(MethodDeclarationNode method, ObjectIDT object, InterpreterDataType[] arguments) {
+        return execute(registerCodeOf(method), object, arguments);
+    }
+
+    @Override
+    protected void construct(NewSite site, int index, ObjectIDT instance, InterpreterDataType[] arguments) {
+        var constructor = constructors.computeIfAbsent(site.classNode.constructors.get(index), compiler::compile);
+        execute(constructor, instance, arguments);
+    }
+
+    //              The dispatch loop
+
+    private InterpreterDataType[] execute(RegisterMethod method, ObjectIDT object, InterpreterDataType[] arguments) {
+        var registers = new InterpreterDataType[method.registerCount];
+        System.arraycopy(arguments, 0, registers, 0, arguments.length);
+        initialize(method, registers);
+        System.arraycopy(method.literals, 0, registers, method.firstLiteral, method.literals.length);
+
+        final int[] code = method.code;
+        final Object[] constants = method.constants;
+        int pc = 0;
+        while (true) {
+            instructionsExecuted++;
+            switch (code[pc]) {
+                case RegisterOpcode.MOVE -> {
+                    registers[code[pc + 1]].Assign(registers[code[pc + 2]]);
+                    pc += 3;
+                }
+                case RegisterOpcode.CREATE -> {
+                    int target = code[pc + 1];
+                    if (registers[target] == null)
+                        registers[target] = registers[code[pc + 2]];
+                    else
+                        registers[target].Assign(registers[code[pc + 2]]);
+                    pc += 3;
+                }
+                case RegisterOpcode.COPY -> {
+                    registers[code[pc + 1]] = Interpreter.copy(registers[code[pc + 2]]);
+                    pc += 3;
+                }
+                case RegisterOpcode.CHECK -> {
+                    // An implicit variable that hasn't been created yet
+                    if (registers[code[pc + 1]] == null)
+                        throw new RuntimeException("Unable to find variable " + constants[code[pc + 2]]);
+                    pc += 3;
+                }
+                case RegisterOpcode.LOAD_MEMBER -> {
+                    registers[code[pc + 1]] = member(object, code[pc + 2], constants[code[pc + 3]]);
+                    pc += 4;
+                }
+                case RegisterOpcode.STORE_MEMBER -> {
+                    member(object, code[pc + 1], constants[code[pc + 3]]).Assign(registers[code[pc + 2]]);
+                    pc += 4;
+                }
+
+                case RegisterOpcode.ADD -> {
+                    registers[code[pc + 1]] = new NumberIDT(((NumberIDT) registers[code[pc + 2]]).getValue() + ((NumberIDT) registers[code[pc + 3]]).getValue());
+                    pc += 4;
+                }
+                case RegisterOpcode.SUBTRACT -> {
+                    registers[code[pc + 1]] = new NumberIDT(((NumberIDT) registers[code[pc + 2]]).getValue() - ((NumberIDT) registers[code[pc + 3]]).getValue());
+                    pc += 4;
+                }
+                case RegisterOpcode.MULTIPLY -> {
+                    registers[code[pc + 1]] = new NumberIDT(((NumberIDT) registers[code[pc + 2]]).getValue() * ((NumberIDT) registers[code[pc + 3]]).getValue());
+                    pc += 4;
+                }
+                case RegisterOpcode.DIVIDE -> {
+                    registers[code[pc + 1]] = new NumberIDT(((NumberIDT) registers[code[pc + 2]]).getValue() / ((NumberIDT) registers[code[pc + 3]]).getValue());
+                    pc += 4;
+                }
+                case RegisterOpcode.MODULO -> {
+                    registers[code[pc + 1]] = new NumberIDT(Interpreter.modulo(((NumberIDT) registers[code[pc + 2]]).getValue(), ((NumberIDT) registers[code[pc + 3]]).getValue()));
+                    pc += 4;
+                }
+                case RegisterOpcode.CONCAT -> {
+                    registers[code[pc + 1]] = StringIDT.join(registers[code[pc + 2]], registers[code[pc + 3]]);
+                    pc += 4;
+                }
+                case RegisterOpcode.MATH -> {
+                    var op = MathOpNode.MathOperations.values()[code[pc + 4]];
+                    registers[code[pc + 1]] = math(op, registers[code[pc + 2]], registers[code[pc + 3]]);
+                    pc += 5;
+                }
+
+                case RegisterOpcode.LESS -> {
+                    registers[code[pc + 1]] = new BooleanIDT(((NumberIDT) registers[code[pc + 2]]).getValue() < ((NumberIDT) registers[code[pc + 3]]).getValue());
+                    pc += 4;
+                }
+                case RegisterOpcode.LESS_EQUAL -> {
+                    registers[code[pc + 1]] = new BooleanIDT(((NumberIDT) registers[code[pc + 2]]).getValue() <= ((NumberIDT) registers[code[pc + 3]]).getValue());
+                    pc += 4;
+                }
+                case RegisterOpcode.GREATER -> {
+                    registers[code[pc + 1]] = new BooleanIDT(((NumberIDT) registers[code[pc + 2]]).getValue() > ((NumberIDT) registers[code[pc + 3]]).getValue());
+                    pc += 4;
+                }
+                case RegisterOpcode.GREATER_EQUAL -> {
+                    registers[code[pc + 1]] = new BooleanIDT(((NumberIDT) registers[code[pc + 2]]).getValue() >= ((NumberIDT) registers[code[pc + 3]]).getValue());
+                    pc += 4;
+                }
+                case RegisterOpcode.EQUAL -> {
+                    registers[code[pc + 1]] = new BooleanIDT(((NumberIDT) registers[code[pc + 2]]).getValue() == ((NumberIDT) registers[code[pc + 3]]).getValue());
+                    pc += 4;
+                }
+                case RegisterOpcode.NOT_EQUAL -> {
+                    registers[code[pc + 1]] = new BooleanIDT(((NumberIDT) registers[code[pc + 2]]).getValue() != ((NumberIDT) registers[code[pc + 3]]).getValue());
+                    pc += 4;
+                }
+                case RegisterOpcode.COMPARE -> {
+                    var compare = (CompareNode) constants[code[pc + 4]];
+                    registers[code[pc + 1]] = Interpreter.evaluateCompareExp(compare, registers[code[pc + 2]], registers[code[pc + 3]]);
+                    pc += 5;
+                }
+
+                case RegisterOpcode.AND -> {
+                    registers[code[pc + 1]] = new BooleanIDT(((BooleanIDT) registers[code[pc + 2]]).getValue() && ((BooleanIDT) registers[code[pc + 3]]).getValue());
+                    pc += 4;
+                }
+                case RegisterOpcode.OR -> {
+                    registers[code[pc + 1]] = new BooleanIDT(((BooleanIDT) registers[code[pc + 2]]).getValue() || ((BooleanIDT) registers[code[pc + 3]]).getValue());
+                    pc += 4;
+                }
+                case RegisterOpcode.NOT -> {
+                    registers[code[pc + 1]] = new BooleanIDT(!((BooleanIDT) registers[code[pc + 2]]).getValue());
+                    pc += 3;
+                }
+
+                case RegisterOpcode.JUMP -> pc = code[pc + 1];
+                case RegisterOpcode.JUMP_IF_FALSE -> pc = ((BooleanIDT) registers[code[pc + 1]]).getValue() ? pc + 3 : code[pc + 2];
+                case RegisterOpcode.JUMP_IF_COMPARE_FALSE -> {
+                    boolean result = Interpreter.compareNumbers(COMPARE_OPERATIONS[code[pc + 3]],
+                            ((NumberIDT) registers[code[pc + 1]]).getValue(), ((NumberIDT) registers[code[pc + 2]]).getValue());
+                    pc = result ? pc + 5 : code[pc + 4];
+                }
+                case RegisterOpcode.JUMP_IF_NOT_TRUE -> {
+                    if (!(registers[code[pc + 1]] instanceof BooleanIDT condition))
+                        throw new RuntimeException("Expected boolean expression");
+                    pc = condition.getValue() ? pc + 3 : code[pc + 2];
+                }
+
+                case RegisterOpcode.CALL -> {
+                    var site = (CallSite) constants[code[pc + 1]];
+                    int first = code[pc + 2];
+                    var target = site.kind == CallSite.Kind.OBJECT ? registers[code[pc + 3]] : null;
+                    var values = Arrays.copyOfRange(registers, first, first + site.argumentCount);
+                    var returned = call(site, object, target, values);
+                    if (returned.length < site.returnCount)
+                        throw new RuntimeException("Method %s doesn't return enough values".formatted(site.call.methodName));
+                    System.arraycopy(returned, 0, registers, first, site.returnCount);
+                    pc += 4;
+                }
+                case RegisterOpcode.NEW -> {
+                    var site = (NewSite) constants[code[pc + 1]];
+                    int first = code[pc + 2];
+                    var values = Arrays.copyOfRange(registers, first, first + site.argumentCount);
+                    registers[code[pc + 3]] = construct(site, values);
+                    pc += 4;
+                }
+
+                case RegisterOpcode.LOOP_START -> {
+                    var iterator = iteratorOf(registers[code[pc + 2]]);
+                    registers[code[pc + 1]] = iterator;
+                    if (code[pc + 3] >= 0)
+                        registers[code[pc + 3]] = loopVariableFor(iterator);
+                    pc += 4;
+                }
+                case RegisterOpcode.JUMP_IF_ITERATOR -> pc = registers[code[pc + 1]] != null ? code[pc + 2] : pc + 3;
+                case RegisterOpcode.ITER_NEXT -> {
+                    var iterator = (ObjectIDT) registers[code[pc + 1]];
+                    var returned = call(findGetNext(iterator), iterator, NO_VALUES);
+                    if (((BooleanIDT) returned[0]).getValue()) {
+                        registers[code[pc + 2]] = returned[1];
+                        pc += 4;
+                    } else {
+                        pc = code[pc + 3];
+                    }
+                }
+
+                case RegisterOpcode.TIMES_START -> {
+                    int counter = code[pc + 1];
+                    registers[counter] = new NumberIDT(0);
+                    registers[counter + 1] = new NumberIDT((int) ((NumberIDT) registers[code[pc + 2]]).getValue());
+                    pc += 3;
+                }
+                case RegisterOpcode.TIMES_NEXT -> {
+                    int counter = code[pc + 1];
+                    var count = (NumberIDT) registers[counter];
+                    double next = count.getValue() + 1;
+                    if (next > ((NumberIDT) registers[counter + 1]).getValue()) {
+                        pc = code[pc + 2];
+                    } else {
+                        count.set(next);
+                        pc += 3;
+                    }
+                }
+
+                case RegisterOpcode.RETURN -> {
+                    if (method.returnCount == 0)
+                        return NO_VALUES;
+                    return Arrays.copyOfRange(registers, method.firstReturnSlot, method.firstReturnSlot + method.returnCount);
+                }
+                case RegisterOpcode.FAIL -> throw new RuntimeException((String) constants[code[pc + 1]]);
+                case RegisterOpcode.TAIL_CALL -> {
+                    System.arraycopy(registers, code[pc + 1], registers, 0, method.parameterCount);
+                    initialize(method, registers);
+                    pc = 0;
+                }
+                default -> throw new RuntimeException("Unknown opcode " + code[pc] + " at " + pc + " in " + method.name);
+            }
+        }
+    }
+
+    // Give the method's variables their starting values; implicit variables start out empty, also when a tail call
+    // reuses the registers
+    private static void initialize(RegisterMethod method, InterpreterDataType[] registers) {
+        int slot = method.parameterCount;
+        for (var variable : method.variables)
+            registers[slot++] = Interpreter.instantiate(variable);
+        Arrays.fill(registers, slot, method.firstLiteral, null);
+    }
+}
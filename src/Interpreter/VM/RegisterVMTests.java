@@ -0,0 +1,63 @@
+package Interpreter.VM;
+
+import Interpreter.Interpreter;
+import Interpreter.InterpreterTests;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+// Runs every interpreter test on the register VM
+public class RegisterVMTests extends InterpreterTests {
+    @Override
+    protected Interpreter.Engine engine() {
+        return Interpreter.Engine.REGISTER_VM;
+    }
+
+    private static final String COUNTING = """
+            class Tran
+                shared start()
+                    number i
+                    number total
+                    number n
+                    n = 3
+                    loop i = n.times()
+                        if i != 2
+                            total = total + i
+                    console.write("total: ", total)
+            """;
+
+    @Test
+    public void registerCodeCanBeDisassembled() throws Exception {
+        var tran = parse(COUNTING);
+        var interpreter = new Interpreter(tran);
+        var start = Interpreter.findStartMethod(tran).orElseThrow();
+        var code = new RegisterVM(interpreter, tran, null, -1).registerCodeOf(start);
+        var listing = Disassembler.disassemble(code);
+        Assertions.assertTrue(listing.startsWith("start ("), listing);
+        // n is a number variable, so the loop counts in a register instead of calling times() and getNext()
+        Assertions.assertTrue(listing.contains("TIMES_NEXT"), listing);
+        Assertions.assertFalse(listing.contains("ITER_NEXT"), listing);
+        // i != 2 jumps on the comparison, without making a boolean
+        Assertions.assertTrue(listing.contains("JUMP_IF_COMPARE_FALSE"), listing);
+        Assertions.assertTrue(listing.contains("; ne") || listing.contains(", ne"), listing);
+        // The sum goes straight into the variable, in one instruction
+        Assertions.assertTrue(listing.contains("ADD r1 r1 r0"), listing);
+        Assertions.assertTrue(listing.contains("= \"total: \""), listing);
+        Assertions.assertTrue(listing.endsWith("RETURN\n"), listing);
+    }
+
+    @Test
+    public void registersNeedFewerInstructionsThanTheStack() throws Exception {
+        long stack = instructionsFor(Interpreter.Engine.VM);
+        long registers = instructionsFor(Interpreter.Engine.REGISTER_VM);
+        Assertions.assertTrue(stack > 0);
+        Assertions.assertTrue(registers < stack, registers + " register instructions, " + stack + " stack instructions");
+    }
+
+    private static long instructionsFor(Interpreter.Engine engine) throws Exception {
+        var tran = parse(COUNTING);
+        var interpreter = new Interpreter(tran);
+        interpreter.setEngine(engine);
+        interpreter.start();
+        return interpreter.getInstructionsExecuted();
+    }
+}
@@ -0,0 +1,856 @@
+package Interpreter.VM;
+
+import AST.*;
+import Interpreter.CloneObjectMethod;
+import Interpreter.ConsoleWrite;
+import Interpreter.CreateInteratorMethodDeclaration;
+import Interpreter.Interpreter;
+import Interpreter.MemoCache;
+import Interpreter.TypeTable;
+import Interpreter.DataTypes.*;
+
+import java.util.*;
+
+/**
+ * Runs a program by compiling each method to bytecode (see Opcode) the first time it is called, and running the
+ * bytecode with a stack of values.
+ * <br></br>
+ * Finds methods and constructors the same way as Interpreter, so gives the same results. RegisterVM runs a different
+ * instruction set, but finds methods the same way, so only replaces how a method or constructor is run.
+ * <br></br>
+ * Every slot has a raw twin, a long, for the raw values the compiler has proven the type of: a number is its double's
+ * bits, a boolean is 1 or 0, and a character is its code. So arithmetic, comparisons and conditions on numbers
+ * allocate nothing; only BOX does.
+ */
+public class VM {
+    private static final InterpreterDataType[] NO_VALUES = new InterpreterDataType[0];
+    private static final CompareNode.CompareOperations[] COMPARE_OPERATIONS = CompareNode.CompareOperations.values();
+    // About 64MB of references
+    public static final long DEFAULT_STACK_BUDGET = 16_000_000;
+    // The slots execute() starts with; they grow as calls go deeper
+    private static final int INITIAL_SLOTS = 256;
+
+    private final Interpreter interpreter;
+    private final BytecodeCompiler compiler;
+    private final ClassNode interatorClass;
+    private final int iteratorTypeId;
+    private final MemoCache memoCache;
+    private final Map<MethodDeclarationNode, BytecodeMethod> methods = new IdentityHashMap<>();
+    // Counted by the dispatch loop, for comparing instruction sets
+    protected long instructionsExecuted;
+    // The heap stack of running methods (see execute()); its frames are reused
+    private Frame[] frames = new Frame[16];
+    private int depth;
+    private long slotsInUse;
+    private long stackBudget = DEFAULT_STACK_BUDGET;
+    // How many times each superinstruction has run, from Opcode.FIRST_SUPERINSTRUCTION on
+    private final long[] superinstructionsExecuted = new long[Opcode.count() - Opcode.FIRST_SUPERINSTRUCTION];
+
+    /**
+     * @param interpreter - the interpreter that loaded the program, for its type checks
+     * @param top - the head of the AST, after the interpreter has loaded it
+     * @param interatorClass - the built-in class of the iterators that times() makes
+     * @param iteratorTypeId - the type ID of the `iterator` interface
+     */
+    public VM(Interpreter interpreter, TranNode top, ClassNode interatorClass, int iteratorTypeId) {
+        this.interpreter = interpreter;
+        this.interatorClass = interatorClass;
+        this.iteratorTypeId = iteratorTypeId;
+        memoCache = interpreter.getMemoCache();
+        compiler = new BytecodeCompiler(top);
+    }
+
+    /**
+     * Run a shared method with no parameters, like start()
+     */
+    public void run(MethodDeclarationNode method) {
+        call(method, null, NO_VALUES);
+    }
+
+    /**
+     * @return the method's bytecode, compiling it if it hasn't been called yet
+     */
+    public BytecodeMethod bytecodeOf(MethodDeclarationNode method) {
+        // Not computeIfAbsent(), whose method reference would be a new object on every call
+        var bytecode = methods.get(method);
+        if (bytecode == null) {
+            bytecode = compiler.compile(method);
+            methods.put(method, bytecode);
+        }
+        return bytecode;
+    }
+
+    /**
+     * @return how many instructions have been run so far
+     */
+    public long getInstructionsExecuted() {
+        return instructionsExecuted;
+    }
+
+    /**
+     * @return how many times each superinstruction has run so far, by name
+     */
+    public Map<String, Long> getSuperinstructionCounts() {
+        var counts = new LinkedHashMap<String, Long>();
+        for (int i = 0; i < superinstructionsExecuted.length; i++)
+            counts.put(Opcode.nameOf(Opcode.FIRST_SUPERINSTRUCTION + i), superinstructionsExecuted[i]);
+        return counts;
+    }
+
+    /**
+     * Same as Interpreter.interpretMethodCall()
+     * @return the method's return variables
+     */
+    InterpreterDataType[] call(MethodDeclarationNode method, ObjectIDT object, InterpreterDataType[] arguments) {
+        if (method instanceof BuiltInMethodDeclarationNode builtIn)
+            return builtIn.Execute(Arrays.asList(arguments)).toArray(NO_VALUES);
+        if (method.parameters.size() != arguments.length)
+            throw new RuntimeException("Unexpected number of parameters passed into " + method.name);
+        // Pure methods may have already been called with these arguments
+        MemoCache.Key memoKey = null;
+        if (memoCache != null && method.isPure) {
+            memoKey = MemoCache.keyOf(method, Arrays.asList(arguments));
+            var remembered = memoCache.get(memoKey);
+            if (remembered != null)
+                return remembered.toArray(NO_VALUES);
+        }
+        var returned = invoke(method, object, arguments);
+        if (memoKey != null)
+            memoCache.put(memoKey, Arrays.asList(returned));
+        return returned;
+    }
+
+    /**
+     * Run a method that isn't built in
+     * @return the method's return variables
+     */
+    protected InterpreterDataType[] invoke(MethodDeclarationNode method, ObjectIDT object, InterpreterDataType[] arguments) {
+        return execute(bytecodeOf(method), object, arguments);
+    }
+
+    /**
+     * Run the site's constructor at index on a new instance
+     */
+    protected void construct(NewSite site, int index, ObjectIDT instance, InterpreterDataType[] arguments) {
+        if (site.constructors[index] == null)
+            site.constructors[index] = compiler.compile(site.classNode.constructors.get(index));
+        execute(site.constructors[index], instance, arguments);
+    }
+
+    //              The dispatch loop
+
+    /**
+     * Run a method, and every Tran method, constructor and getNext() it calls, in one loop. A call pushes a frame on the
+     * heap stack and carries on in it; a RETURN pops it and finishes the instruction that made the call. So Tran
+     * recursion doesn't recurse in Java, and is only limited by the stack budget.
+     */
+    private InterpreterDataType[] execute(BytecodeMethod entry, ObjectIDT entryObject, InterpreterDataType[] arguments) {
+        // Built-in methods could run this again, so it only pops the frames it pushed
+        final int base = depth;
+        try {
+            return dispatch(entry, entryObject, arguments, base);
+        } finally {
+            // Still deeper only if an error is on its way out
+            while (depth > base)
+                pop();
+        }
+    }
+
+    private InterpreterDataType[] dispatch(BytecodeMethod entry, ObjectIDT entryObject, InterpreterDataType[] arguments, int base) {
+        // Object[] rather than InterpreterDataType[]: the JIT can check stores into an array of an interface quickly
+        // only while it knows exactly which array it is, and these are shared by all the frames
+        var slots = new Object[Math.max(INITIAL_SLOTS, entry.maxLocals + entry.maxStack)];
+        // Always the same length as slots
+        var raw = new long[slots.length];
+        System.arraycopy(arguments, 0, slots, 0, arguments.length);
+        var frame = push(entry, entryObject, slots, raw, 0);
+        var method = entry;
+        var object = entryObject;
+        var code = method.code;
+        var constants = method.constants;
+        int fp = 0;
+        int sp = method.maxLocals;
+        int pc = 0;
+        while (true) {
+            instructionsExecuted++;
+            switch (code[pc]) {
+                case Opcode.CONST -> {
+                    slots[sp++] = valueOf(constants[code[pc + 1]]);
+                    pc += 2;
+                }
+                case Opcode.LOAD -> {
+                    var value = slots[fp + code[pc + 1]];
+                    if (value == null) // An implicit variable that hasn't been created yet
+                        throw new RuntimeException("Unable to find variable " + constants[code[pc + 2]]);
+                    slots[sp++] = value;
+                    pc += 3;
+                }
+                case Opcode.LOAD_MEMBER -> {
+                    slots[sp++] = member(object, code[pc + 1], constants[code[pc + 2]]);
+                    pc += 3;
+                }
+                case Opcode.STORE -> {
+                    var target = (InterpreterDataType) slots[fp + code[pc + 1]];
+                    if (target == null)
+                        throw new RuntimeException("Unable to find variable " + constants[code[pc + 2]]);
+                    target.Assign((InterpreterDataType) slots[--sp]);
+                    pc += 3;
+                }
+                case Opcode.STORE_MEMBER -> {
+                    member(object, code[pc + 1], constants[code[pc + 2]]).Assign((InterpreterDataType) slots[--sp]);
+                    pc += 3;
+                }
+                case Opcode.CREATE -> {
+                    var value = (InterpreterDataType) slots[--sp];
+                    int target = code[pc + 1];
+                    if (slots[fp + target] == null)
+                        slots[fp + target] = value;
+                    else
+                        ((InterpreterDataType) slots[fp + target]).Assign(value);
+                    pc += 2;
+                }
+                case Opcode.POP -> {
+                    sp--;
+                    pc++;
+                }
+                case Opcode.COPY -> {
+                    slots[sp - 1] = Interpreter.copy((InterpreterDataType) slots[sp - 1]);
+                    pc++;
+                }
+
+                case Opcode.ADD -> {
+                    double r = number(raw[--sp]);
+                    raw[sp - 1] = bits(number(raw[sp - 1]) + r);
+                    pc++;
+                }
+                case Opcode.SUBTRACT -> {
+                    double r = number(raw[--sp]);
+                    raw[sp - 1] = bits(number(raw[sp - 1]) - r);
+                    pc++;
+                }
+                case Opcode.MULTIPLY -> {
+                    double r = number(raw[--sp]);
+                    raw[sp - 1] = bits(number(raw[sp - 1]) * r);
+                    pc++;
+                }
+                case Opcode.DIVIDE -> {
+                    double r = number(raw[--sp]);
+                    raw[sp - 1] = bits(number(raw[sp - 1]) / r);
+                    pc++;
+                }
+                case Opcode.MODULO -> {
+                    double r = number(raw[--sp]);
+                    raw[sp - 1] = bits(Interpreter.modulo(number(raw[sp - 1]), r));
+                    pc++;
+                }
+                case Opcode.CONCAT -> {
+                    var r = (InterpreterDataType) slots[--sp];
+                    slots[sp - 1] = StringIDT.join((InterpreterDataType) slots[sp - 1], r);
+                    pc++;
+                }
+                case Opcode.MATH -> {
+                    var r = (InterpreterDataType) slots[--sp];
+                    slots[sp - 1] = math(MathOpNode.MathOperations.values()[code[pc + 1]], (InterpreterDataType) slots[sp - 1], r);
+                    pc += 2;
+                }
+
+                case Opcode.LESS -> {
+                    double r = number(raw[--sp]);
+                    raw[sp - 1] = number(raw[sp - 1]) < r ? 1 : 0;
+                    pc++;
+                }
+                case Opcode.LESS_EQUAL -> {
+                    double r = number(raw[--sp]);
+                    raw[sp - 1] = number(raw[sp - 1]) <= r ? 1 : 0;
+                    pc++;
+                }
+                case Opcode.GREATER -> {
+                    double r = number(raw[--sp]);
+                    raw[sp - 1] = number(raw[sp - 1]) > r ? 1 : 0;
+                    pc++;
+                }
+                case Opcode.GREATER_EQUAL -> {
+                    double r = number(raw[--sp]);
+                    raw[sp - 1] = number(raw[sp - 1]) >= r ? 1 : 0;
+                    pc++;
+                }
+                case Opcode.EQUAL -> {
+                    double r = number(raw[--sp]);
+                    raw[sp - 1] = number(raw[sp - 1]) == r ? 1 : 0;
+                    pc++;
+                }
+                case Opcode.NOT_EQUAL -> {
+                    double r = number(raw[--sp]);
+                    raw[sp - 1] = number(raw[sp - 1]) != r ? 1 : 0;
+                    pc++;
+                }
+                case Opcode.COMPARE -> {
+                    var r = (InterpreterDataType) slots[--sp];
+                    slots[sp - 1] = Interpreter.evaluateCompareExp((CompareNode) constants[code[pc + 1]], (InterpreterDataType) slots[sp - 1], r);
+                    pc += 2;
+                }
+
+                case Opcode.AND -> {
+                    long r = raw[--sp];
+                    raw[sp - 1] &= r;
+                    pc++;
+                }
+                case Opcode.OR -> {
+                    long r = raw[--sp];
+                    raw[sp - 1] |= r;
+                    pc++;
+                }
+                case Opcode.NOT -> {
+                    raw[sp - 1] ^= 1;
+                    pc++;
+                }
+
+                case Opcode.JUMP -> pc = code[pc + 1];
+                case Opcode.JUMP_IF_FALSE -> pc = raw[--sp] != 0 ? pc + 2 : code[pc + 1];
+                case Opcode.JUMP_IF_NOT_TRUE -> {
+                    if (!(slots[--sp] instanceof BooleanIDT condition))
+                        throw new RuntimeException("Expected boolean expression");
+                    pc = condition.getValue() ? pc + 2 : code[pc + 1];
+                }
+
+                case Opcode.CALL -> {
+                    var site = (CallSite) constants[code[pc + 1]];
+                    var target = site.kind == CallSite.Kind.OBJECT ? (InterpreterDataType) slots[--sp] : null;
+                    sp -= site.argumentCount;
+                    // The arguments are matched where they are; only built-ins and the memo cache get a copy
+                    var callee = find(site, object, target, slots, sp);
+                    var receiver = receiverOf(site, object, target);
+                    if (callee instanceof BuiltInMethodDeclarationNode) {
+                        var values = Arrays.copyOfRange(slots, sp, sp + site.argumentCount, InterpreterDataType[].class);
+                        sp = pushReturned(site, call(callee, receiver, values), slots, sp);
+                        pc += 2;
+                        continue;
+                    }
+                    if (callee.parameters.size() != site.argumentCount)
+                        throw new RuntimeException("Unexpected number of parameters passed into " + callee.name);
+                    // Pure methods may have already been called with these arguments
+                    MemoCache.Key memoKey = null;
+                    if (memoCache != null && callee.isPure) {
+                        var values = Arrays.copyOfRange(slots, sp, sp + site.argumentCount, InterpreterDataType[].class);
+                        memoKey = MemoCache.keyOf(callee, Arrays.asList(values));
+                        var remembered = memoCache.get(memoKey);
+                        if (remembered != null) {
+                            sp = pushReturned(site, remembered.toArray(NO_VALUES), slots, sp);
+                            pc += 2;
+                            continue;
+                        }
+                    }
+                    // The arguments are already where the callee's parameters go
+                    var bytecode = bytecodeOf(callee);
+                    frame.pc = pc;
+                    frame.sp = sp;
+                    slots = roomFor(bytecode, slots, sp);
+                    raw = roomFor(bytecode, raw, sp);
+                    frame = push(bytecode, receiver, slots, raw, sp);
+                    frame.memoKey = memoKey;
+                    method = frame.method;
+                    object = frame.object;
+                    code = method.code;
+                    constants = method.constants;
+                    fp = sp;
+                    sp += method.maxLocals;
+                    pc = 0;
+                }
+                case Opcode.NEW -> {
+                    var site = (NewSite) constants[code[pc + 1]];
+                    sp -= site.argumentCount;
+                    var instance = instanceOf(site.classNode);
+                    int index = constructorFor(site, slots, sp);
+                    if (site.constructors[index] == null)
+                        site.constructors[index] = compiler.compile(site.classNode.constructors.get(index));
+                    frame.pc = pc;
+                    frame.sp = sp;
+                    slots = roomFor(site.constructors[index], slots, sp);
+                    raw = roomFor(site.constructors[index], raw, sp);
+                    frame = push(site.constructors[index], instance, slots, raw, sp);
+                    method = frame.method;
+                    object = frame.object;
+                    code = method.code;
+                    constants = method.constants;
+                    fp = sp;
+                    sp += method.maxLocals;
+                    pc = 0;
+                }
+
+                case Opcode.LOOP_START -> {
+                    var iterator = iteratorOf((InterpreterDataType) slots[--sp]);
+                    slots[fp + code[pc + 1]] = iterator;
+                    if (code[pc + 2] == 1)
+                        slots[sp++] = loopVariableFor(iterator);
+                    pc += 3;
+                }
+                case Opcode.JUMP_IF_ITERATOR -> pc = slots[fp + code[pc + 1]] != null ? code[pc + 2] : pc + 3;
+                case Opcode.ITER_NEXT -> {
+                    var iterator = (ObjectIDT) slots[fp + code[pc + 1]];
+                    var getNext = findGetNext(iterator);
+                    if (getNext instanceof BuiltInMethodDeclarationNode || getNext.isPure && memoCache != null) {
+                        var returned = call(getNext, iterator, NO_VALUES);
+                        if (((BooleanIDT) returned[0]).getValue()) {
+                            slots[sp++] = returned[1];
+                            pc += 3;
+                        } else {
+                            pc = code[pc + 2];
+                        }
+                        continue;
+                    }
+                    var bytecode = bytecodeOf(getNext);
+                    frame.pc = pc;
+                    frame.sp = sp;
+                    slots = roomFor(bytecode, slots, sp);
+                    raw = roomFor(bytecode, raw, sp);
+                    frame = push(bytecode, iterator, slots, raw, sp);
+                    method = frame.method;
+                    object = frame.object;
+                    code = method.code;
+                    constants = method.constants;
+                    fp = sp;
+                    sp += method.maxLocals;
+                    pc = 0;
+                }
+
+                case Opcode.RETURN -> {
+                    var returned = returnedFrom(method, slots, raw, fp);
+                    if (frame.memoKey != null)
+                        memoCache.put(frame.memoKey, Arrays.asList(returned));
+                    var finished = pop();
+                    if (depth == base)
+                        return returned;
+                    // Back in the caller, finish the instruction that made the call
+                    frame = frames[depth - 1];
+                    method = frame.method;
+                    object = frame.object;
+                    code = method.code;
+                    constants = method.constants;
+                    fp = frame.fp;
+                    sp = frame.sp;
+                    pc = frame.pc;
+                    switch (code[pc]) {
+                        case Opcode.CALL -> {
+                            sp = pushReturned((CallSite) constants[code[pc + 1]], returned, slots, sp);
+                            pc += 2;
+                        }
+                        case Opcode.NEW -> {
+                            slots[sp++] = finished.object;
+                            pc += 2;
+                        }
+                        default -> { // ITER_NEXT
+                            if (((BooleanIDT) returned[0]).getValue()) {
+                                slots[sp++] = returned[1];
+                                pc += 3;
+                            } else {
+                                pc = code[pc + 2];
+                            }
+                        }
+                    }
+                }
+                case Opcode.FAIL -> throw new RuntimeException((String) constants[code[pc + 1]]);
+                case Opcode.TAIL_CALL -> {
+                    int count = code[pc + 1];
+                    sp -= count;
+                    System.arraycopy(slots, sp, slots, fp, count);
+                    initialize(method, slots, raw, fp);
+                    sp = fp + method.maxLocals;
+                    pc = 0;
+                }
+                case Opcode.RAW_CONST -> {
+                    raw[sp++] = (Long) constants[code[pc + 1]];
+                    pc += 2;
+                }
+                case Opcode.RAW_LOAD -> {
+                    raw[sp++] = raw[fp + code[pc + 1]];
+                    pc += 2;
+                }
+                case Opcode.RAW_STORE -> {
+                    raw[fp + code[pc + 1]] = raw[--sp];
+                    pc += 2;
+                }
+                case Opcode.BOX -> {
+                    slots[sp - 1] = box(code[pc + 1], raw[sp - 1]);
+                    pc += 2;
+                }
+                case Opcode.UNBOX -> {
+                    raw[sp - 1] = unbox(code[pc + 1], (InterpreterDataType) slots[sp - 1]);
+                    pc += 2;
+                }
+
+                case Opcode.TIMES_START -> {
+                    int counter = fp + code[pc + 1];
+                    raw[counter] = 0;
+                    raw[counter + 1] = (int) number(raw[--sp]);
+                    pc += 2;
+                }
+                case Opcode.TIMES_NEXT -> {
+                    int counter = fp + code[pc + 1];
+                    long count = raw[counter] + 1;
+                    if (count > raw[counter + 1]) {
+                        pc = code[pc + 2];
+                    } else {
+                        raw[counter] = count;
+                        raw[sp++] = bits(count);
+                        pc += 3;
+                    }
+                }
+                case Opcode.INCREMENT -> {
+                    raw[fp + code[pc + 1]] = bits(number(raw[fp + code[pc + 1]]) + (Double) constants[code[pc + 2]]);
+                    superinstructionsExecuted[Opcode.INCREMENT - Opcode.FIRST_SUPERINSTRUCTION]++;
+                    pc += 3;
+                }
+                case Opcode.ADD_TO -> {
+                    double r = number(raw[--sp]);
+                    raw[fp + code[pc + 1]] = bits(number(raw[fp + code[pc + 1]]) + r);
+                    superinstructionsExecuted[Opcode.ADD_TO - Opcode.FIRST_SUPERINSTRUCTION]++;
+                    pc += 2;
+                }
+                case Opcode.JUMP_IF_COMPARE_FALSE -> {
+                    boolean result = Interpreter.compareNumbers(COMPARE_OPERATIONS[code[pc + 3]],
+                            number(raw[fp + code[pc + 1]]), (Double) constants[code[pc + 2]]);
+                    superinstructionsExecuted[Opcode.JUMP_IF_COMPARE_FALSE - Opcode.FIRST_SUPERINSTRUCTION]++;
+                    pc = result ? pc + 5 : code[pc + 4];
+                }
+                case Opcode.WRITE -> {
+                    ((ConsoleWrite) constants[code[pc + 1]]).Execute(List.of((InterpreterDataType) slots[--sp]));
+                    superinstructionsExecuted[Opcode.WRITE - Opcode.FIRST_SUPERINSTRUCTION]++;
+                    pc += 2;
+                }
+                default -> throw new RuntimeException("Unknown opcode " + code[pc] + " at " + pc + " in " + method.name);
+            }
+        }
+    }
+
+    // What a method returns, with its raw returns boxed
+    private static InterpreterDataType[] returnedFrom(BytecodeMethod method, Object[] slots, long[] raw, int fp) {
+        if (method.returnCount == 0)
+            return NO_VALUES;
+        var returned = new InterpreterDataType[method.returnCount];
+        for (int i = 0; i < returned.length; i++) {
+            int slot = method.firstReturnSlot + i;
+            int type = method.rawTypes[slot];
+            returned[i] = type == TypeTable.UNKNOWN ? (InterpreterDataType) slots[fp + slot] : box(type, raw[fp + slot]);
+        }
+        return returned;
+    }
+
+    // Push the values a CALL returns, last first, so the first one is on top
+    private static int pushReturned(CallSite site, InterpreterDataType[] returned, Object[] slots, int sp) {
+        if (returned.length < site.returnCount)
+            throw new RuntimeException("Method %s doesn't return enough values".formatted(site.call.methodName));
+        for (int i = site.returnCount - 1; i >= 0; i--)
+            slots[sp++] = returned[i];
+        return sp;
+    }
+
+    //              The heap stack
+
+    /**
+     * One running method or constructor. Its locals, and then its stack, are in execute()'s slots from fp on; a call
+     * puts the callee's frame right after the arguments on the caller's stack, so they become its parameters in place.
+     * Frames are kept when they're popped and reused by the next call, so once the stack has been as deep before, a
+     * call allocates nothing.
+     */
+    private static final class Frame {
+        BytecodeMethod method;
+        ObjectIDT object;
+        int fp;
+        // Where the method was when it made the call that is running now
+        int pc;
+        int sp;
+        // Set if the method is pure, and what it returns should be remembered
+        MemoCache.Key memoKey;
+    }
+
+    /**
+     * @param slots - how many local and stack slots all the running methods together may use; a call that would
+     *              need more fails with a stack overflow, instead of running out of memory
+     */
+    public void setStackBudget(long slots) {
+        stackBudget = slots;
+    }
+
+    // The slots, or a copy with enough room for a frame of the method at fp
+    private static Object[] roomFor(BytecodeMethod method, Object[] slots, int fp) {
+        int needed = fp + method.maxLocals + method.maxStack;
+        if (needed <= slots.length)
+            return slots;
+        return Arrays.copyOf(slots, Math.max(needed, slots.length * 2));
+    }
+
+    // Same as roomFor(slots), so they stay the same length
+    private static long[] roomFor(BytecodeMethod method, long[] raw, int fp) {
+        int needed = fp + method.maxLocals + method.maxStack;
+        if (needed <= raw.length)
+            return raw;
+        return Arrays.copyOf(raw, Math.max(needed, raw.length * 2));
+    }
+
+    // The parameters must already be in slots from fp on
+    private Frame push(BytecodeMethod method, ObjectIDT object, Object[] slots, long[] raw, int fp) {
+        int size = method.maxLocals + method.maxStack;
+        if (slotsInUse + size > stackBudget)
+            throw new RuntimeException("Stack overflow: calling %s needs more than the stack budget of %d slots".formatted(method.name, stackBudget));
+        if (depth == frames.length)
+            frames = Arrays.copyOf(frames, depth * 2);
+        var frame = frames[depth];
+        if (frame == null)
+            frame = frames[depth] = new Frame();
+        depth++;
+        slotsInUse += size;
+
+        frame.method = method;
+        frame.object = object;
+        frame.fp = fp;
+        frame.memoKey = null;
+        initialize(method, slots, raw, fp);
+        return frame;
+    }
+
+    // Unbox the method's raw parameters, and give its variables their starting values
+    private static void initialize(BytecodeMethod method, Object[] slots, long[] raw, int fp) {
+        var rawTypes = method.rawTypes;
+        for (int i = 0; i < method.parameterCount; i++) {
+            if (rawTypes[i] != TypeTable.UNKNOWN) {
+                raw[fp + i] = unbox(rawTypes[i], (InterpreterDataType) slots[fp + i]);
+                slots[fp + i] = null;
+            }
+        }
+        int slot = method.parameterCount;
+        for (var variable : method.variables) {
+            if (rawTypes[slot] == TypeTable.UNKNOWN) {
+                slots[fp + slot] = Interpreter.instantiate(variable);
+            } else {
+                // 0 is 0.0, false and '\0'
+                raw[fp + slot] = 0;
+                slots[fp + slot] = null;
+            }
+            slot++;
+        }
+        // Implicit variables and iterators start out empty
+        Arrays.fill(slots, fp + slot, fp + method.maxLocals, null);
+    }
+
+    private Frame pop() {
+        var frame = frames[--depth];
+        slotsInUse -= frame.method.maxLocals + frame.method.maxStack;
+        return frame;
+    }
+
+    /**
+     * Same as the start of Interpreter.interpretLoopStatement()
+     * @return the iterator the loop goes over, or null for a loop on a boolean
+     */
+    ObjectIDT iteratorOf(InterpreterDataType condition) {
+        while (condition instanceof ReferenceIDT reference)
+            condition = reference.refersTo.orElseThrow(() -> new RuntimeException("<Null> Reference Exception"));
+        if (condition instanceof ObjectIDT iterator) {
+            if (!interpreter.typeMatchToIDT(iteratorTypeId, iterator))
+                throw new RuntimeException("Object implementing <iterator> expected");
+            return iterator;
+        } else if (condition instanceof BooleanIDT) {
+            return null;
+        }
+        throw new RuntimeException("Iterator or Boolean expected as condition");
+    }
+
+    // The value a loop's variable starts with
+    InterpreterDataType loopVariableFor(ObjectIDT iterator) {
+        return Interpreter.instantiate(iterator == null ? "boolean" : findGetNext(iterator).returns.get(1).type);
+    }
+
+    //              Raw values
+
+    static long bits(double number) {
+        return Double.doubleToRawLongBits(number);
+    }
+
+    static double number(long raw) {
+        return Double.longBitsToDouble(raw);
+    }
+
+    static InterpreterDataType box(int type, long raw) {
+        return switch (type) {
+            case TypeTable.NUMBER -> new NumberIDT(number(raw));
+            case TypeTable.BOOLEAN -> new BooleanIDT(raw != 0);
+            default -> new CharIDT((char) raw);
+        };
+    }
+
+    // Fails the same way as assigning the value to a variable of the type
+    static long unbox(int type, InterpreterDataType value) {
+        switch (type) {
+            case TypeTable.NUMBER -> {
+                if (value instanceof NumberIDT number)
+                    return bits(number.getValue());
+                throw new RuntimeException("Trying to assign to a number IDT from a " + value.getClass());
+            }
+            case TypeTable.BOOLEAN -> {
+                if (value instanceof BooleanIDT bool)
+                    return bool.getValue() ? 1 : 0;
+                throw new RuntimeException("Trying to assign to a boolean IDT from a " + value.getClass());
+            }
+            default -> {
+                if (value instanceof CharIDT character)
+                    return character.getValue();
+                throw new RuntimeException("Trying to assign to a character IDT from a " + value.getClass());
+            }
+        }
+    }
+
+    private static InterpreterDataType valueOf(Object constant) {
+        return switch (constant) {
+            case Double number -> new NumberIDT(number);
+            case String string -> new StringIDT(string);
+            case Boolean bool -> new BooleanIDT(bool);
+            case Character character -> new CharIDT(character);
+            default -> throw new RuntimeException("Not a value: " + constant);
+        };
+    }
+
+    static InterpreterDataType member(ObjectIDT object, int index, Object name) {
+        if (object == null || object.members[index] == null)
+            throw new RuntimeException("Unable to find variable " + name);
+        return object.members[index];
+    }
+
+    static InterpreterDataType math(MathOpNode.MathOperations op, InterpreterDataType l, InterpreterDataType r) {
+        return switch (l) {
+            case NumberIDT leftNum when r instanceof NumberIDT rightNum -> new NumberIDT(Interpreter.doMath(op, leftNum.getValue(), rightNum.getValue()));
+            case StringIDT leftStr when r instanceof StringIDT || r instanceof CharIDT -> StringIDT.join(leftStr, r);
+            case CharIDT leftChar when r instanceof StringIDT -> StringIDT.join(leftChar, r);
+            case null, default -> throw new RuntimeException(String.format("Undefined operation: '%s %s %s'", l, op, r));
+        };
+    }
+
+    //              Calls
+
+    // Same as Interpreter.findMethodForMethodCallAndRunIt()
+    InterpreterDataType[] call(CallSite site, ObjectIDT object, InterpreterDataType target, InterpreterDataType[] values) {
+        var method = find(site, object, target, values, 0);
+        return call(method, receiverOf(site, object, target), values);
+    }
+
+    /**
+     * The method a call goes to, without running it
+     * @param values - holds the call's arguments, starting at from
+     */
+    private MethodDeclarationNode find(CallSite site, ObjectIDT object, InterpreterDataType target, Object[] values, int from) {
+        switch (site.kind) {
+            case SHARED -> {
+                if (site.candidates == null)
+                    findCandidates(site, site.cachedClass, true);
+                var method = match(site, values, from);
+                if (method == null)
+                    throw new RuntimeException("shared method '%s' not found in '%s'".formatted(site.call.methodName, site.cachedClass.name));
+                return method;
+            }
+            case SELF -> {
+                if (object == null)
+                    throw new RuntimeException("Calling object or class not found for method " + site.call);
+                return methodIn(site, object, values, from);
+            }
+            default -> {
+                while (target instanceof ReferenceIDT reference)
+                    target = reference.refersTo.orElseThrow(() -> new RuntimeException("<Null> reference exception"));
+                if (target instanceof ObjectIDT callingObject) {
+                    // `clone` is a built-in method of all objects
+                    if (site.call.methodName.equals("clone"))
+                        return new CloneObjectMethod(callingObject);
+                    return methodIn(site, callingObject, values, from);
+                } else if (target instanceof NumberIDT number) {
+                    // `times` is the only built-in method of all numbers
+                    if (!site.call.methodName.equals("times"))
+                        throw new RuntimeException("Method %s not found for type <Number> ".formatted(site.call.methodName));
+                    return new CreateInteratorMethodDeclaration(number, interatorClass);
+                }
+                throw new RuntimeException("Method %s not found in %s".formatted(site.call.methodName, site.call.objectName.get()));
+            }
+        }
+    }
+
+    // The object a call runs on, once find() has found its method: null for shared methods and times()
+    private static ObjectIDT receiverOf(CallSite site, ObjectIDT object, InterpreterDataType target) {
+        if (site.kind == CallSite.Kind.SHARED)
+            return null;
+        if (site.kind == CallSite.Kind.SELF)
+            return object;
+        while (target instanceof ReferenceIDT reference)
+            target = reference.refersTo.orElseThrow();
+        return target instanceof ObjectIDT callingObject ? callingObject : null;
+    }
+
+    private MethodDeclarationNode methodIn(CallSite site, ObjectIDT object, Object[] values, int from) {
+        if (object.astNode != site.cachedClass)
+            findCandidates(site, object.astNode, false);
+        var method = match(site, values, from);
+        if (method == null)
+            throw new RuntimeException("Unable to resolve method call " + site.call);
+        return method;
+    }
+
+    private static void findCandidates(CallSite site, ClassNode classNode, boolean sharedOnly) {
+        var found = new ArrayList<MethodDeclarationNode>();
+        for (var method : classNode.methods) {
+            if (!method.name.equals(site.call.methodName) || site.call.returnValues.size() > method.returns.size())
+                continue;
+            if (sharedOnly && (!method.isShared || method.isPrivate))
+                continue;
+            found.add(method);
+        }
+        site.cachedClass = classNode;
+        site.candidates = found.toArray(new MethodDeclarationNode[0]);
+    }
+
+    private MethodDeclarationNode match(CallSite site, Object[] values, int from) {
+        for (var candidate : site.candidates)
+            if (argumentsMatch(candidate, values, from, site.argumentCount))
+                return candidate;
+        return null;
+    }
+
+    MethodDeclarationNode findGetNext(ObjectIDT iterator) {
+        for (var method : iterator.astNode.methods)
+            if (method.name.equals("getNext") && argumentsMatch(method, NO_VALUES, 0, 0))
+                return method;
+        throw new RuntimeException("Unable to resolve method call getNext ()");
+    }
+
+    ObjectIDT construct(NewSite site, InterpreterDataType[] values) {
+        var instance = instanceOf(site.classNode);
+        construct(site, constructorFor(site, values, 0), instance, values);
+        return instance;
+    }
+
+    // A new object of the class, with its members at their defaults
+    private static ObjectIDT instanceOf(ClassNode classNode) {
+        var instance = new ObjectIDT(classNode);
+        for (int i = 0; i < classNode.members.size(); i++)
+            instance.members[i] = Interpreter.instantiate(classNode.members.get(i).declaration);
+        return instance;
+    }
+
+    // The index of the first of the site's constructors that takes the values starting at from
+    private int constructorFor(NewSite site, Object[] values, int from) {
+        for (int c = 0; c < site.constructors.length; c++)
+            if (typesMatch(site.classNode.constructors.get(c).parameters, values, from, site.argumentCount))
+                return c;
+        throw new RuntimeException("Constructor not found for %s".formatted(site.classNode.name));
+    }
+
+    private boolean argumentsMatch(MethodDeclarationNode method, Object[] values, int from, int count) {
+        if (method instanceof BuiltInMethodDeclarationNode builtIn && builtIn.isVariadic)
+            return true;
+        return typesMatch(method.parameters, values, from, count);
+    }
+
+    private boolean typesMatch(List<VariableDeclarationNode> parameters, Object[] values, int from, int count) {
+        if (parameters.size() != count)
+            return false;
+        for (int i = 0; i < count; i++)
+            if (!interpreter.typeMatchToIDT(parameters.get(i).typeId, (InterpreterDataType) values[from + i]))
+                return false;
+        return true;
+    }
+}
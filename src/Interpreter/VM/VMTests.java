@@ -0,0 +1,187 @@
+package Interpreter.VM;
+
+import Interpreter.Interpreter;
+import Interpreter.InterpreterTests;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+// Runs every interpreter test on the VM
+public class VMTests extends InterpreterTests {
+    @Override
+    protected Interpreter.Engine engine() {
+        return Interpreter.Engine.VM;
+    }
+
+    @Test
+    public void bytecodeCanBeDisassembled() throws Exception {
+        String program = """
+                class Tran
+                    shared start()
+                        number i
+                        number total
+                        number n
+                        n = 3
+                        loop i = n.times()
+                            if i != 2
+                                total = total + i
+                        console.write("total: ", total)
+                """;
+        var tran = parse(program);
+        var interpreter = new Interpreter(tran);
+        var start = Interpreter.findStartMethod(tran).orElseThrow();
+        var bytecode = new VM(interpreter, tran, null, -1).bytecodeOf(start);
+        var listing = Disassembler.disassemble(bytecode);
+        Assertions.assertTrue(listing.startsWith("start (max stack "), listing);
+        // n is a number local, so the loop counts in raw slots instead of calling times() and getNext()
+        Assertions.assertTrue(listing.contains("TIMES_START"), listing);
+        Assertions.assertTrue(listing.contains("TIMES_NEXT"), listing);
+        Assertions.assertFalse(listing.contains("ITER_NEXT"), listing);
+        Assertions.assertFalse(listing.contains("n.times"), listing);
+        // The TypeChecker knows the loop is over an iterator, so there is no code for a boolean loop
+        Assertions.assertFalse(listing.contains("JUMP_IF_ITERATOR"), listing);
+        // i != 2 and total = total + i are each one superinstruction
+        Assertions.assertTrue(listing.contains("JUMP_IF_COMPARE_FALSE"), listing);
+        Assertions.assertTrue(listing.contains("; ne 2.0"), listing);
+        Assertions.assertTrue(listing.contains("ADD_TO"), listing);
+        Assertions.assertTrue(listing.contains("; \"total: \""), listing);
+        Assertions.assertTrue(listing.endsWith("RETURN\n"), listing);
+    }
+
+    @Test
+    public void superinstructionsAreCounted() throws Exception {
+        String program = """
+                class Tran
+                    shared start()
+                        number i
+                        number total
+                        total = 0
+                        loop i < 5
+                            i = i + 1
+                            total = total + i * 2
+                        if total >= 30
+                            console.write(total)
+                """;
+        var tran = parse(program);
+        var interpreter = new Interpreter(tran);
+        interpreter.setEngine(Interpreter.Engine.VM);
+        interpreter.start();
+
+        var counts = interpreter.getSuperinstructionCounts();
+        Assertions.assertEquals(5, (long) counts.get("INCREMENT"));
+        Assertions.assertEquals(5, (long) counts.get("ADD_TO"));
+        // The loop's condition is checked 6 times, and the if's once
+        Assertions.assertEquals(7, (long) counts.get("JUMP_IF_COMPARE_FALSE"));
+        Assertions.assertEquals(1, (long) counts.get("WRITE"));
+    }
+
+    private static final String DEEP = """
+            class Tran
+                shared depth(number n) : number result
+                    if n == 0
+                        result = 0
+                    else
+                        result = Tran.depth(n - 1)
+                        result = result + 1
+
+                shared start()
+                    console.write(Tran.depth(100000))
+            """;
+
+    @Test
+    public void recursionIsOnlyLimitedByTheStackBudget() throws Exception {
+        var tran = parse(DEEP);
+        var interpreter = new Interpreter(tran, notInlining());
+        interpreter.setEngine(Interpreter.Engine.VM);
+        interpreter.start();
+        // Far deeper than the Java stack would go
+        Assertions.assertEquals(List.of("100000"), getConsole(tran));
+
+        interpreter = new Interpreter(parse(DEEP), notInlining());
+        interpreter.setEngine(Interpreter.Engine.VM);
+        interpreter.setStackBudget(1000);
+        var error = Assertions.assertThrows(RuntimeException.class, interpreter::start);
+        Assertions.assertTrue(error.getMessage().startsWith("Stack overflow"), error.getMessage());
+    }
+
+    @Test
+    public void tailCallsDontUseMoreStack() throws Exception {
+        String program = """
+                class Tran
+                    shared count(number n, number counted) : number result
+                        if n == 0
+                            result = counted
+                        else
+                            result = Tran.count(n - 1, counted + 1)
+
+                    shared start()
+                        console.write(Tran.count(100000, 0))
+                """;
+        var tran = parse(program);
+        var interpreter = new Interpreter(tran, notInlining());
+        interpreter.setEngine(Interpreter.Engine.VM);
+        // Enough for start() and one count()
+        interpreter.setStackBudget(100);
+        interpreter.start();
+        Assertions.assertEquals(List.of("100000"), getConsole(tran));
+    }
+
+    private static final String ARITHMETIC = """
+            class Tran
+                shared start()
+                    number i
+                    number n
+                    number total
+                    boolean even
+                    character c
+                    n = %d
+                    loop i < n
+                        i = i + 1
+                        even = i %% 2 == 0
+                        if even and not i > n
+                            total = total + i * 2 - i
+                        c = 'x'
+                    console.write(total, " ", c)
+            """;
+
+    @Test
+    public void arithmeticOnLocalsAllocatesNothing() throws Exception {
+        // Warm up, so the JIT doesn't make the second run's allocations different
+        allocatedRunning(ARITHMETIC.formatted(1000), Interpreter.Engine.VM, notInlining());
+        long few = allocatedRunning(ARITHMETIC.formatted(1000), Interpreter.Engine.VM, notInlining());
+        long many = allocatedRunning(ARITHMETIC.formatted(201000), Interpreter.Engine.VM, notInlining());
+        // Less than a byte for each of the extra 200000 times round the loop
+        Assertions.assertTrue(many - few < 200000, "%d bytes more".formatted(many - few));
+    }
+
+    // newCounter() keeps the ScalarReplacer from replacing the calls with touch()'s (empty) body
+    private static final String CALLS = """
+            class Counter
+                construct()
+                touch()
+            class Tran
+                shared newCounter() : Counter counter
+                    counter = new Counter()
+
+                shared start()
+                    Counter counter
+                    number i
+                    number n
+                    counter = Tran.newCounter()
+                    n = %d
+                    loop i < n
+                        i = i + 1
+                        counter.touch()
+                    console.write(i)
+            """;
+
+    @Test
+    public void callsAllocateNothing() throws Exception {
+        allocatedRunning(CALLS.formatted(1000), Interpreter.Engine.VM, notInlining());
+        long few = allocatedRunning(CALLS.formatted(1000), Interpreter.Engine.VM, notInlining());
+        long many = allocatedRunning(CALLS.formatted(201000), Interpreter.Engine.VM, notInlining());
+        // Less than a byte for each of the extra 200000 calls
+        Assertions.assertTrue(many - few < 200000, "%d bytes more".formatted(many - few));
+    }
+}
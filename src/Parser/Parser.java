@@ -865,7 +865,7 @@ public class Parser {
         if (numLit.isEmpty())
             return Optional.empty();
         var numberLiteralNode = new NumericLiteralNode();
-        numberLiteralNode.value = Float.parseFloat(numLit.get());
+        numberLiteralNode.value = Double.parseDouble(numLit.get());
         return Optional.of(numberLiteralNode);
     }
 
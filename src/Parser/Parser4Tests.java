@@ -104,14 +104,14 @@ public class Parser4Tests {
             Assertions.assertInstanceOf(AssignmentNode.class, m.statements.get(i));
             Assertions.assertEquals(stmntStrs[i], m.statements.get(i).toString());
         }
-        var stmntVals = new float[] {
+        var stmntVals = new double[] {
                 2,
                 0,
                 700,
-                99 / 1039f,
+                99 / 1039.0,
                 235 % 1293,
                 0, // 78 - 2 * 39
-                1 + 2 - 3 * 4 / 8f % 9
+                1 + 2 - 3 * 4 / 8.0 % 9
         };
         Assertions.assertEquals(stmntVals[0], evaluate(((AssignmentNode) m.statements.get(0)).expression)); // a
         Assertions.assertEquals(stmntVals[1], evaluate(((AssignmentNode) m.statements.get(1)).expression)); // b
@@ -122,7 +122,7 @@ public class Parser4Tests {
         Assertions.assertEquals(stmntVals[6], evaluate(((AssignmentNode) m.statements.get(8)).expression)); // i
     }
 
-    private float evaluate(ExpressionNode exp) {
+    private double evaluate(ExpressionNode exp) {
         if (exp instanceof NumericLiteralNode number) // Base case
             return number.value;
         else if (exp instanceof MathOpNode mathOpNode) {